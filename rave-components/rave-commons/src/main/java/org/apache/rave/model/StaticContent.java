@@ -29,7 +29,8 @@ import java.util.Map;
 public class StaticContent {   
     private String id;
     private URI location;
-    private String content;
+    // replaced as a whole on refresh and read without locking
+    private volatile String content;
     // replacementTokens can be used when the static content artifact is a template and needs some
     // environment specific tokens to be replaced
     private Map<String, String> replacementTokens;
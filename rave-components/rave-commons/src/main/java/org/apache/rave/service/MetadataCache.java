@@ -0,0 +1,81 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.apache.rave.service;
+
+/**
+ * A bounded cache for remote widget metadata keyed by widget url.
+ *
+ * Concurrent misses for the same key share a single call to the {@link MetadataLoader} and expired entries are
+ * served while they are reloaded in the background.
+ *
+ * @param <V> the type of metadata cached
+ */
+public interface MetadataCache<V> {
+    /**
+     * Returns the metadata for the given key, loading it with the supplied loader if it is not cached yet
+     *
+     * @param key    the key of the metadata
+     * @param loader the loader used to fetch the metadata on a miss or refresh
+     * @return the metadata, or null if the loader returned none
+     */
+    V get(String key, MetadataLoader<V> loader);
+
+    /**
+     * Returns the metadata for the given key if it is cached, without loading it on a miss. An expired entry is still
+     * returned and reloaded in the background with the supplied loader.
+     *
+     * @param key    the key of the metadata
+     * @param loader the loader used to refresh an expired entry
+     * @return the cached metadata, or null if the key is not cached
+     */
+    V getIfPresent(String key, MetadataLoader<V> loader);
+
+    /**
+     * Caches metadata that was fetched outside of a {@link MetadataLoader}, for example in a batch
+     *
+     * @param key        the key of the metadata
+     * @param value      the metadata
+     * @param expiration the time in milliseconds since the epoch at which the metadata expires, or 0 if unknown
+     */
+    void put(String key, V value, long expiration);
+
+    /**
+     * Removes the metadata for the given key from the cache
+     *
+     * @param key the key of the metadata
+     */
+    void invalidate(String key);
+
+    /**
+     * Removes all metadata from the cache
+     */
+    void invalidateAll();
+
+    /**
+     * @return the number of entries currently held by the cache
+     */
+    int size();
+
+    /**
+     * @return a snapshot of the hit, miss and load counters of this cache
+     */
+    MetadataCacheStatistics getStatistics();
+}
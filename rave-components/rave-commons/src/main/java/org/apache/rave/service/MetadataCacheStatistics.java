@@ -0,0 +1,124 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.apache.rave.service;
+
+/**
+ * Point in time snapshot of the counters of a {@link MetadataCache}
+ */
+public class MetadataCacheStatistics {
+    private final String name;
+    private final int size;
+    private final long hitCount;
+    private final long staleHitCount;
+    private final long missCount;
+    private final long loadCount;
+    private final long loadFailureCount;
+    private final long totalLoadTimeMillis;
+    private final long evictionCount;
+
+    public MetadataCacheStatistics(String name, int size, long hitCount, long staleHitCount, long missCount,
+                                   long loadCount, long loadFailureCount, long totalLoadTimeMillis, long evictionCount) {
+        this.name = name;
+        this.size = size;
+        this.hitCount = hitCount;
+        this.staleHitCount = staleHitCount;
+        this.missCount = missCount;
+        this.loadCount = loadCount;
+        this.loadFailureCount = loadFailureCount;
+        this.totalLoadTimeMillis = totalLoadTimeMillis;
+        this.evictionCount = evictionCount;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * @return the number of requests answered with a fresh entry
+     */
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * @return the number of requests answered with an expired entry while it was being refreshed
+     */
+    public long getStaleHitCount() {
+        return staleHitCount;
+    }
+
+    /**
+     * @return the number of requests that had to wait for the metadata to be loaded
+     */
+    public long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * @return the number of calls made to the underlying loader, including background refreshes
+     */
+    public long getLoadCount() {
+        return loadCount;
+    }
+
+    public long getLoadFailureCount() {
+        return loadFailureCount;
+    }
+
+    public long getTotalLoadTimeMillis() {
+        return totalLoadTimeMillis;
+    }
+
+    public long getAverageLoadTimeMillis() {
+        return loadCount == 0 ? 0 : totalLoadTimeMillis / loadCount;
+    }
+
+    public long getEvictionCount() {
+        return evictionCount;
+    }
+
+    /**
+     * @return the fraction of requests answered from the cache, fresh or stale
+     */
+    public double getHitRatio() {
+        long requests = hitCount + staleHitCount + missCount;
+        return requests == 0 ? 0d : (double) (hitCount + staleHitCount) / requests;
+    }
+
+    @Override
+    public String toString() {
+        return "MetadataCacheStatistics{" +
+                "name='" + name + '\'' +
+                ", size=" + size +
+                ", hitCount=" + hitCount +
+                ", staleHitCount=" + staleHitCount +
+                ", missCount=" + missCount +
+                ", loadCount=" + loadCount +
+                ", loadFailureCount=" + loadFailureCount +
+                ", totalLoadTimeMillis=" + totalLoadTimeMillis +
+                ", evictionCount=" + evictionCount +
+                '}';
+    }
+}
@@ -0,0 +1,46 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.apache.rave.service;
+
+/**
+ * Loads a single metadata entry on behalf of a {@link MetadataCache}
+ *
+ * @param <V> the type of metadata loaded
+ */
+public interface MetadataLoader<V> {
+    /**
+     * Fetches the metadata for the given key from its source
+     *
+     * @param key the key of the metadata (typically the widget url)
+     * @return the metadata, or null if the source has none for the key
+     */
+    V load(String key);
+
+    /**
+     * Returns the point in time at which the loaded metadata should be refreshed, as advertised by its source
+     *
+     * @param key   the key of the metadata
+     * @param value the value returned by {@link #load(String)}
+     * @return the expiration time in milliseconds since the epoch, or a value less than or equal to zero if the source
+     *         does not provide one and the cache default applies
+     */
+    long getExpiration(String key, V value);
+}
@@ -0,0 +1,149 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.rave.service.impl;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.rave.service.LockService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * LockService implementation that keeps its shared locks in a ConcurrentHashMap and tracks borrowers with an atomic
+ * reference count, so borrowing and returning a lock never serializes on a service wide monitor.
+ * <p/>
+ * A lock is retired when its reference count drops to zero.  A retired lock can never be borrowed again - a borrower
+ * that races with the retirement removes the stale entry and retries with a fresh lock - which guarantees that all
+ * concurrent borrowers of the same key always receive the same lock instance.
+ * <p/>
+ * This is the default LockService, see {@link LockServiceFactoryBean} for selecting another implementation.
+ */
+@Service
+public class ConcurrentLockService implements LockService {
+    private static Logger logger = LoggerFactory.getLogger(ConcurrentLockService.class);
+
+    private final ConcurrentMap<String, ReferenceTrackingLock> locks;
+
+    public ConcurrentLockService() {
+        this(16);
+    }
+
+    /**
+     * @param concurrencyLevel the estimated number of threads concurrently borrowing and returning locks
+     */
+    public ConcurrentLockService(int concurrencyLevel) {
+        this.locks = new ConcurrentHashMap<String, ReferenceTrackingLock>(64, 0.75f, concurrencyLevel);
+    }
+
+    @Override
+    public Lock borrowLock(String key) {
+        logger.debug("BorrowLock called with key [{}]", key);
+        while (true) {
+            ReferenceTrackingLock lock = locks.get(key);
+            if (lock == null) {
+                ReferenceTrackingLock created = new ReferenceTrackingLock(key);
+                lock = locks.putIfAbsent(key, created);
+                if (lock == null) {
+                    logger.debug("Existing lock not found under key [{}] - created new lock", key);
+                    return created;
+                }
+            }
+            if (lock.tryIncrementReferenceCount()) {
+                logger.debug("Existing lock found under key [{}] - returning existing lock", key);
+                return lock;
+            }
+            //the lock we found has been retired by a concurrent returnLock call - help remove it and try again
+            locks.remove(key, lock);
+        }
+    }
+
+    @Override
+    public Lock borrowLock(String discriminator, String id) {
+        if (StringUtils.isEmpty(discriminator)) {
+            return borrowLock(id);
+        }
+        return borrowLock(new StringBuilder(discriminator).append("-").append(id).toString());
+    }
+
+    @Override
+    public void returnLock(Lock lock) {
+        ReferenceTrackingLock referenceTrackingLock = (ReferenceTrackingLock) lock;
+        int referenceCount = referenceTrackingLock.decrementReferenceCount();
+        logger.debug("Lock with key [{}] has been returned - remaining referenceCount [{}]",
+                referenceTrackingLock.getKey(), referenceCount);
+        if (referenceCount == 0) {
+            logger.debug("Lock with key [{}] is being removed from service", referenceTrackingLock.getKey());
+            locks.remove(referenceTrackingLock.getKey(), referenceTrackingLock);
+        }
+    }
+
+    /**
+     * @return the number of locks currently held by the service
+     */
+    int size() {
+        return locks.size();
+    }
+
+    static class ReferenceTrackingLock extends ReentrantLock {
+        private final String key;
+        private final AtomicInteger referenceCount;
+
+        private ReferenceTrackingLock(String key) {
+            super();
+            this.key = key;
+            this.referenceCount = new AtomicInteger(1);
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public int getReferenceCount() {
+            return referenceCount.get();
+        }
+
+        /**
+         * Increments the reference count unless the lock has already been retired.
+         *
+         * @return true if the reference was taken, false if the lock was retired
+         */
+        boolean tryIncrementReferenceCount() {
+            while (true) {
+                int current = referenceCount.get();
+                if (current < 1) {
+                    return false;
+                }
+                if (referenceCount.compareAndSet(current, current + 1)) {
+                    return true;
+                }
+            }
+        }
+
+        int decrementReferenceCount() {
+            return referenceCount.decrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,428 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.apache.rave.service.impl;
+
+import org.apache.rave.service.MetadataCache;
+import org.apache.rave.service.MetadataCacheStatistics;
+import org.apache.rave.service.MetadataLoader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link MetadataCache} backed by a {@link ConcurrentHashMap}.
+ *
+ * Each entry expires at the time advertised by its {@link MetadataLoader}, bounded by the configured maximum time to
+ * live, or after the default time to live if the loader does not advertise one. An expired entry is still returned
+ * while a single background thread reloads it, until it has been expired for longer than the stale time to live, after
+ * which callers wait for a fresh copy again. When the cache grows past its maximum size the expired entries and then
+ * the least recently used ones are evicted.
+ *
+ * @param <V> the type of metadata cached
+ */
+public class DefaultMetadataCache<V> implements MetadataCache<V> {
+    private static final Logger logger = LoggerFactory.getLogger(DefaultMetadataCache.class);
+
+    public static final int DEFAULT_MAX_ENTRIES = 1000;
+    public static final long DEFAULT_TIME_TO_LIVE = TimeUnit.MINUTES.toMillis(5);
+    public static final long DEFAULT_MAX_TIME_TO_LIVE = TimeUnit.HOURS.toMillis(1);
+    private static final int MAX_PENDING_REFRESHES = 1000;
+
+    private final String name;
+    private final int maxEntries;
+    private final long defaultTimeToLive;
+    private final long maxTimeToLive;
+    private long staleTimeToLive;
+    private int refreshThreads = 2;
+
+    private final ConcurrentMap<String, CacheEntry<V>> entries = new ConcurrentHashMap<String, CacheEntry<V>>();
+    private ThreadPoolExecutor refreshExecutor;
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong staleHitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong loadCount = new AtomicLong();
+    private final AtomicLong loadFailureCount = new AtomicLong();
+    private final AtomicLong loadTimeNanos = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+
+    public DefaultMetadataCache(String name) {
+        this(name, DEFAULT_MAX_ENTRIES, DEFAULT_TIME_TO_LIVE, DEFAULT_MAX_TIME_TO_LIVE);
+    }
+
+    /**
+     * @param name              the name of the cache, used for its refresh threads and statistics
+     * @param maxEntries        the number of entries above which entries are evicted
+     * @param defaultTimeToLive the time in milliseconds an entry stays fresh if its loader does not advertise one
+     * @param maxTimeToLive     the upper bound in milliseconds of the time an entry stays fresh
+     */
+    public DefaultMetadataCache(String name, int maxEntries, long defaultTimeToLive, long maxTimeToLive) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("maxEntries must be at least 1");
+        }
+        if (defaultTimeToLive < 0 || maxTimeToLive < defaultTimeToLive) {
+            throw new IllegalArgumentException("Time to live must satisfy 0 <= defaultTimeToLive <= maxTimeToLive");
+        }
+        this.name = name;
+        this.maxEntries = maxEntries;
+        this.defaultTimeToLive = defaultTimeToLive;
+        this.maxTimeToLive = maxTimeToLive;
+        this.staleTimeToLive = maxTimeToLive;
+    }
+
+    /**
+     * @param staleTimeToLive the time in milliseconds an expired entry may still be served while it is refreshed
+     */
+    public void setStaleTimeToLive(long staleTimeToLive) {
+        this.staleTimeToLive = staleTimeToLive;
+    }
+
+    /**
+     * @param refreshThreads the maximum number of entries refreshed in the background at the same time
+     */
+    public void setRefreshThreads(int refreshThreads) {
+        this.refreshThreads = refreshThreads;
+    }
+
+    @Override
+    public V get(String key, MetadataLoader<V> loader) {
+        CacheEntry<V> entry = entries.get(key);
+        if (entry != null && entry.snapshot == null) {
+            // another thread is loading the entry for the first time
+            missCount.incrementAndGet();
+            return entry.awaitLoad();
+        }
+        Snapshot<V> snapshot = getServable(entry, loader);
+        return snapshot != null ? snapshot.value : loadEntry(key, loader);
+    }
+
+    @Override
+    public V getIfPresent(String key, MetadataLoader<V> loader) {
+        CacheEntry<V> entry = entries.get(key);
+        Snapshot<V> snapshot = entry == null || entry.snapshot == null ? null : getServable(entry, loader);
+        if (snapshot == null) {
+            missCount.incrementAndGet();
+            return null;
+        }
+        return snapshot.value;
+    }
+
+    @Override
+    public void put(String key, V value, long expiration) {
+        if (value == null) {
+            return;
+        }
+        long now = currentTimeMillis();
+        Snapshot<V> snapshot = new Snapshot<V>(value, now + getTimeToLive(now, expiration));
+        CacheEntry<V> existing = entries.get(key);
+        if (existing != null) {
+            // an entry that is still being loaded for the first time gets the loaded value instead
+            if (existing.snapshot != null) {
+                existing.snapshot = snapshot;
+                existing.lastAccess = now;
+            }
+            return;
+        }
+        CacheEntry<V> created = new CacheEntry<V>(key, snapshot);
+        created.lastAccess = now;
+        if (entries.putIfAbsent(key, created) == null) {
+            evictIfNecessary();
+        }
+    }
+
+    @Override
+    public void invalidate(String key) {
+        entries.remove(key);
+    }
+
+    @Override
+    public void invalidateAll() {
+        entries.clear();
+    }
+
+    @Override
+    public int size() {
+        return entries.size();
+    }
+
+    @Override
+    public MetadataCacheStatistics getStatistics() {
+        return new MetadataCacheStatistics(name, entries.size(), hitCount.get(), staleHitCount.get(), missCount.get(),
+                loadCount.get(), loadFailureCount.get(), TimeUnit.NANOSECONDS.toMillis(loadTimeNanos.get()),
+                evictionCount.get());
+    }
+
+    /**
+     * Stops the background refresh threads
+     */
+    public synchronized void destroy() {
+        if (refreshExecutor != null) {
+            refreshExecutor.shutdownNow();
+            refreshExecutor = null;
+        }
+    }
+
+    long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    /**
+     * Returns the snapshot of a loaded entry if it may still be served, refreshing it in the background when it has
+     * expired, or null after removing the entry if it has been expired for too long
+     */
+    private Snapshot<V> getServable(CacheEntry<V> entry, MetadataLoader<V> loader) {
+        if (entry == null) {
+            return null;
+        }
+        long now = currentTimeMillis();
+        Snapshot<V> snapshot = entry.snapshot;
+        entry.lastAccess = now;
+        if (now < snapshot.expiresAt) {
+            hitCount.incrementAndGet();
+            return snapshot;
+        }
+        if (now < snapshot.expiresAt + staleTimeToLive) {
+            staleHitCount.incrementAndGet();
+            refreshInBackground(entry, loader);
+            return snapshot;
+        }
+        entries.remove(entry.key, entry);
+        return null;
+    }
+
+    private V loadEntry(final String key, final MetadataLoader<V> loader) {
+        final CacheEntry<V> created = new CacheEntry<V>(key, new Callable<Snapshot<V>>() {
+            @Override
+            public Snapshot<V> call() {
+                return load(key, loader);
+            }
+        });
+        created.lastAccess = currentTimeMillis();
+        missCount.incrementAndGet();
+        CacheEntry<V> existing = entries.putIfAbsent(key, created);
+        if (existing != null) {
+            Snapshot<V> snapshot = existing.snapshot;
+            return snapshot != null ? snapshot.value : existing.awaitLoad();
+        }
+        evictIfNecessary();
+        created.initialLoad.run();
+        try {
+            V value = created.awaitLoad();
+            if (value == null) {
+                // nothing to cache, the next request asks the loader again
+                entries.remove(key, created);
+            }
+            return value;
+        } catch (RuntimeException e) {
+            entries.remove(key, created);
+            throw e;
+        }
+    }
+
+    private void refreshInBackground(final CacheEntry<V> entry, final MetadataLoader<V> loader) {
+        if (!entry.refreshing.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            getRefreshExecutor().execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        Snapshot<V> snapshot = load(entry.key, loader);
+                        if (snapshot.value == null) {
+                            entries.remove(entry.key, entry);
+                        } else {
+                            entry.snapshot = snapshot;
+                        }
+                    } catch (RuntimeException e) {
+                        logger.warn("Unable to refresh metadata for {} in cache {}, serving the expired copy: {}",
+                                new Object[]{entry.key, name, e.getMessage()});
+                    } finally {
+                        entry.refreshing.set(false);
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            entry.refreshing.set(false);
+            logger.debug("Refresh queue of cache {} is full, serving the expired copy of {}", name, entry.key);
+        }
+    }
+
+    private Snapshot<V> load(String key, MetadataLoader<V> loader) {
+        long start = System.nanoTime();
+        loadCount.incrementAndGet();
+        try {
+            V value = loader.load(key);
+            long now = currentTimeMillis();
+            long timeToLive = value != null ? getTimeToLive(now, loader.getExpiration(key, value)) : defaultTimeToLive;
+            return new Snapshot<V>(value, now + timeToLive);
+        } catch (RuntimeException e) {
+            loadFailureCount.incrementAndGet();
+            throw e;
+        } finally {
+            loadTimeNanos.addAndGet(System.nanoTime() - start);
+        }
+    }
+
+    private long getTimeToLive(long now, long expiration) {
+        return expiration > now ? Math.min(expiration - now, maxTimeToLive) : defaultTimeToLive;
+    }
+
+    private void evictIfNecessary() {
+        if (entries.size() <= maxEntries) {
+            return;
+        }
+        long now = currentTimeMillis();
+        List<Map.Entry<String, CacheEntry<V>>> candidates = new ArrayList<Map.Entry<String, CacheEntry<V>>>();
+        for (Map.Entry<String, CacheEntry<V>> candidate : entries.entrySet()) {
+            Snapshot<V> snapshot = candidate.getValue().snapshot;
+            if (snapshot == null) {
+                continue;
+            }
+            if (snapshot.expiresAt <= now) {
+                evict(candidate);
+            } else {
+                candidates.add(candidate);
+            }
+        }
+        // evict down to 90% of the maximum so that the next few inserts do not have to scan again
+        int target = maxEntries - maxEntries / 10;
+        if (entries.size() > target) {
+            Collections.sort(candidates, new Comparator<Map.Entry<String, CacheEntry<V>>>() {
+                @Override
+                public int compare(Map.Entry<String, CacheEntry<V>> o1, Map.Entry<String, CacheEntry<V>> o2) {
+                    long a = o1.getValue().lastAccess;
+                    long b = o2.getValue().lastAccess;
+                    return a < b ? -1 : (a == b ? 0 : 1);
+                }
+            });
+            for (int i = 0; i < candidates.size() && entries.size() > target; i++) {
+                evict(candidates.get(i));
+            }
+        }
+    }
+
+    private void evict(Map.Entry<String, CacheEntry<V>> candidate) {
+        if (entries.remove(candidate.getKey(), candidate.getValue())) {
+            evictionCount.incrementAndGet();
+        }
+    }
+
+    private synchronized ThreadPoolExecutor getRefreshExecutor() {
+        if (refreshExecutor == null) {
+            refreshExecutor = new ThreadPoolExecutor(refreshThreads, refreshThreads, 60, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<Runnable>(MAX_PENDING_REFRESHES), new RefreshThreadFactory(name));
+            refreshExecutor.allowCoreThreadTimeOut(true);
+        }
+        return refreshExecutor;
+    }
+
+    private static class Snapshot<V> {
+        private final V value;
+        private final long expiresAt;
+
+        private Snapshot(V value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private static class CacheEntry<V> {
+        private final String key;
+        private final AtomicBoolean refreshing = new AtomicBoolean();
+        private final FutureTask<Snapshot<V>> initialLoad;
+        private volatile Snapshot<V> snapshot;
+        private volatile long lastAccess;
+
+        private CacheEntry(String key, Callable<Snapshot<V>> loader) {
+            this.key = key;
+            this.initialLoad = new FutureTask<Snapshot<V>>(loader);
+        }
+
+        /**
+         * Creates an entry for a value that has already been loaded
+         */
+        private CacheEntry(String key, Snapshot<V> snapshot) {
+            this.key = key;
+            this.initialLoad = null;
+            this.snapshot = snapshot;
+        }
+
+        /**
+         * Waits for the first load of this entry, which is run by the thread that created it
+         */
+        private V awaitLoad() {
+            try {
+                Snapshot<V> loaded = initialLoad.get();
+                if (snapshot == null && loaded.value != null) {
+                    snapshot = loaded;
+                }
+                return loaded.value;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for metadata of " + key, e);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw new IllegalStateException("Unable to load metadata of " + key, cause);
+            }
+        }
+    }
+
+    private static class RefreshThreadFactory implements ThreadFactory {
+        private final AtomicInteger threadNumber = new AtomicInteger();
+        private final String prefix;
+
+        private RefreshThreadFactory(String name) {
+            this.prefix = "rave-metadata-cache-" + name + "-";
+        }
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, prefix + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
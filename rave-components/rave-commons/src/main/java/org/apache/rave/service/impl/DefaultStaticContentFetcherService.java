@@ -16,7 +16,6 @@
  * specific language governing permissions and limitations
  * under the License.
  */
-
 package org.apache.rave.service.impl;
 
 import org.apache.commons.logging.Log;
@@ -24,24 +23,120 @@ import org.apache.commons.logging.LogFactory;
 import org.apache.rave.model.StaticContent;
 import org.apache.rave.service.StaticContentFetcherConsumer;
 import org.apache.rave.service.StaticContentFetcherService;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Pattern;
 
+/**
+ * Fetches the configured {@link StaticContent} locations and keeps the token-replaced content in memory.
+ *
+ * refreshAll fetches the locations in parallel and waits at most fetchTimeoutMillis for all of them. Each request
+ * carries the ETag and Last-Modified values of the previous response, so unchanged content costs a 304. Consumers
+ * are only notified for content that actually changed, after the refresh and without holding any lock. Only the lock
+ * of the location being fetched is held during a request: refresh waits for a running fetch of the same location and
+ * then fetches it again, refreshAll skips it. The connect and read timeouts of each request are those of the request
+ * factory of the RestTemplate, see portal.static_content.connect_timeout_ms and read_timeout_ms. When a
+ * refresh interval is configured the content is also refreshed in the background, with each run shifted by a random
+ * jitter so that several portal nodes do not hit the content server at the same moment.
+ */
 public class DefaultStaticContentFetcherService implements StaticContentFetcherService {
     private static final Log log = LogFactory.getLog(DefaultStaticContentFetcherService.class);
     private Map<String, StaticContent> contentMap;
+    private Map<String, FetchState> fetchStates;
     private RestTemplate restTemplate;
     private final Set<StaticContentFetcherConsumer> staticContentFetcherConsumers;
+    private final Random random = new Random();
+
+    private int fetchThreads = 4;
+    private long fetchTimeoutMillis = 30000;
+    private long refreshIntervalSeconds = 0;
+    private int refreshJitterPercent = 10;
+    private ThreadPoolExecutor fetchExecutor;
+    private ScheduledExecutorService refreshScheduler;
 
     public DefaultStaticContentFetcherService(RestTemplate restTemplate, List<StaticContent> contentObjects) {
         this.restTemplate = restTemplate;
         contentMap = new HashMap<String, StaticContent>();
+        fetchStates = new HashMap<String, FetchState>();
         for (StaticContent contentObject : contentObjects) {
             contentMap.put(contentObject.getId(), contentObject);
+            fetchStates.put(contentObject.getId(), new FetchState(contentObject));
+        }
+        staticContentFetcherConsumers = new CopyOnWriteArraySet<StaticContentFetcherConsumer>();
+    }
+
+    /**
+     * @param fetchThreads the maximum number of locations fetched at the same time by refreshAll
+     */
+    public void setFetchThreads(int fetchThreads) {
+        this.fetchThreads = fetchThreads;
+    }
+
+    /**
+     * @param fetchTimeoutMillis the time refreshAll waits for all locations; slower locations keep their content
+     */
+    public void setFetchTimeoutMillis(long fetchTimeoutMillis) {
+        this.fetchTimeoutMillis = fetchTimeoutMillis;
+    }
+
+    /**
+     * @param refreshIntervalSeconds the time between background refreshes, 0 to only refresh on demand
+     */
+    public void setRefreshIntervalSeconds(long refreshIntervalSeconds) {
+        this.refreshIntervalSeconds = refreshIntervalSeconds;
+    }
+
+    /**
+     * @param refreshJitterPercent how far, as a percentage of the interval, each background refresh may be moved
+     */
+    public void setRefreshJitterPercent(int refreshJitterPercent) {
+        this.refreshJitterPercent = refreshJitterPercent;
+    }
+
+    @PostConstruct
+    public synchronized void startScheduledRefresh() {
+        if (refreshIntervalSeconds <= 0 || refreshScheduler != null) {
+            return;
+        }
+        ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1, new NamedThreadFactory("rave-static-content-refresh-"));
+        refreshScheduler = scheduler;
+        long intervalMillis = TimeUnit.SECONDS.toMillis(refreshIntervalSeconds);
+        // the first refresh runs soon after startup, spread over the jitter window
+        scheduleRefresh((long) (random.nextDouble() * getJitterMillis(intervalMillis)));
+    }
+
+    @PreDestroy
+    public synchronized void destroy() {
+        if (refreshScheduler != null) {
+            refreshScheduler.shutdownNow();
+            refreshScheduler = null;
+        }
+        if (fetchExecutor != null) {
+            fetchExecutor.shutdownNow();
+            fetchExecutor = null;
         }
-        staticContentFetcherConsumers = new HashSet<StaticContentFetcherConsumer>();
     }
 
     @Override
@@ -57,61 +152,214 @@ public class DefaultStaticContentFetcherService implements StaticContentFetcherS
     @Override
     public void refreshAll() {
         log.debug("refreshAll()");
-        for (StaticContent curEntry : contentMap.values()) {
-            refreshFromLocation(curEntry);
+        List<FetchState> changed = new ArrayList<FetchState>();
+        if (fetchStates.size() <= 1 || fetchThreads <= 1) {
+            for (FetchState state : fetchStates.values()) {
+                if (state.refresh(false)) {
+                    changed.add(state);
+                }
+            }
+        } else {
+            fetchInParallel(changed);
         }
+        notifyConsumers(changed);
     }
 
     @Override
     public void refresh(String key) {
         log.debug("refresh(" + key + ")");
         //if the key exists in the content map, refresh it
-        StaticContent item = contentMap.get(key);
-        if (item != null) {
-            refreshFromLocation(item);
+        FetchState state = fetchStates.get(key);
+        if (state != null && state.refresh(true)) {
+            notifyConsumers(Collections.singletonList(state));
         }
     }
 
     @Override
     public void registerConsumer(StaticContentFetcherConsumer consumer) {
-        synchronized (staticContentFetcherConsumers) {
-            log.debug("adding " + consumer.getClass().getName() + " to staticContentFetcherConsumers");
-            staticContentFetcherConsumers.add(consumer);
-        }
+        log.debug("adding " + consumer.getClass().getName() + " to staticContentFetcherConsumers");
+        staticContentFetcherConsumers.add(consumer);
     }
 
     @Override
     public void unregisterConsumer(StaticContentFetcherConsumer consumer) {
-        synchronized (staticContentFetcherConsumers) {
-            log.debug("removing " + consumer.getClass().getName() + " from staticContentFetcherConsumers");
-            staticContentFetcherConsumers.remove(consumer);
-        }
+        log.debug("removing " + consumer.getClass().getName() + " from staticContentFetcherConsumers");
+        staticContentFetcherConsumers.remove(consumer);
     }
 
-    private void refreshFromLocation(StaticContent staticContent) {
-        log.debug("refreshFromLocation() - for " + staticContent);
-        try {
-            //We need an intermediate temp content string here so we don't even accidentally hand out a reference to
-            //a not-fully-token-replaced piece of content.  Very unlikely, but could happen.
-            String tempContent = restTemplate.getForObject(staticContent.getLocation(), String.class);
-            for (Map.Entry<String, String> replacementTokenEntry : staticContent.getReplacementTokens().entrySet()) {
-                tempContent = tempContent.replaceAll(replacementTokenEntry.getKey(), replacementTokenEntry.getValue());
+    private void fetchInParallel(List<FetchState> changed) {
+        Map<FetchState, Future<Boolean>> fetches = new LinkedHashMap<FetchState, Future<Boolean>>();
+        ThreadPoolExecutor executor = getFetchExecutor();
+        for (final FetchState state : fetchStates.values()) {
+            fetches.put(state, executor.submit(new Callable<Boolean>() {
+                @Override
+                public Boolean call() {
+                    return state.refresh(false);
+                }
+            }));
+        }
+        long deadline = System.currentTimeMillis() + fetchTimeoutMillis;
+        for (Map.Entry<FetchState, Future<Boolean>> fetch : fetches.entrySet()) {
+            try {
+                long remaining = Math.max(0, deadline - System.currentTimeMillis());
+                if (fetch.getValue().get(remaining, TimeUnit.MILLISECONDS)) {
+                    changed.add(fetch.getKey());
+                }
+            } catch (TimeoutException e) {
+                fetch.getValue().cancel(true);
+                log.warn("Timed out fetching {" + fetch.getKey().staticContent.getLocation() + "}, keeping the current content");
+            } catch (ExecutionException e) {
+                log.error("Unable to process {" + fetch.getKey().staticContent.getLocation() + "}", e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                for (Future<Boolean> pending : fetches.values()) {
+                    pending.cancel(true);
+                }
+                return;
             }
-            staticContent.setContent(tempContent);
+        }
+    }
+
+    private void notifyConsumers(List<FetchState> changed) {
+        for (FetchState state : changed) {
+            String id = state.staticContent.getId();
             // notify any registered consumers that the content has been updated
-            synchronized (staticContentFetcherConsumers) {
-                for (StaticContentFetcherConsumer consumer : staticContentFetcherConsumers) {
-                    log.debug("notifiying consumer " + consumer.getClass().getName() + " for content update: " + staticContent.getId());
-                    try {
-                        consumer.notify(staticContent.getId());
-                    } catch (Exception e) {
-                        log.warn("exception during consumer notification", e);
-                    }
+            for (StaticContentFetcherConsumer consumer : staticContentFetcherConsumers) {
+                log.debug("notifiying consumer " + consumer.getClass().getName() + " for content update: " + id);
+                try {
+                    consumer.notify(id);
+                } catch (Exception e) {
+                    log.warn("exception during consumer notification", e);
                 }
             }
-        } catch (RestClientException e) {
-            //RestClientException handles server errors 5xx, client errors 4xx, and IO errors
-            log.error("Unable to process {" + staticContent.getLocation() + "}", e);
+        }
+    }
+
+    private synchronized ThreadPoolExecutor getFetchExecutor() {
+        if (fetchExecutor == null) {
+            fetchExecutor = new ThreadPoolExecutor(fetchThreads, fetchThreads, 60, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<Runnable>(), new NamedThreadFactory("rave-static-content-fetch-"));
+            fetchExecutor.allowCoreThreadTimeOut(true);
+        }
+        return fetchExecutor;
+    }
+
+    private synchronized void scheduleRefresh(long delayMillis) {
+        if (refreshScheduler == null) {
+            return;
+        }
+        refreshScheduler.schedule(new Runnable() {
+            @Override
+            public void run() {
+                long intervalMillis = TimeUnit.SECONDS.toMillis(refreshIntervalSeconds);
+                try {
+                    refreshAll();
+                } catch (RuntimeException e) {
+                    log.error("Scheduled refresh of the static content failed", e);
+                } finally {
+                    long jitter = getJitterMillis(intervalMillis);
+                    scheduleRefresh(intervalMillis - jitter + (long) (random.nextDouble() * 2 * jitter));
+                }
+            }
+        }, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private long getJitterMillis(long intervalMillis) {
+        return intervalMillis * Math.max(0, Math.min(refreshJitterPercent, 100)) / 100;
+    }
+
+    /**
+     * The replacement patterns and the validators of the last response of one {@link StaticContent}
+     */
+    private class FetchState {
+        private final StaticContent staticContent;
+        private final Pattern[] patterns;
+        private final String[] replacements;
+        private final ReentrantLock fetchLock = new ReentrantLock();
+        private volatile String eTag;
+        private volatile long lastModified = -1;
+
+        private FetchState(StaticContent staticContent) {
+            this.staticContent = staticContent;
+            Map<String, String> tokens = staticContent.getReplacementTokens();
+            patterns = new Pattern[tokens.size()];
+            replacements = new String[tokens.size()];
+            int i = 0;
+            for (Map.Entry<String, String> replacementTokenEntry : tokens.entrySet()) {
+                patterns[i] = Pattern.compile(replacementTokenEntry.getKey());
+                replacements[i] = replacementTokenEntry.getValue();
+                i++;
+            }
+        }
+
+        /**
+         * Fetches the location and replaces the content if it changed.
+         *
+         * @param wait true to wait for a refresh of the same location that is in progress and fetch again after it,
+         *             false to return right away and leave the update to that refresh
+         * @return true if the content changed
+         */
+        private boolean refresh(boolean wait) {
+            if (wait) {
+                fetchLock.lock();
+            } else if (!fetchLock.tryLock()) {
+                log.debug("refreshFromLocation() - already in progress for " + staticContent + ", skipped");
+                return false;
+            }
+            log.debug("refreshFromLocation() - for " + staticContent);
+            try {
+                HttpHeaders headers = new HttpHeaders();
+                if (eTag != null) {
+                    headers.setIfNoneMatch(eTag);
+                }
+                if (lastModified > 0) {
+                    headers.setIfModifiedSince(lastModified);
+                }
+                ResponseEntity<String> response = restTemplate.exchange(staticContent.getLocation(), HttpMethod.GET,
+                        new HttpEntity<Void>(headers), String.class);
+                if (response == null || response.getStatusCode() == HttpStatus.NOT_MODIFIED) {
+                    return false;
+                }
+                if (response.getBody() == null) {
+                    log.warn("Empty response from {" + staticContent.getLocation() + "}, keeping the current content");
+                    return false;
+                }
+                //We need an intermediate temp content string here so we don't even accidentally hand out a reference to
+                //a not-fully-token-replaced piece of content.
+                String tempContent = response.getBody();
+                for (int i = 0; i < patterns.length; i++) {
+                    tempContent = patterns[i].matcher(tempContent).replaceAll(replacements[i]);
+                }
+                eTag = response.getHeaders().getETag();
+                lastModified = response.getHeaders().getLastModified();
+                if (tempContent.equals(staticContent.getContent())) {
+                    return false;
+                }
+                staticContent.setContent(tempContent);
+                return true;
+            } catch (RestClientException e) {
+                //RestClientException handles server errors 5xx, client errors 4xx, and IO errors
+                log.error("Unable to process {" + staticContent.getLocation() + "}", e);
+                return false;
+            } finally {
+                fetchLock.unlock();
+            }
+        }
+    }
+
+    private static class NamedThreadFactory implements ThreadFactory {
+        private final AtomicInteger threadNumber = new AtomicInteger();
+        private final String prefix;
+
+        private NamedThreadFactory(String prefix) {
+            this.prefix = prefix;
+        }
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, prefix + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
         }
     }
 }
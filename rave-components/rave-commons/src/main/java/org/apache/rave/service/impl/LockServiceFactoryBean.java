@@ -0,0 +1,69 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.rave.service.impl;
+
+import org.apache.rave.service.LockService;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.BeanFactoryAware;
+import org.springframework.beans.factory.FactoryBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+
+/**
+ * Exposes the LockService bean named by the portal.lock_service property as the primary LockService, so that the
+ * implementation used for @Synchronized and the other lock users is chosen by configuration.  Defaults to
+ * {@link ConcurrentLockService}; set the property to defaultLockService to go back to {@link DefaultLockService}, or
+ * to the name of a cluster aware LockService declared in the application context.
+ */
+@Component
+@Primary
+public class LockServiceFactoryBean implements FactoryBean<LockService>, BeanFactoryAware {
+    public static final String DEFAULT_LOCK_SERVICE = "concurrentLockService";
+
+    private BeanFactory beanFactory;
+    private String lockServiceName = DEFAULT_LOCK_SERVICE;
+
+    @Value("${portal.lock_service:" + DEFAULT_LOCK_SERVICE + "}")
+    public void setLockServiceName(String lockServiceName) {
+        this.lockServiceName = lockServiceName;
+    }
+
+    @Override
+    public void setBeanFactory(BeanFactory beanFactory) throws BeansException {
+        this.beanFactory = beanFactory;
+    }
+
+    @Override
+    public LockService getObject() {
+        return beanFactory.getBean(lockServiceName, LockService.class);
+    }
+
+    @Override
+    public Class<?> getObjectType() {
+        return LockService.class;
+    }
+
+    @Override
+    public boolean isSingleton() {
+        return true;
+    }
+}
@@ -19,7 +19,6 @@
 
 package org.apache.rave.synchronization;
 
-import org.apache.commons.lang3.ArrayUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.Validate;
 import org.apache.rave.service.LockService;
@@ -44,9 +43,11 @@ import org.springframework.expression.spel.support.StandardEvaluationContext;
 import org.springframework.stereotype.Component;
 
 import java.lang.reflect.Method;
-import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.locks.Lock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 /**
  * Aspect to apply synchronization around methods decorated with the @Synchronized annotation.
@@ -56,21 +57,26 @@ import java.util.concurrent.locks.Lock;
  * <p/>
  * https://src.springframework.org/svn/spring-framework/tags/spring-framework-3.1.0.M2/org.springframework.context/src/main/java/org/springframework/cache/interceptor/ExpressionEvaluator.java
  * https://src.springframework.org/svn/spring-framework/tags/spring-framework-3.1.0.M2/org.springframework.context/src/main/java/org/springframework/cache/interceptor/LazyParamAwareEvaluationContext.java
+ * <p/>
+ * The annotation, parameter names and parsed expressions of each synchronized method are resolved once and kept in a
+ * {@link LockPlan}.  String literals (e.g. 'RegionWidget') and plain parameter references (e.g. #regionWidgetId or #p0)
+ * are resolved without SpEL; an evaluation context is only built when a plan contains a real expression.
  */
 @Aspect
 @Component
 public class SynchronizingAspect {
     private static Logger logger = LoggerFactory.getLogger(SynchronizingAspect.class);
 
+    private static final Pattern LITERAL_PATTERN = Pattern.compile("^'([^']*)'$");
+    private static final Pattern PARAMETER_REFERENCE_PATTERN = Pattern.compile("^#([A-Za-z_$][A-Za-z0-9_$]*)$");
+    private static final Pattern POSITIONAL_PARAMETER_PATTERN = Pattern.compile("^p(\\d+)$");
+
     private LockService lockService;
 
     private SpelExpressionParser parser = new SpelExpressionParser();
     private ParameterNameDiscoverer paramNameDiscoverer = new LocalVariableTableParameterNameDiscoverer();
 
-    private Map<Method, Expression> conditionCache = new ConcurrentHashMap<Method, Expression>();
-    private Map<Method, Expression> discriminatorCache = new ConcurrentHashMap<Method, Expression>();
-    private Map<Method, Expression> idCache = new ConcurrentHashMap<Method, Expression>();
-    private Map<Method, Method> targetMethodCache = new ConcurrentHashMap<Method, Method>();
+    private ConcurrentMap<LockPlanKey, LockPlan> lockPlanCache = new ConcurrentHashMap<LockPlanKey, LockPlan>();
 
     @Autowired
     public SynchronizingAspect(LockService lockService) {
@@ -88,18 +94,23 @@ public class SynchronizingAspect {
         Object target = proceedingJoinPoint.getTarget();
         Object[] args = proceedingJoinPoint.getArgs();
         Class<?> targetClass = AopProxyUtils.ultimateTargetClass(target);
-        Synchronized annotation = getAnnotation(targetClass, method);
-        Validate.notNull(annotation, "Could not find @Synchronized annotation!");
+        LockPlan plan = getLockPlan(targetClass, method);
 
-        Lock lock = getLock(targetClass, method, args, annotation);
+        Lock lock = getLock(plan, args);
         if (lock == null) {
-            logger.debug("No lock obtained for call [{}] on targetClass [{}] - proceeding without synchronization on " +
-                    "thread {}", new Object[]{method.getName(), targetClass.getName(), Thread.currentThread().getId()});
+            if (logger.isDebugEnabled()) {
+                logger.debug("No lock obtained for call [{}] on targetClass [{}] - proceeding without synchronization " +
+                        "on thread {}", new Object[]{method.getName(), targetClass.getName(),
+                        Thread.currentThread().getId()});
+            }
             return proceedingJoinPoint.proceed();
         } else {
             try {
-                logger.debug("Lock obtained for call [{}] on targetClass [{}] - proceeding with synchronization on thread {}",
-                        new Object[]{method.getName(), targetClass.getName(), Thread.currentThread().getId()});
+                if (logger.isDebugEnabled()) {
+                    logger.debug("Lock obtained for call [{}] on targetClass [{}] - proceeding with synchronization " +
+                            "on thread {}", new Object[]{method.getName(), targetClass.getName(),
+                            Thread.currentThread().getId()});
+                }
                 lock.lock();
                 return proceedingJoinPoint.proceed();
             } finally {
@@ -109,104 +120,236 @@ public class SynchronizingAspect {
         }
     }
 
-    private Lock getLock(Class<?> targetClass, Method method, Object[] args, Synchronized annotation) {
-        logger.debug("Fetching lock for call [{}] on targetClass [{}] with SpEl condition [{}], SpEl discriminator " +
-                "[{}], and SpEl id [{}] on thread {}", new Object[]{method.getName(), targetClass.getName(),
-                annotation.condition(), annotation.discriminator(), annotation.id(), Thread.currentThread().getId()});
-
-        EvaluationContext context = getEvaluationContext(targetClass, method, args);
-        if (conditionPasses(annotation, method, context)) {
-            logger.debug("Condition check passes for SpEl condition [{}] on thread {}", annotation.condition(),
-                    Thread.currentThread().getId());
-            String discriminator = getDiscriminator(annotation, method, context);
-            String id = getId(annotation, method, context);
-            logger.debug("Fetching lock with discriminator [{}] and id [{}] on thread {}", new Object[]{discriminator,
-                    id, Thread.currentThread().getId()});
+    private Lock getLock(LockPlan plan, Object[] args) {
+        InvocationContext context = new InvocationContext(plan, args);
+        if (plan.conditionPasses(context)) {
+            String discriminator = plan.discriminator.getValue(context);
+            String id = plan.id.getValue(context);
+            if (logger.isDebugEnabled()) {
+                logger.debug("Fetching lock with discriminator [{}] and id [{}] on thread {}",
+                        new Object[]{discriminator, id, Thread.currentThread().getId()});
+            }
             return lockService.borrowLock(discriminator, id);
         }
 
-        logger.debug("Condition check fails for SpEl condition [{}] on thread {}", annotation.condition(),
-                Thread.currentThread().getId());
+        if (logger.isDebugEnabled()) {
+            logger.debug("Condition check fails for SpEl condition [{}] on thread {}", plan.condition,
+                    Thread.currentThread().getId());
+        }
         return null;
     }
 
-    private boolean conditionPasses(Synchronized annotation, Method method, EvaluationContext context) {
-        String condition = annotation.condition();
-        if (StringUtils.isNotBlank(condition)) {
-            return parseConditionExpression(method, annotation).getValue(context, Boolean.class);
+    private LockPlan getLockPlan(Class<?> targetClass, Method method) {
+        LockPlanKey key = new LockPlanKey(method, targetClass);
+        LockPlan plan = lockPlanCache.get(key);
+        if (plan == null) {
+            plan = createLockPlan(targetClass, method);
+            LockPlan existing = lockPlanCache.putIfAbsent(key, plan);
+            if (existing != null) {
+                plan = existing;
+            }
         }
-        return true;
+        return plan;
     }
 
-    private String getDiscriminator(Synchronized annotation, Method method, EvaluationContext context) {
-        return parseDiscriminatorExpression(method, annotation).getValue(context, String.class);
-    }
+    private LockPlan createLockPlan(Class<?> targetClass, Method method) {
+        Method targetMethod = AopUtils.getMostSpecificMethod(method, targetClass);
+        Synchronized annotation = AnnotationUtils.getAnnotation(targetMethod, Synchronized.class);
+        Validate.notNull(annotation, "Could not find @Synchronized annotation!");
+        String[] parameterNames = paramNameDiscoverer.getParameterNames(targetMethod);
 
-    private String getId(Synchronized annotation, Method method, EvaluationContext context) {
-        return parseIdExpression(method, annotation).getValue(context, String.class);
+        logger.debug("Creating lock plan for [{}] on targetClass [{}] with SpEl condition [{}], SpEl discriminator " +
+                "[{}], and SpEl id [{}]", new Object[]{method.getName(), targetClass.getName(),
+                annotation.condition(), annotation.discriminator(), annotation.id()});
+
+        Expression condition = StringUtils.isNotBlank(annotation.condition()) ?
+                parser.parseExpression(annotation.condition()) : null;
+        return new LockPlan(parameterNames, condition, compileKeyPart(annotation.discriminator(), parameterNames),
+                compileKeyPart(annotation.id(), parameterNames));
     }
 
-    private Expression parseConditionExpression(Method method, Synchronized annotation) {
-        Expression expression = conditionCache.get(method);
-        if (expression == null) {
-            expression = parser.parseExpression(annotation.condition());
-            conditionCache.put(method, expression);
+    private KeyPart compileKeyPart(String expressionString, String[] parameterNames) {
+        String trimmed = expressionString.trim();
+        if (trimmed.length() == 0) {
+            //no discriminator - the LockService builds the key from the id alone
+            return new LiteralKeyPart(trimmed);
+        }
+        Matcher literal = LITERAL_PATTERN.matcher(trimmed);
+        if (literal.matches()) {
+            return new LiteralKeyPart(literal.group(1));
+        }
+        Matcher reference = PARAMETER_REFERENCE_PATTERN.matcher(trimmed);
+        if (reference.matches()) {
+            int index = resolveParameterIndex(reference.group(1), parameterNames);
+            if (index >= 0) {
+                return new ParameterKeyPart(index, parser.parseExpression(expressionString));
+            }
         }
-        return expression;
+        return new ExpressionKeyPart(parser.parseExpression(expressionString));
     }
 
-    private Expression parseDiscriminatorExpression(Method method, Synchronized annotation) {
-        Expression expression = discriminatorCache.get(method);
-        if (expression == null) {
-            expression = parser.parseExpression(annotation.discriminator());
-            discriminatorCache.put(method, expression);
+    //mirrors the variable registration order of the evaluation context where parameter names win over #pN aliases
+    private static int resolveParameterIndex(String variableName, String[] parameterNames) {
+        if (parameterNames != null) {
+            for (int i = parameterNames.length - 1; i >= 0; i--) {
+                if (variableName.equals(parameterNames[i])) {
+                    return i;
+                }
+            }
         }
-        return expression;
+        Matcher positional = POSITIONAL_PARAMETER_PATTERN.matcher(variableName);
+        return positional.matches() ? Integer.parseInt(positional.group(1)) : -1;
     }
 
-    private Expression parseIdExpression(Method method, Synchronized annotation) {
-        Expression expression = idCache.get(method);
-        if (expression == null) {
-            expression = parser.parseExpression(annotation.id());
-            idCache.put(method, expression);
+    /**
+     * Pre-resolved synchronization metadata for one method on one target class.
+     */
+    static class LockPlan {
+        private final String[] parameterNames;
+        private final Expression condition;
+        private final KeyPart discriminator;
+        private final KeyPart id;
+
+        LockPlan(String[] parameterNames, Expression condition, KeyPart discriminator, KeyPart id) {
+            this.parameterNames = parameterNames;
+            this.condition = condition;
+            this.discriminator = discriminator;
+            this.id = id;
+        }
+
+        boolean conditionPasses(InvocationContext context) {
+            return condition == null || condition.getValue(context.getEvaluationContext(), Boolean.class);
         }
-        return expression;
     }
 
-    private Method getTargetMethod(Class<?> targetClass, Method method) {
-        Method targetMethod = targetMethodCache.get(method);
-        if (targetMethod == null) {
-            targetMethod = AopUtils.getMostSpecificMethod(method, targetClass);
-            targetMethodCache.put(method, targetMethod);
+    /**
+     * Holds the arguments of a single invocation and lazily builds the SpEL evaluation context if one is needed.
+     */
+    static class InvocationContext {
+        private final LockPlan plan;
+        private final Object[] args;
+        private EvaluationContext evaluationContext;
+
+        InvocationContext(LockPlan plan, Object[] args) {
+            this.plan = plan;
+            this.args = args;
+        }
+
+        Object getArgument(int index) {
+            return args != null && index < args.length ? args[index] : null;
+        }
+
+        boolean hasArgument(int index) {
+            return args != null && index < args.length;
+        }
+
+        //this method was roughly based on the implementation of:
+        //org.springframework.cache.interceptor.LazyParamAwareEvaluationContext#loadArgsAsVariables(...)
+        EvaluationContext getEvaluationContext() {
+            if (evaluationContext == null) {
+                evaluationContext = new StandardEvaluationContext();
+                if (args != null) {
+                    for (int i = 0; i < args.length; i++) {
+                        evaluationContext.setVariable("p" + i, args[i]);
+                    }
+                    String[] parameterNames = plan.parameterNames;
+                    if (parameterNames != null) {
+                        for (int i = 0; i < parameterNames.length && i < args.length; i++) {
+                            evaluationContext.setVariable(parameterNames[i], args[i]);
+                        }
+                    }
+                }
+            }
+            return evaluationContext;
         }
-        return targetMethod;
     }
 
-    //this method was roughly based on the implementation of:
-    //org.springframework.cache.interceptor.LazyParamAwareEvaluationContext#loadArgsAsVariables(...)
-    private EvaluationContext getEvaluationContext(Class<?> targetClass, Method method, Object[] args) {
-        EvaluationContext context = new StandardEvaluationContext();
-        if (ArrayUtils.isEmpty(args)) {
-            return context;
+    interface KeyPart {
+        String getValue(InvocationContext context);
+    }
+
+    static class LiteralKeyPart implements KeyPart {
+        private final String value;
+
+        LiteralKeyPart(String value) {
+            this.value = value;
         }
 
-        Method targetMethod = getTargetMethod(targetClass, method);
-        for (int i = 0; i < args.length; i++) {
-            context.setVariable("p" + i, args[i]);
+        @Override
+        public String getValue(InvocationContext context) {
+            return value;
         }
+    }
 
-        String[] parameterNames = paramNameDiscoverer.getParameterNames(targetMethod);
-        if (parameterNames != null) {
-            for (int i = 0; i < parameterNames.length; i++) {
-                context.setVariable(parameterNames[i], args[i]);
+    /**
+     * Reads the lock key straight from a method argument.  Types whose String conversion is not a plain toString()
+     * are handed to the equivalent SpEL expression so the computed key never differs from the SpEL result.
+     */
+    static class ParameterKeyPart implements KeyPart {
+        private final int index;
+        private final Expression fallback;
+
+        ParameterKeyPart(int index, Expression fallback) {
+            this.index = index;
+            this.fallback = fallback;
+        }
+
+        @Override
+        public String getValue(InvocationContext context) {
+            if (context.hasArgument(index)) {
+                Object argument = context.getArgument(index);
+                if (argument == null) {
+                    return null;
+                }
+                if (argument instanceof String) {
+                    return (String) argument;
+                }
+                if (argument instanceof Long || argument instanceof Integer || argument instanceof Short ||
+                        argument instanceof Byte || argument instanceof Boolean || argument instanceof Character) {
+                    return argument.toString();
+                }
             }
+            return fallback.getValue(context.getEvaluationContext(), String.class);
+        }
+    }
+
+    static class ExpressionKeyPart implements KeyPart {
+        private final Expression expression;
+
+        ExpressionKeyPart(Expression expression) {
+            this.expression = expression;
         }
 
-        return context;
+        @Override
+        public String getValue(InvocationContext context) {
+            return expression.getValue(context.getEvaluationContext(), String.class);
+        }
     }
 
-    private Synchronized getAnnotation(Class<?> targetClass, Method method) {
-        Method specificMethod = getTargetMethod(targetClass, method);
-        return AnnotationUtils.getAnnotation(specificMethod, Synchronized.class);
+    private static class LockPlanKey {
+        private final Method method;
+        private final Class<?> targetClass;
+
+        private LockPlanKey(Method method, Class<?> targetClass) {
+            this.method = method;
+            this.targetClass = targetClass;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) {
+                return true;
+            }
+            if (!(other instanceof LockPlanKey)) {
+                return false;
+            }
+            LockPlanKey that = (LockPlanKey) other;
+            return method.equals(that.method) && targetClass.equals(that.targetClass);
+        }
+
+        @Override
+        public int hashCode() {
+            return method.hashCode() * 31 + targetClass.hashCode();
+        }
     }
-}
\ No newline at end of file
+}
@@ -22,18 +22,32 @@ package org.apache.rave.util;
 import com.fasterxml.jackson.databind.AnnotationIntrospector;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import com.fasterxml.jackson.databind.introspect.JacksonAnnotationIntrospector;
 import com.fasterxml.jackson.module.mrbean.MrBeanModule;
 import org.springframework.core.io.Resource;
 
 import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
+/**
+ * JSON conversion helpers backed by a single, pre-configured {@link ObjectMapper}.
+ * <p/>
+ * The mapper is configured once and never changed afterwards, which makes it and the {@link ObjectReader}s and
+ * {@link ObjectWriter} derived from it safe to share between threads.  Readers are cached per target type.
+ */
 public class JsonUtils {
+    private static final ObjectMapper MAPPER = createMapper();
+    private static final ObjectWriter WRITER = MAPPER.writer();
+    private static final ConcurrentMap<Class<?>, ObjectReader> READERS = new ConcurrentHashMap<Class<?>, ObjectReader>();
+
     private JsonUtils(){}
 
     public static <T> String stringify(T object) {
         try {
-            return getMapper().writeValueAsString(object);
+            return WRITER.writeValueAsString(object);
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
@@ -41,7 +55,7 @@ public class JsonUtils {
 
     public static <T> T parse(String serialized, Class<T> klass) {
         try {
-            return serialized == null ? null : getMapper().readValue(serialized, klass);
+            return serialized == null ? null : getReader(klass).<T>readValue(serialized);
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
@@ -50,13 +64,38 @@ public class JsonUtils {
 
     public static <T> T parse(Resource resource, Class<T> klass) {
         try {
-            return getMapper().readValue(resource.getFile(), klass);
+            return getReader(klass).<T>readValue(resource.getFile());
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
     }
 
-    private static ObjectMapper getMapper() {
+    /**
+     * Gets the shared reader for the given type
+     *
+     * @param klass the type to read
+     * @return a thread safe reader that produces instances of klass
+     */
+    public static ObjectReader getReader(Class<?> klass) {
+        ObjectReader reader = READERS.get(klass);
+        if (reader == null) {
+            ObjectReader created = MAPPER.reader(klass);
+            reader = READERS.putIfAbsent(klass, created);
+            if (reader == null) {
+                reader = created;
+            }
+        }
+        return reader;
+    }
+
+    /**
+     * @return the shared, thread safe writer
+     */
+    public static ObjectWriter getWriter() {
+        return WRITER;
+    }
+
+    private static ObjectMapper createMapper() {
         ObjectMapper jacksonMapper = new ObjectMapper();
         AnnotationIntrospector primary = new JacksonAnnotationIntrospector();
         jacksonMapper.setAnnotationIntrospector(primary);
@@ -0,0 +1,87 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.rave.util;
+
+import java.io.Serializable;
+import java.util.Map;
+
+/**
+ * Holds the object form of a JSON serialized property map and converts between the two forms only when needed.
+ * <p/>
+ * The map is parsed from its serialized form on first access rather than when the owning entity is loaded.  When
+ * the owner is saved the map is only serialized again if it was handed out or replaced, so entities whose
+ * properties were never touched keep their serialized form as it is.  Once handed out the map is assumed to be
+ * changed, as callers may modify it in place.
+ * <p/>
+ * Instances belong to a single owning object and are not thread safe.
+ */
+public class LazyJsonMap implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private transient String source;
+    private Map<String, Object> map;
+    private boolean parsed;
+    private boolean modified;
+
+    /**
+     * Gets the map, parsing it from the serialized form the first time it is requested
+     *
+     * @param serialized the current serialized form of the map
+     * @return the map, or null if there is none
+     */
+    @SuppressWarnings("unchecked")
+    public Map<String, Object> get(String serialized) {
+        if (!modified && (!parsed || serialized != source)) {
+            map = JsonUtils.parse(serialized, Map.class);
+            source = serialized;
+            parsed = true;
+        }
+        modified = true;
+        return map;
+    }
+
+    /**
+     * Replaces the map
+     *
+     * @param map the new map
+     */
+    public void set(Map<String, Object> map) {
+        this.map = map;
+        parsed = true;
+        modified = true;
+    }
+
+    /**
+     * Gets the serialized form of the map to store
+     *
+     * @param serialized the current serialized form of the map
+     * @return the re-serialized map if it was handed out or replaced, otherwise the given serialized form
+     */
+    public String serialize(String serialized) {
+        return modified && map != null ? JsonUtils.stringify(map) : serialized;
+    }
+
+    /**
+     * @return true if the map was handed out or replaced since it was created
+     */
+    public boolean isModified() {
+        return modified;
+    }
+}
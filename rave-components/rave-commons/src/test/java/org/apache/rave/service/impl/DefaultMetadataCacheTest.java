@@ -0,0 +1,355 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.apache.rave.service.impl;
+
+import org.apache.rave.service.MetadataCacheStatistics;
+import org.apache.rave.service.MetadataLoader;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class DefaultMetadataCacheTest {
+    private static final String URL = "http://example.com/gadget.xml";
+    private static final long DEFAULT_TTL = 1000L;
+    private static final long MAX_TTL = 10000L;
+
+    private TestCache cache;
+
+    @Before
+    public void setup() {
+        cache = new TestCache(3);
+    }
+
+    @After
+    public void tearDown() {
+        cache.destroy();
+    }
+
+    @Test
+    public void missThenHit() {
+        CountingLoader loader = new CountingLoader(0);
+
+        assertThat(cache.get(URL, loader), is(equalTo(URL + "-1")));
+        assertThat(cache.get(URL, loader), is(equalTo(URL + "-1")));
+
+        assertThat(loader.loads.get(), is(1));
+        MetadataCacheStatistics statistics = cache.getStatistics();
+        assertThat(statistics.getMissCount(), is(1L));
+        assertThat(statistics.getHitCount(), is(1L));
+        assertThat(statistics.getLoadCount(), is(1L));
+        assertThat(statistics.getSize(), is(1));
+    }
+
+    @Test
+    public void honorsExpirationOfLoader() throws Exception {
+        CountingLoader loader = new CountingLoader(cache.now + 5000);
+        cache.get(URL, loader);
+
+        cache.now += 4999;
+        assertThat(cache.get(URL, loader), is(equalTo(URL + "-1")));
+        assertThat(loader.loads.get(), is(1));
+
+        cache.now += 1;
+        assertThat(cache.get(URL, loader), is(equalTo(URL + "-1")));
+        waitForLoads(loader, 2);
+        assertThat(cache.get(URL, loader), is(equalTo(URL + "-2")));
+        assertThat(cache.getStatistics().getStaleHitCount(), is(1L));
+    }
+
+    @Test
+    public void usesDefaultTimeToLiveWithoutExpiration() throws Exception {
+        CountingLoader loader = new CountingLoader(0);
+        cache.get(URL, loader);
+
+        cache.now += DEFAULT_TTL - 1;
+        cache.get(URL, loader);
+        assertThat(loader.loads.get(), is(1));
+
+        cache.now += 1;
+        cache.get(URL, loader);
+        waitForLoads(loader, 2);
+    }
+
+    @Test
+    public void boundsExpirationByMaxTimeToLive() throws Exception {
+        CountingLoader loader = new CountingLoader(cache.now + MAX_TTL * 100);
+        cache.get(URL, loader);
+
+        cache.now += MAX_TTL;
+        cache.get(URL, loader);
+        waitForLoads(loader, 2);
+    }
+
+    @Test
+    public void reloadsEntriesThatAreTooStale() {
+        CountingLoader loader = new CountingLoader(0);
+        cache.get(URL, loader);
+
+        cache.now += DEFAULT_TTL + MAX_TTL;
+        assertThat(cache.get(URL, loader), is(equalTo(URL + "-2")));
+        assertThat(cache.getStatistics().getStaleHitCount(), is(0L));
+        assertThat(cache.getStatistics().getMissCount(), is(2L));
+    }
+
+    @Test
+    public void keepsServingStaleEntryWhenRefreshFails() throws Exception {
+        CountingLoader loader = new CountingLoader(0);
+        cache.get(URL, loader);
+        loader.fail = true;
+
+        cache.now += DEFAULT_TTL;
+        assertThat(cache.get(URL, loader), is(equalTo(URL + "-1")));
+        waitForLoads(loader, 2);
+        assertThat(cache.get(URL, loader), is(equalTo(URL + "-1")));
+    }
+
+    @Test
+    public void failedLoadIsNotCached() {
+        CountingLoader loader = new CountingLoader(0);
+        loader.fail = true;
+        try {
+            cache.get(URL, loader);
+            fail("Expected the load failure to be propagated");
+        } catch (IllegalStateException e) {
+            assertThat(e.getMessage(), is(equalTo("failed")));
+        }
+
+        loader.fail = false;
+        assertThat(cache.get(URL, loader), is(equalTo(URL + "-2")));
+        assertThat(cache.getStatistics().getLoadFailureCount(), is(1L));
+    }
+
+    @Test
+    public void nullIsNotCached() {
+        CountingLoader loader = new CountingLoader(0);
+        loader.returnNull = true;
+
+        assertThat(cache.get(URL, loader), is(nullValue()));
+        assertThat(cache.get(URL, loader), is(nullValue()));
+        assertThat(loader.loads.get(), is(2));
+        assertThat(cache.size(), is(0));
+    }
+
+    @Test
+    public void concurrentMissesShareOneLoad() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger loads = new AtomicInteger();
+        final MetadataLoader<String> slowLoader = new MetadataLoader<String>() {
+            @Override
+            public String load(String key) {
+                loads.incrementAndGet();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return key;
+            }
+
+            @Override
+            public long getExpiration(String key, String value) {
+                return 0;
+            }
+        };
+
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<String>> results = new ArrayList<Future<String>>();
+        for (int i = 0; i < threads; i++) {
+            results.add(executor.submit(new Callable<String>() {
+                @Override
+                public String call() {
+                    return cache.get(URL, slowLoader);
+                }
+            }));
+        }
+        Thread.sleep(100);
+        release.countDown();
+        for (Future<String> result : results) {
+            assertThat(result.get(5, TimeUnit.SECONDS), is(equalTo(URL)));
+        }
+        executor.shutdown();
+
+        assertThat(loads.get(), is(1));
+        assertThat(cache.getStatistics().getMissCount(), is((long) threads));
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsedEntries() {
+        CountingLoader loader = new CountingLoader(0);
+        cache.get("a", loader);
+        cache.now += 1;
+        cache.get("b", loader);
+        cache.now += 1;
+        cache.get("c", loader);
+        cache.now += 1;
+        cache.get("a", loader);
+        cache.now += 1;
+
+        cache.get("d", loader);
+
+        assertThat(cache.size(), is(3));
+        assertThat(cache.getStatistics().getEvictionCount(), is(1L));
+        cache.get("b", loader);
+        assertThat(loader.loads.get(), is(5));
+    }
+
+    @Test
+    public void invalidate() {
+        CountingLoader loader = new CountingLoader(0);
+        cache.get(URL, loader);
+        cache.invalidate(URL);
+        cache.get(URL, loader);
+        cache.invalidateAll();
+        cache.get(URL, loader);
+
+        assertThat(loader.loads.get(), is(3));
+    }
+
+    @Test
+    public void getIfPresentDoesNotLoad() {
+        CountingLoader loader = new CountingLoader(0);
+
+        assertThat(cache.getIfPresent(URL, loader), is(nullValue()));
+        assertThat(loader.loads.get(), is(0));
+        assertThat(cache.size(), is(0));
+
+        cache.get(URL, loader);
+        assertThat(cache.getIfPresent(URL, loader), is(equalTo(URL + "-1")));
+        assertThat(cache.getStatistics().getMissCount(), is(2L));
+        assertThat(cache.getStatistics().getHitCount(), is(1L));
+    }
+
+    @Test
+    public void getIfPresentRefreshesExpiredEntries() throws Exception {
+        CountingLoader loader = new CountingLoader(0);
+        cache.get(URL, loader);
+
+        cache.now += DEFAULT_TTL;
+        assertThat(cache.getIfPresent(URL, loader), is(equalTo(URL + "-1")));
+        waitForLoads(loader, 2);
+        assertThat(cache.getIfPresent(URL, loader), is(equalTo(URL + "-2")));
+
+        cache.now += DEFAULT_TTL + MAX_TTL;
+        assertThat(cache.getIfPresent(URL, loader), is(nullValue()));
+        assertThat(cache.size(), is(0));
+    }
+
+    @Test
+    public void putHonorsExpiration() {
+        CountingLoader loader = new CountingLoader(0);
+        cache.put(URL, "batched", cache.now + 5000);
+
+        cache.now += 4999;
+        assertThat(cache.get(URL, loader), is(equalTo("batched")));
+        assertThat(loader.loads.get(), is(0));
+
+        cache.put("a", "batched", 0);
+        cache.now += DEFAULT_TTL - 1;
+        assertThat(cache.getIfPresent("a", loader), is(equalTo("batched")));
+        cache.now += MAX_TTL + 1;
+        assertThat(cache.get("a", loader), is(equalTo("a-1")));
+    }
+
+    @Test
+    public void putReplacesCachedValueAndIsBounded() {
+        CountingLoader loader = new CountingLoader(0);
+        cache.get(URL, loader);
+        cache.put(URL, "batched", 0);
+        assertThat(cache.get(URL, loader), is(equalTo("batched")));
+
+        cache.put("a", "a", 0);
+        cache.put("b", "b", 0);
+        cache.put("c", "c", 0);
+        cache.put("d", null, 0);
+
+        assertThat(cache.size(), is(3));
+        assertThat(cache.getIfPresent("d", loader), is(nullValue()));
+        assertThat(cache.getStatistics().getEvictionCount(), is(1L));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsDefaultTimeToLiveAboveMaximum() {
+        new DefaultMetadataCache<String>("invalid", 10, MAX_TTL + 1, MAX_TTL);
+    }
+
+    private static void waitForLoads(CountingLoader loader, int expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (loader.loads.get() < expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertThat(loader.loads.get(), is(expected));
+        // give the refresh thread the chance to publish its result
+        Thread.sleep(50);
+    }
+
+    private static class TestCache extends DefaultMetadataCache<String> {
+        private volatile long now = 1000000L;
+
+        private TestCache(int maxEntries) {
+            super("test", maxEntries, DEFAULT_TTL, MAX_TTL);
+        }
+
+        @Override
+        long currentTimeMillis() {
+            return now;
+        }
+    }
+
+    private static class CountingLoader implements MetadataLoader<String> {
+        private final AtomicInteger loads = new AtomicInteger();
+        private final long expiration;
+        private volatile boolean fail;
+        private volatile boolean returnNull;
+
+        private CountingLoader(long expiration) {
+            this.expiration = expiration;
+        }
+
+        @Override
+        public String load(String key) {
+            int count = loads.incrementAndGet();
+            if (fail) {
+                throw new IllegalStateException("failed");
+            }
+            return returnNull ? null : key + "-" + count;
+        }
+
+        @Override
+        public long getExpiration(String key, String value) {
+            return expiration;
+        }
+    }
+}
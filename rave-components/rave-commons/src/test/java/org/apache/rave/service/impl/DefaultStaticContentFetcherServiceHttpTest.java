@@ -0,0 +1,270 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.rave.service.impl;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.rave.model.StaticContent;
+import org.apache.rave.service.StaticContentFetcherConsumer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Runs the fetcher with a real RestTemplate against a local HTTP stub
+ */
+public class DefaultStaticContentFetcherServiceHttpTest {
+    private HttpServer server;
+    private StubHandler handler;
+    private DefaultStaticContentFetcherService service;
+    private final List<String> notifications = new CopyOnWriteArrayList<String>();
+
+    @Before
+    public void setUp() throws IOException {
+        handler = new StubHandler();
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", handler);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+    }
+
+    @After
+    public void tearDown() {
+        if (service != null) {
+            service.destroy();
+        }
+        server.stop(0);
+    }
+
+    @Test
+    public void refresh_unchangedContent_notModified() throws Exception {
+        handler.put("/header", "header {token}", "\"v1\"");
+        createService(new StaticContent("header", uri("/header"), Collections.singletonMap("\\{token\\}", "value")));
+
+        service.refreshAll();
+        service.refreshAll();
+
+        assertThat(service.getContent("header"), is("header value"));
+        assertThat(handler.requests("/header"), is(2));
+        assertThat(handler.notModified("/header"), is(1));
+        assertThat(notifications, is(Arrays.asList("header")));
+    }
+
+    @Test
+    public void refresh_changedContent_notifiesAgain() throws Exception {
+        handler.put("/header", "first", "\"v1\"");
+        createService(new StaticContent("header", uri("/header"), null));
+
+        service.refresh("header");
+        handler.put("/header", "second", "\"v2\"");
+        service.refresh("header");
+
+        assertThat(service.getContent("header"), is("second"));
+        assertThat(notifications, is(Arrays.asList("header", "header")));
+    }
+
+    @Test
+    public void refresh_sameContentWithoutValidators_notNotified() throws Exception {
+        handler.put("/footer", "footer", null);
+        createService(new StaticContent("footer", uri("/footer"), null));
+
+        service.refresh("footer");
+        service.refresh("footer");
+
+        assertThat(handler.notModified("/footer"), is(0));
+        assertThat(notifications, is(Arrays.asList("footer")));
+    }
+
+    @Test
+    public void refreshAll_slowLocation_timesOut() throws Exception {
+        handler.put("/header", "header", "\"v1\"");
+        handler.put("/footer", "footer", "\"v1\"");
+        handler.put("/slow", "slow", "\"v1\"");
+        handler.delayMillis = 3000;
+        createService(new StaticContent("header", uri("/header"), null),
+                new StaticContent("footer", uri("/footer"), null),
+                new StaticContent("slow", uri("/slow"), null));
+        service.setFetchTimeoutMillis(500);
+
+        long start = System.currentTimeMillis();
+        service.refreshAll();
+
+        assertTrue(System.currentTimeMillis() - start < 2500);
+        assertThat(service.getContent("header"), is("header"));
+        assertThat(service.getContent("footer"), is("footer"));
+        assertThat(service.getContent("slow"), is(""));
+        assertThat(notifications.size(), is(2));
+    }
+
+    @Test
+    public void refresh_readTimeout() throws Exception {
+        handler.put("/slow", "slow", "\"v1\"");
+        handler.delayMillis = 3000;
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setReadTimeout(300);
+        createService(new RestTemplate(requestFactory), new StaticContent("slow", uri("/slow"), null));
+
+        long start = System.currentTimeMillis();
+        service.refresh("slow");
+
+        assertTrue(System.currentTimeMillis() - start < 2000);
+        assertThat(service.getContent("slow"), is(""));
+        assertThat(notifications.isEmpty(), is(true));
+    }
+
+    @Test
+    public void refresh_inProgress_waitsAndFetchesAgain() throws Exception {
+        handler.put("/slow", "slow", "\"v1\"");
+        handler.delayMillis = 1500;
+        createService(new StaticContent("slow", uri("/slow"), null));
+        Thread background = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                service.refresh("slow");
+            }
+        });
+        background.start();
+        long deadline = System.currentTimeMillis() + 5000;
+        while (handler.requests("/slow") < 1 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+
+        service.refresh("slow");
+
+        //the content of the running refresh is there as soon as the second one returns
+        assertThat(service.getContent("slow"), is("slow"));
+        background.join(5000);
+        assertThat(handler.requests("/slow"), is(2));
+        assertThat(handler.notModified("/slow"), is(1));
+        assertThat(notifications, is(Arrays.asList("slow")));
+    }
+
+    @Test
+    public void scheduledRefresh() throws Exception {
+        handler.put("/header", "header", "\"v1\"");
+        createService(new StaticContent("header", uri("/header"), null));
+        service.setRefreshIntervalSeconds(1);
+        service.setRefreshJitterPercent(0);
+
+        service.startScheduledRefresh();
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (handler.requests("/header") < 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+        assertThat(service.getContent("header"), is("header"));
+        assertTrue(handler.requests("/header") >= 2);
+        assertThat(notifications, is(Arrays.asList("header")));
+    }
+
+    private void createService(StaticContent... contents) {
+        createService(new RestTemplate(), contents);
+    }
+
+    private void createService(RestTemplate restTemplate, StaticContent... contents) {
+        service = new DefaultStaticContentFetcherService(restTemplate, Arrays.asList(contents));
+        service.registerConsumer(new StaticContentFetcherConsumer() {
+            @Override
+            public void notify(String key) {
+                notifications.add(key);
+            }
+        });
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://127.0.0.1:" + server.getAddress().getPort() + path);
+    }
+
+    private static class StubHandler implements HttpHandler {
+        private final Map<String, String[]> resources = new ConcurrentHashMap<String, String[]>();
+        private final Map<String, Integer> requests = new ConcurrentHashMap<String, Integer>();
+        private final Map<String, Integer> notModified = new ConcurrentHashMap<String, Integer>();
+        private volatile long delayMillis;
+
+        void put(String path, String body, String eTag) {
+            resources.put(path, new String[]{body, eTag});
+        }
+
+        int requests(String path) {
+            Integer count = requests.get(path);
+            return count == null ? 0 : count;
+        }
+
+        int notModified(String path) {
+            Integer count = notModified.get(path);
+            return count == null ? 0 : count;
+        }
+
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            String path = exchange.getRequestURI().getPath();
+            increment(requests, path);
+            try {
+                if (path.startsWith("/slow")) {
+                    Thread.sleep(delayMillis);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            String[] resource = resources.get(path);
+            if (resource == null) {
+                exchange.sendResponseHeaders(404, -1);
+            } else if (resource[1] != null && resource[1].equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                increment(notModified, path);
+                exchange.sendResponseHeaders(304, -1);
+            } else {
+                byte[] body = resource[0].getBytes("UTF-8");
+                exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=UTF-8");
+                if (resource[1] != null) {
+                    exchange.getResponseHeaders().set("ETag", resource[1]);
+                }
+                exchange.sendResponseHeaders(200, body.length);
+                OutputStream out = exchange.getResponseBody();
+                out.write(body);
+                out.close();
+            }
+            exchange.close();
+        }
+
+        private static synchronized void increment(Map<String, Integer> counts, String path) {
+            Integer count = counts.get(path);
+            counts.put(path, count == null ? 1 : count + 1);
+        }
+    }
+}
@@ -23,6 +23,10 @@ import org.apache.rave.service.StaticContentFetcherConsumer;
 import org.apache.rave.service.StaticContentFetcherService;
 import org.junit.Before;
 import org.junit.Test;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
@@ -197,9 +201,9 @@ public class DefaultStaticContentFetcherServiceTest {
         //retain the old good cached content.
         String newContent = "new content from refresh";
         restTemplate = createNiceMock(RestTemplate.class);
-        expect(restTemplate.getForObject(new URI(VALID_URL1), String.class)).andReturn(newContent);
-        expect(restTemplate.getForObject(new URI(VALID_URL2), String.class)).andThrow(new RestClientException("Boom"));
-        expect(restTemplate.getForObject(new URI(VALID_URL3), String.class)).andReturn(newContent);
+        expect(exchange(VALID_URL1)).andReturn(ok(newContent));
+        expect(exchange(VALID_URL2)).andThrow(new RestClientException("Boom"));
+        expect(exchange(VALID_URL3)).andReturn(ok(newContent));
         replay(restTemplate);
         //Use reflection to stuff the new RestTemplate instance into our existing content fetcher instance
         ReflectionTestUtils.setField(service, "restTemplate", restTemplate);
@@ -222,9 +226,17 @@ public class DefaultStaticContentFetcherServiceTest {
     }
 
     private void expectAllRestTemplateGetForObject() throws URISyntaxException {
-        expect(restTemplate.getForObject(new URI(VALID_URL1), String.class)).andReturn(VALID_URL1_CONTENT);
-        expect(restTemplate.getForObject(new URI(VALID_URL2), String.class)).andReturn(VALID_URL2_CONTENT);
-        expect(restTemplate.getForObject(new URI(VALID_URL3), String.class)).andReturn(VALID_URL3_CONTENT);
+        expect(exchange(VALID_URL1)).andReturn(ok(VALID_URL1_CONTENT));
+        expect(exchange(VALID_URL2)).andReturn(ok(VALID_URL2_CONTENT));
+        expect(exchange(VALID_URL3)).andReturn(ok(VALID_URL3_CONTENT));
+    }
+
+    private ResponseEntity<String> exchange(String url) throws URISyntaxException {
+        return restTemplate.exchange(eq(new URI(url)), eq(HttpMethod.GET), isA(HttpEntity.class), eq(String.class));
+    }
+
+    private static ResponseEntity<String> ok(String content) {
+        return new ResponseEntity<String>(content, HttpStatus.OK);
     }
 
     private void assertBlankInitialContent(DefaultStaticContentFetcherService service) {
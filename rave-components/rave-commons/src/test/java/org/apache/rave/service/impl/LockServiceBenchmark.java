@@ -0,0 +1,124 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.rave.service.impl;
+
+import org.apache.rave.service.LockService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * JMH benchmark comparing the borrow/lock/unlock/return cycle of the LockService implementations.
+ * <p/>
+ * Each operation picks a hot key (shared by every thread) with probability hotKeyPercent, otherwise a key out of a
+ * large cold key space.  Run it from the IDE or with
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=org.apache.rave.service.impl.LockServiceBenchmark
+ * </pre>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LockServiceBenchmark {
+    private static final int HOT_KEYS = 8;
+    private static final int COLD_KEYS = 100000;
+
+    @State(Scope.Benchmark)
+    public static class Services {
+        @Param({"default", "concurrent"})
+        public String implementation;
+
+        LockService lockService;
+        String[] hotKeys;
+        String[] coldKeys;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            lockService = "default".equals(implementation) ? new DefaultLockService() : new ConcurrentLockService(64);
+            hotKeys = new String[HOT_KEYS];
+            for (int i = 0; i < HOT_KEYS; i++) {
+                hotKeys[i] = "RegionWidget-" + i;
+            }
+            coldKeys = new String[COLD_KEYS];
+            for (int i = 0; i < COLD_KEYS; i++) {
+                coldKeys[i] = "ApplicationData-" + i;
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class KeyChooser {
+        @Param({"10", "50", "90"})
+        public int hotKeyPercent;
+
+        private Random random;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            random = new Random(Thread.currentThread().getId());
+        }
+
+        String next(Services services) {
+            return random.nextInt(100) < hotKeyPercent ? services.hotKeys[random.nextInt(HOT_KEYS)] :
+                    services.coldKeys[random.nextInt(COLD_KEYS)];
+        }
+    }
+
+    @Benchmark
+    public Lock borrowLockReturn(Services services, KeyChooser chooser) {
+        Lock lock = services.lockService.borrowLock(chooser.next(services));
+        try {
+            lock.lock();
+            return lock;
+        } finally {
+            lock.unlock();
+            services.lockService.returnLock(lock);
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        for (int threads : new int[]{1, 4, 16, 64}) {
+            Options options = new OptionsBuilder()
+                    .include(LockServiceBenchmark.class.getSimpleName())
+                    .threads(threads)
+                    .build();
+            new Runner(options).run();
+        }
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.rave.service.impl;
+
+import org.apache.rave.service.LockService;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+public class LockServiceFactoryBeanTest {
+    private DefaultListableBeanFactory beanFactory;
+    private ConcurrentLockService concurrentLockService;
+    private DefaultLockService defaultLockService;
+    private LockServiceFactoryBean factoryBean;
+
+    @Before
+    public void setup() {
+        beanFactory = new DefaultListableBeanFactory();
+        concurrentLockService = new ConcurrentLockService();
+        defaultLockService = new DefaultLockService();
+        beanFactory.registerSingleton("concurrentLockService", concurrentLockService);
+        beanFactory.registerSingleton("defaultLockService", defaultLockService);
+        factoryBean = new LockServiceFactoryBean();
+        factoryBean.setBeanFactory(beanFactory);
+    }
+
+    @Test
+    public void defaultsToConcurrentLockService() {
+        assertThat(factoryBean.getObject(), sameInstance((LockService) concurrentLockService));
+    }
+
+    @Test
+    public void selectsConfiguredLockService() {
+        factoryBean.setLockServiceName("defaultLockService");
+        assertThat(factoryBean.getObject(), sameInstance((LockService) defaultLockService));
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.rave.synchronization;
+
+import org.apache.rave.service.impl.ConcurrentLockService;
+import org.apache.rave.synchronization.annotation.Synchronized;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmark of the overhead the @Synchronized advice adds to a method call.
+ * <p/>
+ * "parameterReference" is the shape used by the portal services (literal discriminator, #parameter id) and takes the
+ * lock plan fast path; "spelExpression" needs a full SpEL evaluation and "direct" calls the target without the aspect.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SynchronizingAspectBenchmark {
+    private SynchronizedService target;
+    private SynchronizedService proxy;
+    private long id;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        target = new DefaultSynchronizedService();
+        AspectJProxyFactory factory = new AspectJProxyFactory(target);
+        factory.addAspect(new SynchronizingAspect(new ConcurrentLockService()));
+        proxy = factory.getProxy();
+    }
+
+    @Benchmark
+    public long direct() {
+        return target.parameterReference(++id);
+    }
+
+    @Benchmark
+    public long parameterReference() {
+        return proxy.parameterReference(++id);
+    }
+
+    @Benchmark
+    public long spelExpression() {
+        return proxy.spelExpression(++id);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(SynchronizingAspectBenchmark.class.getSimpleName()).build()).run();
+    }
+
+    public interface SynchronizedService {
+        long parameterReference(long regionWidgetId);
+
+        long spelExpression(long regionWidgetId);
+    }
+
+    public static class DefaultSynchronizedService implements SynchronizedService {
+        @Override
+        @Synchronized(discriminator = "'RegionWidget'", id = "#regionWidgetId")
+        public long parameterReference(long regionWidgetId) {
+            return regionWidgetId;
+        }
+
+        @Override
+        @Synchronized(discriminator = "'RegionWidget'", id = "#regionWidgetId % 1000")
+        public long spelExpression(long regionWidgetId) {
+            return regionWidgetId;
+        }
+    }
+}
@@ -135,6 +135,47 @@ public class SynchronizingAspectTest {
         assertThat(result, is(expectedResult));
     }
 
+    @Test
+    public void testParameterReferenceId() throws Throwable {
+        TestService service = new DefaultTestService();
+        Method expectedMethod = service.getClass().getDeclaredMethod("testParameterReferenceId", long.class);
+        Object[] joinPointArgs = {42L};
+
+        ProceedingJoinPoint joinPoint = prepareJoinPoint("RegionWidget", "42", service, expectedMethod, joinPointArgs);
+
+        String result = (String) aspect.synchronizeInvocation(joinPoint);
+        assertThat(result, is("testParameterReferenceId"));
+        verify(lockService);
+    }
+
+    @Test
+    public void testPositionalParameterReferenceId() throws Throwable {
+        TestService service = new DefaultTestService();
+        Method expectedMethod = service.getClass().getDeclaredMethod("testPositionalParameterReferenceId",
+                String.class, String.class);
+        Object[] joinPointArgs = {"first", "second"};
+
+        ProceedingJoinPoint joinPoint = prepareJoinPoint("", "second", service, expectedMethod, joinPointArgs);
+
+        String result = (String) aspect.synchronizeInvocation(joinPoint);
+        assertThat(result, is("testPositionalParameterReferenceId"));
+        verify(lockService);
+    }
+
+    @Test
+    public void testParameterReferenceIdNonSimpleTypeUsesSpel() throws Throwable {
+        TestService service = new DefaultTestService();
+        Method expectedMethod = service.getClass().getDeclaredMethod("testParameterReferenceIdNonSimpleType",
+                TestEnum.class);
+        Object[] joinPointArgs = {TestEnum.VALUE};
+
+        ProceedingJoinPoint joinPoint = prepareJoinPoint("Enum", "VALUE", service, expectedMethod, joinPointArgs);
+
+        String result = (String) aspect.synchronizeInvocation(joinPoint);
+        assertThat(result, is("testParameterReferenceIdNonSimpleType"));
+        verify(lockService);
+    }
+
     @Test
     public void synchronizePointcutCoverageTest() {
         aspect.synchronizePointcut();
@@ -169,10 +210,36 @@ public class SynchronizingAspectTest {
         return joinPoint;
     }
 
+    private ProceedingJoinPoint prepareJoinPoint(String expectedDiscriminator, String expectedId, TestService service,
+                                                 Method expectedMethod, Object[] joinPointArgs) throws Throwable {
+        MethodSignature methodSignature = createMock(MethodSignature.class);
+        expect(methodSignature.getMethod()).andReturn(expectedMethod);
+        replay(methodSignature);
+
+        ProceedingJoinPoint joinPoint = createMock(ProceedingJoinPoint.class);
+        expect(joinPoint.getSignature()).andReturn(methodSignature);
+        expect(joinPoint.getTarget()).andReturn(service);
+        expect(joinPoint.getArgs()).andReturn(joinPointArgs);
+        expect(joinPoint.proceed()).andReturn(expectedMethod.invoke(service, joinPointArgs));
+        replay(joinPoint);
+
+        Lock lock = new ReentrantLock();
+        expect(lockService.borrowLock(expectedDiscriminator, expectedId)).andReturn(lock);
+        lockService.returnLock(lock);
+        replay(lockService);
+        return joinPoint;
+    }
+
     private interface TestService {
         public String testStaticDiscriminatorStaticIdEmptyCondition(TestObject testObject);
 
         public String testStaticDiscriminatorDynamicIdDynamicCondition(TestObject testObject);
+
+        public String testParameterReferenceId(long regionWidgetId);
+
+        public String testPositionalParameterReferenceId(String first, String second);
+
+        public String testParameterReferenceIdNonSimpleType(TestEnum value);
     }
 
     private class DefaultTestService implements TestService {
@@ -186,6 +253,25 @@ public class SynchronizingAspectTest {
         public String testStaticDiscriminatorDynamicIdDynamicCondition(TestObject testObject) {
             return "testStaticDiscriminatorDynamicIdDynamicCondition";
         }
+
+        @Synchronized(discriminator = "'RegionWidget'", id = "#regionWidgetId")
+        public String testParameterReferenceId(long regionWidgetId) {
+            return "testParameterReferenceId";
+        }
+
+        @Synchronized(id = "#p1")
+        public String testPositionalParameterReferenceId(String first, String second) {
+            return "testPositionalParameterReferenceId";
+        }
+
+        @Synchronized(discriminator = "'Enum'", id = "#value")
+        public String testParameterReferenceIdNonSimpleType(TestEnum value) {
+            return "testParameterReferenceIdNonSimpleType";
+        }
+    }
+
+    private enum TestEnum {
+        VALUE
     }
 
     private class TestObject {
@@ -0,0 +1,140 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.rave.util;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.introspect.JacksonAnnotationIntrospector;
+import com.fasterxml.jackson.module.mrbean.MrBeanModule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmark of the load (parse) and save (stringify) cycle of an entity's serialized property map.
+ * <p/>
+ * The "newMapper" benchmarks reproduce building a fresh ObjectMapper for every call, the "shared" benchmarks use
+ * the cached JsonUtils reader and writer, and the "lazy" benchmarks go through {@link LazyJsonMap} as the JPA
+ * entities do.  Run it from the IDE or with
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=org.apache.rave.util.JsonUtilsBenchmark
+ * </pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonUtilsBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Properties {
+        @Param({"10", "1000"})
+        public int propertyCount;
+
+        Map<String, Object> map;
+        String serialized;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            map = new HashMap<String, Object>();
+            for (int i = 0; i < propertyCount; i++) {
+                Map<String, Object> value = new HashMap<String, Object>();
+                value.put("title", "Property " + i);
+                value.put("order", i);
+                value.put("visible", i % 2 == 0);
+                map.put("property" + i, value);
+            }
+            serialized = JsonUtils.stringify(map);
+        }
+    }
+
+    @Benchmark
+    public Object parse_newMapper(Properties properties) throws IOException {
+        return newMapper().readValue(properties.serialized, Map.class);
+    }
+
+    @Benchmark
+    public Object parse_shared(Properties properties) {
+        return JsonUtils.parse(properties.serialized, Map.class);
+    }
+
+    @Benchmark
+    public String stringify_newMapper(Properties properties) throws IOException {
+        return newMapper().writeValueAsString(properties.map);
+    }
+
+    @Benchmark
+    public String stringify_shared(Properties properties) {
+        return JsonUtils.stringify(properties.map);
+    }
+
+    @Benchmark
+    public String loadAndSave_newMapper(Properties properties) throws IOException {
+        Map<?, ?> loaded = newMapper().readValue(properties.serialized, Map.class);
+        return newMapper().writeValueAsString(loaded);
+    }
+
+    @Benchmark
+    public String loadAndSave_lazyUntouched(Properties properties) {
+        LazyJsonMap lazy = new LazyJsonMap();
+        return lazy.serialize(properties.serialized);
+    }
+
+    @Benchmark
+    public String loadAndSave_lazyAccessed(Properties properties) {
+        LazyJsonMap lazy = new LazyJsonMap();
+        lazy.get(properties.serialized);
+        return lazy.serialize(properties.serialized);
+    }
+
+    private static ObjectMapper newMapper() {
+        ObjectMapper jacksonMapper = new ObjectMapper();
+        jacksonMapper.setAnnotationIntrospector(new JacksonAnnotationIntrospector());
+        jacksonMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        jacksonMapper.registerModule(new MrBeanModule());
+        return jacksonMapper;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(JsonUtilsBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.rave.util;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+public class LazyJsonMapTest {
+    private static final String SERIALIZED = "{\"a\":\"1\",\"b\":2}";
+
+    @Test
+    public void serialize_untouched() {
+        LazyJsonMap map = new LazyJsonMap();
+        assertThat(map.serialize(SERIALIZED), is(sameInstance(SERIALIZED)));
+        assertThat(map.isModified(), is(false));
+    }
+
+    @Test
+    public void get_parsesOnce() {
+        LazyJsonMap map = new LazyJsonMap();
+        Map<String, Object> parsed = map.get(SERIALIZED);
+        assertThat(parsed.get("a"), is(equalTo((Object) "1")));
+        assertThat(parsed.get("b"), is(equalTo((Object) 2)));
+        assertThat(map.get(SERIALIZED), is(sameInstance(parsed)));
+    }
+
+    @Test
+    public void get_null() {
+        LazyJsonMap map = new LazyJsonMap();
+        assertThat(map.get(null), is(nullValue()));
+        assertThat(map.serialize(null), is(nullValue()));
+    }
+
+    @Test
+    public void serialize_modifiedInPlace() {
+        LazyJsonMap map = new LazyJsonMap();
+        map.get(SERIALIZED).put("c", "3");
+        Map<String, Object> reparsed = JsonUtils.parse(map.serialize(SERIALIZED), Map.class);
+        assertThat(reparsed.get("c"), is(equalTo((Object) "3")));
+        assertThat(reparsed.size(), is(3));
+    }
+
+    @Test
+    public void serialize_replaced() {
+        LazyJsonMap map = new LazyJsonMap();
+        Map<String, Object> replacement = new HashMap<String, Object>();
+        replacement.put("d", "4");
+        map.set(replacement);
+        assertThat(map.get(SERIALIZED), is(sameInstance(replacement)));
+        assertThat(map.serialize(SERIALIZED), is(equalTo("{\"d\":\"4\"}")));
+    }
+
+    @Test
+    public void get_serializedFormChanged() {
+        LazyJsonMap map = new LazyJsonMap();
+        map.serialize(SERIALIZED);
+        String changed = "{\"e\":\"5\"}";
+        assertThat(map.get(changed).get("e"), is(equalTo((Object) "5")));
+    }
+
+    @Test
+    public void jsonUtils_readerIsCached() {
+        assertThat(JsonUtils.getReader(Map.class), is(sameInstance(JsonUtils.getReader(Map.class))));
+    }
+}
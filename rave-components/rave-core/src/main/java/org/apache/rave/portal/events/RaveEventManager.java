@@ -16,50 +16,318 @@
  * specific language governing permissions and limitations
  * under the License.
  */
+
 package org.apache.rave.portal.events;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
-import java.util.*;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * Delivers {@link RaveEvent}s to the listeners registered for the class of the event or for any of its superclasses
+ * and interfaces.
+ *
+ * Each listener is registered for synchronous or asynchronous dispatch. Synchronous listeners run on the thread that
+ * fires the event. Asynchronous listeners run on a small pool of daemon threads fed by a bounded queue; when the
+ * queue is full the firing thread runs the listener itself, which slows down producers instead of dropping events.
+ * Asynchronous listeners may see events in a different order than they were fired. An exception thrown by a listener
+ * is logged and does not reach the caller or the other listeners.
+ */
 @Component
 public class RaveEventManager  {
+    private static final Logger log = LoggerFactory.getLogger(RaveEventManager.class);
+
+    public enum Dispatch {
+        SYNCHRONOUS, ASYNCHRONOUS
+    }
+
+    private final ConcurrentMap<Class<?>, Set<Registration>> eventListenerMap =
+            new ConcurrentHashMap<Class<?>, Set<Registration>>();
+    private final ConcurrentMap<Class<?>, Class<?>[]> eventTypes = new ConcurrentHashMap<Class<?>, Class<?>[]>();
+    private final ConcurrentMap<String, ListenerMetrics> listenerMetrics = new ConcurrentHashMap<String, ListenerMetrics>();
+    private final AtomicLong firedCount = new AtomicLong();
+    private final AtomicLong callerRunsCount = new AtomicLong();
+
+    private Dispatch defaultDispatch = Dispatch.SYNCHRONOUS;
+    private int dispatchThreads = 2;
+    private int queueCapacity = 1000;
+    private ThreadPoolExecutor executor;
+    private boolean destroyed;
+
+    /**
+     * @param defaultDispatch the dispatch mode of listeners added without one, synchronous or asynchronous
+     */
+    @Value("${portal.events.default_dispatch:synchronous}")
+    public void setDefaultDispatch(String defaultDispatch) {
+        this.defaultDispatch = Dispatch.valueOf(defaultDispatch.trim().toUpperCase());
+    }
 
-    private final Map<Class<? extends RaveEvent>, Set<RaveEventListener>> eventListenerMap;
+    @Value("${portal.events.dispatch_threads:2}")
+    public void setDispatchThreads(int dispatchThreads) {
+        this.dispatchThreads = dispatchThreads;
+    }
 
-    public RaveEventManager() {
-        this.eventListenerMap = new Hashtable<Class<? extends RaveEvent>, Set<RaveEventListener>> ();
+    /**
+     * @param queueCapacity the number of asynchronous deliveries that may wait for a dispatch thread
+     */
+    @Value("${portal.events.queue_capacity:1000}")
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
     }
 
     public void addListener(Class<? extends RaveEvent> event, RaveEventListener listener) {
-        synchronized (eventListenerMap){
-            if (eventListenerMap.containsKey(event)){
-                Set<RaveEventListener> eventListeners = eventListenerMap.get(event);
-                if(eventListeners == null){
-                    eventListeners = new HashSet<RaveEventListener>();
+        addListener(event, listener, defaultDispatch);
+    }
+
+    /**
+     * Registers the listener for events of the given type and its subtypes. Registering a listener again for the
+     * same type replaces its dispatch mode.
+     */
+    public void addListener(Class<? extends RaveEvent> event, RaveEventListener listener, Dispatch dispatch) {
+        Set<Registration> registrations = eventListenerMap.get(event);
+        if (registrations == null) {
+            registrations = new CopyOnWriteArraySet<Registration>();
+            Set<Registration> existing = eventListenerMap.putIfAbsent(event, registrations);
+            if (existing != null) {
+                registrations = existing;
+            }
+        }
+        Registration registration = new Registration(listener, dispatch);
+        synchronized (registrations) {
+            registrations.remove(registration);
+            registrations.add(registration);
+        }
+    }
+
+    public void removeListener(Class<? extends RaveEvent> event, RaveEventListener listener) {
+        Set<Registration> registrations = eventListenerMap.get(event);
+        if (registrations != null) {
+            synchronized (registrations) {
+                registrations.remove(new Registration(listener, null));
+            }
+        }
+    }
+
+    public void fireEvent(RaveEvent event) {
+        firedCount.incrementAndGet();
+        for (Registration registration : getRegistrations(event.getClass())) {
+            if (registration.dispatch == Dispatch.ASYNCHRONOUS) {
+                dispatchAsynchronously(registration, event);
+            } else {
+                deliver(registration, event);
+            }
+        }
+    }
+
+    /**
+     * @return the number of events fired, the asynchronous queue depth and the latency of each listener
+     */
+    public RaveEventStatistics getStatistics() {
+        ThreadPoolExecutor current = executor;
+        Map<String, RaveEventStatistics.ListenerStatistics> listeners =
+                new HashMap<String, RaveEventStatistics.ListenerStatistics>();
+        for (Map.Entry<String, ListenerMetrics> entry : listenerMetrics.entrySet()) {
+            ListenerMetrics metrics = entry.getValue();
+            listeners.put(entry.getKey(), new RaveEventStatistics.ListenerStatistics(metrics.invocations.get(),
+                    metrics.failures.get(), TimeUnit.NANOSECONDS.toMicros(metrics.totalTimeNanos.get()),
+                    TimeUnit.NANOSECONDS.toMicros(metrics.maxTimeNanos.get())));
+        }
+        return new RaveEventStatistics(firedCount.get(), current == null ? 0 : current.getQueue().size(),
+                callerRunsCount.get(), listeners);
+    }
+
+    /**
+     * Stops the dispatch threads after the events already queued have been delivered
+     */
+    @PreDestroy
+    public void destroy() {
+        ThreadPoolExecutor current;
+        synchronized (this) {
+            current = executor;
+            executor = null;
+            destroyed = true;
+        }
+        if (current != null) {
+            current.shutdown();
+            try {
+                if (!current.awaitTermination(5, TimeUnit.SECONDS)) {
+                    log.warn("Dropping {} queued events on shutdown", current.shutdownNow().size());
                 }
-                eventListeners.add(listener);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private List<Registration> getRegistrations(Class<?> eventClass) {
+        List<Registration> matches = Collections.emptyList();
+        for (Class<?> type : getEventTypes(eventClass)) {
+            Set<Registration> registrations = eventListenerMap.get(type);
+            if (registrations == null || registrations.isEmpty()) {
+                continue;
+            }
+            if (matches.isEmpty()) {
+                matches = new ArrayList<Registration>(registrations);
             } else {
-                Set<RaveEventListener> eventListeners = new HashSet<RaveEventListener>();
-                eventListeners.add(listener);
-                eventListenerMap.put(event, eventListeners);
+                // a listener registered for several types of the hierarchy is called once
+                for (Registration registration : registrations) {
+                    if (!matches.contains(registration)) {
+                        matches.add(registration);
+                    }
+                }
             }
         }
+        return matches;
     }
 
-    public void removeListener(Class<? extends RaveEvent> event, RaveEventListener listener) {
-        synchronized (eventListenerMap){
-            if(eventListenerMap.containsKey(event))
-                eventListenerMap.get(event).remove(listener);
+    /**
+     * Returns the class, superclasses and interfaces of the event class, most specific first
+     */
+    private Class<?>[] getEventTypes(Class<?> eventClass) {
+        Class<?>[] types = eventTypes.get(eventClass);
+        if (types == null) {
+            Set<Class<?>> hierarchy = new LinkedHashSet<Class<?>>();
+            for (Class<?> type = eventClass; type != null && type != Object.class; type = type.getSuperclass()) {
+                hierarchy.add(type);
+            }
+            for (Class<?> type : new ArrayList<Class<?>>(hierarchy)) {
+                addInterfaces(type, hierarchy);
+            }
+            types = hierarchy.toArray(new Class<?>[hierarchy.size()]);
+            eventTypes.putIfAbsent(eventClass, types);
+        }
+        return types;
+    }
+
+    private static void addInterfaces(Class<?> type, Set<Class<?>> hierarchy) {
+        for (Class<?> implemented : type.getInterfaces()) {
+            if (hierarchy.add(implemented)) {
+                addInterfaces(implemented, hierarchy);
+            }
+        }
+    }
+
+    private void dispatchAsynchronously(final Registration registration, final RaveEvent event) {
+        ThreadPoolExecutor current = getExecutor();
+        if (current == null) {
+            deliver(registration, event);
+            return;
         }
+        current.execute(new Runnable() {
+            @Override
+            public void run() {
+                deliver(registration, event);
+            }
+        });
     }
 
-    public synchronized void fireEvent(RaveEvent event){
-        Set<RaveEventListener> listeners = eventListenerMap.get(event.getClass());
-        if (listeners != null && !listeners.isEmpty()){
-            for (RaveEventListener listener : eventListenerMap.get(event.getClass())) {
-                listener.handleEvent(event);
+    private void deliver(Registration registration, RaveEvent event) {
+        ListenerMetrics metrics = getMetrics(registration.listener);
+        long start = System.nanoTime();
+        try {
+            registration.listener.handleEvent(event);
+        } catch (RuntimeException e) {
+            metrics.failures.incrementAndGet();
+            log.error("Listener " + registration.listener + " failed to handle " + event.getClass().getName(), e);
+        } finally {
+            metrics.record(System.nanoTime() - start);
+        }
+    }
+
+    private ListenerMetrics getMetrics(RaveEventListener listener) {
+        String name = listener.getClass().getName();
+        ListenerMetrics metrics = listenerMetrics.get(name);
+        if (metrics == null) {
+            metrics = new ListenerMetrics();
+            ListenerMetrics existing = listenerMetrics.putIfAbsent(name, metrics);
+            if (existing != null) {
+                metrics = existing;
             }
         }
+        return metrics;
+    }
+
+    private synchronized ThreadPoolExecutor getExecutor() {
+        if (executor == null && !destroyed) {
+            executor = new ThreadPoolExecutor(dispatchThreads, dispatchThreads, 60, TimeUnit.SECONDS,
+                    new ArrayBlockingQueue<Runnable>(queueCapacity), new DispatchThreadFactory(),
+                    new RejectedExecutionHandler() {
+                        @Override
+                        public void rejectedExecution(Runnable delivery, ThreadPoolExecutor executor) {
+                            // the queue is full or the manager is shutting down, deliver on the firing thread
+                            callerRunsCount.incrementAndGet();
+                            delivery.run();
+                        }
+                    });
+            executor.allowCoreThreadTimeOut(true);
+        }
+        return executor;
+    }
+
+    private static class Registration {
+        private final RaveEventListener listener;
+        private final Dispatch dispatch;
+
+        private Registration(RaveEventListener listener, Dispatch dispatch) {
+            this.listener = listener;
+            this.dispatch = dispatch;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Registration && ((Registration) o).listener.equals(listener);
+        }
+
+        @Override
+        public int hashCode() {
+            return listener.hashCode();
+        }
+    }
+
+    private static class ListenerMetrics {
+        private final AtomicLong invocations = new AtomicLong();
+        private final AtomicLong failures = new AtomicLong();
+        private final AtomicLong totalTimeNanos = new AtomicLong();
+        private final AtomicLong maxTimeNanos = new AtomicLong();
+
+        private void record(long elapsed) {
+            invocations.incrementAndGet();
+            totalTimeNanos.addAndGet(elapsed);
+            long max = maxTimeNanos.get();
+            while (elapsed > max && !maxTimeNanos.compareAndSet(max, elapsed)) {
+                max = maxTimeNanos.get();
+            }
+        }
+    }
+
+    private static class DispatchThreadFactory implements ThreadFactory {
+        private final AtomicInteger threadNumber = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "rave-event-dispatch-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
     }
 }
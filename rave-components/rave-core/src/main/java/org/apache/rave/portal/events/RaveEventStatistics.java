@@ -0,0 +1,100 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.rave.portal.events;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Point in time snapshot of the counters of a {@link RaveEventManager}
+ */
+public class RaveEventStatistics {
+    private final long firedCount;
+    private final int queueDepth;
+    private final long callerRunsCount;
+    private final Map<String, ListenerStatistics> listeners;
+
+    public RaveEventStatistics(long firedCount, int queueDepth, long callerRunsCount,
+                               Map<String, ListenerStatistics> listeners) {
+        this.firedCount = firedCount;
+        this.queueDepth = queueDepth;
+        this.callerRunsCount = callerRunsCount;
+        this.listeners = Collections.unmodifiableMap(listeners);
+    }
+
+    public long getFiredCount() {
+        return firedCount;
+    }
+
+    /**
+     * @return the number of asynchronous deliveries waiting for a dispatch thread
+     */
+    public int getQueueDepth() {
+        return queueDepth;
+    }
+
+    /**
+     * @return the number of asynchronous deliveries run on the firing thread because the queue was full
+     */
+    public long getCallerRunsCount() {
+        return callerRunsCount;
+    }
+
+    /**
+     * @return the statistics of each listener, keyed by listener class name
+     */
+    public Map<String, ListenerStatistics> getListeners() {
+        return listeners;
+    }
+
+    public static class ListenerStatistics {
+        private final long invocations;
+        private final long failures;
+        private final long totalTimeMicros;
+        private final long maxTimeMicros;
+
+        public ListenerStatistics(long invocations, long failures, long totalTimeMicros, long maxTimeMicros) {
+            this.invocations = invocations;
+            this.failures = failures;
+            this.totalTimeMicros = totalTimeMicros;
+            this.maxTimeMicros = maxTimeMicros;
+        }
+
+        public long getInvocations() {
+            return invocations;
+        }
+
+        public long getFailures() {
+            return failures;
+        }
+
+        public long getTotalTimeMicros() {
+            return totalTimeMicros;
+        }
+
+        public long getMaxTimeMicros() {
+            return maxTimeMicros;
+        }
+
+        public long getAverageTimeMicros() {
+            return invocations == 0 ? 0 : totalTimeMicros / invocations;
+        }
+    }
+}
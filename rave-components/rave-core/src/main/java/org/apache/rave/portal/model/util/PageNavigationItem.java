@@ -0,0 +1,141 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.rave.portal.model.util;
+
+import org.apache.rave.model.Page;
+import org.apache.rave.model.PageInvitationStatus;
+import org.apache.rave.model.PageUser;
+
+import java.io.Serializable;
+
+/**
+ * Lightweight view of a page as seen by one of its members, carrying only what is needed to render
+ * the page navigation (tab strip) without loading the page's regions, widgets and sub pages.
+ */
+public class PageNavigationItem implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private String id;
+    private String name;
+    private String ownerId;
+    private Long renderSequence;
+    private PageInvitationStatus pageStatus;
+    private boolean editor;
+    private int memberCount;
+
+    public PageNavigationItem() {
+    }
+
+    /**
+     * Constructor used by JPQL constructor expressions
+     */
+    public PageNavigationItem(Long id, String name, String ownerId, Long renderSequence,
+                              PageInvitationStatus pageStatus, boolean editor, Long memberCount) {
+        this.id = id == null ? null : id.toString();
+        this.name = name;
+        this.ownerId = ownerId;
+        this.renderSequence = renderSequence;
+        this.pageStatus = pageStatus;
+        this.editor = editor;
+        this.memberCount = memberCount == null ? 0 : memberCount.intValue();
+    }
+
+    /**
+     * Creates the navigation item for the given page as seen by the given member
+     */
+    public PageNavigationItem(Page page, PageUser member) {
+        this.id = page.getId();
+        this.name = page.getName();
+        this.ownerId = page.getOwnerId();
+        this.renderSequence = member.getRenderSequence();
+        this.pageStatus = member.getPageStatus();
+        this.editor = member.isEditor();
+        this.memberCount = page.getMembers() == null ? 0 : page.getMembers().size();
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getOwnerId() {
+        return ownerId;
+    }
+
+    public void setOwnerId(String ownerId) {
+        this.ownerId = ownerId;
+    }
+
+    public Long getRenderSequence() {
+        return renderSequence;
+    }
+
+    public void setRenderSequence(Long renderSequence) {
+        this.renderSequence = renderSequence;
+    }
+
+    public PageInvitationStatus getPageStatus() {
+        return pageStatus;
+    }
+
+    public void setPageStatus(PageInvitationStatus pageStatus) {
+        this.pageStatus = pageStatus;
+    }
+
+    /**
+     * @return true if the member this item was loaded for may edit the page
+     */
+    public boolean isEditor() {
+        return editor;
+    }
+
+    public void setEditor(boolean editor) {
+        this.editor = editor;
+    }
+
+    public int getMemberCount() {
+        return memberCount;
+    }
+
+    public void setMemberCount(int memberCount) {
+        this.memberCount = memberCount;
+    }
+
+    @Override
+    public String toString() {
+        return "PageNavigationItem{" +
+                "id='" + id + '\'' +
+                ", name='" + name + '\'' +
+                ", renderSequence=" + renderSequence +
+                ", pageStatus=" + pageStatus +
+                '}';
+    }
+}
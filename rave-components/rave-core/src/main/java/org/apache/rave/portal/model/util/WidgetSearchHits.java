@@ -0,0 +1,76 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.rave.portal.model.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One page of widget ids matching a {@link WidgetSearchQuery}, best match first, with the facet counts over all of
+ * the matching widgets
+ */
+public class WidgetSearchHits {
+    public static final String FACET_STATUS = "status";
+    public static final String FACET_TYPE = "type";
+    public static final String FACET_TAG = "tag";
+    public static final String FACET_CATEGORY = "category";
+
+    private List<String> widgetIds = new ArrayList<String>();
+    private int totalCount;
+    private Map<String, Map<String, Integer>> facets = new HashMap<String, Map<String, Integer>>();
+
+    public WidgetSearchHits() {
+    }
+
+    public WidgetSearchHits(List<String> widgetIds, int totalCount) {
+        this.widgetIds = widgetIds;
+        this.totalCount = totalCount;
+    }
+
+    public List<String> getWidgetIds() {
+        return widgetIds;
+    }
+
+    public void setWidgetIds(List<String> widgetIds) {
+        this.widgetIds = widgetIds;
+    }
+
+    public int getTotalCount() {
+        return totalCount;
+    }
+
+    public void setTotalCount(int totalCount) {
+        this.totalCount = totalCount;
+    }
+
+    /**
+     * @return the number of matching widgets per value, keyed by facet name ({@link #FACET_STATUS},
+     *         {@link #FACET_TYPE}, {@link #FACET_TAG} or {@link #FACET_CATEGORY}).  Tags and categories are counted by id.
+     */
+    public Map<String, Map<String, Integer>> getFacets() {
+        return facets;
+    }
+
+    public void setFacets(Map<String, Map<String, Integer>> facets) {
+        this.facets = facets;
+    }
+}
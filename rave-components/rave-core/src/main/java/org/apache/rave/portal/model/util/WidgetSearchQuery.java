@@ -0,0 +1,110 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.rave.portal.model.util;
+
+import org.apache.rave.model.WidgetStatus;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Free text query against the {@link org.apache.rave.portal.service.WidgetSearchIndex}, optionally narrowed by the
+ * status, type, tags and categories of the widgets
+ */
+public class WidgetSearchQuery {
+    private String searchTerm;
+    private WidgetStatus status;
+    private String type;
+    private Set<String> tagIds = new HashSet<String>();
+    private Set<String> categoryIds = new HashSet<String>();
+    private int offset;
+    private int pageSize;
+
+    public WidgetSearchQuery() {
+    }
+
+    public WidgetSearchQuery(String searchTerm, int offset, int pageSize) {
+        this.searchTerm = searchTerm;
+        this.offset = offset;
+        this.pageSize = pageSize;
+    }
+
+    public String getSearchTerm() {
+        return searchTerm;
+    }
+
+    public void setSearchTerm(String searchTerm) {
+        this.searchTerm = searchTerm;
+    }
+
+    public WidgetStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(WidgetStatus status) {
+        this.status = status;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    /**
+     * @return the ids of the tags a widget must all have to match
+     */
+    public Set<String> getTagIds() {
+        return tagIds;
+    }
+
+    public void setTagIds(Set<String> tagIds) {
+        this.tagIds = tagIds;
+    }
+
+    /**
+     * @return the ids of the categories a widget must all be in to match
+     */
+    public Set<String> getCategoryIds() {
+        return categoryIds;
+    }
+
+    public void setCategoryIds(Set<String> categoryIds) {
+        this.categoryIds = categoryIds;
+    }
+
+    public int getOffset() {
+        return offset;
+    }
+
+    public void setOffset(int offset) {
+        this.offset = offset;
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    public void setPageSize(int pageSize) {
+        this.pageSize = pageSize;
+    }
+}
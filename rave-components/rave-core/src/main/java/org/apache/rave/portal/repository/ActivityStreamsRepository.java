@@ -22,7 +22,10 @@ package org.apache.rave.portal.repository;
 import org.apache.rave.repository.Repository;
 import org.apache.rave.model.ActivityStreamsEntry;
 
+import java.util.Collection;
+import java.util.Date;
 import java.util.List;
+import java.util.Set;
 
 public interface ActivityStreamsRepository extends Repository<ActivityStreamsEntry> {
 
@@ -32,5 +35,36 @@ public interface ActivityStreamsRepository extends Repository<ActivityStreamsEnt
      */
     List<ActivityStreamsEntry> getByUserId(String id);
 
+    /**
+     * Retrieves a page of the ActivityStreamsEntry instances created by any of the given users, newest first.
+     * Entries without a published date come first, followed by the dated entries; entries that sort the same are
+     * ordered by id, descending.  The page continues after the entry identified by before and beforeId, which is
+     * typically the last entry of the previous page.
+     * @param ids the ids of the users to retrieve entries for
+     * @param before the published date of the entry to continue after, or null if that entry has no published date
+     * @param beforeId the id of the entry to continue after; if null, the page starts at the first entry published
+     *                 strictly before the given date, or at the newest entry if the date is null as well
+     * @param limit the maximum number of entries to return
+     * @return a list of {@link ActivityStreamsEntry} ordered by published date, descending
+     */
+    List<ActivityStreamsEntry> getByUserIds(Set<String> ids, Date before, String beforeId, int limit);
+
+    /**
+     * Retrieves the first page of the ActivityStreamsEntry instances created by any of the given users, oldest first.
+     * Entries without a published date come first, followed by the dated entries; entries that sort the same are
+     * ordered by id, ascending.
+     * @param ids the ids of the users to retrieve entries for
+     * @param limit the maximum number of entries to return
+     * @return a list of {@link ActivityStreamsEntry} ordered by published date, ascending
+     */
+    List<ActivityStreamsEntry> getOldestByUserIds(Set<String> ids, int limit);
+
+    /**
+     * Retrieves the ActivityStreamsEntry instances with the given ids in a single lookup
+     * @param ids the ids of the entries to retrieve
+     * @return the entries found, in no particular order; unknown ids are left out
+     */
+    List<ActivityStreamsEntry> getByIds(Collection<String> ids);
+
     public void deleteById(String id) ;
 }
@@ -22,6 +22,8 @@ import org.apache.rave.model.ApplicationData;
 import org.apache.rave.repository.Repository;
 
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 public interface ApplicationDataRepository extends Repository<ApplicationData> {
 
@@ -42,4 +44,25 @@ public interface ApplicationDataRepository extends Repository<ApplicationData> {
      * @return The application data, or null if not found
      */
     ApplicationData getApplicationData(String personId, String appId);
+
+    /**
+     * Sets and removes individual keys of the application data for the given user and application as one atomic
+     * operation, without reading or rewriting the keys that are not named.  Data saved in the single document format
+     * of {@link #save} is carried over the first time it is updated this way.
+     *
+     * @param personId    The user
+     * @param appId       The application
+     * @param values      The keys to set and their new values
+     * @param removedKeys The keys to remove, must not overlap the keys of values
+     */
+    void updateApplicationDataValues(String personId, String appId, Map<String, Object> values, Set<String> removedKeys);
+
+    /**
+     * Replaces all application data for the given user and application with the given values as one atomic operation
+     *
+     * @param personId The user
+     * @param appId    The application
+     * @param values   The complete new data, an empty map removes all data
+     */
+    void replaceApplicationDataValues(String personId, String appId, Map<String, Object> values);
 }
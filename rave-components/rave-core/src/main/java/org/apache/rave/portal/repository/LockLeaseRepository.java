@@ -0,0 +1,57 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.rave.portal.repository;
+
+/**
+ * Stores the cluster wide leases used by {@link org.apache.rave.portal.service.impl.DistributedLockService}.
+ * <p/>
+ * A lease is identified by its lock key and is granted to a single owner (a portal node) until it expires.  Every
+ * grant increments the fencing token of the key, so tokens handed out for a key are strictly increasing and a stale
+ * holder can always be detected by comparing tokens.  Implementations must perform each operation atomically and
+ * independently of any surrounding transaction.
+ */
+public interface LockLeaseRepository {
+    /**
+     * Grants the lease on the key to the owner if the key is free, its lease has expired or the owner already holds
+     * it.
+     *
+     * @param key         the lock key
+     * @param owner       the unique id of the requesting node
+     * @param now         the current time in milliseconds
+     * @param leaseMillis the duration of the lease
+     * @return the new fencing token, or null if another owner holds an unexpired lease
+     * @throws org.apache.rave.exception.DuplicateItemException if the key was granted for the first time by another
+     *                                                          owner at the same moment
+     */
+    Long tryAcquire(String key, String owner, long now, long leaseMillis);
+
+    /**
+     * Extends an unexpired lease still held by the owner under the given fencing token.
+     *
+     * @return true if the lease was extended, false if it has expired or was granted to someone else
+     */
+    boolean renew(String key, String owner, long fencingToken, long now, long leaseMillis);
+
+    /**
+     * Expires the lease if it is still held by the owner under the given fencing token.  The fencing token of the key
+     * is retained so that the next grant continues the sequence.
+     */
+    void release(String key, String owner, long fencingToken);
+}
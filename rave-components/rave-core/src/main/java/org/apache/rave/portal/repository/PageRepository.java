@@ -20,6 +20,7 @@ package org.apache.rave.portal.repository;
 
 import org.apache.rave.repository.Repository;
 import org.apache.rave.model.*;
+import org.apache.rave.portal.model.util.PageNavigationItem;
 
 
 import java.util.List;
@@ -37,6 +38,17 @@ public interface PageRepository extends Repository<Page>{
      */
     List<Page> getAllPagesForUserType(String userId, String pageType);
 
+    /**
+     * Returns the navigation items for all pages of a given page type where the user is a member of the page,
+     * ordered by the user's render sequence.  Unlike {@link #getAllPagesForUserType(String, String)} the pages'
+     * regions, widgets and sub pages are not loaded.
+     *
+     * @param userId the userId to search by
+     * @param pageType the pageType to search by
+     * @return a list of navigation items for the pages of type pageType that userId is a member of
+     */
+    List<PageNavigationItem> getNavigationForUserType(String userId, String pageType);
+
     /**
      * Returns all pages of a given type where the contextId matches the specified ID
      *
@@ -19,6 +19,7 @@
 
 package org.apache.rave.portal.repository;
 
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 
@@ -37,6 +38,14 @@ public interface PersonRepository extends Repository<Person> {
      */
     Person findByUsername(String username);
 
+    /**
+     * Gets the people with the given usernames in a single lookup
+     *
+     * @param usernames the usernames to look up
+     * @return the people found, in no particular order; unknown usernames are left out
+     */
+    List<Person> findByUsernames(Collection<String> usernames);
+
     /**
      * Gets all people connected to the given user including friends, fellow group members, etc
      * @param username the user to find connected individuals for
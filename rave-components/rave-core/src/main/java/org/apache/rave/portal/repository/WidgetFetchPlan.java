@@ -0,0 +1,37 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.rave.portal.repository;
+
+/**
+ * Describes how much of a {@link org.apache.rave.model.Widget} a {@link WidgetRepository} read loads.
+ * Comments and ratings can grow without bound, so only the {@link #FULL} plan carries them; pages that
+ * show comments should page through them with {@link WidgetRepository#getCommentsByWidgetId} and use
+ * {@link WidgetRepository#getWidgetStatistics} for the rating totals.
+ */
+public enum WidgetFetchPlan {
+    /**
+     * The widget's own properties plus its tags and categories. Comments and ratings are not loaded.
+     */
+    LISTING,
+    /**
+     * The complete widget, including all of its comments and ratings.
+     */
+    FULL
+}
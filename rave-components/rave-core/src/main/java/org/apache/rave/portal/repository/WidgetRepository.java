@@ -23,11 +23,33 @@ import org.apache.rave.model.*;
 import org.apache.rave.portal.model.util.WidgetStatistics;
 
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 
-
+/**
+ * Provides access to {@link Widget}s. The paged finders return widgets in the {@link WidgetFetchPlan#LISTING}
+ * shape; {@link #get(String)} returns the {@link WidgetFetchPlan#FULL} widget.
+ */
 public interface WidgetRepository extends Repository<Widget> {
+    /**
+     * Gets a {@link Widget} loading only what the fetch plan asks for
+     *
+     * @param id        unique identifier of the Widget
+     * @param fetchPlan the parts of the widget to load
+     * @return {@link Widget} if it can be found, otherwise {@literal null}
+     */
+    Widget get(String id, WidgetFetchPlan fetchPlan);
+
+    /**
+     * Gets all {@link Widget}s with the given identifiers in a single lookup, in the
+     * {@link WidgetFetchPlan#LISTING} shape. Identifiers that do not match a Widget are ignored.
+     *
+     * @param ids unique identifiers of the Widgets
+     * @return the Widgets that could be found, in no particular order
+     */
+    List<Widget> getByIds(Collection<String> ids);
+
     /**
      * Gets a List of {@link Widget}'s by performing a free text search
      *
@@ -183,6 +205,24 @@ public interface WidgetRepository extends Repository<Widget> {
 
     WidgetComment getCommentById(String widgetId, String widgetCommentId);
 
+    /**
+     * Gets a page of the comments on a Widget, oldest first
+     *
+     * @param widgetId unique identifier of the Widget
+     * @param offset   start point within the comments (for paging)
+     * @param pageSize maximum number of comments to be returned (for paging)
+     * @return valid list of comments, can be empty
+     */
+    List<WidgetComment> getCommentsByWidgetId(String widgetId, int offset, int pageSize);
+
+    /**
+     * Counts the comments on a Widget. Useful for paging.
+     *
+     * @param widgetId unique identifier of the Widget
+     * @return total number of comments on the Widget
+     */
+    int getCountCommentsByWidgetId(String widgetId);
+
     WidgetComment createWidgetComment(String widgetId, WidgetComment comment);
 
     WidgetComment updateWidgetComment(String widgetId, WidgetComment comment);
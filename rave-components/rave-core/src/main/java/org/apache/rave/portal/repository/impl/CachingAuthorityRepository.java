@@ -0,0 +1,120 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.rave.portal.repository.impl;
+
+import org.apache.rave.model.Authority;
+import org.apache.rave.portal.repository.AuthorityRepository;
+
+import java.util.List;
+
+/**
+ * {@link AuthorityRepository} that serves lookups from a {@link ReferenceDataCache}
+ */
+public class CachingAuthorityRepository implements AuthorityRepository {
+    private final AuthorityRepository delegate;
+    private final ReferenceDataCache cache;
+
+    public CachingAuthorityRepository(AuthorityRepository delegate, ReferenceDataCache cache) {
+        this.delegate = delegate;
+        this.cache = cache;
+    }
+
+    @Override
+    public Authority getByAuthority(final String authorityName) {
+        return cache.get("name:" + authorityName, new ReferenceDataCache.Loader<Authority>() {
+            @Override
+            public Authority load() {
+                return delegate.getByAuthority(authorityName);
+            }
+        });
+    }
+
+    @Override
+    public List<Authority> getAllDefault() {
+        return cache.getList("default", new ReferenceDataCache.Loader<List<Authority>>() {
+            @Override
+            public List<Authority> load() {
+                return delegate.getAllDefault();
+            }
+        });
+    }
+
+    @Override
+    public List<Authority> getAll() {
+        return cache.getList("all", new ReferenceDataCache.Loader<List<Authority>>() {
+            @Override
+            public List<Authority> load() {
+                return delegate.getAll();
+            }
+        });
+    }
+
+    @Override
+    public int getCountAll() {
+        return cache.get("count", new ReferenceDataCache.Loader<Integer>() {
+            @Override
+            public Integer load() {
+                return delegate.getCountAll();
+            }
+        });
+    }
+
+    @Override
+    public Authority get(final String id) {
+        return cache.get("id:" + id, new ReferenceDataCache.Loader<Authority>() {
+            @Override
+            public Authority load() {
+                return delegate.get(id);
+            }
+        });
+    }
+
+    @Override
+    public List<Authority> getLimitedList(int offset, int limit) {
+        return delegate.getLimitedList(offset, limit);
+    }
+
+    @Override
+    public Class<? extends Authority> getType() {
+        return delegate.getType();
+    }
+
+    @Override
+    public Authority save(Authority item) {
+        try {
+            return delegate.save(item);
+        } finally {
+            cache.invalidateAll();
+        }
+    }
+
+    @Override
+    public void delete(Authority item) {
+        try {
+            delegate.delete(item);
+        } finally {
+            cache.invalidateAll();
+        }
+    }
+
+    public ReferenceDataCache getCache() {
+        return cache;
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.rave.portal.repository.impl;
+
+import org.apache.rave.model.PageLayout;
+import org.apache.rave.portal.repository.PageLayoutRepository;
+
+import java.util.List;
+
+/**
+ * {@link PageLayoutRepository} that serves lookups from a {@link ReferenceDataCache}
+ */
+public class CachingPageLayoutRepository implements PageLayoutRepository {
+    private final PageLayoutRepository delegate;
+    private final ReferenceDataCache cache;
+
+    public CachingPageLayoutRepository(PageLayoutRepository delegate, ReferenceDataCache cache) {
+        this.delegate = delegate;
+        this.cache = cache;
+    }
+
+    @Override
+    public PageLayout getByPageLayoutCode(final String codename) {
+        return cache.get("code:" + codename, new ReferenceDataCache.Loader<PageLayout>() {
+            @Override
+            public PageLayout load() {
+                return delegate.getByPageLayoutCode(codename);
+            }
+        });
+    }
+
+    @Override
+    public List<PageLayout> getAllUserSelectable() {
+        return cache.getList("userSelectable", new ReferenceDataCache.Loader<List<PageLayout>>() {
+            @Override
+            public List<PageLayout> load() {
+                return delegate.getAllUserSelectable();
+            }
+        });
+    }
+
+    @Override
+    public List<PageLayout> getAll() {
+        return cache.getList("all", new ReferenceDataCache.Loader<List<PageLayout>>() {
+            @Override
+            public List<PageLayout> load() {
+                return delegate.getAll();
+            }
+        });
+    }
+
+    @Override
+    public PageLayout get(final String id) {
+        return cache.get("id:" + id, new ReferenceDataCache.Loader<PageLayout>() {
+            @Override
+            public PageLayout load() {
+                return delegate.get(id);
+            }
+        });
+    }
+
+    @Override
+    public List<PageLayout> getLimitedList(int offset, int limit) {
+        return delegate.getLimitedList(offset, limit);
+    }
+
+    @Override
+    public int getCountAll() {
+        return delegate.getCountAll();
+    }
+
+    @Override
+    public Class<? extends PageLayout> getType() {
+        return delegate.getType();
+    }
+
+    @Override
+    public PageLayout save(PageLayout item) {
+        try {
+            return delegate.save(item);
+        } finally {
+            cache.invalidateAll();
+        }
+    }
+
+    @Override
+    public void delete(PageLayout item) {
+        try {
+            delegate.delete(item);
+        } finally {
+            cache.invalidateAll();
+        }
+    }
+
+    public ReferenceDataCache getCache() {
+        return cache;
+    }
+}
@@ -0,0 +1,266 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.rave.portal.repository.impl;
+
+import org.apache.rave.model.User;
+import org.apache.rave.model.Widget;
+import org.apache.rave.model.WidgetComment;
+import org.apache.rave.model.WidgetRating;
+import org.apache.rave.model.WidgetStatus;
+import org.apache.rave.model.WidgetTag;
+import org.apache.rave.portal.model.util.WidgetStatistics;
+import org.apache.rave.portal.repository.WidgetFetchPlan;
+import org.apache.rave.portal.repository.WidgetRepository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link WidgetRepository} that clears the category {@link ReferenceDataCache} whenever a widget is saved, deleted
+ * or changes owner, since the cached categories carry the widgets assigned to them
+ */
+public class CategoryCacheClearingWidgetRepository implements WidgetRepository {
+    private final WidgetRepository delegate;
+    private final ReferenceDataCache categoryCache;
+
+    public CategoryCacheClearingWidgetRepository(WidgetRepository delegate, ReferenceDataCache categoryCache) {
+        this.delegate = delegate;
+        this.categoryCache = categoryCache;
+    }
+
+    @Override
+    public Widget save(Widget item) {
+        try {
+            return delegate.save(item);
+        } finally {
+            categoryCache.invalidateAll();
+        }
+    }
+
+    @Override
+    public void delete(Widget item) {
+        try {
+            delegate.delete(item);
+        } finally {
+            categoryCache.invalidateAll();
+        }
+    }
+
+    @Override
+    public int unassignWidgetOwner(String userId) {
+        try {
+            return delegate.unassignWidgetOwner(userId);
+        } finally {
+            categoryCache.invalidateAll();
+        }
+    }
+
+    @Override
+    public Class<? extends Widget> getType() {
+        return delegate.getType();
+    }
+
+    @Override
+    public Widget get(String id) {
+        return delegate.get(id);
+    }
+
+    @Override
+    public Widget get(String id, WidgetFetchPlan fetchPlan) {
+        return delegate.get(id, fetchPlan);
+    }
+
+    @Override
+    public List<Widget> getByIds(Collection<String> ids) {
+        return delegate.getByIds(ids);
+    }
+
+    @Override
+    public List<Widget> getAll() {
+        return delegate.getAll();
+    }
+
+    @Override
+    public List<Widget> getLimitedList(int offset, int limit) {
+        return delegate.getLimitedList(offset, limit);
+    }
+
+    @Override
+    public int getCountAll() {
+        return delegate.getCountAll();
+    }
+
+    @Override
+    public List<Widget> getByFreeTextSearch(String searchTerm, int offset, int pageSize) {
+        return delegate.getByFreeTextSearch(searchTerm, offset, pageSize);
+    }
+
+    @Override
+    public int getCountFreeTextSearch(String searchTerm) {
+        return delegate.getCountFreeTextSearch(searchTerm);
+    }
+
+    @Override
+    public List<Widget> getByStatus(WidgetStatus widgetStatus, int offset, int pageSize) {
+        return delegate.getByStatus(widgetStatus, offset, pageSize);
+    }
+
+    @Override
+    public int getCountByStatus(WidgetStatus widgetStatus) {
+        return delegate.getCountByStatus(widgetStatus);
+    }
+
+    @Override
+    public List<Widget> getByStatusAndTypeAndFreeTextSearch(WidgetStatus widgetStatus, String type, String searchTerm,
+                                                            int offset, int pageSize) {
+        return delegate.getByStatusAndTypeAndFreeTextSearch(widgetStatus, type, searchTerm, offset, pageSize);
+    }
+
+    @Override
+    public int getCountByStatusAndTypeAndFreeText(WidgetStatus widgetStatus, String type, String searchTerm) {
+        return delegate.getCountByStatusAndTypeAndFreeText(widgetStatus, type, searchTerm);
+    }
+
+    @Override
+    public List<Widget> getByOwner(User owner, int offset, int pageSize) {
+        return delegate.getByOwner(owner, offset, pageSize);
+    }
+
+    @Override
+    public int getCountByOwner(User owner, int offset, int pageSize) {
+        return delegate.getCountByOwner(owner, offset, pageSize);
+    }
+
+    @Override
+    public Widget getByUrl(String widgetUrl) {
+        return delegate.getByUrl(widgetUrl);
+    }
+
+    @Override
+    public WidgetStatistics getWidgetStatistics(String widget_id, String user_id) {
+        return delegate.getWidgetStatistics(widget_id, user_id);
+    }
+
+    @Override
+    public Map<String, WidgetStatistics> getAllWidgetStatistics(String userId) {
+        return delegate.getAllWidgetStatistics(userId);
+    }
+
+    @Override
+    public Map<String, WidgetRating> getUsersWidgetRatings(String userId) {
+        return delegate.getUsersWidgetRatings(userId);
+    }
+
+    @Override
+    public List<Widget> getWidgetsByTag(String tagKeyWord, int offset, int pageSize) {
+        return delegate.getWidgetsByTag(tagKeyWord, offset, pageSize);
+    }
+
+    @Override
+    public int getCountByTag(String tagKeyword) {
+        return delegate.getCountByTag(tagKeyword);
+    }
+
+    @Override
+    public WidgetTag getTagByWidgetIdAndKeyword(String widgetId, String keyword) {
+        return delegate.getTagByWidgetIdAndKeyword(widgetId, keyword);
+    }
+
+    @Override
+    public WidgetTag getTagById(String widgetTagId) {
+        return delegate.getTagById(widgetTagId);
+    }
+
+    @Override
+    public WidgetTag saveWidgetTag(String widgetId, WidgetTag tag) {
+        return delegate.saveWidgetTag(widgetId, tag);
+    }
+
+    @Override
+    public void deleteWidgetTag(WidgetTag tag) {
+        delegate.deleteWidgetTag(tag);
+    }
+
+    @Override
+    public WidgetComment getCommentById(String widgetId, String widgetCommentId) {
+        return delegate.getCommentById(widgetId, widgetCommentId);
+    }
+
+    @Override
+    public List<WidgetComment> getCommentsByWidgetId(String widgetId, int offset, int pageSize) {
+        return delegate.getCommentsByWidgetId(widgetId, offset, pageSize);
+    }
+
+    @Override
+    public int getCountCommentsByWidgetId(String widgetId) {
+        return delegate.getCountCommentsByWidgetId(widgetId);
+    }
+
+    @Override
+    public WidgetComment createWidgetComment(String widgetId, WidgetComment comment) {
+        return delegate.createWidgetComment(widgetId, comment);
+    }
+
+    @Override
+    public WidgetComment updateWidgetComment(String widgetId, WidgetComment comment) {
+        return delegate.updateWidgetComment(widgetId, comment);
+    }
+
+    @Override
+    public void deleteWidgetComment(String widgetId, WidgetComment comment) {
+        delegate.deleteWidgetComment(widgetId, comment);
+    }
+
+    @Override
+    public int deleteAllWidgetComments(String userId) {
+        return delegate.deleteAllWidgetComments(userId);
+    }
+
+    @Override
+    public WidgetRating getRatingById(String widgetId, String widgetRatingId) {
+        return delegate.getRatingById(widgetId, widgetRatingId);
+    }
+
+    @Override
+    public WidgetRating createWidgetRating(String widgetId, WidgetRating rating) {
+        return delegate.createWidgetRating(widgetId, rating);
+    }
+
+    @Override
+    public WidgetRating updateWidgetRating(String widgetId, WidgetRating rating) {
+        return delegate.updateWidgetRating(widgetId, rating);
+    }
+
+    @Override
+    public void deleteWidgetRating(String widgetId, WidgetRating rating) {
+        delegate.deleteWidgetRating(widgetId, rating);
+    }
+
+    @Override
+    public WidgetRating getWidgetRatingsByWidgetIdAndUserId(String widgetId, String userId) {
+        return delegate.getWidgetRatingsByWidgetIdAndUserId(widgetId, userId);
+    }
+
+    @Override
+    public int deleteAllWidgetRatings(String userId) {
+        return delegate.deleteAllWidgetRatings(userId);
+    }
+}
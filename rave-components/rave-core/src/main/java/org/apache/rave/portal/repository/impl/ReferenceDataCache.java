@@ -0,0 +1,100 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.rave.portal.repository.impl;
+
+import org.apache.rave.service.MetadataCache;
+import org.apache.rave.service.MetadataCacheStatistics;
+import org.apache.rave.service.MetadataLoader;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Read-through cache for small reference tables such as page layouts and portal preferences.
+ *
+ * Reads made inside a transaction go straight to the repository, so that code which modifies what it reads works
+ * with managed instances. Every write clears the whole cache, once right away and once more when the surrounding
+ * transaction completes, so that a concurrent read of the old rows cannot put them back before the commit.
+ */
+public class ReferenceDataCache {
+    private final MetadataCache<Object> cache;
+
+    public ReferenceDataCache(MetadataCache<Object> cache) {
+        this.cache = cache;
+    }
+
+    /**
+     * Returns the cached value for the given key, loading it on a miss
+     *
+     * @param key    the key of the value, unique within this cache
+     * @param loader reads the value from the repository
+     * @return the value, or null if the repository has none
+     */
+    @SuppressWarnings("unchecked")
+    public <V> V get(String key, final Loader<V> loader) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return loader.load();
+        }
+        return (V) cache.get(key, new MetadataLoader<Object>() {
+            @Override
+            public Object load(String key) {
+                return loader.load();
+            }
+
+            @Override
+            public long getExpiration(String key, Object value) {
+                return 0;
+            }
+        });
+    }
+
+    /**
+     * Returns a copy of the cached list for the given key, so that callers are free to modify it
+     */
+    public <T> List<T> getList(String key, Loader<List<T>> loader) {
+        List<T> list = get(key, loader);
+        return list == null ? null : new ArrayList<T>(list);
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCompletion(int status) {
+                    cache.invalidateAll();
+                }
+            });
+        }
+    }
+
+    public MetadataCacheStatistics getStatistics() {
+        return cache.getStatistics();
+    }
+
+    /**
+     * Reads a value from the underlying repository
+     */
+    public interface Loader<V> {
+        V load();
+    }
+}
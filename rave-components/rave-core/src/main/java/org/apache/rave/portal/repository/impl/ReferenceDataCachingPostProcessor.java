@@ -0,0 +1,162 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.rave.portal.repository.impl;
+
+import org.apache.rave.portal.repository.AuthorityRepository;
+import org.apache.rave.portal.repository.CategoryRepository;
+import org.apache.rave.portal.repository.PageLayoutRepository;
+import org.apache.rave.portal.repository.PortalPreferenceRepository;
+import org.apache.rave.portal.repository.WidgetRepository;
+import org.apache.rave.service.MetadataCacheStatistics;
+import org.apache.rave.service.impl.DefaultMetadataCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.InstantiationAwareBeanPostProcessorAdapter;
+import org.springframework.core.Ordered;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Wraps the page layout, authority, category and portal preference repositories of whichever persistence
+ * implementation is deployed in a caching decorator, so that every component they are injected into reads through
+ * a {@link ReferenceDataCache}. Widget repositories are wrapped as well, so that widget writes clear the cached
+ * categories and the widgets listed with them.
+ *
+ * Beans handed out early to resolve a circular reference are wrapped at that point, the same way Spring's auto proxy
+ * creators do it.
+ */
+@Component
+public class ReferenceDataCachingPostProcessor extends InstantiationAwareBeanPostProcessorAdapter
+        implements Ordered, DisposableBean {
+    private static final Logger log = LoggerFactory.getLogger(ReferenceDataCachingPostProcessor.class);
+
+    private final Set<String> earlyReferences = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+    private final List<DefaultMetadataCache<Object>> caches = new CopyOnWriteArrayList<DefaultMetadataCache<Object>>();
+
+    private ReferenceDataCache categoryCache;
+    private boolean enabled = true;
+    private int maxEntries = DefaultMetadataCache.DEFAULT_MAX_ENTRIES;
+    private long timeToLiveSeconds = TimeUnit.MILLISECONDS.toSeconds(DefaultMetadataCache.DEFAULT_TIME_TO_LIVE);
+
+    @Value("${portal.reference_data_cache.enabled:true}")
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    @Value("${portal.reference_data_cache.max_entries:1000}")
+    public void setMaxEntries(int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * @param timeToLiveSeconds the time after which an entry is read again even if no write cleared it, which bounds
+     *                          how long a node serves rows changed by another node
+     */
+    @Value("${portal.reference_data_cache.time_to_live_seconds:300}")
+    public void setTimeToLiveSeconds(long timeToLiveSeconds) {
+        this.timeToLiveSeconds = timeToLiveSeconds;
+    }
+
+    @Override
+    public Object getEarlyBeanReference(Object bean, String beanName) {
+        earlyReferences.add(beanName);
+        return wrap(bean, beanName);
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (earlyReferences.remove(beanName)) {
+            // the container substitutes the wrapper it received from getEarlyBeanReference
+            return bean;
+        }
+        return wrap(bean, beanName);
+    }
+
+    @Override
+    public int getOrder() {
+        return Ordered.LOWEST_PRECEDENCE;
+    }
+
+    /**
+     * @return the hit and miss counters of each reference data cache
+     */
+    public List<MetadataCacheStatistics> getStatistics() {
+        List<MetadataCacheStatistics> statistics = new ArrayList<MetadataCacheStatistics>();
+        for (DefaultMetadataCache<Object> cache : caches) {
+            statistics.add(cache.getStatistics());
+        }
+        return statistics;
+    }
+
+    @Override
+    public void destroy() {
+        for (DefaultMetadataCache<Object> cache : caches) {
+            cache.destroy();
+        }
+    }
+
+    private Object wrap(Object bean, String beanName) {
+        if (!enabled) {
+            return bean;
+        }
+        if (bean instanceof PageLayoutRepository && !(bean instanceof CachingPageLayoutRepository)) {
+            return new CachingPageLayoutRepository((PageLayoutRepository) bean, createCache("pageLayouts", beanName));
+        }
+        if (bean instanceof AuthorityRepository && !(bean instanceof CachingAuthorityRepository)) {
+            return new CachingAuthorityRepository((AuthorityRepository) bean, createCache("authorities", beanName));
+        }
+        if (bean instanceof CategoryRepository && !(bean instanceof CachingCategoryRepository)) {
+            return new CachingCategoryRepository((CategoryRepository) bean, getCategoryCache(beanName));
+        }
+        if (bean instanceof WidgetRepository && !(bean instanceof CategoryCacheClearingWidgetRepository)) {
+            return new CategoryCacheClearingWidgetRepository((WidgetRepository) bean, getCategoryCache(beanName));
+        }
+        if (bean instanceof PortalPreferenceRepository && !(bean instanceof CachingPortalPreferenceRepository)) {
+            return new CachingPortalPreferenceRepository((PortalPreferenceRepository) bean,
+                    createCache("portalPreferences", beanName));
+        }
+        return bean;
+    }
+
+    // shared by the category repository and the widget repositories that clear it, whichever is created first
+    private synchronized ReferenceDataCache getCategoryCache(String beanName) {
+        if (categoryCache == null) {
+            categoryCache = createCache("categories", beanName);
+        }
+        return categoryCache;
+    }
+
+    private ReferenceDataCache createCache(String name, String beanName) {
+        long timeToLive = TimeUnit.SECONDS.toMillis(timeToLiveSeconds);
+        DefaultMetadataCache<Object> cache = new DefaultMetadataCache<Object>(name, maxEntries, timeToLive, timeToLive);
+        caches.add(cache);
+        log.debug("Caching reads of {} in reference data cache {}", beanName, name);
+        return new ReferenceDataCache(cache);
+    }
+}
@@ -86,7 +86,7 @@ public class DefaultCategoryPermissionEvaluator extends AbstractModelPermissionE
         if (targetId instanceof RaveSecurityContext) {
             hasPermission = verifyRaveSecurityContext(authentication, (RaveSecurityContext)targetId);
         } else {
-            hasPermission = hasPermission(authentication, categoryRepository.get((String)targetId), permission, true);
+            hasPermission = hasPermission(authentication, loadTrustedCategory((String) targetId), permission, true);
         }
         return hasPermission;
     }
@@ -130,7 +130,7 @@ public class DefaultCategoryPermissionEvaluator extends AbstractModelPermissionE
     private Category getTrustedCategory(String categoryId, List<Category> trustedCategoryContainer) {
         Category p = null;
         if (trustedCategoryContainer.isEmpty()) {
-            p = categoryRepository.get(categoryId);
+            p = loadTrustedCategory(categoryId);
             trustedCategoryContainer.add(p);
         } else {
             p = trustedCategoryContainer.get(0);
@@ -138,6 +138,16 @@ public class DefaultCategoryPermissionEvaluator extends AbstractModelPermissionE
         return p;
     }
 
+    // returns the Category from the CategoryRepository, or the one already loaded during this request
+    private Category loadTrustedCategory(String categoryId) {
+        Category p = RequestPermissionCache.getTrustedObject(Category.class, categoryId);
+        if (p == null) {
+            p = categoryRepository.get(categoryId);
+            RequestPermissionCache.putTrustedObject(Category.class, categoryId, p);
+        }
+        return p;
+    }
+
     // checks to see if the Authentication object principal is the owner of the supplied category object
     // if trustedDomainObject is false, pull the entity from the database first to ensure
     // the model object is trusted and hasn't been modified
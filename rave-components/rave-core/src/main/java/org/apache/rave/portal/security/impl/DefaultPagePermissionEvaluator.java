@@ -23,7 +23,6 @@ import org.apache.rave.model.PageType;
 import org.apache.rave.model.PageUser;
 import org.apache.rave.model.User;
 import org.apache.rave.portal.repository.PageRepository;
-import org.apache.rave.portal.repository.UserRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -43,12 +42,10 @@ import java.util.List;
 public class DefaultPagePermissionEvaluator extends AbstractModelPermissionEvaluator<Page> {
     private Logger log = LoggerFactory.getLogger(getClass());
     private PageRepository pageRepository;
-    private UserRepository userRepository;
 
     @Autowired
-    public DefaultPagePermissionEvaluator(PageRepository pageRepository, UserRepository userRepository) {
+    public DefaultPagePermissionEvaluator(PageRepository pageRepository) {
         this.pageRepository = pageRepository;
-        this.userRepository = userRepository;
     }
 
     @Override
@@ -93,7 +90,7 @@ public class DefaultPagePermissionEvaluator extends AbstractModelPermissionEvalu
         if (targetId instanceof RaveSecurityContext) {
             hasPermission = verifyRaveSecurityContext(authentication, (RaveSecurityContext)targetId);
         } else {
-            hasPermission = hasPermission(authentication, pageRepository.get((String)targetId), permission, true);
+            hasPermission = hasPermission(authentication, loadTrustedPage((String) targetId), permission, true);
         }
         return hasPermission;
     }
@@ -141,7 +138,7 @@ public class DefaultPagePermissionEvaluator extends AbstractModelPermissionEvalu
     private Page getTrustedPage(String pageId, List<Page> trustedPageContainer) {
         Page p = null;
         if (trustedPageContainer.isEmpty()) {
-            p = pageRepository.get(pageId);
+            p = loadTrustedPage(pageId);
             trustedPageContainer.add(p);
         } else {
             p = trustedPageContainer.get(0);
@@ -149,6 +146,16 @@ public class DefaultPagePermissionEvaluator extends AbstractModelPermissionEvalu
         return p;
     }
 
+    // returns the Page from the PageRepository, or the one already loaded during this request
+    private Page loadTrustedPage(String pageId) {
+        Page p = RequestPermissionCache.getTrustedObject(Page.class, pageId);
+        if (p == null) {
+            p = pageRepository.get(pageId);
+            RequestPermissionCache.putTrustedObject(Page.class, pageId, p);
+        }
+        return p;
+    }
+
     // checks to see if the Authentication object principal is the owner of the supplied page object
     // if trustedDomainObject is false, pull the entity from the database first to ensure
     // the model object is trusted and hasn't been modified
@@ -220,11 +227,12 @@ public class DefaultPagePermissionEvaluator extends AbstractModelPermissionEvalu
         //
         // Check that the viewer is a member
         //
-        String viewer = ((User)authentication.getPrincipal()).getUsername();
+        User viewerUser = (User)authentication.getPrincipal();
+        String viewer = viewerUser.getUsername();
         List<PageUser> members = trustedPage.getMembers();
         if (members != null) {
             for (PageUser pageUser : members){
-                if (userRepository.get(pageUser.getUserId()).getUsername().equals(viewer)){
+                if (viewerUser.getId().equals(pageUser.getUserId())){
                     log.info("User "+viewer+" is a member of page "+trustedPage.getId());
                     if(checkEditorStatus){
                         log.info("checking editor:"+trustedPage.getId()+"@"+viewer+"@"+pageUser.isEditor());
@@ -23,7 +23,6 @@ import org.apache.rave.model.PageUser;
 import org.apache.rave.model.Region;
 import org.apache.rave.model.User;
 import org.apache.rave.portal.repository.RegionRepository;
-import org.apache.rave.portal.repository.UserRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -38,12 +37,10 @@ import java.util.List;
 public class DefaultRegionPermissionEvaluator extends AbstractModelPermissionEvaluator<Region>{
     private Logger log = LoggerFactory.getLogger(getClass());
     private RegionRepository regionRepository;
-    private UserRepository userRepository;
 
     @Autowired
-    public DefaultRegionPermissionEvaluator(RegionRepository regionRepository, UserRepository userRepository) {
+    public DefaultRegionPermissionEvaluator(RegionRepository regionRepository) {
         this.regionRepository = regionRepository;
-        this.userRepository = userRepository;
     }
 
     @Override
@@ -88,7 +85,7 @@ public class DefaultRegionPermissionEvaluator extends AbstractModelPermissionEva
         if (targetId instanceof RaveSecurityContext) {
             hasPermission = verifyRaveSecurityContext(authentication, (RaveSecurityContext) targetId);
         } else {
-            hasPermission = hasPermission(authentication, regionRepository.get((String) targetId), permission, true);
+            hasPermission = hasPermission(authentication, loadTrustedRegion((String) targetId), permission, true);
         }
         return hasPermission;
     }
@@ -135,7 +132,7 @@ public class DefaultRegionPermissionEvaluator extends AbstractModelPermissionEva
     private Region getTrustedRegion(String regionId, List<Region> trustedRegionContainer) {
         Region region = null;
         if (trustedRegionContainer.isEmpty()) {
-            region = regionRepository.get(regionId);
+            region = loadTrustedRegion(regionId);
             trustedRegionContainer.add(region);
         } else {
             region = trustedRegionContainer.get(0);
@@ -143,6 +140,16 @@ public class DefaultRegionPermissionEvaluator extends AbstractModelPermissionEva
         return region;
     }
 
+    // returns the Region from the RegionRepository, or the one already loaded during this request
+    private Region loadTrustedRegion(String regionId) {
+        Region region = RequestPermissionCache.getTrustedObject(Region.class, regionId);
+        if (region == null) {
+            region = regionRepository.get(regionId);
+            RequestPermissionCache.putTrustedObject(Region.class, regionId, region);
+        }
+        return region;
+    }
+
     // checks to see if the Authentication object principal is the owner of the supplied region object
     // if trustedDomainObject is false, pull the entity from the database first to ensure
     // the model object is trusted and hasn't been modified
@@ -197,9 +204,10 @@ public class DefaultRegionPermissionEvaluator extends AbstractModelPermissionEva
         //
         // Check that the viewer is a member
         //
-        String viewer = ((User)authentication.getPrincipal()).getUsername();
+        User viewerUser = (User)authentication.getPrincipal();
+        String viewer = viewerUser.getUsername();
         for (PageUser pageUser:containerPage.getMembers()){
-            if (userRepository.get(pageUser.getUserId()).getUsername().equals(viewer)){
+            if (viewerUser.getId().equals(pageUser.getUserId())){
                 log.info("User "+viewer+" is a member of page "+containerPage.getId());
                 if(checkEditorStatus){
                     return pageUser.isEditor();
@@ -23,7 +23,6 @@ import org.apache.rave.model.PageUser;
 import org.apache.rave.model.RegionWidget;
 import org.apache.rave.model.User;
 import org.apache.rave.portal.repository.RegionWidgetRepository;
-import org.apache.rave.portal.repository.UserRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -38,12 +37,10 @@ import java.util.List;
 public class DefaultRegionWidgetPermissionEvaluator extends AbstractModelPermissionEvaluator<RegionWidget> {
     private Logger log = LoggerFactory.getLogger(getClass());
     private RegionWidgetRepository regionWidgetRepository;
-    private UserRepository userRepository;
 
     @Autowired
-    public DefaultRegionWidgetPermissionEvaluator(RegionWidgetRepository regionWidgetRepository, UserRepository userRepository) {
+    public DefaultRegionWidgetPermissionEvaluator(RegionWidgetRepository regionWidgetRepository) {
         this.regionWidgetRepository = regionWidgetRepository;
-        this.userRepository = userRepository;
     }
 
     @Override
@@ -88,7 +85,7 @@ public class DefaultRegionWidgetPermissionEvaluator extends AbstractModelPermiss
         if (targetId instanceof RaveSecurityContext) {
             hasPermission = verifyRaveSecurityContext(authentication, (RaveSecurityContext) targetId);
         } else {
-            hasPermission = hasPermission(authentication, regionWidgetRepository.get((String) targetId), permission, true);
+            hasPermission = hasPermission(authentication, loadTrustedRegionWidget((String) targetId), permission, true);
         }
         return hasPermission;
     }
@@ -135,7 +132,7 @@ public class DefaultRegionWidgetPermissionEvaluator extends AbstractModelPermiss
     private RegionWidget getTrustedRegionWidget(String regionWidgetId, List<RegionWidget> trustedRegionWidgetContainer) {
         RegionWidget regionWidget = null;
         if (trustedRegionWidgetContainer.isEmpty()) {
-            regionWidget = regionWidgetRepository.get(regionWidgetId);
+            regionWidget = loadTrustedRegionWidget(regionWidgetId);
             trustedRegionWidgetContainer.add(regionWidget);
         } else {
             regionWidget = trustedRegionWidgetContainer.get(0);
@@ -143,6 +140,16 @@ public class DefaultRegionWidgetPermissionEvaluator extends AbstractModelPermiss
         return regionWidget;
     }
 
+    // returns the RegionWidget from the RegionWidgetRepository, or the one already loaded during this request
+    private RegionWidget loadTrustedRegionWidget(String regionWidgetId) {
+        RegionWidget regionWidget = RequestPermissionCache.getTrustedObject(RegionWidget.class, regionWidgetId);
+        if (regionWidget == null) {
+            regionWidget = regionWidgetRepository.get(regionWidgetId);
+            RequestPermissionCache.putTrustedObject(RegionWidget.class, regionWidgetId, regionWidget);
+        }
+        return regionWidget;
+    }
+
     // checks to see if the Authentication object principal is the owner of the supplied regionWidget object
     // if trustedDomainObject is false, pull the entity from the database first to ensure
     // the model object is trusted and hasn't been modified
@@ -202,9 +209,10 @@ public class DefaultRegionWidgetPermissionEvaluator extends AbstractModelPermiss
         //
         // Check that the viewer is a member
         //
-        String viewer = ((User)authentication.getPrincipal()).getUsername();
+        User viewerUser = (User)authentication.getPrincipal();
+        String viewer = viewerUser.getUsername();
         for (PageUser pageUser:containerPage.getMembers()){
-            if (userRepository.get(pageUser.getUserId()).getUsername().equals(viewer)){
+            if (viewerUser.getId().equals(pageUser.getUserId())){
                 log.info("User "+viewer+" is a member of page "+containerPage.getId());
                 if(checkEditorStatus){
                     return pageUser.isEditor();
@@ -28,17 +28,22 @@ import org.springframework.stereotype.Component;
 
 import java.io.Serializable;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Custom PermissionEvaluator for Rave that stores a map of ModelPermissionEvaluators
  * each of which is responsible for handling Domain Object Security for the Rave Model
  * objects
  *
+ * Decisions taken on an entityId are kept for the rest of the request, see {@link RequestPermissionCache}.
+ *
  * @author carlucci
  */
 @Component
 public class RavePermissionEvaluator implements PermissionEvaluator {
     private Map<Class, ModelPermissionEvaluator<?>> modelPermissionEvaluatorMap;
+    private final ConcurrentMap<String, Class> targetTypeMap = new ConcurrentHashMap<String, Class>();
 
     /**
      * Constructor which will take in a component-scanned list of all ModelPermissionEvaluator
@@ -65,7 +70,7 @@ public class RavePermissionEvaluator implements PermissionEvaluator {
         });
 
         // build the map using the model type/class as the key
-        modelPermissionEvaluatorMap = new HashMap<Class, ModelPermissionEvaluator<?>>();
+        modelPermissionEvaluatorMap = new ConcurrentHashMap<Class, ModelPermissionEvaluator<?>>();
         for (ModelPermissionEvaluator<?> mpe : modelPermissionEvaluatorList) {
             modelPermissionEvaluatorMap.put(mpe.getType(), mpe);
         }
@@ -113,16 +118,39 @@ public class RavePermissionEvaluator implements PermissionEvaluator {
             throw new IllegalArgumentException("CREATE_OR_UPDATE not supported in this context.");
         }
 
-        // The targetType comes in as a String representing the Class (from the Spring annotations)
-        // so we need to convert it to a Class
-        Class clazz = null;
-        try {
-            clazz = Class.forName(targetType);
-        } catch (ClassNotFoundException e) {
-            throw new IllegalArgumentException("Class " + targetType + " not found", e);
+        // the same entity is often checked several times while handling a request
+        String decisionKey = RequestPermissionCache.isActive() ? getDecisionKey(authentication, targetId, targetType, permission) : null;
+        Boolean decision = decisionKey == null ? null : RequestPermissionCache.getDecision(decisionKey);
+        if (decision == null) {
+            decision = getEvaluator(getTargetClass(targetType)).hasPermission(authentication, targetId, targetType, permission);
+            if (decisionKey != null) {
+                RequestPermissionCache.putDecision(decisionKey, decision);
+            }
+        }
+        return decision;
+    }
+
+    // The targetType comes in as a String representing the Class (from the Spring annotations)
+    // so we need to convert it to a Class
+    private Class getTargetClass(String targetType) {
+        Class clazz = targetTypeMap.get(targetType);
+        if (clazz == null) {
+            try {
+                clazz = Class.forName(targetType);
+            } catch (ClassNotFoundException e) {
+                throw new IllegalArgumentException("Class " + targetType + " not found", e);
+            }
+            targetTypeMap.put(targetType, clazz);
         }
+        return clazz;
+    }
 
-        return getEvaluator(clazz).hasPermission(authentication, targetId, targetType, permission);
+    // only plain entityIds identify the target, a RaveSecurityContext is evaluated every time
+    private String getDecisionKey(Authentication authentication, Serializable targetId, String targetType, Permission permission) {
+        if (authentication == null || !(targetId instanceof String || targetId instanceof Number)) {
+            return null;
+        }
+        return authentication.getName() + '|' + permission + '|' + targetType + '#' + targetId;
     }
 
     private ModelPermissionEvaluator getEvaluator(Class targetType) throws IllegalArgumentException {
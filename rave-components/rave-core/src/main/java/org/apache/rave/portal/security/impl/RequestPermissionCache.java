@@ -0,0 +1,99 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.rave.portal.security.impl;
+
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Keeps permission decisions and the trusted domain objects loaded by the ModelPermissionEvaluators for the duration
+ * of the current request, so that filtering a list of objects or checking several permissions on the same object does
+ * not look up the same entity over and over.
+ * <p/>
+ * Outside of a request, for instance in background jobs or unit tests, nothing is cached. Changes made later in the
+ * same request to the ownership or the members of an object are not seen by the cached decisions.
+ */
+public final class RequestPermissionCache {
+    private static final String ATTRIBUTE_NAME = RequestPermissionCache.class.getName();
+
+    private final Map<String, Object> trustedObjects = new HashMap<String, Object>();
+    private final Map<String, Boolean> decisions = new HashMap<String, Boolean>();
+
+    private RequestPermissionCache() {
+    }
+
+    /**
+     * @return true if the current thread is handling a request and caches its permission checks
+     */
+    public static boolean isActive() {
+        return RequestContextHolder.getRequestAttributes() != null;
+    }
+
+    /**
+     * @return the trusted object of the given type and id loaded earlier in this request, or null
+     */
+    public static <T> T getTrustedObject(Class<T> type, String id) {
+        RequestPermissionCache cache = getCurrent();
+        return cache == null ? null : type.cast(cache.trustedObjects.get(getKey(type, id)));
+    }
+
+    public static <T> void putTrustedObject(Class<T> type, String id, T trustedObject) {
+        RequestPermissionCache cache = getCurrent();
+        if (cache != null && id != null && trustedObject != null) {
+            cache.trustedObjects.put(getKey(type, id), trustedObject);
+        }
+    }
+
+    /**
+     * @return the decision taken earlier in this request for the key, or null
+     */
+    public static Boolean getDecision(String key) {
+        RequestPermissionCache cache = getCurrent();
+        return cache == null ? null : cache.decisions.get(key);
+    }
+
+    public static void putDecision(String key, boolean decision) {
+        RequestPermissionCache cache = getCurrent();
+        if (cache != null) {
+            cache.decisions.put(key, decision);
+        }
+    }
+
+    private static String getKey(Class<?> type, String id) {
+        return type.getName() + '#' + id;
+    }
+
+    private static RequestPermissionCache getCurrent() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes == null) {
+            return null;
+        }
+        // a request is handled by a single thread, the attribute only needs to be created once
+        RequestPermissionCache cache = (RequestPermissionCache) attributes.getAttribute(ATTRIBUTE_NAME, RequestAttributes.SCOPE_REQUEST);
+        if (cache == null) {
+            cache = new RequestPermissionCache();
+            attributes.setAttribute(ATTRIBUTE_NAME, cache, RequestAttributes.SCOPE_REQUEST);
+        }
+        return cache;
+    }
+}
@@ -21,6 +21,7 @@ package org.apache.rave.portal.service;
 import org.apache.rave.model.Page;
 import org.apache.rave.model.Region;
 import org.apache.rave.model.RegionWidget;
+import org.apache.rave.portal.model.util.PageNavigationItem;
 import org.apache.rave.rest.model.SearchResult;
 import org.springframework.security.access.prepost.PostAuthorize;
 import org.springframework.security.access.prepost.PostFilter;
@@ -71,6 +72,17 @@ public interface PageService {
     @PreAuthorize("hasPermission(new org.apache.rave.portal.security.impl.RaveSecurityContext(#userId, 'org.apache.rave.model.User'), 'org.apache.rave.model.Page', 'read')")
     List<Page> getAllUserPages(String userId);
 
+    /**
+     * Gets the navigation items for all user pages of the given user, in the user's render order.
+     * Only the data needed to render the page navigation is loaded; use {@link #getPage(String)}
+     * to load the page that is being rendered.
+     *
+     * @param userId The user to retrieve the page navigation for.
+     * @return A non null possible empty list of navigation items for the given user.
+     */
+    @PreAuthorize("hasPermission(new org.apache.rave.portal.security.impl.RaveSecurityContext(#userId, 'org.apache.rave.model.User'), 'org.apache.rave.model.Page', 'read')")
+    List<PageNavigationItem> getUserPageNavigation(String userId);
+
     /**
      * Gets the profile page for the given user.
      *
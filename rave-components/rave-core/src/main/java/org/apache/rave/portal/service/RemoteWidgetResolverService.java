@@ -20,6 +20,9 @@ package org.apache.rave.portal.service;
 
 import org.apache.rave.model.Widget;
 
+import java.util.Collection;
+import java.util.Map;
+
 public interface RemoteWidgetResolverService {
 
     /**
@@ -31,6 +34,17 @@ public interface RemoteWidgetResolverService {
      * @throws Exception
      */
     public Widget resolveAndDownloadWidgetMetadata(String url, String type) throws Exception;
+
+    /**
+     * Bulk version of {@link #resolveAndDownloadWidgetMetadata(String, String)} for widgets of the same type.
+     * OpenSocial gadgets are resolved with batched metadata calls; a widget that fails to resolve is left out of the
+     * result without affecting the others.
+     * @param urls - the urls of the opensocial or W3C resources on the web
+     * @param type - providertype
+     * @return - the resolved widgets keyed by url
+     * @throws Exception if the type is not supported
+     */
+    public Map<String, Widget> resolveAndDownloadWidgetMetadata(Collection<String> urls, String type) throws Exception;
     
     /**
      * Add a widget to raves DB.
@@ -21,9 +21,21 @@ package org.apache.rave.portal.service;
 
 import org.apache.rave.model.Widget;
 
+import java.util.Collection;
+import java.util.Map;
+
 public interface WidgetMetadataResolver {
     String getSupportedContext();
     Widget getMetadata(String url);
+
+    /**
+     * Resolves the metadata of several widgets at once. Widgets whose metadata could not be resolved are left out
+     * of the result.
+     *
+     * @param urls the urls of the widgets
+     * @return the widgets keyed by the url they were resolved from
+     */
+    Map<String, Widget> getMetadata(Collection<String> urls);
     Widget[] getMetadataGroup(String url);
     Widget publishRemote(String url);
 }
@@ -21,6 +21,8 @@ package org.apache.rave.portal.service;
 import org.apache.rave.model.User;
 import org.apache.rave.model.Widget;
 
+import java.util.Map;
+
 public interface WidgetProviderService {
     
     /**
@@ -32,4 +34,14 @@ public interface WidgetProviderService {
      * @return valid widget
      */
     Widget getWidget(User viewer, String context, Widget widget);
+
+    /**
+     * Gets the widgets for several contexts at once, waiting at most the given time for all of them
+     * @param viewer the current logged in user
+     * @param widgets the default widgets keyed by the context identifier where they are displayed
+     * @param timeoutMillis the total time to wait
+     * @return the widgets keyed by context identifier; widgets that could not be resolved in time are replaced by
+     *         a placeholder widget
+     */
+    Map<String, Widget> getWidgets(User viewer, Map<String, Widget> widgets, long timeoutMillis);
 }
\ No newline at end of file
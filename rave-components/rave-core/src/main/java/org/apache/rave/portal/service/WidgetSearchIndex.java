@@ -0,0 +1,63 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.rave.portal.service;
+
+import org.apache.rave.model.Widget;
+import org.apache.rave.portal.model.util.WidgetSearchHits;
+import org.apache.rave.portal.model.util.WidgetSearchQuery;
+
+/**
+ * Full text index of the widget store.  When enabled, free text widget searches are answered from the index and
+ * only the matching page of widgets is read from the repository.
+ */
+public interface WidgetSearchIndex {
+
+    /**
+     * @return true if searches should use this index
+     */
+    boolean isEnabled();
+
+    /**
+     * Adds the widget to the index, replacing the previous version of it
+     *
+     * @param widget the saved widget, including its tags and categories
+     */
+    void index(Widget widget);
+
+    /**
+     * Removes a widget from the index
+     *
+     * @param widgetId the id of the widget
+     */
+    void remove(String widgetId);
+
+    /**
+     * Discards the index and builds it again from all widgets in the repository
+     */
+    void rebuild();
+
+    /**
+     * Finds the widgets matching every word of the search term, ranked by relevance
+     *
+     * @param query the search term, filters and page
+     * @return the ids of the requested page of matches, the total number of matches and their facet counts
+     */
+    WidgetSearchHits search(WidgetSearchQuery query);
+}
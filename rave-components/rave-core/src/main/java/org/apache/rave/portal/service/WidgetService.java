@@ -25,9 +25,13 @@ import org.apache.rave.model.WidgetRating;
 import org.apache.rave.model.WidgetTag;
 import org.apache.rave.rest.model.SearchResult;
 import org.apache.rave.portal.model.util.WidgetStatistics;
+import org.apache.rave.portal.repository.WidgetFetchPlan;
 import org.springframework.security.access.prepost.PostAuthorize;
+import org.springframework.security.access.prepost.PostFilter;
 import org.springframework.security.access.prepost.PreAuthorize;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -74,6 +78,26 @@ public interface WidgetService {
     @PostAuthorize("returnObject == null or hasPermission(returnObject, 'read')")
     Widget getWidget(String id);
 
+    /**
+     * Gets a widget loading only the parts named by the fetch plan, e.g. {@link WidgetFetchPlan#LISTING} for
+     * pages that page through the comments separately
+     *
+     * @param id        the Id of the widget
+     * @param fetchPlan the parts of the widget to load
+     * @return a valid widget if one exists for the given id; null otherwise
+     */
+    @PostAuthorize("returnObject == null or hasPermission(returnObject, 'read')")
+    Widget getWidget(String id, WidgetFetchPlan fetchPlan);
+
+    /**
+     * Gets the listing metadata of several widgets in one call, e.g. all the widgets placed on a page
+     *
+     * @param ids the Ids of the widgets
+     * @return a non-null, possibly empty list of the widgets found for the given ids, in no particular order
+     */
+    @PostFilter("hasPermission(filterObject, 'read')")
+    List<Widget> getWidgets(Collection<String> ids);
+
     /**
      * Gets a {@link SearchResult} for {@link Widget}'s that are published
      *
@@ -198,6 +222,16 @@ public interface WidgetService {
     @PostAuthorize("hasPermission(returnObject, 'read')")
     WidgetComment getWidgetComment(String widgetId, String id);
 
+    /**
+     * Gets a {@link SearchResult} of the comments on a widget, oldest first
+     *
+     * @param widgetId the Id of the widget
+     * @param offset   start point within the comments (for paging)
+     * @param pageSize maximum number of comments to be returned (for paging)
+     * @return SearchResult
+     */
+    SearchResult<WidgetComment> getWidgetComments(String widgetId, int offset, int pageSize);
+
     // No security check required as everyone is allowed to create a comment
     void createWidgetComment(String widgetId, WidgetComment widgetComment);
 
@@ -21,9 +21,12 @@ import org.apache.rave.model.User;
 import org.apache.rave.rest.model.SearchResult;
 import org.apache.rave.portal.repository.CategoryRepository;
 import org.apache.rave.portal.service.CategoryService;
+import org.apache.rave.portal.service.WidgetSearchIndex;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.util.Date;
 import java.util.List;
@@ -33,12 +36,18 @@ import java.util.List;
 public class DefaultCategoryService implements CategoryService {
 
     private final CategoryRepository categoryRepository;
+    private WidgetSearchIndex widgetSearchIndex;
 
     @Autowired
     public DefaultCategoryService(CategoryRepository categoryRepository) {
         this.categoryRepository = categoryRepository;
     }
 
+    @Autowired(required = false)
+    public void setWidgetSearchIndex(WidgetSearchIndex widgetSearchIndex) {
+        this.widgetSearchIndex = widgetSearchIndex;
+    }
+
     @Override
     public Category get(String id) {
         return categoryRepository.get(id);
@@ -96,6 +105,29 @@ public class DefaultCategoryService implements CategoryService {
     @Transactional
     public void delete(Category category) {
         Category categoryToBeDeleted = categoryRepository.get(category.getId());
+        boolean assigned = categoryToBeDeleted.getWidgets() != null && !categoryToBeDeleted.getWidgets().isEmpty();
         categoryRepository.delete(categoryToBeDeleted);
+        if (assigned && widgetSearchIndex != null && widgetSearchIndex.isEnabled()) {
+            //the category is removed from its widgets without saving them through the widget service
+            afterCommit(new Runnable() {
+                @Override
+                public void run() {
+                    widgetSearchIndex.rebuild();
+                }
+            });
+        }
+    }
+
+    private static void afterCommit(final Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
     }
 }
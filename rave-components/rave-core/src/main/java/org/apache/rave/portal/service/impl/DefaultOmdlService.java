@@ -21,7 +21,13 @@ package org.apache.rave.portal.service.impl;
 import java.io.File;
 import java.io.IOException;
 import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
@@ -152,18 +158,28 @@ public class DefaultOmdlService implements OmdlService, OmdlConstants {
     }
 
     private void populateRegionWidgets(Page page, List<OmdlWidgetReference> widgetReferences, String regionId ){
-        Widget raveWidget = null;
+        // try to find if the widgets are already installed in rave by their identifier (should be the rave widget url)
+        List<Widget> installedWidgets = new ArrayList<Widget>(widgetReferences.size());
         for (OmdlWidgetReference widgetReference : widgetReferences){
-            // try to find if the widget is already installed in rave by its identifier (should be the rave widget url)
             logger.info("Found OMDL widget reference ("+widgetReference.getWidgetIdentifier()+")");
-            raveWidget = widgetService.getWidgetByUrl(widgetReference.getWidgetIdentifier());
+            installedWidgets.add(widgetService.getWidgetByUrl(widgetReference.getWidgetIdentifier()));
+        }
+        Map<String, Widget> resolvedGadgets = resolveOpenSocialWidgets(widgetReferences, installedWidgets);
+
+        Widget raveWidget = null;
+        for (int i = 0; i < widgetReferences.size(); i++){
+            OmdlWidgetReference widgetReference = widgetReferences.get(i);
+            raveWidget = installedWidgets.get(i);
             
             // If not found download and install to widget container, then to rave.
             if(raveWidget==null){
                 String providerType = widgetReference.getRaveWidgetTypeFromFormatType();
                 if(!providerType.equals(null)){
                     try {
-                        Widget resolvedWidget = widgetResolverService.resolveAndDownloadWidgetMetadata(widgetReference.getWidgetLink(), providerType);
+                        Widget resolvedWidget = resolvedGadgets.get(widgetReference.getWidgetLink());
+                        if(resolvedWidget==null){
+                            resolvedWidget = widgetResolverService.resolveAndDownloadWidgetMetadata(widgetReference.getWidgetLink(), providerType);
+                        }
                         if(resolvedWidget!=null){
                             // Check again in case the OMDL id attribute is not the same as the one found in the href attribute
                             if(widgetService.getWidgetByUrl(resolvedWidget.getUrl())==null){
@@ -195,6 +211,29 @@ public class DefaultOmdlService implements OmdlService, OmdlConstants {
         }
     }
 
+    /**
+     * Resolves the metadata of all OpenSocial gadgets that are not installed yet with batched metadata calls.
+     * Gadgets missing from the result are resolved individually afterwards.
+     */
+    private Map<String, Widget> resolveOpenSocialWidgets(List<OmdlWidgetReference> widgetReferences, List<Widget> installedWidgets){
+        Set<String> gadgetLinks = new LinkedHashSet<String>();
+        for (int i = 0; i < widgetReferences.size(); i++){
+            OmdlWidgetReference widgetReference = widgetReferences.get(i);
+            if(installedWidgets.get(i)==null && RAVE_APP_TYPE_OPENSOCIAL.equals(widgetReference.getRaveWidgetTypeFromFormatType())){
+                gadgetLinks.add(widgetReference.getWidgetLink());
+            }
+        }
+        if(gadgetLinks.size() < 2){
+            return Collections.emptyMap();
+        }
+        try {
+            return widgetResolverService.resolveAndDownloadWidgetMetadata(gadgetLinks, RAVE_APP_TYPE_OPENSOCIAL);
+        } catch (Exception e) {
+            logger.warn("Batched resolution of OMDL gadgets failed, resolving them individually: " + e.getMessage());
+            return new HashMap<String, Widget>();
+        }
+    }
+
     private void parseOmdlFile(Document xml, OmdlInputAdapter omdlInputAdapter) throws BadOmdlXmlFormatException{
         Element rootEl = xml.getDocumentElement();
         String rootNodename = rootEl.getNodeName();
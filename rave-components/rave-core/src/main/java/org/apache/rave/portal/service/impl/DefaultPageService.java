@@ -27,6 +27,7 @@ import org.apache.rave.portal.model.impl.PageImpl;
 import org.apache.rave.portal.model.impl.PageUserImpl;
 import org.apache.rave.portal.model.impl.RegionImpl;
 import org.apache.rave.portal.model.impl.RegionWidgetImpl;
+import org.apache.rave.portal.model.util.PageNavigationItem;
 import org.apache.rave.portal.repository.PageLayoutRepository;
 import org.apache.rave.portal.repository.PageRepository;
 import org.apache.rave.portal.repository.PageTemplateRepository;
@@ -105,6 +106,11 @@ public class DefaultPageService implements PageService {
         return pageRepository.getAllPagesForUserType(userId, PageType.USER.toString());
     }
 
+    @Override
+    public List<PageNavigationItem> getUserPageNavigation(String userId) {
+        return pageRepository.getNavigationForUserType(userId, PageType.USER.toString());
+    }
+
     @Override
     @Transactional
     public Page getPersonProfilePage(String userId) {
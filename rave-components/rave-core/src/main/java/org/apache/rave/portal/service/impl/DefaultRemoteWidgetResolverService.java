@@ -18,6 +18,7 @@
  */
 package org.apache.rave.portal.service.impl;
 
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -32,11 +33,14 @@ import org.apache.rave.portal.service.WidgetMetadataResolver;
 import org.apache.rave.portal.service.RemoteWidgetResolverService;
 import org.apache.rave.portal.service.WidgetService;
 import org.apache.rave.portal.web.util.PortalPreferenceKeys;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 @Service
 public class DefaultRemoteWidgetResolverService implements RemoteWidgetResolverService {
+    private static Logger logger = LoggerFactory.getLogger(DefaultRemoteWidgetResolverService.class);
 
     private final WidgetService widgetService;
     private final UserService userService;
@@ -62,6 +66,41 @@ public class DefaultRemoteWidgetResolverService implements RemoteWidgetResolverS
     @Override
     public Widget resolveAndDownloadWidgetMetadata(String url, String type) throws Exception{
         Widget widget = null;
+        String providerType = getProviderType(type);
+        if (providerType.equals("W3C")){
+            widget = widgetMetadataResolverMap.get("W3C").publishRemote(url);
+        }else{
+            widget = widgetMetadataResolverMap.get("OpenSocial").getMetadata(url);
+        }
+        return widget;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see org.apache.rave.portal.service.RemoteWidgetResolverService#resolveAndDownloadWidgetMetadata(java.util.Collection, java.lang.String)
+     */
+    @Override
+    public Map<String, Widget> resolveAndDownloadWidgetMetadata(Collection<String> urls, String type) throws Exception{
+        String providerType = getProviderType(type);
+        if (providerType.equals("OpenSocial")){
+            return widgetMetadataResolverMap.get("OpenSocial").getMetadata(urls);
+        }
+        // W3C widgets have to be uploaded to wookie one at a time
+        Map<String, Widget> widgets = new HashMap<String, Widget>();
+        for (String url : urls) {
+            try {
+                Widget widget = widgetMetadataResolverMap.get("W3C").publishRemote(url);
+                if (widget != null) {
+                    widgets.put(url, widget);
+                }
+            } catch (RuntimeException e) {
+                logger.warn("Unable to resolve W3C widget " + url + ": " + e.getMessage());
+            }
+        }
+        return widgets;
+    }
+
+    private String getProviderType(String type) throws Exception{
         // check for namespaces in the the type element
         if(type.contains("#")){
             String[] deNamespacedType = type.split("#");
@@ -70,15 +109,14 @@ public class DefaultRemoteWidgetResolverService implements RemoteWidgetResolverS
             }
         }
         if (type.equals("W3C") || type.equals("W3C Widget") || type.equals("W3CWidget")){
-            widget = widgetMetadataResolverMap.get("W3C").publishRemote(url);
+            return "W3C";
         }else if (type.equals("OpenSocial") || type.startsWith("OpenSocial")|| type.startsWith("Open Social")){
-            widget = widgetMetadataResolverMap.get("OpenSocial").getMetadata(url);
+            return "OpenSocial";
         }else{
             // there may be resources in a marketplace store (or in an OMDL instance) other than W3C & OpenSocial 
             // gadgets so return null if it isn't one of the supported types in rave.
             throw new Exception("Unsupported Widget format");
         }
-        return widget;
     }
 
     /*
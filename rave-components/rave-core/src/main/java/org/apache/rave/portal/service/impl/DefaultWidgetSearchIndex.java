@@ -0,0 +1,644 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.rave.portal.service.impl;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.rave.model.Category;
+import org.apache.rave.model.Widget;
+import org.apache.rave.model.WidgetTag;
+import org.apache.rave.portal.model.util.WidgetSearchHits;
+import org.apache.rave.portal.model.util.WidgetSearchQuery;
+import org.apache.rave.portal.repository.WidgetRepository;
+import org.apache.rave.portal.service.WidgetSearchIndex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * In-process inverted index over the titles and descriptions of the widgets.  When a directory is configured the
+ * indexed widgets are written to a versioned snapshot file there in the background after changes, and loaded from it
+ * at startup.  Without a directory, or without a snapshot of the current format, the index is rebuilt from the
+ * {@link WidgetRepository} at startup.
+ * <p/>
+ * Every word of a search term has to match the start of a word of the title or description.  Matches are ranked by
+ * the weight of the matched words, with title words weighing more, times their inverse document frequency.
+ * <p/>
+ * Each portal node keeps its own index.  When widgets can be changed through other nodes, set a rebuild interval so
+ * that their changes are picked up.
+ */
+@Service
+public class DefaultWidgetSearchIndex implements WidgetSearchIndex {
+    private static final Logger log = LoggerFactory.getLogger(DefaultWidgetSearchIndex.class);
+
+    private static final String SNAPSHOT_FILE = "widgets.idx";
+    private static final String SNAPSHOT_HEADER = "rave-widget-search";
+    //increment when the snapshot layout or the tokenization changes, older snapshots are then rebuilt
+    private static final int SNAPSHOT_VERSION = 1;
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 30;
+    private static final int REBUILD_PAGE_SIZE = 100;
+    private static final float TITLE_WEIGHT = 3.0f;
+    private static final float DESCRIPTION_WEIGHT = 1.0f;
+    private static final Pattern WORD_SEPARATOR = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private final WidgetRepository widgetRepository;
+    private final boolean enabled;
+    private final File directory;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Lock rebuildLock = new ReentrantLock();
+    private final Map<String, IndexedWidget> widgets = new HashMap<String, IndexedWidget>();
+    //the widgets indexed (or removed, mapped to null) while a rebuild reads the repository, guarded by lock
+    private Map<String, IndexedWidget> changedDuringRebuild;
+    private final NavigableMap<String, Map<String, Float>> postings = new TreeMap<String, Map<String, Float>>();
+    private final AtomicBoolean saveScheduled = new AtomicBoolean();
+    private final ScheduledExecutorService executor;
+    private long rebuildIntervalMinutes;
+
+    private final Runnable saveTask = new Runnable() {
+        @Override
+        public void run() {
+            saveScheduled.set(false);
+            save();
+        }
+    };
+
+    /**
+     * @param directory the directory of the snapshot file, or blank to keep the index in memory only
+     */
+    @Autowired
+    public DefaultWidgetSearchIndex(WidgetRepository widgetRepository,
+                                    @Value("${portal.widget_search.index.enabled:false}") boolean enabled,
+                                    @Value("${portal.widget_search.index.directory:}") String directory) {
+        this.widgetRepository = widgetRepository;
+        this.enabled = enabled;
+        this.directory = StringUtils.isBlank(directory) ? null : new File(directory);
+        this.executor = enabled ? Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "rave-widget-search");
+                thread.setDaemon(true);
+                return thread;
+            }
+        }) : null;
+    }
+
+    @Value("${portal.widget_search.index.rebuild_interval_minutes:0}")
+    public void setRebuildIntervalMinutes(long rebuildIntervalMinutes) {
+        this.rebuildIntervalMinutes = rebuildIntervalMinutes;
+    }
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+        if (!load()) {
+            rebuild();
+        }
+        if (rebuildIntervalMinutes > 0) {
+            executor.scheduleWithFixedDelay(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        rebuild();
+                    } catch (Exception e) {
+                        log.error("Error rebuilding the widget search index", e);
+                    }
+                }
+            }, rebuildIntervalMinutes, rebuildIntervalMinutes, TimeUnit.MINUTES);
+        }
+    }
+
+    /**
+     * Stops the periodic rebuild and waits for a pending snapshot to be written
+     */
+    @PreDestroy
+    public void destroy() {
+        if (executor == null) {
+            return;
+        }
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                log.warn("Timed out writing the widget search index; it will be rebuilt at the next startup");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public void index(Widget widget) {
+        if (!enabled || widget == null || widget.getId() == null) {
+            return;
+        }
+        IndexedWidget indexed = new IndexedWidget(widget);
+        lock.writeLock().lock();
+        try {
+            removeWidget(indexed.id);
+            addWidget(indexed);
+            if (changedDuringRebuild != null) {
+                changedDuringRebuild.put(indexed.id, indexed);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        scheduleSave();
+    }
+
+    @Override
+    public void remove(String widgetId) {
+        if (!enabled) {
+            return;
+        }
+        boolean removed;
+        lock.writeLock().lock();
+        try {
+            removed = removeWidget(widgetId);
+            if (changedDuringRebuild != null) {
+                changedDuringRebuild.put(widgetId, null);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (removed) {
+            scheduleSave();
+        }
+    }
+
+    /**
+     * Reads all widgets from the repository and replaces the index with them.  Widgets indexed or removed while the
+     * repository is read are applied again on top of the rebuilt index, since the pages read may predate them.
+     */
+    @Override
+    public void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        rebuildLock.lock();
+        try {
+            long start = System.currentTimeMillis();
+            setChangedDuringRebuild(new HashMap<String, IndexedWidget>());
+            List<IndexedWidget> rebuilt = new ArrayList<IndexedWidget>();
+            try {
+                List<Widget> page;
+                int offset = 0;
+                do {
+                    page = widgetRepository.getLimitedList(offset, REBUILD_PAGE_SIZE);
+                    for (Widget widget : page) {
+                        rebuilt.add(new IndexedWidget(widget));
+                    }
+                    offset += REBUILD_PAGE_SIZE;
+                } while (page.size() == REBUILD_PAGE_SIZE);
+            } catch (RuntimeException e) {
+                setChangedDuringRebuild(null);
+                throw e;
+            }
+
+            lock.writeLock().lock();
+            try {
+                replaceWidgets(rebuilt);
+                for (Map.Entry<String, IndexedWidget> change : changedDuringRebuild.entrySet()) {
+                    removeWidget(change.getKey());
+                    if (change.getValue() != null) {
+                        addWidget(change.getValue());
+                    }
+                }
+                changedDuringRebuild = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            scheduleSave();
+            log.info("Rebuilt the widget search index with {} widgets in {} ms", rebuilt.size(), System.currentTimeMillis() - start);
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    @Override
+    public WidgetSearchHits search(WidgetSearchQuery query) {
+        List<String> words = tokenize(query.getSearchTerm());
+        if (words.isEmpty() && StringUtils.isNotBlank(query.getSearchTerm())) {
+            //a term made only of separators, such as punctuation, matches no word
+            WidgetSearchHits hits = new WidgetSearchHits(new ArrayList<String>(), 0);
+            hits.setFacets(new HashMap<String, Map<String, Integer>>());
+            return hits;
+        }
+        lock.readLock().lock();
+        try {
+            final Map<String, Float> scores = words.isEmpty() ? getUnscored() : score(words);
+            List<IndexedWidget> matches = new ArrayList<IndexedWidget>();
+            Map<String, Map<String, Integer>> facets = new HashMap<String, Map<String, Integer>>();
+            for (String widgetId : scores.keySet()) {
+                IndexedWidget widget = widgets.get(widgetId);
+                if (widget.matches(query)) {
+                    matches.add(widget);
+                    widget.addFacets(facets);
+                }
+            }
+            Collections.sort(matches, new Comparator<IndexedWidget>() {
+                @Override
+                public int compare(IndexedWidget widget, IndexedWidget widget1) {
+                    int byScore = scores.get(widget1.id).compareTo(scores.get(widget.id));
+                    if (byScore != 0) {
+                        return byScore;
+                    }
+                    int byTitle = widget.sortTitle.compareTo(widget1.sortTitle);
+                    return byTitle != 0 ? byTitle : widget.id.compareTo(widget1.id);
+                }
+            });
+
+            List<String> widgetIds = new ArrayList<String>();
+            int end = query.getPageSize() > 0 ? Math.min(matches.size(), query.getOffset() + query.getPageSize()) : matches.size();
+            for (int i = Math.max(query.getOffset(), 0); i < end; i++) {
+                widgetIds.add(matches.get(i).id);
+            }
+            WidgetSearchHits hits = new WidgetSearchHits(widgetIds, matches.size());
+            hits.setFacets(facets);
+            return hits;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Scores the widgets matching all words.  A word matches every indexed word it is a prefix of; the best of those
+     * counts towards the score.
+     */
+    private Map<String, Float> score(List<String> words) {
+        Map<String, Float> scores = null;
+        for (String word : words) {
+            Map<String, Float> wordScores = new HashMap<String, Float>();
+            for (Map<String, Float> posting : postings.subMap(word, true, word + Character.MAX_VALUE, true).values()) {
+                float idf = (float) Math.log(1 + (double) widgets.size() / posting.size());
+                for (Map.Entry<String, Float> entry : posting.entrySet()) {
+                    float score = entry.getValue() * idf;
+                    Float best = wordScores.get(entry.getKey());
+                    if (best == null || best < score) {
+                        wordScores.put(entry.getKey(), score);
+                    }
+                }
+            }
+            if (scores == null) {
+                scores = wordScores;
+            } else {
+                scores.keySet().retainAll(wordScores.keySet());
+                for (Map.Entry<String, Float> entry : scores.entrySet()) {
+                    entry.setValue(entry.getValue() + wordScores.get(entry.getKey()));
+                }
+            }
+            if (scores.isEmpty()) {
+                break;
+            }
+        }
+        return scores;
+    }
+
+    private Map<String, Float> getUnscored() {
+        Map<String, Float> scores = new HashMap<String, Float>();
+        for (String widgetId : widgets.keySet()) {
+            scores.put(widgetId, 0.0f);
+        }
+        return scores;
+    }
+
+    private void addWidget(IndexedWidget widget) {
+        widgets.put(widget.id, widget);
+        for (Map.Entry<String, Float> term : widget.terms.entrySet()) {
+            Map<String, Float> posting = postings.get(term.getKey());
+            if (posting == null) {
+                posting = new HashMap<String, Float>();
+                postings.put(term.getKey(), posting);
+            }
+            posting.put(widget.id, term.getValue());
+        }
+    }
+
+    private boolean removeWidget(String widgetId) {
+        IndexedWidget removed = widgets.remove(widgetId);
+        if (removed == null) {
+            return false;
+        }
+        for (String term : removed.terms.keySet()) {
+            Map<String, Float> posting = postings.get(term);
+            if (posting != null) {
+                posting.remove(widgetId);
+                if (posting.isEmpty()) {
+                    postings.remove(term);
+                }
+            }
+        }
+        return true;
+    }
+
+    private void setChangedDuringRebuild(Map<String, IndexedWidget> changed) {
+        lock.writeLock().lock();
+        try {
+            changedDuringRebuild = changed;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void replaceWidgets(Collection<IndexedWidget> indexed) {
+        widgets.clear();
+        postings.clear();
+        for (IndexedWidget widget : indexed) {
+            addWidget(widget);
+        }
+    }
+
+    /**
+     * Queues a write of the snapshot on the background thread.  Changes made before the write starts are coalesced
+     * into it.
+     */
+    private void scheduleSave() {
+        if (directory == null || !saveScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            executor.execute(saveTask);
+        } catch (RejectedExecutionException e) {
+            saveScheduled.set(false);
+            log.warn("Unable to save the widget search index after shutdown; it will be rebuilt at the next startup");
+        }
+    }
+
+    /**
+     * Writes the indexed widgets to a temporary file and moves it over the snapshot, so a failed write leaves the
+     * previous snapshot intact.  Only copying the widgets holds the lock.  The postings are derived from the widgets
+     * when loading.
+     */
+    private void save() {
+        List<IndexedWidget> indexed;
+        lock.readLock().lock();
+        try {
+            indexed = new ArrayList<IndexedWidget>(widgets.values());
+        } finally {
+            lock.readLock().unlock();
+        }
+        File snapshot = new File(directory, SNAPSHOT_FILE);
+        File temporary = new File(directory, SNAPSHOT_FILE + ".tmp");
+        try {
+            if (!directory.isDirectory() && !directory.mkdirs()) {
+                throw new IOException("Unable to create directory " + directory);
+            }
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporary)));
+            try {
+                out.writeUTF(SNAPSHOT_HEADER);
+                out.writeInt(SNAPSHOT_VERSION);
+                out.writeInt(indexed.size());
+                for (IndexedWidget widget : indexed) {
+                    widget.write(out);
+                }
+            } finally {
+                out.close();
+            }
+            if (snapshot.exists() && !snapshot.delete() || !temporary.renameTo(snapshot)) {
+                throw new IOException("Unable to replace " + snapshot);
+            }
+        } catch (IOException e) {
+            log.warn("Unable to save the widget search index; it will be rebuilt at the next startup", e);
+            snapshot.delete();
+        }
+    }
+
+    private boolean load() {
+        if (directory == null) {
+            return false;
+        }
+        File snapshot = new File(directory, SNAPSHOT_FILE);
+        if (!snapshot.isFile()) {
+            return false;
+        }
+        try {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(snapshot)));
+            try {
+                if (!SNAPSHOT_HEADER.equals(in.readUTF()) || in.readInt() != SNAPSHOT_VERSION) {
+                    log.info("The widget search index in {} has an older format, rebuilding it", snapshot);
+                    return false;
+                }
+                int size = in.readInt();
+                List<IndexedWidget> indexed = new ArrayList<IndexedWidget>(size);
+                for (int i = 0; i < size; i++) {
+                    indexed.add(new IndexedWidget(in));
+                }
+                lock.writeLock().lock();
+                try {
+                    replaceWidgets(indexed);
+                } finally {
+                    lock.writeLock().unlock();
+                }
+                log.info("Loaded the widget search index with {} widgets from {}", indexed.size(), snapshot);
+                return true;
+            } finally {
+                in.close();
+            }
+        } catch (Exception e) {
+            log.warn("Unable to load the widget search index from " + snapshot + ", rebuilding it", e);
+            return false;
+        }
+    }
+
+    private static List<String> tokenize(String text) {
+        List<String> words = new ArrayList<String>();
+        if (StringUtils.isNotBlank(text)) {
+            for (String word : WORD_SEPARATOR.split(text.toLowerCase(Locale.ENGLISH))) {
+                if (!word.isEmpty()) {
+                    words.add(word);
+                }
+            }
+        }
+        return words;
+    }
+
+    private static void increment(Map<String, Map<String, Integer>> facets, String facet, String value) {
+        if (value == null) {
+            return;
+        }
+        Map<String, Integer> counts = facets.get(facet);
+        if (counts == null) {
+            counts = new HashMap<String, Integer>();
+            facets.put(facet, counts);
+        }
+        Integer count = counts.get(value);
+        counts.put(value, count == null ? 1 : count + 1);
+    }
+
+    private static void writeNullable(DataOutput out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readNullable(DataInput in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static void writeStrings(DataOutput out, Set<String> values) throws IOException {
+        out.writeInt(values.size());
+        for (String value : values) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static void readStrings(DataInput in, Set<String> values) throws IOException {
+        int size = in.readInt();
+        for (int i = 0; i < size; i++) {
+            values.add(in.readUTF());
+        }
+    }
+
+    /**
+     * The searchable fields of a widget.  Never changed once constructed, so the snapshot can be written without
+     * holding the lock of the index.
+     */
+    private static class IndexedWidget {
+        private final String id;
+        private final String sortTitle;
+        private final String status;
+        private final String type;
+        private final Set<String> tagIds = new HashSet<String>();
+        private final Set<String> categoryIds = new HashSet<String>();
+        private final Map<String, Float> terms = new HashMap<String, Float>();
+
+        private IndexedWidget(Widget widget) {
+            this.id = widget.getId();
+            this.sortTitle = widget.getTitle() == null ? "" : widget.getTitle().toLowerCase(Locale.ENGLISH);
+            this.status = widget.getWidgetStatus() == null ? null : widget.getWidgetStatus().getWidgetStatus();
+            this.type = widget.getType();
+            if (widget.getTags() != null) {
+                for (WidgetTag tag : widget.getTags()) {
+                    if (tag.getTagId() != null) {
+                        tagIds.add(tag.getTagId());
+                    }
+                }
+            }
+            if (widget.getCategories() != null) {
+                for (Category category : widget.getCategories()) {
+                    if (category.getId() != null) {
+                        categoryIds.add(category.getId());
+                    }
+                }
+            }
+            addTerms(widget.getTitle(), TITLE_WEIGHT);
+            addTerms(widget.getDescription(), DESCRIPTION_WEIGHT);
+            //dampen repeated words so that a long description does not outrank a matching title
+            for (Map.Entry<String, Float> term : terms.entrySet()) {
+                term.setValue((float) Math.sqrt(term.getValue()));
+            }
+        }
+
+        private IndexedWidget(DataInput in) throws IOException {
+            this.id = in.readUTF();
+            this.sortTitle = in.readUTF();
+            this.status = readNullable(in);
+            this.type = readNullable(in);
+            readStrings(in, tagIds);
+            readStrings(in, categoryIds);
+            int size = in.readInt();
+            for (int i = 0; i < size; i++) {
+                terms.put(in.readUTF(), in.readFloat());
+            }
+        }
+
+        private void write(DataOutput out) throws IOException {
+            out.writeUTF(id);
+            out.writeUTF(sortTitle);
+            writeNullable(out, status);
+            writeNullable(out, type);
+            writeStrings(out, tagIds);
+            writeStrings(out, categoryIds);
+            out.writeInt(terms.size());
+            for (Map.Entry<String, Float> term : terms.entrySet()) {
+                out.writeUTF(term.getKey());
+                out.writeFloat(term.getValue());
+            }
+        }
+
+        private void addTerms(String text, float weight) {
+            for (String word : tokenize(text)) {
+                Float current = terms.get(word);
+                terms.put(word, current == null ? weight : current + weight);
+            }
+        }
+
+        private boolean matches(WidgetSearchQuery query) {
+            return (query.getStatus() == null || query.getStatus().getWidgetStatus().equals(status))
+                    && (StringUtils.isBlank(query.getType()) || query.getType().equals(type))
+                    && (query.getTagIds() == null || tagIds.containsAll(query.getTagIds()))
+                    && (query.getCategoryIds() == null || categoryIds.containsAll(query.getCategoryIds()));
+        }
+
+        private void addFacets(Map<String, Map<String, Integer>> facets) {
+            increment(facets, WidgetSearchHits.FACET_STATUS, status);
+            increment(facets, WidgetSearchHits.FACET_TYPE, type);
+            for (String tagId : tagIds) {
+                increment(facets, WidgetSearchHits.FACET_TAG, tagId);
+            }
+            for (String categoryId : categoryIds) {
+                increment(facets, WidgetSearchHits.FACET_CATEGORY, categoryId);
+            }
+        }
+    }
+}
@@ -29,16 +29,24 @@ import org.apache.rave.model.WidgetRating;
 import org.apache.rave.model.WidgetStatus;
 import org.apache.rave.model.WidgetTag;
 import org.apache.rave.rest.model.SearchResult;
+import org.apache.rave.portal.model.util.WidgetSearchHits;
+import org.apache.rave.portal.model.util.WidgetSearchQuery;
 import org.apache.rave.portal.model.util.WidgetStatistics;
 import org.apache.rave.portal.repository.CategoryRepository;
 import org.apache.rave.portal.repository.UserRepository;
+import org.apache.rave.portal.repository.WidgetFetchPlan;
 import org.apache.rave.portal.repository.WidgetRepository;
+import org.apache.rave.portal.service.WidgetSearchIndex;
 import org.apache.rave.portal.service.WidgetService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -48,6 +56,7 @@ public class DefaultWidgetService implements WidgetService {
     private final WidgetRepository widgetRepository;
     private final UserRepository userRepository;
     private final CategoryRepository categoryRepository;
+    private WidgetSearchIndex widgetSearchIndex;
 
     @Autowired
     public DefaultWidgetService(WidgetRepository widgetRepository, UserRepository userRepository, CategoryRepository categoryRepository) {
@@ -56,6 +65,11 @@ public class DefaultWidgetService implements WidgetService {
         this.categoryRepository = categoryRepository;
     }
 
+    @Autowired(required = false)
+    public void setWidgetSearchIndex(WidgetSearchIndex widgetSearchIndex) {
+        this.widgetSearchIndex = widgetSearchIndex;
+    }
+
     @Override
     public SearchResult<Widget> getAll() {
         final int count = widgetRepository.getCountAll();
@@ -79,6 +93,9 @@ public class DefaultWidgetService implements WidgetService {
         if (StringUtils.isBlank(searchTerm)) {
             return getLimitedList(offset, pageSize);
         }
+        if (isSearchIndexEnabled()) {
+            return searchIndex(new WidgetSearchQuery(searchTerm, offset, pageSize));
+        }
 
         final int count = widgetRepository.getCountFreeTextSearch(searchTerm);
         final List<Widget> widgets = widgetRepository.getByFreeTextSearch(searchTerm,
@@ -95,6 +112,17 @@ public class DefaultWidgetService implements WidgetService {
         return widgetRepository.get(id);
     }
 
+    @Override
+    public Widget getWidget(String id, WidgetFetchPlan fetchPlan) {
+        return widgetRepository.get(id, fetchPlan);
+    }
+
+    @Override
+    public List<Widget> getWidgets(Collection<String> ids) {
+        // copied, the security post filter removes the widgets the user may not read from the returned list
+        return new ArrayList<Widget>(widgetRepository.getByIds(ids));
+    }
+
     @Override
     public SearchResult<Widget> getPublishedWidgets(int offset, int pageSize) {
         final int count = widgetRepository.getCountByStatus(WidgetStatus.PUBLISHED);
@@ -117,6 +145,12 @@ public class DefaultWidgetService implements WidgetService {
                                                            int offset, int pageSize) {
 
         final WidgetStatus status = StringUtils.isBlank(widgetStatus) ? null : WidgetStatus.get(widgetStatus);
+        if (isSearchIndexEnabled() && StringUtils.isNotBlank(searchTerm)) {
+            WidgetSearchQuery query = new WidgetSearchQuery(searchTerm, offset, pageSize);
+            query.setStatus(status);
+            query.setType(widgetType);
+            return searchIndex(query);
+        }
         final int count = widgetRepository.getCountByStatusAndTypeAndFreeText(status, widgetType, searchTerm);
         final List<Widget> widgets = widgetRepository.getByStatusAndTypeAndFreeTextSearch(status, widgetType,
                 searchTerm, offset, pageSize);
@@ -153,7 +187,7 @@ public class DefaultWidgetService implements WidgetService {
         if (getWidgetByUrl(widget.getUrl()) != null) {
             throw new DuplicateItemException("Trying to add an existing widget for url " + widget.getUrl());
         }
-        return widgetRepository.save(widget);
+        return indexWidget(widgetRepository.save(widget));
     }
 
     @Override
@@ -169,7 +203,7 @@ public class DefaultWidgetService implements WidgetService {
     @Override
     @Transactional
     public void updateWidget(Widget widget) {
-        widgetRepository.save(widget);
+        indexWidget(widgetRepository.save(widget));
     }
 
     @Override
@@ -190,7 +224,8 @@ public class DefaultWidgetService implements WidgetService {
             return new SearchResult<Widget>(new ArrayList<Widget>(), 0);
         }
 
-        List<Widget> widgets = category.getWidgets();
+        // copied, the category may be a cached instance shared with other requests
+        List<Widget> widgets = new ArrayList<Widget>(category.getWidgets());
         SearchResult<Widget> searchResult = new SearchResult<Widget>(widgets, widgets.size());
         searchResult.setOffset(offset);
         searchResult.setPageSize(pageSize);
@@ -206,7 +241,11 @@ public class DefaultWidgetService implements WidgetService {
     @Override
     @Transactional
     public WidgetTag createWidgetTag(String widgetId, WidgetTag widgetTag) {
-        return widgetRepository.saveWidgetTag(widgetId, widgetTag);
+        WidgetTag saved = widgetRepository.saveWidgetTag(widgetId, widgetTag);
+        if (isSearchIndexEnabled()) {
+            indexWidget(widgetRepository.get(widgetId, WidgetFetchPlan.LISTING));
+        }
+        return saved;
     }
 
     @Override
@@ -223,6 +262,16 @@ public class DefaultWidgetService implements WidgetService {
         return widgetRepository.getCommentById(widgetId, commentId);
     }
 
+    @Override
+    public SearchResult<WidgetComment> getWidgetComments(String widgetId, int offset, int pageSize) {
+        final int count = widgetRepository.getCountCommentsByWidgetId(widgetId);
+        final List<WidgetComment> comments = widgetRepository.getCommentsByWidgetId(widgetId, offset, pageSize);
+        final SearchResult<WidgetComment> searchResult = new SearchResult<WidgetComment>(comments, count);
+        searchResult.setOffset(offset);
+        searchResult.setPageSize(pageSize);
+        return searchResult;
+    }
+
     @Override
     @Transactional
     public void createWidgetComment(String widgetId, WidgetComment widgetComment) {
@@ -285,4 +334,57 @@ public class DefaultWidgetService implements WidgetService {
     public int removeAllWidgetRatings(String userId) {
         return widgetRepository.deleteAllWidgetRatings(userId);
     }
+
+    private boolean isSearchIndexEnabled() {
+        return widgetSearchIndex != null && widgetSearchIndex.isEnabled();
+    }
+
+    /**
+     * Updates the search index once the surrounding transaction has committed, so that it never holds changes that
+     * were rolled back
+     */
+    private Widget indexWidget(final Widget widget) {
+        if (isSearchIndexEnabled()) {
+            afterCommit(new Runnable() {
+                @Override
+                public void run() {
+                    widgetSearchIndex.index(widget);
+                }
+            });
+        }
+        return widget;
+    }
+
+    private static void afterCommit(final Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private SearchResult<Widget> searchIndex(WidgetSearchQuery query) {
+        WidgetSearchHits hits = widgetSearchIndex.search(query);
+        Map<String, Widget> widgetsById = new HashMap<String, Widget>();
+        for (Widget widget : widgetRepository.getByIds(hits.getWidgetIds())) {
+            widgetsById.put(widget.getId(), widget);
+        }
+        //keep the ranking of the index
+        List<Widget> widgets = new ArrayList<Widget>();
+        for (String widgetId : hits.getWidgetIds()) {
+            Widget widget = widgetsById.get(widgetId);
+            if (widget != null) {
+                widgets.add(widget);
+            }
+        }
+        final SearchResult<Widget> searchResult = new SearchResult<Widget>(widgets, hits.getTotalCount());
+        searchResult.setOffset(query.getOffset());
+        searchResult.setPageSize(query.getPageSize());
+        return searchResult;
+    }
 }
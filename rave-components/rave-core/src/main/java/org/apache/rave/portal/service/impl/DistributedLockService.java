@@ -0,0 +1,431 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.rave.portal.service.impl;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.rave.exception.DuplicateItemException;
+import org.apache.rave.portal.repository.LockLeaseRepository;
+import org.apache.rave.service.LockService;
+import org.apache.rave.service.impl.ConcurrentLockService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.lang.management.ManagementFactory;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Cluster aware LockService that combines an in-JVM lock per key with a lease stored through a
+ * {@link LockLeaseRepository}, so that a key is locked by at most one thread across all portal nodes.
+ * <p/>
+ * Leases are short and renewed in the background while they are held.  Each grant carries a fencing token
+ * ({@link DistributedLock#getFencingToken()}) which callers can pass on to the resources they guard to reject writes
+ * from a holder whose lease was lost.  When a thread unlocks while other threads of the same node are queued on the
+ * key, the lease is handed over locally without a round-trip to the datastore.
+ * <p/>
+ * The service is not component scanned.  core-applicationContext.xml declares it as a lazy bean named
+ * distributedLockService, which is only created when selected with portal.lock_service=distributedLockService (see
+ * {@link org.apache.rave.service.impl.LockServiceFactoryBean}).
+ * Lease expiry is based on the wall clock of the nodes, which are expected to be kept in sync (e.g. with NTP).
+ */
+public class DistributedLockService implements LockService {
+    private static Logger logger = LoggerFactory.getLogger(DistributedLockService.class);
+
+    public static final long DEFAULT_LEASE_MILLIS = 15000L;
+    public static final long DEFAULT_RETRY_MILLIS = 50L;
+
+    private final LockLeaseRepository repository;
+    private final ConcurrentLockService localLockService;
+    private final ConcurrentMap<String, NodeLease> leases;
+    private final String nodeId;
+
+    private long leaseMillis = DEFAULT_LEASE_MILLIS;
+    private long retryMillis = DEFAULT_RETRY_MILLIS;
+    private ScheduledExecutorService renewalExecutor;
+
+    public DistributedLockService(LockLeaseRepository repository) {
+        this(repository, createNodeId());
+    }
+
+    public DistributedLockService(LockLeaseRepository repository, String nodeId) {
+        this.repository = repository;
+        this.nodeId = nodeId;
+        this.localLockService = new ConcurrentLockService();
+        this.leases = new ConcurrentHashMap<String, NodeLease>();
+    }
+
+    @PostConstruct
+    public void init() {
+        renewalExecutor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "rave-lock-lease-renewal-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        long period = Math.max(1L, leaseMillis / 3);
+        renewalExecutor.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    renewLeases();
+                } catch (RuntimeException e) {
+                    logger.error("Error renewing lock leases", e);
+                }
+            }
+        }, period, period, TimeUnit.MILLISECONDS);
+        logger.info("DistributedLockService started on node [{}] with a lease of {} ms", nodeId, leaseMillis);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (renewalExecutor != null) {
+            renewalExecutor.shutdownNow();
+        }
+        for (NodeLease lease : leases.values()) {
+            releaseToRepository(lease);
+        }
+        leases.clear();
+    }
+
+    @Override
+    public Lock borrowLock(String key) {
+        return new DistributedLock(key, (ReentrantLock) localLockService.borrowLock(key));
+    }
+
+    @Override
+    public Lock borrowLock(String discriminator, String id) {
+        if (StringUtils.isEmpty(discriminator)) {
+            return borrowLock(id);
+        }
+        return borrowLock(new StringBuilder(discriminator).append("-").append(id).toString());
+    }
+
+    @Override
+    public void returnLock(Lock lock) {
+        localLockService.returnLock(((DistributedLock) lock).localLock);
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public long getLeaseMillis() {
+        return leaseMillis;
+    }
+
+    public void setLeaseMillis(long leaseMillis) {
+        this.leaseMillis = leaseMillis;
+    }
+
+    public long getRetryMillis() {
+        return retryMillis;
+    }
+
+    public void setRetryMillis(long retryMillis) {
+        this.retryMillis = retryMillis;
+    }
+
+    /**
+     * Renews held leases that have used up a third of their lifetime and retires leases that were kept for a local
+     * hand over nobody picked up.  Called periodically by the renewal executor.
+     */
+    void renewLeases() {
+        long now = System.currentTimeMillis();
+        for (NodeLease lease : leases.values()) {
+            if (lease.isHeld()) {
+                if (lease.expiresAt - now < leaseMillis * 2 / 3 && !lease.lost) {
+                    renewLease(lease, now);
+                }
+            } else if (now - lease.idleSince > leaseMillis / 3 && lease.retire()) {
+                leases.remove(lease.key, lease);
+                releaseToRepository(lease);
+            }
+        }
+    }
+
+    private void renewLease(NodeLease lease, long now) {
+        try {
+            if (repository.renew(lease.key, nodeId, lease.token, now, leaseMillis)) {
+                lease.expiresAt = now + leaseMillis;
+            } else {
+                lease.lost = true;
+                logger.warn("Lease on [{}] with fencing token {} was lost by node [{}]",
+                        new Object[]{lease.key, lease.token, nodeId});
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Unable to renew lease on [" + lease.key + "]", e);
+        }
+    }
+
+    private NodeLease acquireLease(String key, long deadline, boolean interruptible) throws InterruptedException {
+        //a non interruptible acquire keeps waiting when interrupted and restores the interrupt status once it is done
+        boolean interrupted = false;
+        try {
+            while (true) {
+                long now = System.currentTimeMillis();
+                NodeLease lease = leases.get(key);
+                if (lease != null) {
+                    if (lease.expiresAt - now > leaseMillis / 3 && !lease.lost && lease.takeOver()) {
+                        logger.debug("Lease on [{}] handed over locally with fencing token {}", key, lease.token);
+                        return lease;
+                    }
+                    if (lease.retire()) {
+                        leases.remove(key, lease);
+                    }
+                }
+
+                Long token = tryAcquireFromRepository(key, now);
+                if (token != null) {
+                    NodeLease acquired = new NodeLease(key, token, now + leaseMillis);
+                    leases.put(key, acquired);
+                    logger.debug("Lease on [{}] acquired with fencing token {}", key, token);
+                    return acquired;
+                }
+
+                long wait = Math.min(retryMillis, deadline - System.currentTimeMillis());
+                if (wait <= 0) {
+                    return null;
+                }
+                try {
+                    Thread.sleep(wait);
+                } catch (InterruptedException e) {
+                    if (interruptible) {
+                        throw e;
+                    }
+                    interrupted = true;
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private Long tryAcquireFromRepository(String key, long now) {
+        try {
+            return repository.tryAcquire(key, nodeId, now, leaseMillis);
+        } catch (DuplicateItemException e) {
+            //a concurrent first grant of the key on another node - the next attempt sees its lease
+            logger.debug("Lease on [{}] was granted concurrently to another node", key);
+            return null;
+        } catch (RuntimeException e) {
+            logger.warn("Unable to acquire lease on [" + key + "]", e);
+            throw e;
+        }
+    }
+
+    private void releaseLease(String key, ReentrantLock localLock) {
+        NodeLease lease = leases.get(key);
+        if (lease == null) {
+            return;
+        }
+        lease.idle();
+        //keep the lease for the next local thread rather than giving it back to the cluster
+        if (!localLock.hasQueuedThreads() && lease.retire()) {
+            leases.remove(key, lease);
+            releaseToRepository(lease);
+        }
+    }
+
+    private void releaseToRepository(NodeLease lease) {
+        try {
+            repository.release(lease.key, nodeId, lease.token);
+        } catch (RuntimeException e) {
+            logger.warn("Unable to release lease on [" + lease.key + "] - it will expire on its own", e);
+        }
+    }
+
+    private static String createNodeId() {
+        return ManagementFactory.getRuntimeMXBean().getName() + "-" + UUID.randomUUID().toString();
+    }
+
+    /**
+     * A lease held by this node.  State transitions: HELD <-> IDLE -> RETIRED.
+     */
+    static class NodeLease {
+        private static final int HELD = 0;
+        private static final int IDLE = 1;
+        private static final int RETIRED = 2;
+
+        private final String key;
+        private final long token;
+        private final AtomicInteger state = new AtomicInteger(HELD);
+        private volatile long expiresAt;
+        private volatile long idleSince;
+        private volatile boolean lost;
+
+        NodeLease(String key, long token, long expiresAt) {
+            this.key = key;
+            this.token = token;
+            this.expiresAt = expiresAt;
+        }
+
+        boolean isHeld() {
+            return state.get() == HELD;
+        }
+
+        boolean takeOver() {
+            return state.compareAndSet(IDLE, HELD);
+        }
+
+        void idle() {
+            idleSince = System.currentTimeMillis();
+            state.set(IDLE);
+        }
+
+        boolean retire() {
+            return state.compareAndSet(IDLE, RETIRED);
+        }
+    }
+
+    /**
+     * Lock handed out by the service.  Locking takes the local lock first and then the cluster lease.
+     */
+    public class DistributedLock implements Lock {
+        private final String key;
+        private final ReentrantLock localLock;
+        private volatile NodeLease lease;
+
+        DistributedLock(String key, ReentrantLock localLock) {
+            this.key = key;
+            this.localLock = localLock;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        /**
+         * @return the fencing token of the lease under which the lock is held, or -1 if it is not held
+         */
+        public long getFencingToken() {
+            NodeLease current = lease;
+            return current == null ? -1L : current.token;
+        }
+
+        /**
+         * @return false if the lease expired or was taken over by another node while the lock was held
+         */
+        public boolean isLeaseValid() {
+            NodeLease current = lease;
+            return current != null && !current.lost && current.expiresAt > System.currentTimeMillis();
+        }
+
+        @Override
+        public void lock() {
+            localLock.lock();
+            if (localLock.getHoldCount() > 1) {
+                return;
+            }
+            try {
+                lease = acquireLease(key, Long.MAX_VALUE, false);
+            } catch (InterruptedException e) {
+                //cannot happen for a non interruptible acquire
+                Thread.currentThread().interrupt();
+            } catch (RuntimeException e) {
+                localLock.unlock();
+                throw e;
+            }
+        }
+
+        @Override
+        public void lockInterruptibly() throws InterruptedException {
+            localLock.lockInterruptibly();
+            if (localLock.getHoldCount() > 1) {
+                return;
+            }
+            try {
+                lease = acquireLease(key, Long.MAX_VALUE, true);
+            } catch (InterruptedException e) {
+                localLock.unlock();
+                throw e;
+            } catch (RuntimeException e) {
+                localLock.unlock();
+                throw e;
+            }
+        }
+
+        @Override
+        public boolean tryLock() {
+            try {
+                return tryLock(0, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+
+        @Override
+        public boolean tryLock(long time, TimeUnit unit) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + unit.toMillis(time);
+            if (!localLock.tryLock(time, unit)) {
+                return false;
+            }
+            if (localLock.getHoldCount() > 1) {
+                return true;
+            }
+            NodeLease acquired = null;
+            try {
+                acquired = acquireLease(key, deadline, true);
+            } finally {
+                if (acquired == null) {
+                    localLock.unlock();
+                }
+            }
+            lease = acquired;
+            return true;
+        }
+
+        @Override
+        public void unlock() {
+            if (localLock.getHoldCount() == 1) {
+                try {
+                    releaseLease(key, localLock);
+                } finally {
+                    lease = null;
+                    localLock.unlock();
+                }
+            } else {
+                localLock.unlock();
+            }
+        }
+
+        @Override
+        public Condition newCondition() {
+            throw new UnsupportedOperationException("Conditions are not supported by distributed locks");
+        }
+    }
+}
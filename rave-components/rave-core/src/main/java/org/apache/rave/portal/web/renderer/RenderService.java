@@ -25,6 +25,7 @@ import org.apache.rave.rest.model.Page;
 import org.apache.rave.rest.model.RegionWidget;
 
 import java.util.Collection;
+import java.util.List;
 
 /**
  *  Renders model objects as strings that can be inserted into the view
@@ -54,10 +55,20 @@ public interface RenderService {
     RegionWidget prepareForRender(RegionWidget source);
 
     /**
-     * Assigns all necessary properties for rendering to the Page
+     * Assigns all necessary properties for rendering to the Page and its sub pages.  The widgets placed on
+     * the page tree are resolved in a single lookup.
      * @param source page to update
      * @return the updated instance of the Page.
      */
     Page prepareForRender(Page source);
 
+    /**
+     * Assigns all necessary properties for rendering to each of the Pages and their sub pages.  The widgets
+     * placed on all of the pages are resolved in a single lookup, so a widget used on several pages is only
+     * loaded once.
+     * @param sources pages to update
+     * @return the updated instances of the Pages.
+     */
+    List<Page> prepareForRender(List<Page> sources);
+
 }
@@ -21,9 +21,11 @@ package org.apache.rave.portal.web.renderer.impl;
 
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 import org.apache.rave.exception.NotSupportedException;
 import org.apache.rave.model.Widget;
 import org.apache.rave.portal.repository.WidgetRepository;
+import org.apache.rave.portal.web.renderer.RegionWidgetBatchRenderer;
 import org.apache.rave.portal.web.renderer.RegionWidgetRenderer;
 import org.apache.rave.portal.web.renderer.RegionWidgetWrapperRenderer;
 import org.apache.rave.portal.web.renderer.RenderService;
@@ -40,6 +42,7 @@ import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Default implementation of {@link RenderService}
@@ -94,31 +97,110 @@ public class DefaultRenderService implements RenderService {
 
     @Override
     public RegionWidget prepareForRender(RegionWidget source) {
-        if (source.getType() == null || source.getWidgetUrl() == null) {
-            updateRegionWidget(source);
+        if (isMissingWidgetProperties(source)) {
+            updateRegionWidget(source, repository.get(source.getWidgetId()));
         }
-        RegionWidgetRenderer renderer = supportedApiWidgets.get(source.getType());
-        if (renderer == null) {
-            throw new NotSupportedException(source.getType() + " is not supported");
-        }
-        return renderer.prepareForRender(source);
+        return delegatePrepareForRender(source);
     }
 
     @Override
     public Page prepareForRender(Page source) {
+        prepareForRender(Lists.newArrayList(source));
+        return source;
+    }
+
+    /**
+     * Prepares the pages and their sub pages. Region widgets whose renderer is a {@link RegionWidgetBatchRenderer}
+     * are collected across all the pages and handed to it in a single call once the other widgets are prepared.
+     */
+    @Override
+    public List<Page> prepareForRender(List<Page> sources) {
+        Map<String, Widget> widgets = getWidgetsForPages(sources);
+        Map<RegionWidgetBatchRenderer, List<RegionWidget>> batches = Maps.newLinkedHashMap();
+        for (Page source : sources) {
+            prepareForRender(source, widgets, batches);
+        }
+        for (Map.Entry<RegionWidgetBatchRenderer, List<RegionWidget>> batch : batches.entrySet()) {
+            batch.getKey().prepareAllForRender(batch.getValue());
+        }
+        return sources;
+    }
+
+    private void prepareForRender(Page source, Map<String, Widget> widgets,
+                                  Map<RegionWidgetBatchRenderer, List<RegionWidget>> batches) {
         for (Region region : source.getRegions()) {
             List<RegionWidget> widgetList = Lists.newArrayListWithCapacity(region.getRegionWidgets().size());
             for (RegionWidget widget : region.getRegionWidgets()) {
-                widgetList.add(prepareForRender(widget));
+                if (isMissingWidgetProperties(widget)) {
+                    updateRegionWidget(widget, widgets.get(widget.getWidgetId()));
+                }
+                RegionWidgetRenderer renderer = getApiRenderer(widget);
+                if (renderer instanceof RegionWidgetBatchRenderer) {
+                    List<RegionWidget> batch = batches.get(renderer);
+                    if (batch == null) {
+                        batch = Lists.newArrayList();
+                        batches.put((RegionWidgetBatchRenderer) renderer, batch);
+                    }
+                    batch.add(widget);
+                    widgetList.add(widget);
+                } else {
+                    widgetList.add(renderer.prepareForRender(widget));
+                }
             }
             region.setRegionWidgets(widgetList);
         }
         if(source.getSubPages() != null) {
             for (Page sub : source.getSubPages()) {
-                prepareForRender(sub);
+                prepareForRender(sub, widgets, batches);
             }
         }
-        return source;
+    }
+
+    private RegionWidget delegatePrepareForRender(RegionWidget source) {
+        return getApiRenderer(source).prepareForRender(source);
+    }
+
+    private RegionWidgetRenderer getApiRenderer(RegionWidget source) {
+        RegionWidgetRenderer renderer = supportedApiWidgets.get(source.getType());
+        if (renderer == null) {
+            throw new NotSupportedException(source.getType() + " is not supported");
+        }
+        return renderer;
+    }
+
+    /**
+     * Resolves, in a single repository call, every widget that is placed on the pages or their sub pages and
+     * is still missing its type or url
+     */
+    private Map<String, Widget> getWidgetsForPages(List<Page> pages) {
+        Set<String> widgetIds = Sets.newHashSet();
+        collectWidgetIds(pages, widgetIds);
+        Map<String, Widget> widgets = Maps.newHashMap();
+        if (!widgetIds.isEmpty()) {
+            for (Widget widget : repository.getByIds(widgetIds)) {
+                widgets.put(widget.getId(), widget);
+            }
+        }
+        return widgets;
+    }
+
+    private static void collectWidgetIds(List<Page> pages, Set<String> widgetIds) {
+        for (Page page : pages) {
+            for (Region region : page.getRegions()) {
+                for (RegionWidget widget : region.getRegionWidgets()) {
+                    if (isMissingWidgetProperties(widget)) {
+                        widgetIds.add(widget.getWidgetId());
+                    }
+                }
+            }
+            if (page.getSubPages() != null) {
+                collectWidgetIds(page.getSubPages(), widgetIds);
+            }
+        }
+    }
+
+    private static boolean isMissingWidgetProperties(RegionWidget source) {
+        return source.getType() == null || source.getWidgetUrl() == null;
     }
 
     private static <T extends Renderer> void mapRenderersByType(Map<String, T> map, List<T> renderers) {
@@ -129,8 +211,7 @@ public class DefaultRenderService implements RenderService {
         }
     }
 
-    private void updateRegionWidget(RegionWidget source) {
-        Widget widget = repository.get(source.getWidgetId());
+    private static void updateRegionWidget(RegionWidget source, Widget widget) {
         if (widget == null) {
             throw new IllegalArgumentException("Could not retrieve widget for RegionWidget " + source.getId());
         }
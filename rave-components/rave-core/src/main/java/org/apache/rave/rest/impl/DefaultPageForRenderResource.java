@@ -72,9 +72,9 @@ public class DefaultPageForRenderResource implements PagesForRenderResource {
 
         List<Page> converted = Lists.newArrayList();
         for(org.apache.rave.model.Page page : pages) {
-            Page convert = new Page(page);
-            converted.add(renderService.prepareForRender(convert));
+            converted.add(new Page(page));
         }
+        renderService.prepareForRender(converted);
         return new SearchResult<Page>(converted, converted.size());
     }
 
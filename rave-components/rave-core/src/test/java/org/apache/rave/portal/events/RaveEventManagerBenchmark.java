@@ -0,0 +1,105 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.rave.portal.events;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmark of RaveEventManager.fireEvent throughput when several threads fire events at the same time.
+ * <p/>
+ * Each listener burns listenerWork tokens to stand in for a listener that does real work. Run it from the IDE or with
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=org.apache.rave.portal.events.RaveEventManagerBenchmark
+ * </pre>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RaveEventManagerBenchmark {
+    private static final int LISTENERS = 4;
+
+    @State(Scope.Benchmark)
+    public static class Manager {
+        @Param({"SYNCHRONOUS", "ASYNCHRONOUS"})
+        public RaveEventManager.Dispatch dispatch;
+
+        @Param({"0", "1000"})
+        public int listenerWork;
+
+        RaveEventManager manager;
+        RaveEvent event;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            manager = new RaveEventManager();
+            manager.setDispatchThreads(4);
+            for (int i = 0; i < LISTENERS; i++) {
+                manager.addListener(PortalPreferenceJavascriptDebugModeSaveEvent.class, new RaveEventListener() {
+                    @Override
+                    public void handleEvent(RaveEvent event) {
+                        Blackhole.consumeCPU(listenerWork);
+                    }
+                }, dispatch);
+            }
+            event = new PortalPreferenceJavascriptDebugModeSaveEvent(this);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            manager.destroy();
+        }
+    }
+
+    @Benchmark
+    public void fireEvent(Manager manager) {
+        manager.manager.fireEvent(manager.event);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        for (int threads : new int[]{1, 4, 16}) {
+            Options options = new OptionsBuilder()
+                    .include(RaveEventManagerBenchmark.class.getSimpleName())
+                    .threads(threads)
+                    .build();
+            new Runner(options).run();
+        }
+    }
+}
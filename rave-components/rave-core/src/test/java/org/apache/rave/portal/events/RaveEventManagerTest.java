@@ -0,0 +1,211 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.rave.portal.events;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.EventObject;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class RaveEventManagerTest {
+    private RaveEventManager manager;
+
+    @Before
+    public void setup() {
+        manager = new RaveEventManager();
+    }
+
+    @After
+    public void tearDown() {
+        manager.destroy();
+    }
+
+    @Test
+    public void fireEvent_synchronous() {
+        RecordingListener listener = new RecordingListener();
+        manager.addListener(PortalPreferenceJavascriptDebugModeSaveEvent.class, listener);
+
+        PortalPreferenceJavascriptDebugModeSaveEvent event = new PortalPreferenceJavascriptDebugModeSaveEvent(this);
+        manager.fireEvent(event);
+
+        assertThat(listener.events.size(), is(1));
+        assertThat(listener.events.get(0), is(sameInstance((RaveEvent) event)));
+        assertThat(listener.threads.get(0), is(sameInstance(Thread.currentThread())));
+    }
+
+    @Test
+    public void fireEvent_followsHierarchy() {
+        RecordingListener superclassListener = new RecordingListener();
+        RecordingListener interfaceListener = new RecordingListener();
+        RecordingListener otherListener = new RecordingListener();
+        manager.addListener(TestEvent.class, superclassListener);
+        manager.addListener(RaveEvent.class, interfaceListener);
+        manager.addListener(PortalPreferenceJavascriptDebugModeSaveEvent.class, otherListener);
+
+        manager.fireEvent(new TestSubEvent(this));
+
+        assertThat(superclassListener.events.size(), is(1));
+        assertThat(interfaceListener.events.size(), is(1));
+        assertThat(otherListener.events.size(), is(0));
+    }
+
+    @Test
+    public void fireEvent_listenerOnSeveralTypes_calledOnce() {
+        RecordingListener listener = new RecordingListener();
+        manager.addListener(TestEvent.class, listener);
+        manager.addListener(TestSubEvent.class, listener);
+
+        manager.fireEvent(new TestSubEvent(this));
+
+        assertThat(listener.events.size(), is(1));
+    }
+
+    @Test
+    public void removeListener() {
+        RecordingListener listener = new RecordingListener();
+        manager.addListener(TestEvent.class, listener);
+        manager.removeListener(TestEvent.class, listener);
+
+        manager.fireEvent(new TestEvent(this));
+
+        assertThat(listener.events.size(), is(0));
+    }
+
+    @Test
+    public void fireEvent_failingListenerIsolated() {
+        RecordingListener listener = new RecordingListener();
+        manager.addListener(TestEvent.class, new RaveEventListener() {
+            @Override
+            public void handleEvent(RaveEvent event) {
+                throw new IllegalStateException("broken listener");
+            }
+        });
+        manager.addListener(TestEvent.class, listener);
+
+        manager.fireEvent(new TestEvent(this));
+
+        assertThat(listener.events.size(), is(1));
+        long failures = 0;
+        for (RaveEventStatistics.ListenerStatistics statistics : manager.getStatistics().getListeners().values()) {
+            failures += statistics.getFailures();
+        }
+        assertThat(failures, is(1L));
+    }
+
+    @Test
+    public void fireEvent_asynchronous() throws InterruptedException {
+        final CountDownLatch handled = new CountDownLatch(1);
+        RecordingListener listener = new RecordingListener() {
+            @Override
+            public void handleEvent(RaveEvent event) {
+                super.handleEvent(event);
+                handled.countDown();
+            }
+        };
+        manager.addListener(TestEvent.class, listener, RaveEventManager.Dispatch.ASYNCHRONOUS);
+
+        manager.fireEvent(new TestEvent(this));
+
+        assertTrue(handled.await(5, TimeUnit.SECONDS));
+        assertThat(listener.threads.get(0), is(not(sameInstance(Thread.currentThread()))));
+        assertThat(manager.getStatistics().getFiredCount(), is(1L));
+    }
+
+    @Test
+    public void fireEvent_asynchronous_queueFull_runsOnCaller() throws InterruptedException {
+        manager.setDispatchThreads(1);
+        manager.setQueueCapacity(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch started = new CountDownLatch(1);
+        RecordingListener listener = new RecordingListener() {
+            @Override
+            public void handleEvent(RaveEvent event) {
+                super.handleEvent(event);
+                if (!Thread.currentThread().getName().startsWith("rave-event-dispatch")) {
+                    return;
+                }
+                started.countDown();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        manager.addListener(TestEvent.class, listener, RaveEventManager.Dispatch.ASYNCHRONOUS);
+
+        // the first event occupies the dispatch thread, the second fills the queue and the third runs here
+        manager.fireEvent(new TestEvent(this));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        manager.fireEvent(new TestEvent(this));
+        manager.fireEvent(new TestEvent(this));
+
+        RaveEventStatistics statistics = manager.getStatistics();
+        assertThat(statistics.getQueueDepth(), is(1));
+        assertThat(statistics.getCallerRunsCount(), is(1L));
+        assertThat(listener.threads.contains(Thread.currentThread()), is(true));
+        release.countDown();
+    }
+
+    @Test
+    public void setDefaultDispatch() {
+        manager.setDefaultDispatch(" asynchronous ");
+        manager.destroy();
+        RecordingListener listener = new RecordingListener();
+        manager.addListener(TestEvent.class, listener);
+
+        // after shutdown asynchronous listeners are called on the firing thread
+        manager.fireEvent(new TestEvent(this));
+
+        assertThat(listener.threads.get(0), is(sameInstance(Thread.currentThread())));
+    }
+
+    private static class RecordingListener implements RaveEventListener {
+        final List<RaveEvent> events = new CopyOnWriteArrayList<RaveEvent>();
+        final List<Thread> threads = new CopyOnWriteArrayList<Thread>();
+
+        @Override
+        public void handleEvent(RaveEvent event) {
+            events.add(event);
+            threads.add(Thread.currentThread());
+        }
+    }
+
+    private static class TestEvent extends EventObject implements RaveEvent {
+        TestEvent(Object source) {
+            super(source);
+        }
+    }
+
+    private static class TestSubEvent extends TestEvent {
+        TestSubEvent(Object source) {
+            super(source);
+        }
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.rave.portal.repository.impl;
+
+import org.apache.rave.model.PageLayout;
+import org.apache.rave.portal.model.impl.PageLayoutImpl;
+import org.apache.rave.portal.repository.PageLayoutRepository;
+import org.apache.rave.service.MetadataCacheStatistics;
+import org.apache.rave.service.impl.DefaultMetadataCache;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.easymock.EasyMock.*;
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.assertThat;
+
+public class CachingPageLayoutRepositoryTest {
+    private static final String CODE = "columns_2";
+
+    private PageLayoutRepository delegate;
+    private DefaultMetadataCache<Object> metadataCache;
+    private CachingPageLayoutRepository repository;
+    private PageLayout layout;
+
+    @Before
+    public void setup() {
+        delegate = createMock(PageLayoutRepository.class);
+        metadataCache = new DefaultMetadataCache<Object>("pageLayouts");
+        repository = new CachingPageLayoutRepository(delegate, new ReferenceDataCache(metadataCache));
+        layout = new PageLayoutImpl();
+        layout.setCode(CODE);
+    }
+
+    @After
+    public void tearDown() {
+        metadataCache.destroy();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        TransactionSynchronizationManager.setActualTransactionActive(false);
+    }
+
+    @Test
+    public void getByPageLayoutCode_readsOnce() {
+        expect(delegate.getByPageLayoutCode(CODE)).andReturn(layout).once();
+        replay(delegate);
+
+        assertThat(repository.getByPageLayoutCode(CODE), is(sameInstance(layout)));
+        assertThat(repository.getByPageLayoutCode(CODE), is(sameInstance(layout)));
+
+        verify(delegate);
+        MetadataCacheStatistics statistics = repository.getCache().getStatistics();
+        assertThat(statistics.getMissCount(), is(1L));
+        assertThat(statistics.getHitCount(), is(1L));
+    }
+
+    @Test
+    public void getByPageLayoutCode_nullNotCached() {
+        expect(delegate.getByPageLayoutCode(CODE)).andReturn(null).times(2);
+        replay(delegate);
+
+        assertThat(repository.getByPageLayoutCode(CODE), is(nullValue()));
+        assertThat(repository.getByPageLayoutCode(CODE), is(nullValue()));
+
+        verify(delegate);
+    }
+
+    @Test
+    public void getAllUserSelectable_returnsCopies() {
+        List<PageLayout> layouts = new ArrayList<PageLayout>();
+        layouts.add(layout);
+        expect(delegate.getAllUserSelectable()).andReturn(layouts).once();
+        replay(delegate);
+
+        List<PageLayout> first = repository.getAllUserSelectable();
+        first.clear();
+        List<PageLayout> second = repository.getAllUserSelectable();
+
+        verify(delegate);
+        assertThat(second.size(), is(1));
+        assertThat(second.get(0), is(sameInstance(layout)));
+    }
+
+    @Test
+    public void save_invalidates() {
+        PageLayout updated = new PageLayoutImpl();
+        expect(delegate.getByPageLayoutCode(CODE)).andReturn(layout);
+        expect(delegate.save(layout)).andReturn(layout);
+        expect(delegate.getByPageLayoutCode(CODE)).andReturn(updated);
+        replay(delegate);
+
+        repository.getByPageLayoutCode(CODE);
+        repository.save(layout);
+
+        assertThat(repository.getByPageLayoutCode(CODE), is(sameInstance(updated)));
+        verify(delegate);
+    }
+
+    @Test
+    public void delete_failed_invalidates() {
+        expect(delegate.getAll()).andReturn(new ArrayList<PageLayout>()).times(2);
+        delegate.delete(layout);
+        expectLastCall().andThrow(new IllegalStateException());
+        replay(delegate);
+
+        repository.getAll();
+        try {
+            repository.delete(layout);
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        repository.getAll();
+
+        verify(delegate);
+    }
+
+    @Test
+    public void readInTransaction_bypassesCache() {
+        expect(delegate.getByPageLayoutCode(CODE)).andReturn(layout).times(2);
+        replay(delegate);
+
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        repository.getByPageLayoutCode(CODE);
+        repository.getByPageLayoutCode(CODE);
+
+        verify(delegate);
+        assertThat(metadataCache.size(), is(0));
+    }
+
+    @Test
+    public void saveInTransaction_invalidatesAgainAfterCompletion() {
+        PageLayout stale = new PageLayoutImpl();
+        expect(delegate.save(layout)).andReturn(layout);
+        expect(delegate.getByPageLayoutCode(CODE)).andReturn(stale);
+        expect(delegate.getByPageLayoutCode(CODE)).andReturn(layout);
+        replay(delegate);
+
+        TransactionSynchronizationManager.initSynchronization();
+        repository.save(layout);
+        // a read on another thread before the commit caches the old row
+        assertThat(repository.getByPageLayoutCode(CODE), is(sameInstance(stale)));
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+        }
+
+        assertThat(repository.getByPageLayoutCode(CODE), is(sameInstance(layout)));
+        verify(delegate);
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.rave.portal.repository.impl;
+
+import org.apache.rave.model.Category;
+import org.apache.rave.model.Widget;
+import org.apache.rave.portal.model.impl.CategoryImpl;
+import org.apache.rave.portal.model.impl.WidgetImpl;
+import org.apache.rave.portal.repository.AuthorityRepository;
+import org.apache.rave.portal.repository.CategoryRepository;
+import org.apache.rave.portal.repository.PageLayoutRepository;
+import org.apache.rave.portal.repository.PortalPreferenceRepository;
+import org.apache.rave.portal.repository.TagRepository;
+import org.apache.rave.portal.repository.UserRepository;
+import org.apache.rave.portal.repository.WidgetRepository;
+import org.apache.rave.portal.service.WidgetService;
+import org.apache.rave.portal.service.impl.DefaultWidgetService;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.createNiceMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.assertThat;
+
+public class ReferenceDataCachingPostProcessorTest {
+    private ReferenceDataCachingPostProcessor postProcessor;
+
+    @Before
+    public void setup() {
+        postProcessor = new ReferenceDataCachingPostProcessor();
+    }
+
+    @After
+    public void tearDown() {
+        postProcessor.destroy();
+    }
+
+    @Test
+    public void wrapsReferenceDataRepositories() {
+        assertThat(postProcessor.postProcessAfterInitialization(createMock(PageLayoutRepository.class), "a"),
+                is(instanceOf(CachingPageLayoutRepository.class)));
+        assertThat(postProcessor.postProcessAfterInitialization(createMock(AuthorityRepository.class), "b"),
+                is(instanceOf(CachingAuthorityRepository.class)));
+        assertThat(postProcessor.postProcessAfterInitialization(createMock(CategoryRepository.class), "c"),
+                is(instanceOf(CachingCategoryRepository.class)));
+        assertThat(postProcessor.postProcessAfterInitialization(createMock(PortalPreferenceRepository.class), "d"),
+                is(instanceOf(CachingPortalPreferenceRepository.class)));
+        assertThat(postProcessor.getStatistics().size(), is(4));
+    }
+
+    @Test
+    public void wrapsWidgetRepositoryWithCategoryCache() {
+        postProcessor.postProcessAfterInitialization(createMock(CategoryRepository.class), "c");
+        assertThat(postProcessor.postProcessAfterInitialization(createMock(WidgetRepository.class), "w"),
+                is(instanceOf(CategoryCacheClearingWidgetRepository.class)));
+        assertThat(postProcessor.getStatistics().size(), is(1));
+    }
+
+    @Test
+    public void widgetSave_listedInCachedCategory() {
+        Widget widget = new WidgetImpl("2", "http://example.com/widget.xml");
+        Category before = new CategoryImpl("1");
+        before.setWidgets(new ArrayList<Widget>());
+        Category after = new CategoryImpl("1");
+        after.setWidgets(new ArrayList<Widget>(Arrays.asList(widget)));
+
+        CategoryRepository categoryDelegate = createMock(CategoryRepository.class);
+        expect(categoryDelegate.get("1")).andReturn(before).once();
+        expect(categoryDelegate.get("1")).andReturn(after).once();
+        WidgetRepository widgetDelegate = createNiceMock(WidgetRepository.class);
+        expect(widgetDelegate.save(widget)).andReturn(widget);
+        replay(categoryDelegate, widgetDelegate);
+
+        CategoryRepository categoryRepository =
+                (CategoryRepository) postProcessor.postProcessAfterInitialization(categoryDelegate, "categoryRepository");
+        WidgetRepository widgetRepository =
+                (WidgetRepository) postProcessor.postProcessAfterInitialization(widgetDelegate, "widgetRepository");
+        WidgetService widgetService = new DefaultWidgetService(widgetRepository, createMock(UserRepository.class),
+                categoryRepository);
+
+        assertThat(widgetService.getWidgetsByCategory("1", 0, 10).getTotalResults(), is(0));
+        // served from the cache
+        assertThat(widgetService.getWidgetsByCategory("1", 0, 10).getTotalResults(), is(0));
+
+        widgetService.updateWidget(widget);
+
+        assertThat(widgetService.getWidgetsByCategory("1", 0, 10).getResultSet().get(0), is(sameInstance(widget)));
+        verify(categoryDelegate, widgetDelegate);
+    }
+
+    @Test
+    public void leavesOtherBeans() {
+        TagRepository tagRepository = createMock(TagRepository.class);
+        assertThat(postProcessor.postProcessAfterInitialization(tagRepository, "tagRepository"),
+                is(sameInstance((Object) tagRepository)));
+    }
+
+    @Test
+    public void disabled() {
+        postProcessor.setEnabled(false);
+        PageLayoutRepository repository = createMock(PageLayoutRepository.class);
+        assertThat(postProcessor.postProcessAfterInitialization(repository, "pageLayoutRepository"),
+                is(sameInstance((Object) repository)));
+    }
+
+    @Test
+    public void earlyReference_wrappedOnce() {
+        PageLayoutRepository repository = createMock(PageLayoutRepository.class);
+
+        Object early = postProcessor.getEarlyBeanReference(repository, "pageLayoutRepository");
+
+        assertThat(early, is(instanceOf(CachingPageLayoutRepository.class)));
+        assertThat(postProcessor.postProcessAfterInitialization(repository, "pageLayoutRepository"),
+                is(sameInstance((Object) repository)));
+        assertThat(postProcessor.getStatistics().size(), is(1));
+    }
+}
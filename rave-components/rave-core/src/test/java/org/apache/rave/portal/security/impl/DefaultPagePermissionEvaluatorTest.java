@@ -21,7 +21,9 @@ package org.apache.rave.portal.security.impl;
 
 import org.apache.rave.model.Page;
 import org.apache.rave.model.PageType;
+import org.apache.rave.model.PageUser;
 import org.apache.rave.portal.model.impl.PageImpl;
+import org.apache.rave.portal.model.impl.PageUserImpl;
 import org.apache.rave.portal.model.impl.UserImpl;
 import org.apache.rave.portal.repository.PageRepository;
 import org.apache.rave.portal.security.ModelPermissionEvaluator.Permission;
@@ -67,7 +69,7 @@ public class DefaultPagePermissionEvaluatorTest {
         mockPageRepository = createMock(PageRepository.class);
         mockAuthentication = createMock(Authentication.class);
 
-        defaultPagePermissionEvaluator = new DefaultPagePermissionEvaluator(mockPageRepository, null);
+        defaultPagePermissionEvaluator = new DefaultPagePermissionEvaluator(mockPageRepository);
 
         user = new UserImpl();
         user.setUsername(VALID_USERNAME);
@@ -333,6 +335,63 @@ public class DefaultPagePermissionEvaluatorTest {
         verify(mockPageRepository);
     }
 
+    @Test
+    public void testHasPermission_4args_read_isPageMember() {
+        addMember(user2, false);
+        EasyMock.<Collection<? extends GrantedAuthority>>expect(mockAuthentication.getAuthorities()).andReturn(grantedAuthoritiesList);
+        expect(mockAuthentication.getPrincipal()).andReturn(user2).anyTimes();
+        expect(mockPageRepository.get(VALID_PAGE_ID)).andReturn(page);
+        replay(mockAuthentication);
+        replay(mockPageRepository);
+        assertThat(defaultPagePermissionEvaluator.hasPermission(mockAuthentication, VALID_PAGE_ID, Page.class.getName(), Permission.READ), is(true));
+        verify(mockAuthentication);
+        verify(mockPageRepository);
+    }
+
+    @Test
+    public void testHasPermission_4args_update_isPageMember_notEditor() {
+        addMember(user2, false);
+        EasyMock.<Collection<? extends GrantedAuthority>>expect(mockAuthentication.getAuthorities()).andReturn(grantedAuthoritiesList);
+        expect(mockAuthentication.getPrincipal()).andReturn(user2).anyTimes();
+        expect(mockPageRepository.get(VALID_PAGE_ID)).andReturn(page);
+        replay(mockAuthentication);
+        replay(mockPageRepository);
+        assertThat(defaultPagePermissionEvaluator.hasPermission(mockAuthentication, VALID_PAGE_ID, Page.class.getName(), Permission.UPDATE), is(false));
+        verify(mockAuthentication);
+        verify(mockPageRepository);
+    }
+
+    @Test
+    public void testHasPermission_4args_update_isPageMember_editor() {
+        addMember(user2, true);
+        EasyMock.<Collection<? extends GrantedAuthority>>expect(mockAuthentication.getAuthorities()).andReturn(grantedAuthoritiesList);
+        expect(mockAuthentication.getPrincipal()).andReturn(user2).anyTimes();
+        expect(mockPageRepository.get(VALID_PAGE_ID)).andReturn(page);
+        replay(mockAuthentication);
+        replay(mockPageRepository);
+        assertThat(defaultPagePermissionEvaluator.hasPermission(mockAuthentication, VALID_PAGE_ID, Page.class.getName(), Permission.UPDATE), is(true));
+        verify(mockAuthentication);
+        verify(mockPageRepository);
+    }
+
+    @Test
+    public void testHasPermission_3args_read_trustedPageLoadedOncePerRequest() {
+        MapRequestAttributes.bind();
+        try {
+            EasyMock.<Collection<? extends GrantedAuthority>>expect(mockAuthentication.getAuthorities()).andReturn(grantedAuthoritiesList).times(2);
+            expect(mockAuthentication.getPrincipal()).andReturn(user).anyTimes();
+            expect(mockPageRepository.get(VALID_PAGE_ID)).andReturn(page).once();
+            replay(mockAuthentication);
+            replay(mockPageRepository);
+            assertThat(defaultPagePermissionEvaluator.hasPermission(mockAuthentication, page, Permission.READ), is(true));
+            assertThat(defaultPagePermissionEvaluator.hasPermission(mockAuthentication, page, Permission.UPDATE), is(true));
+            verify(mockAuthentication);
+            verify(mockPageRepository);
+        } finally {
+            MapRequestAttributes.unbind();
+        }
+    }
+
     @Test
     public void testHasPermission_4args_read_isPageOwner_userSubPage() {
         EasyMock.<Collection<? extends GrantedAuthority>>expect(mockAuthentication.getAuthorities()).andReturn(grantedAuthoritiesList);
@@ -444,4 +503,12 @@ public class DefaultPagePermissionEvaluatorTest {
         defaultPagePermissionEvaluator.hasPermission(mockAuthentication, raveSecurityContext, Page.class.getName(), Permission.UPDATE);
         verify(mockAuthentication);
     }
+
+    private void addMember(UserImpl member, boolean editor) {
+        PageUser pageUser = new PageUserImpl(member.getId(), page);
+        pageUser.setEditor(editor);
+        List<PageUser> members = new ArrayList<PageUser>();
+        members.add(pageUser);
+        page.setMembers(members);
+    }
 }
@@ -60,7 +60,7 @@ public class DefaultRegionPermissionEvaluatorTest {
     @Before
     public void setUp() {
         mockRegionRepository = createMock(RegionRepository.class);
-        defaultRegionPermissionEvaluator = new DefaultRegionPermissionEvaluator(mockRegionRepository, null);
+        defaultRegionPermissionEvaluator = new DefaultRegionPermissionEvaluator(mockRegionRepository);
         mockAuthentication = createMock(Authentication.class);
 
         user = new UserImpl();
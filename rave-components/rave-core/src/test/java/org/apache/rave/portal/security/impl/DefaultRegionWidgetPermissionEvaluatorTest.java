@@ -64,7 +64,7 @@ public class DefaultRegionWidgetPermissionEvaluatorTest {
     @Before
     public void setUp() {
         mockRegionWidgetRepository = createMock(RegionWidgetRepository.class);
-        defaultRegionWidgetPermissionEvaluator = new DefaultRegionWidgetPermissionEvaluator(mockRegionWidgetRepository, null);
+        defaultRegionWidgetPermissionEvaluator = new DefaultRegionWidgetPermissionEvaluator(mockRegionWidgetRepository);
         mockAuthentication = createMock(Authentication.class);
 
         user = new UserImpl();
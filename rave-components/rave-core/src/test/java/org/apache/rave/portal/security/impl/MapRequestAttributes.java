@@ -0,0 +1,80 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.rave.portal.security.impl;
+
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Request attributes backed by a map, used to run permission checks as if handling a request
+ */
+class MapRequestAttributes implements RequestAttributes {
+    private final Map<String, Object> attributes = new HashMap<String, Object>();
+
+    static void bind() {
+        RequestContextHolder.setRequestAttributes(new MapRequestAttributes());
+    }
+
+    static void unbind() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Override
+    public Object getAttribute(String name, int scope) {
+        return attributes.get(name);
+    }
+
+    @Override
+    public void setAttribute(String name, Object value, int scope) {
+        attributes.put(name, value);
+    }
+
+    @Override
+    public void removeAttribute(String name, int scope) {
+        attributes.remove(name);
+    }
+
+    @Override
+    public String[] getAttributeNames(int scope) {
+        return attributes.keySet().toArray(new String[attributes.size()]);
+    }
+
+    @Override
+    public void registerDestructionCallback(String name, Runnable callback, int scope) {
+    }
+
+    @Override
+    public Object resolveReference(String key) {
+        return null;
+    }
+
+    @Override
+    public String getSessionId() {
+        return "session";
+    }
+
+    @Override
+    public Object getSessionMutex() {
+        return this;
+    }
+}
@@ -126,6 +126,47 @@ public class RavePermissionEvaluatorTest {
         assertThat(ravePermissionEvaluator.hasPermission(authentication, VALID_BASIC_ENTITY_MODEL_ID, "badclass", READ_PERMISSION), is(true));
     }
 
+    @Test
+    public void testHasPermission_4args_decisionCachedForRequest() {
+        @SuppressWarnings("unchecked")
+        ModelPermissionEvaluator<BasicEntityModel> mockedPermissionEvaluator = createMock(ModelPermissionEvaluator.class);
+        expect(mockedPermissionEvaluator.getType()).andReturn(BasicEntityModel.class);
+        expect(mockedPermissionEvaluator.getLoadOrder()).andReturn(1).anyTimes();
+        expect(mockedPermissionEvaluator.hasPermission(authentication, VALID_BASIC_ENTITY_MODEL_ID, BasicEntityModel.class.getName(), Permission.READ)).andReturn(true).once();
+        replay(mockedPermissionEvaluator);
+        List<ModelPermissionEvaluator<?>> modelPermissionEvaluatorList = new ArrayList<ModelPermissionEvaluator<?>>();
+        modelPermissionEvaluatorList.add(mockedPermissionEvaluator);
+        ravePermissionEvaluator = new RavePermissionEvaluator(modelPermissionEvaluatorList);
+        expect(authentication.getName()).andReturn("canonical").anyTimes();
+        replay(authentication);
+
+        MapRequestAttributes.bind();
+        try {
+            assertThat(ravePermissionEvaluator.hasPermission(authentication, VALID_BASIC_ENTITY_MODEL_ID, BasicEntityModel.class.getName(), READ_PERMISSION), is(true));
+            assertThat(ravePermissionEvaluator.hasPermission(authentication, VALID_BASIC_ENTITY_MODEL_ID, BasicEntityModel.class.getName(), READ_PERMISSION), is(true));
+        } finally {
+            MapRequestAttributes.unbind();
+        }
+        verify(mockedPermissionEvaluator);
+    }
+
+    @Test
+    public void testHasPermission_4args_noRequest_notCached() {
+        @SuppressWarnings("unchecked")
+        ModelPermissionEvaluator<BasicEntityModel> mockedPermissionEvaluator = createMock(ModelPermissionEvaluator.class);
+        expect(mockedPermissionEvaluator.getType()).andReturn(BasicEntityModel.class);
+        expect(mockedPermissionEvaluator.getLoadOrder()).andReturn(1).anyTimes();
+        expect(mockedPermissionEvaluator.hasPermission(authentication, VALID_BASIC_ENTITY_MODEL_ID, BasicEntityModel.class.getName(), Permission.READ)).andReturn(true).times(2);
+        replay(mockedPermissionEvaluator);
+        List<ModelPermissionEvaluator<?>> modelPermissionEvaluatorList = new ArrayList<ModelPermissionEvaluator<?>>();
+        modelPermissionEvaluatorList.add(mockedPermissionEvaluator);
+        ravePermissionEvaluator = new RavePermissionEvaluator(modelPermissionEvaluatorList);
+
+        ravePermissionEvaluator.hasPermission(authentication, VALID_BASIC_ENTITY_MODEL_ID, BasicEntityModel.class.getName(), READ_PERMISSION);
+        ravePermissionEvaluator.hasPermission(authentication, VALID_BASIC_ENTITY_MODEL_ID, BasicEntityModel.class.getName(), READ_PERMISSION);
+        verify(mockedPermissionEvaluator);
+    }
+
     @Test
     public void testFindAndRegisterCompatibleMPE() {
         assertThat(ravePermissionEvaluator.hasPermission(authentication, new TestModelImpl(), READ_PERMISSION), is(true));
@@ -21,11 +21,14 @@ package org.apache.rave.portal.service.impl;
 
 import org.apache.rave.model.Category;
 import org.apache.rave.model.User;
+import org.apache.rave.model.Widget;
 import org.apache.rave.portal.model.impl.CategoryImpl;
 import org.apache.rave.portal.model.impl.UserImpl;
+import org.apache.rave.portal.model.impl.WidgetImpl;
 import org.apache.rave.rest.model.SearchResult;
 import org.apache.rave.portal.repository.CategoryRepository;
 import org.apache.rave.portal.service.CategoryService;
+import org.apache.rave.portal.service.WidgetSearchIndex;
 import org.apache.rave.portal.service.impl.mock.MockCategoryRepository;
 import org.junit.Before;
 import org.junit.Test;
@@ -196,4 +199,23 @@ public class DefaultCategoryServiceTest {
         service.delete(validCategory);
         verify(repository);
     }
+
+    @Test
+    public void delete_rebuildsSearchIndex() {
+        WidgetSearchIndex searchIndex = createMock(WidgetSearchIndex.class);
+        ((DefaultCategoryService) service).setWidgetSearchIndex(searchIndex);
+        List<Widget> widgets = new ArrayList<Widget>();
+        widgets.add(new WidgetImpl("1"));
+        validCategory.setWidgets(widgets);
+
+        expect(searchIndex.isEnabled()).andReturn(true).anyTimes();
+        searchIndex.rebuild();
+        expectLastCall();
+        expect(repository.get(validCategory.getId())).andReturn(validCategory);
+        repository.delete(validCategory);
+        expectLastCall();
+        replay(repository, searchIndex);
+        service.delete(validCategory);
+        verify(repository, searchIndex);
+    }
 }
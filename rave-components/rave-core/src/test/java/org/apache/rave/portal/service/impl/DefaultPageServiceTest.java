@@ -37,6 +37,7 @@ import org.apache.rave.portal.model.impl.RegionImpl;
 import org.apache.rave.portal.model.impl.RegionWidgetImpl;
 import org.apache.rave.portal.model.impl.UserImpl;
 import org.apache.rave.portal.model.impl.WidgetImpl;
+import org.apache.rave.portal.model.util.PageNavigationItem;
 import org.apache.rave.rest.model.SearchResult;
 import org.apache.rave.portal.repository.PageLayoutRepository;
 import org.apache.rave.portal.repository.PageRepository;
@@ -211,6 +212,18 @@ public class DefaultPageServiceTest {
         verify(pageRepository);
     }
 
+    @Test
+    public void getUserPageNavigation() {
+        final List<PageNavigationItem> VALID_NAVIGATION = new ArrayList<PageNavigationItem>();
+
+        expect(pageRepository.getNavigationForUserType(VALID_USER_ID, PageType.USER.toString())).andReturn(VALID_NAVIGATION);
+        replay(pageRepository);
+
+        assertThat(pageService.getUserPageNavigation(VALID_USER_ID), sameInstance(VALID_NAVIGATION));
+
+        verify(pageRepository);
+    }
+
 
     @Test
     public void getAllPersonProfilePages_userHasPersonPage() {
@@ -0,0 +1,284 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.rave.portal.service.impl;
+
+import org.apache.rave.model.Category;
+import org.apache.rave.model.Widget;
+import org.apache.rave.model.WidgetStatus;
+import org.apache.rave.model.WidgetTag;
+import org.apache.rave.portal.model.impl.CategoryImpl;
+import org.apache.rave.portal.model.impl.WidgetImpl;
+import org.apache.rave.portal.model.impl.WidgetTagImpl;
+import org.apache.rave.portal.model.util.WidgetSearchHits;
+import org.apache.rave.portal.model.util.WidgetSearchQuery;
+import org.apache.rave.portal.repository.WidgetRepository;
+import org.easymock.IAnswer;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import static org.easymock.EasyMock.*;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Test for {@link DefaultWidgetSearchIndex}
+ */
+public class DefaultWidgetSearchIndexTest {
+    private static final int PAGE_SIZE = 10;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private WidgetRepository widgetRepository;
+    private DefaultWidgetSearchIndex index;
+
+    @Before
+    public void setup() {
+        widgetRepository = createMock(WidgetRepository.class);
+        index = new DefaultWidgetSearchIndex(widgetRepository, true, folder.getRoot().getAbsolutePath());
+    }
+
+    @Test
+    public void search_titleRanksAboveDescription() {
+        index.index(getWidget("1", "Weather", "Shows the news", WidgetStatus.PUBLISHED, "OpenSocial"));
+        index.index(getWidget("2", "News reader", "Reads the news feeds", WidgetStatus.PUBLISHED, "OpenSocial"));
+        index.index(getWidget("3", "Calendar", "Shows appointments", WidgetStatus.PUBLISHED, "OpenSocial"));
+
+        WidgetSearchHits hits = index.search(new WidgetSearchQuery("news", 0, PAGE_SIZE));
+
+        assertThat(hits.getWidgetIds(), is(equalTo(Arrays.asList("2", "1"))));
+        assertThat(hits.getTotalCount(), is(2));
+    }
+
+    @Test
+    public void search_allWordsByPrefix() {
+        index.index(getWidget("1", "Weather forecast", "Local weather", WidgetStatus.PUBLISHED, "OpenSocial"));
+        index.index(getWidget("2", "Weather map", "Radar", WidgetStatus.PUBLISHED, "OpenSocial"));
+
+        assertThat(index.search(new WidgetSearchQuery("WEATH fore", 0, PAGE_SIZE)).getWidgetIds(), is(equalTo(Arrays.asList("1"))));
+        assertThat(index.search(new WidgetSearchQuery("weather", 0, PAGE_SIZE)).getTotalCount(), is(2));
+        assertThat(index.search(new WidgetSearchQuery("eather", 0, PAGE_SIZE)).getTotalCount(), is(0));
+    }
+
+    @Test
+    public void search_specialCharactersAreLiteral() {
+        index.index(getWidget("1", "C++ (beta)", "Compiler", WidgetStatus.PUBLISHED, "OpenSocial"));
+
+        assertThat(index.search(new WidgetSearchQuery("c++ (beta", 0, PAGE_SIZE)).getWidgetIds(), is(equalTo(Arrays.asList("1"))));
+        assertThat(index.search(new WidgetSearchQuery(".*", 0, PAGE_SIZE)).getTotalCount(), is(0));
+    }
+
+    @Test
+    public void search_onlySeparatorsMatchesNothing() {
+        index.index(getWidget("1", "News", "", WidgetStatus.PUBLISHED, "OpenSocial"));
+
+        WidgetSearchHits hits = index.search(new WidgetSearchQuery("?!", 0, PAGE_SIZE));
+        assertThat(hits.getTotalCount(), is(0));
+        assertThat(hits.getWidgetIds().isEmpty(), is(true));
+        // without a search term the filters alone still list every widget
+        assertThat(index.search(new WidgetSearchQuery(null, 0, PAGE_SIZE)).getTotalCount(), is(1));
+    }
+
+    @Test
+    public void search_filtersAndFacets() {
+        Widget tagged = getWidget("1", "News", "", WidgetStatus.PUBLISHED, "OpenSocial");
+        tagged.setTags(Arrays.<WidgetTag>asList(new WidgetTagImpl("user", new Date(), "tag1")));
+        tagged.setCategories(Arrays.<Category>asList(new CategoryImpl("category1")));
+        index.index(tagged);
+        index.index(getWidget("2", "News", "", WidgetStatus.PREVIEW, "OpenSocial"));
+        index.index(getWidget("3", "News", "", WidgetStatus.PUBLISHED, "W3C"));
+
+        WidgetSearchQuery query = new WidgetSearchQuery("news", 0, PAGE_SIZE);
+        WidgetSearchHits all = index.search(query);
+        assertThat(all.getTotalCount(), is(3));
+        assertThat(all.getFacets().get(WidgetSearchHits.FACET_STATUS).get("published"), is(2));
+        assertThat(all.getFacets().get(WidgetSearchHits.FACET_TYPE).get("W3C"), is(1));
+        assertThat(all.getFacets().get(WidgetSearchHits.FACET_TAG).get("tag1"), is(1));
+        assertThat(all.getFacets().get(WidgetSearchHits.FACET_CATEGORY).get("category1"), is(1));
+
+        query.setStatus(WidgetStatus.PUBLISHED);
+        query.setType("OpenSocial");
+        assertThat(index.search(query).getWidgetIds(), is(equalTo(Arrays.asList("1"))));
+
+        query = new WidgetSearchQuery("news", 0, PAGE_SIZE);
+        query.getTagIds().add("tag1");
+        query.getCategoryIds().add("category1");
+        assertThat(index.search(query).getWidgetIds(), is(equalTo(Arrays.asList("1"))));
+    }
+
+    @Test
+    public void search_page() {
+        for (int i = 0; i < 5; i++) {
+            index.index(getWidget(String.valueOf(i), "News " + i, "", WidgetStatus.PUBLISHED, "OpenSocial"));
+        }
+
+        WidgetSearchHits hits = index.search(new WidgetSearchQuery("news", 2, 2));
+        assertThat(hits.getWidgetIds(), is(equalTo(Arrays.asList("2", "3"))));
+        assertThat(hits.getTotalCount(), is(5));
+    }
+
+    @Test
+    public void index_replacesPreviousVersion() {
+        index.index(getWidget("1", "News", "", WidgetStatus.PUBLISHED, "OpenSocial"));
+        index.index(getWidget("1", "Weather", "", WidgetStatus.PUBLISHED, "OpenSocial"));
+
+        assertThat(index.search(new WidgetSearchQuery("news", 0, PAGE_SIZE)).getTotalCount(), is(0));
+        assertThat(index.search(new WidgetSearchQuery("weather", 0, PAGE_SIZE)).getTotalCount(), is(1));
+    }
+
+    @Test
+    public void remove() {
+        index.index(getWidget("1", "News", "", WidgetStatus.PUBLISHED, "OpenSocial"));
+        index.remove("1");
+
+        assertThat(index.search(new WidgetSearchQuery("news", 0, PAGE_SIZE)).getTotalCount(), is(0));
+    }
+
+    @Test
+    public void init_rebuildsFromRepository() {
+        List<Widget> widgets = new ArrayList<Widget>();
+        for (int i = 0; i < 100; i++) {
+            widgets.add(getWidget(String.valueOf(i), "News " + i, "", WidgetStatus.PUBLISHED, "OpenSocial"));
+        }
+        expect(widgetRepository.getLimitedList(0, 100)).andReturn(widgets);
+        expect(widgetRepository.getLimitedList(100, 100)).andReturn(Arrays.<Widget>asList(getWidget("100", "Weather", "", WidgetStatus.PUBLISHED, "OpenSocial")));
+        replay(widgetRepository);
+
+        index.init();
+
+        assertThat(index.search(new WidgetSearchQuery("news", 0, PAGE_SIZE)).getTotalCount(), is(100));
+        assertThat(index.search(new WidgetSearchQuery("weather", 0, PAGE_SIZE)).getTotalCount(), is(1));
+        verify(widgetRepository);
+    }
+
+    @Test
+    public void rebuild_keepsChangesMadeWhileReading() {
+        index.index(getWidget("2", "Weather", "", WidgetStatus.PUBLISHED, "OpenSocial"));
+        expect(widgetRepository.getLimitedList(0, 100)).andAnswer(new IAnswer<List<Widget>>() {
+            @Override
+            public List<Widget> answer() {
+                // committed after the page was read
+                index.index(getWidget("1", "News updated", "", WidgetStatus.PUBLISHED, "OpenSocial"));
+                index.index(getWidget("3", "Calendar", "", WidgetStatus.PUBLISHED, "OpenSocial"));
+                index.remove("2");
+                return Arrays.<Widget>asList(getWidget("1", "News", "", WidgetStatus.PUBLISHED, "OpenSocial"),
+                        getWidget("2", "Weather", "", WidgetStatus.PUBLISHED, "OpenSocial"));
+            }
+        });
+        replay(widgetRepository);
+
+        index.rebuild();
+
+        assertThat(index.search(new WidgetSearchQuery("updated", 0, PAGE_SIZE)).getWidgetIds(), is(equalTo(Arrays.asList("1"))));
+        assertThat(index.search(new WidgetSearchQuery("calendar", 0, PAGE_SIZE)).getTotalCount(), is(1));
+        assertThat(index.search(new WidgetSearchQuery("weather", 0, PAGE_SIZE)).getTotalCount(), is(0));
+        verify(widgetRepository);
+
+        // the changes are only replayed once
+        reset(widgetRepository);
+        expect(widgetRepository.getLimitedList(0, 100)).andReturn(Arrays.<Widget>asList(
+                getWidget("2", "Weather", "", WidgetStatus.PUBLISHED, "OpenSocial")));
+        replay(widgetRepository);
+        index.rebuild();
+        assertThat(index.search(new WidgetSearchQuery("weather", 0, PAGE_SIZE)).getTotalCount(), is(1));
+        assertThat(index.search(new WidgetSearchQuery("calendar", 0, PAGE_SIZE)).getTotalCount(), is(0));
+    }
+
+    @Test
+    public void init_loadsSavedIndex() {
+        index.index(getWidget("1", "News", "", WidgetStatus.PUBLISHED, "OpenSocial"));
+        index.destroy();
+        replay(widgetRepository);
+
+        DefaultWidgetSearchIndex restarted = new DefaultWidgetSearchIndex(widgetRepository, true, folder.getRoot().getAbsolutePath());
+        restarted.init();
+
+        assertThat(restarted.search(new WidgetSearchQuery("news", 0, PAGE_SIZE)).getWidgetIds(), is(equalTo(Arrays.asList("1"))));
+        verify(widgetRepository);
+    }
+
+    @Test
+    public void init_rebuildsSnapshotOfOtherFormat() throws IOException {
+        DataOutputStream out = new DataOutputStream(new FileOutputStream(new File(folder.getRoot(), "widgets.idx")));
+        try {
+            out.writeUTF("rave-widget-search");
+            out.writeInt(0);
+        } finally {
+            out.close();
+        }
+        expect(widgetRepository.getLimitedList(0, 100)).andReturn(Arrays.<Widget>asList(getWidget("1", "News", "", WidgetStatus.PUBLISHED, "OpenSocial")));
+        replay(widgetRepository);
+
+        index.init();
+
+        assertThat(index.search(new WidgetSearchQuery("news", 0, PAGE_SIZE)).getTotalCount(), is(1));
+        verify(widgetRepository);
+    }
+
+    @Test
+    public void init_withoutDirectoryRebuildsInMemory() {
+        DefaultWidgetSearchIndex inMemory = new DefaultWidgetSearchIndex(widgetRepository, true, "");
+        expect(widgetRepository.getLimitedList(0, 100)).andReturn(Arrays.<Widget>asList(getWidget("1", "News", "", WidgetStatus.PUBLISHED, "OpenSocial")));
+        replay(widgetRepository);
+
+        inMemory.init();
+        inMemory.index(getWidget("2", "Weather", "", WidgetStatus.PUBLISHED, "OpenSocial"));
+        inMemory.destroy();
+
+        assertThat(inMemory.search(new WidgetSearchQuery("news", 0, PAGE_SIZE)).getTotalCount(), is(1));
+        assertThat(inMemory.search(new WidgetSearchQuery("weather", 0, PAGE_SIZE)).getTotalCount(), is(1));
+        assertThat(folder.getRoot().list().length, is(0));
+        verify(widgetRepository);
+    }
+
+    @Test
+    public void disabled() {
+        DefaultWidgetSearchIndex disabled = new DefaultWidgetSearchIndex(widgetRepository, false, folder.getRoot().getAbsolutePath());
+        replay(widgetRepository);
+
+        disabled.init();
+        disabled.index(getWidget("1", "News", "", WidgetStatus.PUBLISHED, "OpenSocial"));
+
+        assertThat(disabled.isEnabled(), is(false));
+        assertThat(folder.getRoot().list().length, is(0));
+        verify(widgetRepository);
+    }
+
+    private static Widget getWidget(String id, String title, String description, WidgetStatus status, String type) {
+        WidgetImpl widget = new WidgetImpl(id);
+        widget.setTitle(title);
+        widget.setDescription(description);
+        widget.setWidgetStatus(status);
+        widget.setType(type);
+        return widget;
+    }
+}
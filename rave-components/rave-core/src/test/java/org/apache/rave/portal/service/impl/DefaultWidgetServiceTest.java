@@ -23,15 +23,23 @@ import org.apache.rave.exception.DuplicateItemException;
 import org.apache.rave.model.*;
 import org.apache.rave.portal.model.impl.*;
 import org.apache.rave.rest.model.SearchResult;
+import org.apache.rave.portal.model.util.WidgetSearchHits;
+import org.apache.rave.portal.model.util.WidgetSearchQuery;
 import org.apache.rave.portal.model.util.WidgetStatistics;
 import org.apache.rave.portal.repository.CategoryRepository;
 import org.apache.rave.portal.repository.UserRepository;
+import org.apache.rave.portal.repository.WidgetFetchPlan;
 import org.apache.rave.portal.repository.WidgetRepository;
+import org.apache.rave.portal.service.WidgetSearchIndex;
 import org.apache.rave.portal.service.WidgetService;
+import org.easymock.Capture;
 import org.junit.Before;
 import org.junit.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
@@ -121,6 +129,50 @@ public class DefaultWidgetServiceTest {
         verify(widgetRepository);
     }
 
+    @Test
+    public void getWidget_fetchPlan() {
+        Widget w = new WidgetImpl();
+        expect(widgetRepository.get("1", WidgetFetchPlan.LISTING)).andReturn(w);
+        replay(widgetRepository);
+
+        Widget result = widgetService.getWidget("1", WidgetFetchPlan.LISTING);
+        assertThat(result, is(sameInstance(w)));
+        verify(widgetRepository);
+    }
+
+    @Test
+    public void getWidgets() {
+        Widget w1 = new WidgetImpl("1");
+        Widget w2 = new WidgetImpl("2");
+        List<String> ids = Arrays.asList("1", "2");
+        expect(widgetRepository.getByIds(ids)).andReturn(Arrays.asList(w1, w2));
+        replay(widgetRepository);
+
+        List<Widget> result = widgetService.getWidgets(ids);
+        assertThat(result.size(), is(equalTo(2)));
+        assertThat(result.get(0), is(sameInstance(w1)));
+        assertThat(result.get(1), is(sameInstance(w2)));
+        verify(widgetRepository);
+    }
+
+    @Test
+    public void getWidgetComments() {
+        List<WidgetComment> comments = new ArrayList<WidgetComment>();
+        comments.add(new WidgetCommentImpl("3"));
+        final int offset = 10;
+        final int pageSize = 10;
+        expect(widgetRepository.getCountCommentsByWidgetId("1")).andReturn(11);
+        expect(widgetRepository.getCommentsByWidgetId("1", offset, pageSize)).andReturn(comments);
+        replay(widgetRepository);
+
+        SearchResult<WidgetComment> result = widgetService.getWidgetComments("1", offset, pageSize);
+        assertSame(comments, result.getResultSet());
+        assertEquals(11, result.getTotalResults());
+        assertEquals(offset, result.getOffset());
+        assertEquals(pageSize, result.getPageSize());
+        verify(widgetRepository);
+    }
+
     @Test
     public void getWidgetsForSearchTerm() {
         final String searchTerm = "gAdGet";
@@ -195,6 +247,75 @@ public class DefaultWidgetServiceTest {
         verify(widgetRepository);
     }
 
+    @Test
+    public void getWidgetsBySearchCriteria_searchIndex() {
+        WidgetSearchIndex searchIndex = createMock(WidgetSearchIndex.class);
+        ((DefaultWidgetService) widgetService).setWidgetSearchIndex(searchIndex);
+        WidgetImpl first = new WidgetImpl("1");
+        WidgetImpl second = new WidgetImpl("2");
+        Capture<WidgetSearchQuery> query = new Capture<WidgetSearchQuery>();
+
+        expect(searchIndex.isEnabled()).andReturn(true).anyTimes();
+        expect(searchIndex.search(capture(query))).andReturn(new WidgetSearchHits(Arrays.asList("2", "1"), 12));
+        expect(widgetRepository.getByIds(Arrays.asList("2", "1"))).andReturn(Arrays.<Widget>asList(first, second));
+        replay(searchIndex, widgetRepository);
+
+        SearchResult<Widget> result = widgetService.getWidgetsBySearchCriteria("gadget", "OpenSocial",
+                WidgetStatus.PUBLISHED.toString(), 0, 2);
+        assertThat(result.getResultSet(), is(equalTo(Arrays.<Widget>asList(second, first))));
+        assertThat(result.getTotalResults(), is(12));
+        assertThat(query.getValue().getSearchTerm(), is("gadget"));
+        assertThat(query.getValue().getType(), is("OpenSocial"));
+        assertThat(query.getValue().getStatus(), is(WidgetStatus.PUBLISHED));
+        assertThat(query.getValue().getPageSize(), is(2));
+        verify(searchIndex, widgetRepository);
+    }
+
+    @Test
+    public void updateWidget_searchIndex() {
+        WidgetSearchIndex searchIndex = createMock(WidgetSearchIndex.class);
+        ((DefaultWidgetService) widgetService).setWidgetSearchIndex(searchIndex);
+        WidgetImpl widget = new WidgetImpl("1");
+
+        expect(searchIndex.isEnabled()).andReturn(true).anyTimes();
+        expect(widgetRepository.save(widget)).andReturn(widget);
+        searchIndex.index(widget);
+        expectLastCall();
+        replay(searchIndex, widgetRepository);
+
+        widgetService.updateWidget(widget);
+        verify(searchIndex, widgetRepository);
+    }
+
+    @Test
+    public void updateWidget_searchIndexAfterCommit() {
+        WidgetSearchIndex searchIndex = createMock(WidgetSearchIndex.class);
+        ((DefaultWidgetService) widgetService).setWidgetSearchIndex(searchIndex);
+        WidgetImpl widget = new WidgetImpl("1");
+
+        expect(searchIndex.isEnabled()).andReturn(true).anyTimes();
+        expect(widgetRepository.save(widget)).andReturn(widget);
+        replay(searchIndex, widgetRepository);
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            widgetService.updateWidget(widget);
+            verify(searchIndex, widgetRepository);
+
+            reset(searchIndex);
+            expect(searchIndex.isEnabled()).andReturn(true).anyTimes();
+            searchIndex.index(widget);
+            expectLastCall();
+            replay(searchIndex);
+            for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+                synchronization.afterCommit();
+            }
+            verify(searchIndex);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
     @Test
     public void getWidgetsByOwner() {
         final int offset = 0;
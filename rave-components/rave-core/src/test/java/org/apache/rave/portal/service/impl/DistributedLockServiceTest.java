@@ -0,0 +1,234 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.rave.portal.service.impl;
+
+import org.apache.rave.exception.DuplicateItemException;
+import org.apache.rave.portal.repository.LockLeaseRepository;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Lock;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class DistributedLockServiceTest {
+    private InMemoryLockLeaseRepository repository;
+    private DistributedLockService first;
+    private DistributedLockService second;
+
+    @Before
+    public void setup() {
+        repository = new InMemoryLockLeaseRepository();
+        first = createNode("first");
+        second = createNode("second");
+    }
+
+    @After
+    public void teardown() {
+        first.destroy();
+        second.destroy();
+    }
+
+    @Test
+    public void lockAcquiresLease() {
+        DistributedLockService.DistributedLock lock = (DistributedLockService.DistributedLock) first.borrowLock("A", "1");
+        lock.lock();
+        try {
+            assertThat(lock.getKey(), is("A-1"));
+            assertThat(lock.getFencingToken(), is(1L));
+            assertThat(lock.isLeaseValid(), is(true));
+            assertThat(repository.owner("A-1"), is("first"));
+        } finally {
+            lock.unlock();
+            first.returnLock(lock);
+        }
+        assertThat(repository.releases, is(1));
+    }
+
+    @Test
+    public void otherNodeCannotLockWhileHeld() throws InterruptedException {
+        Lock lock = first.borrowLock("B");
+        lock.lock();
+        Lock contender = second.borrowLock("B");
+        try {
+            assertThat(contender.tryLock(), is(false));
+        } finally {
+            lock.unlock();
+            first.returnLock(lock);
+        }
+        assertThat(contender.tryLock(1, TimeUnit.SECONDS), is(true));
+        contender.unlock();
+        second.returnLock(contender);
+    }
+
+    @Test
+    public void fencingTokenIncreasesAcrossNodes() {
+        DistributedLockService.DistributedLock lock = (DistributedLockService.DistributedLock) first.borrowLock("C");
+        lock.lock();
+        long firstToken = lock.getFencingToken();
+        lock.unlock();
+        first.returnLock(lock);
+
+        DistributedLockService.DistributedLock other = (DistributedLockService.DistributedLock) second.borrowLock("C");
+        other.lock();
+        try {
+            assertThat(other.getFencingToken() > firstToken, is(true));
+        } finally {
+            other.unlock();
+            second.returnLock(other);
+        }
+    }
+
+    @Test
+    public void reentrantLockingDoesNotReacquireLease() {
+        Lock lock = first.borrowLock("D");
+        lock.lock();
+        lock.lock();
+        lock.unlock();
+        assertThat(repository.releases, is(0));
+        lock.unlock();
+        first.returnLock(lock);
+        assertThat(repository.acquires, is(1));
+        assertThat(repository.releases, is(1));
+    }
+
+    @Test
+    public void interruptedLockKeepsWaitingAtRetryInterval() throws InterruptedException {
+        Lock held = first.borrowLock("F");
+        held.lock();
+        final Lock contender = second.borrowLock("F");
+        final AtomicBoolean interruptedAfterLock = new AtomicBoolean();
+        Thread waiter = new Thread() {
+            @Override
+            public void run() {
+                interrupt();
+                contender.lock();
+                interruptedAfterLock.set(isInterrupted());
+                contender.unlock();
+            }
+        };
+        int attemptsBefore = repository.attempts;
+        waiter.start();
+        Thread.sleep(200);
+        //with a 5 ms retry interval roughly 40 attempts fit into 200 ms, a spinning waiter makes thousands
+        assertThat(repository.attempts - attemptsBefore < 100, is(true));
+
+        held.unlock();
+        first.returnLock(held);
+        waiter.join(5000);
+        assertThat(waiter.isAlive(), is(false));
+        assertThat(interruptedAfterLock.get(), is(true));
+        second.returnLock(contender);
+    }
+
+    @Test
+    public void concurrentFirstGrantIsRetried() {
+        repository.failure = new DuplicateItemException("granted concurrently");
+        Lock lock = first.borrowLock("G");
+        lock.lock();
+        lock.unlock();
+        first.returnLock(lock);
+        assertThat(repository.acquires, is(1));
+    }
+
+    @Test
+    public void repositoryFailurePropagates() {
+        repository.failure = new IllegalStateException("database unavailable");
+        Lock lock = first.borrowLock("H");
+        try {
+            lock.lock();
+            throw new AssertionError("lock should have failed");
+        } catch (IllegalStateException e) {
+            assertThat(e.getMessage(), is("database unavailable"));
+        }
+        //the local lock was given up again
+        assertThat(lock.tryLock(), is(true));
+        lock.unlock();
+        first.returnLock(lock);
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void newCondition() {
+        first.borrowLock("E").newCondition();
+    }
+
+    private DistributedLockService createNode(String nodeId) {
+        DistributedLockService service = new DistributedLockService(repository, nodeId);
+        service.setLeaseMillis(1000);
+        service.setRetryMillis(5);
+        service.init();
+        return service;
+    }
+
+    private static class InMemoryLockLeaseRepository implements LockLeaseRepository {
+        private final Map<String, Object[]> leases = new HashMap<String, Object[]>();
+        private int attempts;
+        private int acquires;
+        private int releases;
+        private RuntimeException failure;
+
+        @Override
+        public synchronized Long tryAcquire(String key, String owner, long now, long leaseMillis) {
+            attempts++;
+            if (failure != null) {
+                RuntimeException thrown = failure;
+                failure = null;
+                throw thrown;
+            }
+            Object[] lease = leases.get(key);
+            if (lease != null && (Long) lease[2] >= now && !owner.equals(lease[0])) {
+                return null;
+            }
+            long token = lease == null ? 1L : (Long) lease[1] + 1;
+            leases.put(key, new Object[]{owner, token, now + leaseMillis});
+            acquires++;
+            return token;
+        }
+
+        @Override
+        public synchronized boolean renew(String key, String owner, long fencingToken, long now, long leaseMillis) {
+            Object[] lease = leases.get(key);
+            if (lease == null || !owner.equals(lease[0]) || (Long) lease[1] != fencingToken || (Long) lease[2] < now) {
+                return false;
+            }
+            lease[2] = now + leaseMillis;
+            return true;
+        }
+
+        @Override
+        public synchronized void release(String key, String owner, long fencingToken) {
+            Object[] lease = leases.get(key);
+            if (lease != null && owner.equals(lease[0]) && (Long) lease[1] == fencingToken) {
+                lease[2] = 0L;
+                releases++;
+            }
+        }
+
+        synchronized String owner(String key) {
+            return (String) leases.get(key)[0];
+        }
+    }
+}
@@ -19,20 +19,27 @@
 
 package org.apache.rave.portal.web.renderer;
 
+import com.google.common.collect.Lists;
 import org.apache.rave.exception.NotSupportedException;
 import org.apache.rave.model.RegionWidget;
+import org.apache.rave.model.Widget;
 import org.apache.rave.portal.model.impl.RegionWidgetImpl;
 import org.apache.rave.portal.model.impl.WidgetImpl;
 import org.apache.rave.portal.repository.WidgetRepository;
 import org.apache.rave.portal.web.renderer.impl.DefaultRenderService;
 import org.apache.rave.portal.web.renderer.model.RegionWidgetWrapper;
 import org.apache.rave.portal.web.renderer.model.RenderContext;
+import org.apache.rave.rest.model.Page;
+import org.apache.rave.rest.model.Region;
+import org.easymock.Capture;
+import org.easymock.IAnswer;
 import org.junit.Before;
 import org.junit.Test;
 
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.Set;
 
 import static org.easymock.EasyMock.*;
 import static org.hamcrest.CoreMatchers.*;
@@ -143,6 +150,117 @@ public class RenderServiceTest {
     }
 
 
+    @Test
+    public void prepareForRender_page_resolvesWidgetsOnce() {
+        WidgetImpl w1 = new WidgetImpl("1", "http://example.com/1.xml");
+        w1.setType(SUPPORTED_TYPE_1);
+        WidgetImpl w2 = new WidgetImpl("2", "http://example.com/2.xml");
+        w2.setType(SUPPORTED_TYPE_1);
+
+        Page sub = createPage(createRegionWidget("11", "1"), createRegionWidget("12", "2"));
+        Page page = createPage(createRegionWidget("10", "1"));
+        page.setSubPages(Lists.newArrayList(sub));
+
+        RegionWidgetRenderer apiRenderer = createMock(RegionWidgetRenderer.class);
+        expect(apiRenderer.getSupportedContext()).andReturn(SUPPORTED_TYPE_1);
+        expect(apiRenderer.prepareForRender(isA(org.apache.rave.rest.model.RegionWidget.class))).andAnswer(new IAnswer<org.apache.rave.rest.model.RegionWidget>() {
+            @Override
+            public org.apache.rave.rest.model.RegionWidget answer() throws Throwable {
+                return (org.apache.rave.rest.model.RegionWidget) getCurrentArguments()[0];
+            }
+        }).times(3);
+        Capture<Set<String>> ids = new Capture<Set<String>>();
+        expect(widgetRepository.getByIds(capture(ids))).andReturn(Lists.<Widget>newArrayList(w1, w2));
+        replay(apiRenderer);
+        replayMocks();
+
+        service = new DefaultRenderService(null, Lists.newArrayList(apiRenderer), widgetRepository);
+        Page prepared = service.prepareForRender(page);
+
+        assertThat(prepared, is(sameInstance(page)));
+        assertThat(ids.getValue().size(), is(equalTo(2)));
+        org.apache.rave.rest.model.RegionWidget subWidget = sub.getRegions().get(0).getRegionWidgets().get(1);
+        assertThat(subWidget.getType(), is(equalTo(SUPPORTED_TYPE_1)));
+        assertThat(subWidget.getWidgetUrl(), is(equalTo("http://example.com/2.xml")));
+        verify(apiRenderer, widgetRepository);
+    }
+
+    @Test
+    public void prepareForRender_pages_singleLookup() {
+        WidgetImpl w1 = new WidgetImpl("1", "http://example.com/1.xml");
+        w1.setType(SUPPORTED_TYPE_1);
+
+        Page page1 = createPage(createRegionWidget("10", "1"));
+        Page page2 = createPage(createRegionWidget("20", "1"));
+
+        RegionWidgetRenderer apiRenderer = createNiceMock(RegionWidgetRenderer.class);
+        expect(apiRenderer.getSupportedContext()).andReturn(SUPPORTED_TYPE_1);
+        expect(widgetRepository.getByIds(isA(Set.class))).andReturn(Lists.<Widget>newArrayList(w1)).once();
+        replay(apiRenderer);
+        replayMocks();
+
+        service = new DefaultRenderService(null, Lists.newArrayList(apiRenderer), widgetRepository);
+        service.prepareForRender(Lists.newArrayList(page1, page2));
+
+        verify(widgetRepository);
+    }
+
+    @Test
+    public void prepareForRender_pages_batchRendererCalledOnce() {
+        WidgetImpl w1 = new WidgetImpl("1", "http://example.com/1.xml");
+        w1.setType(SUPPORTED_TYPE_1);
+
+        Page sub = createPage(createRegionWidget("11", "1"));
+        Page page1 = createPage(createRegionWidget("10", "1"));
+        page1.setSubPages(Lists.newArrayList(sub));
+        Page page2 = createPage(createRegionWidget("20", "1"));
+
+        RegionWidgetBatchRenderer batchRenderer = createMock(RegionWidgetBatchRenderer.class);
+        expect(batchRenderer.getSupportedContext()).andReturn(SUPPORTED_TYPE_1);
+        Capture<List<org.apache.rave.rest.model.RegionWidget>> batch = new Capture<List<org.apache.rave.rest.model.RegionWidget>>();
+        batchRenderer.prepareAllForRender(capture(batch));
+        expectLastCall().once();
+        expect(widgetRepository.getByIds(isA(Set.class))).andReturn(Lists.<Widget>newArrayList(w1));
+        replay(batchRenderer);
+        replayMocks();
+
+        service = new DefaultRenderService(null, Lists.<RegionWidgetRenderer>newArrayList(batchRenderer), widgetRepository);
+        service.prepareForRender(Lists.newArrayList(page1, page2));
+
+        verify(batchRenderer);
+        assertThat(batch.getValue().size(), is(equalTo(3)));
+        assertThat(batch.getValue().get(1), is(sameInstance(sub.getRegions().get(0).getRegionWidgets().get(0))));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void prepareForRender_page_missingWidget() {
+        Page page = createPage(createRegionWidget("10", "1"));
+
+        RegionWidgetRenderer apiRenderer = createNiceMock(RegionWidgetRenderer.class);
+        expect(apiRenderer.getSupportedContext()).andReturn(SUPPORTED_TYPE_1);
+        expect(widgetRepository.getByIds(isA(Set.class))).andReturn(new ArrayList<Widget>());
+        replay(apiRenderer);
+        replayMocks();
+
+        service = new DefaultRenderService(null, Lists.newArrayList(apiRenderer), widgetRepository);
+        service.prepareForRender(page);
+    }
+
+    private static Page createPage(org.apache.rave.rest.model.RegionWidget... regionWidgets) {
+        Region region = new Region();
+        region.setRegionWidgets(Lists.newArrayList(regionWidgets));
+        Page page = new Page();
+        page.setRegions(Lists.newArrayList(region));
+        return page;
+    }
+
+    private static org.apache.rave.rest.model.RegionWidget createRegionWidget(String id, String widgetId) {
+        org.apache.rave.rest.model.RegionWidget regionWidget = new org.apache.rave.rest.model.RegionWidget();
+        regionWidget.setId(id);
+        regionWidget.setWidgetId(widgetId);
+        return regionWidget;
+    }
+
     private void constructFooBarRenderService() {
         widgetRenderers.add(widgetRenderer1);
         widgetRenderers.add(widgetRenderer2);
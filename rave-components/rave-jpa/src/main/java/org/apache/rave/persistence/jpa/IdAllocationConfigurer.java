@@ -0,0 +1,111 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.rave.persistence.jpa;
+
+import org.apache.openjpa.conf.OpenJPAConfiguration;
+import org.apache.openjpa.jdbc.kernel.TableJDBCSeq;
+import org.apache.openjpa.kernel.Seq;
+import org.apache.openjpa.meta.ClassMetaData;
+import org.apache.openjpa.meta.FieldMetaData;
+import org.apache.openjpa.meta.MetaDataRepository;
+import org.apache.openjpa.meta.SequenceMetaData;
+import org.apache.openjpa.persistence.OpenJPAEntityManagerFactorySPI;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.orm.jpa.EntityManagerFactoryInfo;
+
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.metamodel.EntityType;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Sets the number of ids the table generators of the entities reserve with each update of their sequence row.
+ * <p/>
+ * The generators are declared with an allocationSize of 1, so every insert updates and locks its row in
+ * RAVE_PORTAL_SEQUENCES. With a larger allocation size OpenJPA moves SEQ_COUNT ahead by that many ids at once and
+ * hands them out from memory. The row still holds the next free id, so existing ids and the values already stored in
+ * the sequence table stay valid and the allocation size can be changed between restarts; ids that were reserved but
+ * not used when the portal stops are skipped.
+ * <p/>
+ * Allocation sizes are configured per entity, by simple class name, with a default for the entities that are not
+ * listed.
+ */
+public class IdAllocationConfigurer implements InitializingBean {
+    private static final Logger logger = LoggerFactory.getLogger(IdAllocationConfigurer.class);
+
+    private final EntityManagerFactory entityManagerFactory;
+    private int defaultAllocationSize = 1;
+    private Map<String, Integer> allocationSizes = new HashMap<String, Integer>();
+
+    public IdAllocationConfigurer(EntityManagerFactory entityManagerFactory) {
+        this.entityManagerFactory = entityManagerFactory;
+    }
+
+    /**
+     * @param defaultAllocationSize the allocation size of the entities without an entry in the allocation sizes
+     */
+    public void setDefaultAllocationSize(int defaultAllocationSize) {
+        this.defaultAllocationSize = defaultAllocationSize;
+    }
+
+    /**
+     * @param allocationSizes the allocation sizes keyed by the simple class name of the entity, such as JpaPage
+     */
+    public void setAllocationSizes(Map<String, Integer> allocationSizes) {
+        this.allocationSizes = allocationSizes;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        MetaDataRepository repository = getConfiguration().getMetaDataRepositoryInstance();
+        for (EntityType<?> entity : entityManagerFactory.getMetamodel().getEntities()) {
+            Class<?> entityClass = entity.getJavaType();
+            Integer allocationSize = allocationSizes.get(entityClass.getSimpleName());
+            int size = allocationSize == null ? defaultAllocationSize : allocationSize;
+            if (size < 1) {
+                throw new IllegalArgumentException("Invalid id allocation size " + size + " for " + entityClass.getName());
+            }
+            ClassMetaData metaData = repository.getMetaData(entityClass, entityClass.getClassLoader(), true);
+            for (FieldMetaData field : metaData.getPrimaryKeyFields()) {
+                // inherited ids are configured by the entity declaring them
+                SequenceMetaData sequence = field.getDeclaringType() == entityClass ? field.getValueSequenceMetaData() : null;
+                if (sequence != null) {
+                    sequence.setAllocate(size);
+                    // the schema synchronization may already have created the sequence with the declared size
+                    Seq seq = sequence.getInstance(entityClass.getClassLoader());
+                    if (seq instanceof TableJDBCSeq) {
+                        ((TableJDBCSeq) seq).setAllocate(size);
+                    }
+                    logger.debug("Allocating {} ids at a time for {}", size, entityClass.getSimpleName());
+                }
+            }
+        }
+    }
+
+    private OpenJPAConfiguration getConfiguration() {
+        EntityManagerFactory nativeFactory = entityManagerFactory;
+        if (nativeFactory instanceof EntityManagerFactoryInfo) {
+            nativeFactory = ((EntityManagerFactoryInfo) nativeFactory).getNativeEntityManagerFactory();
+        }
+        return ((OpenJPAEntityManagerFactorySPI) nativeFactory).getConfiguration();
+    }
+}
@@ -35,7 +35,14 @@ import org.apache.rave.portal.model.conversion.JpaConverter;
 @NamedQueries({
         @NamedQuery(name = JpaActivityStreamsEntry.FIND_ALL, query = "SELECT a FROM JpaActivityStreamsEntry a ORDER BY a.updated DESC"),
         @NamedQuery(name = JpaActivityStreamsEntry.FIND_BY_ID, query = "SELECT a FROM JpaActivityStreamsEntry a WHERE a.id = :id"),
+        @NamedQuery(name = JpaActivityStreamsEntry.FIND_BY_IDS, query = "SELECT a FROM JpaActivityStreamsEntry a WHERE a.id IN :ids"),
         @NamedQuery(name = JpaActivityStreamsEntry.FIND_BY_USERID, query = "SELECT a FROM JpaActivityStreamsEntry a WHERE a.userId = :userId ORDER BY a.updated DESC"),
+        @NamedQuery(name = JpaActivityStreamsEntry.FIND_BY_USERIDS, query = "SELECT a FROM JpaActivityStreamsEntry a WHERE a.userId IN :userIds AND a.published IS NOT NULL ORDER BY a.published DESC, a.id DESC"),
+        @NamedQuery(name = JpaActivityStreamsEntry.FIND_BY_USERIDS_BEFORE, query = "SELECT a FROM JpaActivityStreamsEntry a WHERE a.userId IN :userIds AND (a.published < :before OR (a.published = :before AND a.id < :beforeId)) ORDER BY a.published DESC, a.id DESC"),
+        @NamedQuery(name = JpaActivityStreamsEntry.FIND_UNDATED_BY_USERIDS, query = "SELECT a FROM JpaActivityStreamsEntry a WHERE a.userId IN :userIds AND a.published IS NULL ORDER BY a.id DESC"),
+        @NamedQuery(name = JpaActivityStreamsEntry.FIND_UNDATED_BY_USERIDS_BEFORE, query = "SELECT a FROM JpaActivityStreamsEntry a WHERE a.userId IN :userIds AND a.published IS NULL AND a.id < :beforeId ORDER BY a.id DESC"),
+        @NamedQuery(name = JpaActivityStreamsEntry.FIND_OLDEST_BY_USERIDS, query = "SELECT a FROM JpaActivityStreamsEntry a WHERE a.userId IN :userIds AND a.published IS NOT NULL ORDER BY a.published ASC, a.id ASC"),
+        @NamedQuery(name = JpaActivityStreamsEntry.FIND_OLDEST_UNDATED_BY_USERIDS, query = "SELECT a FROM JpaActivityStreamsEntry a WHERE a.userId IN :userIds AND a.published IS NULL ORDER BY a.id ASC"),
         @NamedQuery(name = JpaActivityStreamsEntry.FIND_BY_GROUPID, query = "SELECT a FROM JpaActivityStreamsEntry a WHERE a.groupId = :groupId ORDER BY a.updated DESC"),
         @NamedQuery(name = JpaActivityStreamsEntry.FIND_BY_APPID, query = "SELECT a FROM JpaActivityStreamsEntry a WHERE a.appId = :appId ORDER BY a.updated DESC")
 })
@@ -45,7 +52,14 @@ public class JpaActivityStreamsEntry extends JpaActivityStreamsItem implements A
     private static Logger log = Logger.getLogger(JpaActivityStreamsEntry.class.getName());
 
     public static final String FIND_BY_USERID = "JpaActivityStreamsEntry.findByUserId";
+    public static final String FIND_BY_USERIDS = "JpaActivityStreamsEntry.findByUserIds";
+    public static final String FIND_BY_USERIDS_BEFORE = "JpaActivityStreamsEntry.findByUserIdsBefore";
+    public static final String FIND_UNDATED_BY_USERIDS = "JpaActivityStreamsEntry.findUndatedByUserIds";
+    public static final String FIND_UNDATED_BY_USERIDS_BEFORE = "JpaActivityStreamsEntry.findUndatedByUserIdsBefore";
+    public static final String FIND_OLDEST_BY_USERIDS = "JpaActivityStreamsEntry.findOldestByUserIds";
+    public static final String FIND_OLDEST_UNDATED_BY_USERIDS = "JpaActivityStreamsEntry.findOldestUndatedByUserIds";
     public static final String FIND_BY_ID = "JpaActivityStreamsEntry.findById";
+    public static final String FIND_BY_IDS = "JpaActivityStreamsEntry.findByIds";
     public static final String FIND_ALL = "JpaActivityStreamsEntry.findAll";
     public static final String FIND_BY_GROUPID = "JpaActivityStreamsEntry.findByGroupId";
     public static final String FIND_BY_APPID = "JpaActivityStreamsEntry.findByAppId";
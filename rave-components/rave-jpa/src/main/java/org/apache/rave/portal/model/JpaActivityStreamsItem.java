@@ -32,7 +32,11 @@ import static org.apache.rave.util.JsonUtils.stringify;
 @Entity
 @Access(AccessType.FIELD)
 @Inheritance(strategy = InheritanceType.SINGLE_TABLE)
-@Table(name = "activities")
+/*
+ * The unique constraint declares the (userId, published) index of the paged activity stream queries; OpenJPA only
+ * supports single column @Index annotations. The trailing entityId keeps it unique.
+ */
+@Table(name = "activities", uniqueConstraints = @UniqueConstraint(columnNames = {"userId", "published", "entityId"}))
 @DiscriminatorValue("Item")
 public class JpaActivityStreamsItem implements ActivityStreamsItem, BasicEntity {
 
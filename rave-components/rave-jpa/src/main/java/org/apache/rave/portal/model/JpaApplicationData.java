@@ -70,7 +70,7 @@ public class JpaApplicationData implements BasicEntity, ApplicationData {
 
     @Override
     public String getId() {
-        return getEntityId().toString();
+        return entityId == null ? null : entityId.toString();
     }
 
     @Override
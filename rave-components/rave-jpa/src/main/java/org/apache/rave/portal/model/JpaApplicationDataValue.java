@@ -0,0 +1,137 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.rave.portal.model;
+
+import javax.persistence.*;
+import java.io.Serializable;
+
+/**
+ * A single key of the OpenSocial application data of a user and application, stored as its own row so that it can
+ * be written without rewriting the rest of the data, see
+ * {@link org.apache.rave.portal.repository.impl.JpaApplicationDataRepository}
+ */
+@Entity
+@Table(name = "application_data_value",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"user_id", "app_url", "data_key"}))
+@Access(AccessType.FIELD)
+@NamedQueries({
+        @NamedQuery(name = JpaApplicationDataValue.FIND_BY_USER_IDS_AND_APP_ID,
+                query = "SELECT v FROM JpaApplicationDataValue v WHERE v.userId IN :" + JpaApplicationDataValue.USER_IDS_PARAM +
+                        " AND v.appUrl = :" + JpaApplicationDataValue.APP_URL_PARAM),
+        @NamedQuery(name = JpaApplicationDataValue.FIND_BY_USER_ID_AND_APP_ID,
+                query = "SELECT v FROM JpaApplicationDataValue v WHERE v.userId = :" + JpaApplicationDataValue.USER_ID_PARAM +
+                        " AND v.appUrl = :" + JpaApplicationDataValue.APP_URL_PARAM),
+        @NamedQuery(name = JpaApplicationDataValue.FIND_BY_USER_ID_AND_APP_ID_AND_KEYS,
+                query = "SELECT v FROM JpaApplicationDataValue v WHERE v.userId = :" + JpaApplicationDataValue.USER_ID_PARAM +
+                        " AND v.appUrl = :" + JpaApplicationDataValue.APP_URL_PARAM +
+                        " AND v.key IN :" + JpaApplicationDataValue.KEYS_PARAM),
+        @NamedQuery(name = JpaApplicationDataValue.DELETE_BY_USER_ID_AND_APP_ID,
+                query = "DELETE FROM JpaApplicationDataValue v WHERE v.userId = :" + JpaApplicationDataValue.USER_ID_PARAM +
+                        " AND v.appUrl = :" + JpaApplicationDataValue.APP_URL_PARAM)
+})
+public class JpaApplicationDataValue implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    public static final String FIND_BY_USER_IDS_AND_APP_ID = "ApplicationDataValue.findByUserIdsAndAppId";
+    public static final String FIND_BY_USER_ID_AND_APP_ID = "ApplicationDataValue.findByUserIdAndAppId";
+    public static final String FIND_BY_USER_ID_AND_APP_ID_AND_KEYS = "ApplicationDataValue.findByUserIdAndAppIdAndKeys";
+    public static final String DELETE_BY_USER_ID_AND_APP_ID = "ApplicationDataValue.deleteByUserIdAndAppId";
+
+    public static final String USER_IDS_PARAM = "userIds";
+    public static final String USER_ID_PARAM = "userId";
+    public static final String APP_URL_PARAM = "appUrl";
+    public static final String KEYS_PARAM = "keys";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "applicationDataValueIdGenerator")
+    @TableGenerator(name = "applicationDataValueIdGenerator", table = "RAVE_SHINDIG_SEQUENCES", pkColumnName = "SEQ_NAME",
+            valueColumnName = "SEQ_COUNT", pkColumnValue = "application_data_value", allocationSize = 1, initialValue = 1)
+    @Column(name = "entity_id")
+    private Long entityId;
+
+    @Basic(optional = false)
+    @Column(name = "user_id")
+    private String userId;
+
+    @Basic(optional = false)
+    @Column(name = "app_url")
+    private String appUrl;
+
+    @Basic(optional = false)
+    @Column(name = "data_key")
+    private String key;
+
+    /**
+     * The value serialized as JSON
+     */
+    @Lob
+    @Column(name = "data_value")
+    private String value;
+
+    public JpaApplicationDataValue() {
+    }
+
+    public JpaApplicationDataValue(String userId, String appUrl, String key, String value) {
+        this.userId = userId;
+        this.appUrl = appUrl;
+        this.key = key;
+        this.value = value;
+    }
+
+    public Long getEntityId() {
+        return entityId;
+    }
+
+    public void setEntityId(Long entityId) {
+        this.entityId = entityId;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public void setUserId(String userId) {
+        this.userId = userId;
+    }
+
+    public String getAppUrl() {
+        return appUrl;
+    }
+
+    public void setAppUrl(String appUrl) {
+        this.appUrl = appUrl;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public void setKey(String key) {
+        this.key = key;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    public void setValue(String value) {
+        this.value = value;
+    }
+}
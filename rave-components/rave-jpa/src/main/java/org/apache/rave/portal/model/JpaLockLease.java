@@ -0,0 +1,135 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.rave.portal.model;
+
+import javax.persistence.*;
+import java.io.Serializable;
+
+/**
+ * A cluster wide lease on a lock key, see {@link org.apache.rave.portal.repository.LockLeaseRepository}
+ */
+@Entity
+@Table(name = "lock_lease")
+@Access(AccessType.FIELD)
+@NamedQueries({
+        @NamedQuery(name = JpaLockLease.GET_FENCING_TOKEN,
+                query = "SELECT l.fencingToken FROM JpaLockLease l WHERE l.lockKey = :lockKey"),
+        @NamedQuery(name = JpaLockLease.ACQUIRE,
+                query = "UPDATE JpaLockLease l SET l.owner = :owner, l.fencingToken = l.fencingToken + 1, " +
+                        "l.expiresAt = :expiresAt WHERE l.lockKey = :lockKey AND (l.expiresAt < :now OR l.owner = :owner)"),
+        @NamedQuery(name = JpaLockLease.RENEW,
+                query = "UPDATE JpaLockLease l SET l.expiresAt = :expiresAt WHERE l.lockKey = :lockKey " +
+                        "AND l.owner = :owner AND l.fencingToken = :fencingToken AND l.expiresAt >= :now"),
+        @NamedQuery(name = JpaLockLease.RELEASE,
+                query = "UPDATE JpaLockLease l SET l.expiresAt = 0 WHERE l.lockKey = :lockKey " +
+                        "AND l.owner = :owner AND l.fencingToken = :fencingToken")
+})
+public class JpaLockLease implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    public static final String GET_FENCING_TOKEN = "LockLease.getFencingToken";
+    public static final String ACQUIRE = "LockLease.acquire";
+    public static final String RENEW = "LockLease.renew";
+    public static final String RELEASE = "LockLease.release";
+
+    public static final String LOCK_KEY_PARAM = "lockKey";
+    public static final String OWNER_PARAM = "owner";
+    public static final String FENCING_TOKEN_PARAM = "fencingToken";
+    public static final String EXPIRES_AT_PARAM = "expiresAt";
+    public static final String NOW_PARAM = "now";
+
+    @Id
+    @Column(name = "lock_key")
+    private String lockKey;
+
+    @Basic(optional = false)
+    @Column(name = "owner")
+    private String owner;
+
+    @Basic(optional = false)
+    @Column(name = "fencing_token")
+    private Long fencingToken;
+
+    @Basic(optional = false)
+    @Column(name = "expires_at")
+    private Long expiresAt;
+
+    public JpaLockLease() {
+    }
+
+    public JpaLockLease(String lockKey, String owner, Long fencingToken, Long expiresAt) {
+        this.lockKey = lockKey;
+        this.owner = owner;
+        this.fencingToken = fencingToken;
+        this.expiresAt = expiresAt;
+    }
+
+    public String getLockKey() {
+        return lockKey;
+    }
+
+    public void setLockKey(String lockKey) {
+        this.lockKey = lockKey;
+    }
+
+    public String getOwner() {
+        return owner;
+    }
+
+    public void setOwner(String owner) {
+        this.owner = owner;
+    }
+
+    public Long getFencingToken() {
+        return fencingToken;
+    }
+
+    public void setFencingToken(Long fencingToken) {
+        this.fencingToken = fencingToken;
+    }
+
+    public Long getExpiresAt() {
+        return expiresAt;
+    }
+
+    public void setExpiresAt(Long expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == null || getClass() != obj.getClass()) {
+            return false;
+        }
+        final JpaLockLease other = (JpaLockLease) obj;
+        return lockKey == null ? other.lockKey == null : lockKey.equals(other.lockKey);
+    }
+
+    @Override
+    public int hashCode() {
+        return lockKey != null ? lockKey.hashCode() : 0;
+    }
+
+    @Override
+    public String toString() {
+        return "LockLease{" + "lockKey=" + lockKey + ", owner=" + owner + ", fencingToken=" + fencingToken +
+                ", expiresAt=" + expiresAt + '}';
+    }
+}
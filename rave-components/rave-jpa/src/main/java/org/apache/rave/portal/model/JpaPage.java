@@ -24,7 +24,9 @@ import org.apache.rave.model.*;
 import org.apache.rave.persistence.jpa.JpaSerializable;
 import org.apache.rave.portal.model.conversion.ConvertingListProxyFactory;
 import org.apache.rave.portal.model.conversion.JpaConverter;
-import org.apache.rave.util.JsonUtils;
+import org.apache.rave.util.LazyJsonMap;
+import org.apache.openjpa.persistence.jdbc.EagerFetchMode;
+import org.apache.openjpa.persistence.jdbc.FetchMode;
 
 import javax.persistence.*;
 import javax.xml.bind.annotation.*;
@@ -87,7 +89,9 @@ public class JpaPage implements BasicEntity, Serializable, JpaSerializable, Page
     @JoinColumn(name="parent_page_id")
     private JpaPage parentPage;
 
+    // the page graph is loaded with one select per relation rather than one per parent row
     @OneToMany(fetch = FetchType.EAGER, cascade=CascadeType.ALL, mappedBy="parentPage")
+    @EagerFetchMode(FetchMode.PARALLEL)
     private List<JpaPage> subPages;
 
     @ManyToOne
@@ -96,6 +100,7 @@ public class JpaPage implements BasicEntity, Serializable, JpaSerializable, Page
 
     @XmlElement(name="region")
     @OneToMany(fetch = FetchType.EAGER, cascade = CascadeType.ALL, orphanRemoval = true)
+    @EagerFetchMode(FetchMode.PARALLEL)
     @OrderBy("renderOrder")
     @JoinColumn(name="page_id")
     private List<JpaRegion> regions;
@@ -105,15 +110,16 @@ public class JpaPage implements BasicEntity, Serializable, JpaSerializable, Page
     private String pageType;
 
     @OneToMany(targetEntity=JpaPageUser.class, fetch = FetchType.EAGER, cascade = CascadeType.ALL, mappedBy="page", orphanRemoval=true)
+    @EagerFetchMode(FetchMode.PARALLEL)
     private List<JpaPageUser> members;
 
     @Lob @JsonIgnore
     @Column(name = "serialized_data")
     private String serializedData;
 
-    //It will be the responsibility of the repository to ensure that this property is set when the page is retrieved from the database
+    //Parsed from serializedData on first access and only re-serialized if it was accessed or replaced
     @Transient
-    private Map<String, Object> properties;
+    private LazyJsonMap properties = new LazyJsonMap();
 
 
     public JpaPage() {
@@ -305,12 +311,12 @@ public class JpaPage implements BasicEntity, Serializable, JpaSerializable, Page
 
     @Override
     public Map<String, Object> getProperties() {
-        return properties;
+        return properties.get(serializedData);
     }
 
     @Override
     public void setProperties(Map<String, Object> properties) {
-        this.properties = properties;
+        this.properties.set(properties);
     }
 
     @Override
@@ -342,18 +348,12 @@ public class JpaPage implements BasicEntity, Serializable, JpaSerializable, Page
 
     @Override
     public void serializeData() {
-        Map<String, Object> properties = this.getProperties();
-        if(properties != null) {
-            serializedData = JsonUtils.stringify(properties);
-        }
+        serializedData = properties.serialize(serializedData);
     }
 
     @Override
-    @SuppressWarnings("unchecked")
     public void deserializeData() {
-        if(serializedData != null) {
-            this.setProperties(JsonUtils.parse(serializedData, Map.class));
-        }
+        //the properties are parsed from serializedData when they are first requested
     }
 
     /**
@@ -27,7 +27,7 @@ import org.apache.rave.model.PageType;
 import org.apache.rave.persistence.jpa.JpaSerializable;
 import org.apache.rave.portal.model.conversion.ConvertingListProxyFactory;
 import org.apache.rave.portal.model.conversion.JpaConverter;
-import org.apache.rave.util.JsonUtils;
+import org.apache.rave.util.LazyJsonMap;
 
 import javax.persistence.*;
 import java.io.Serializable;
@@ -96,9 +96,9 @@ public class JpaPageTemplate implements BasicEntity, Serializable, JpaSerializab
     @Column(name = "serialized_data")
     private String serializedData;
 
-    //It will be the responsibility of the repository to ensure that this property is set when the page is retrieved from the database
+    //Parsed from serializedData on first access and only re-serialized if it was accessed or replaced
     @Transient
-    private Map<String, Object> properties;
+    private LazyJsonMap properties = new LazyJsonMap();
 
     @Override
     public Long getEntityId() {
@@ -225,27 +225,21 @@ public class JpaPageTemplate implements BasicEntity, Serializable, JpaSerializab
 
     @Override
     public Map<String, Object> getProperties() {
-        return properties;
+        return properties.get(serializedData);
     }
 
     @Override
     public void setProperties(Map<String, Object> properties) {
-        this.properties = properties;
+        this.properties.set(properties);
     }
 
     @Override
     public void serializeData() {
-        Map<String, Object> properties = this.getProperties();
-        if(properties != null) {
-            serializedData = JsonUtils.stringify(properties);
-        }
+        serializedData = properties.serialize(serializedData);
     }
 
     @Override
-    @SuppressWarnings("unchecked")
     public void deserializeData() {
-        if(serializedData != null) {
-            this.setProperties(JsonUtils.parse(serializedData, Map.class));
-        }
+        //the properties are parsed from serializedData when they are first requested
     }
 }
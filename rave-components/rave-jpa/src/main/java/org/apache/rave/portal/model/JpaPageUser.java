@@ -33,6 +33,7 @@ import com.fasterxml.jackson.annotation.JsonBackReference;
 @Table(name = "page_user", uniqueConstraints={@UniqueConstraint(columnNames={"page_id","user_id"})})
 @NamedQueries({
         @NamedQuery(name = JpaPageUser.GET_BY_USER_ID_AND_PAGE_TYPE, query="SELECT p.page FROM JpaPageUser p, JpaPage q WHERE p.page.entityId = q.entityId and p.userId = :userId and q.pageType = :pageType ORDER BY p.renderSequence"),
+        @NamedQuery(name = JpaPageUser.GET_NAVIGATION_BY_USER_ID_AND_PAGE_TYPE, query="SELECT NEW org.apache.rave.portal.model.util.PageNavigationItem(q.entityId, q.name, q.ownerId, p.renderSequence, p.pageStatus, p.editor, COUNT(m)) FROM JpaPageUser p JOIN p.page q JOIN q.members m WHERE p.userId = :userId and q.pageType = :pageType GROUP BY q.entityId, q.name, q.ownerId, p.renderSequence, p.pageStatus, p.editor ORDER BY p.renderSequence"),
         @NamedQuery(name = JpaPageUser.GET_PAGES_FOR_USER, query="SELECT p FROM JpaPageUser p, JpaPage q WHERE p.page.entityId = q.entityId and p.userId = :userId and q.pageType = :pageType ORDER BY p.renderSequence"),
         @NamedQuery(name = JpaPageUser.GET_SINGLE_RECORD, query="SELECT p FROM JpaPageUser p WHERE p.userId = :userId and p.page.entityId = :pageId")
 })
@@ -40,6 +41,7 @@ public class JpaPageUser implements BasicEntity, Serializable, PageUser {
     private static final long serialVersionUID = 1L;
 
     public static final String GET_BY_USER_ID_AND_PAGE_TYPE ="JpaPageUser.getByUserIdAndPageType";
+    public static final String GET_NAVIGATION_BY_USER_ID_AND_PAGE_TYPE = "JpaPageUser.getNavigationByUserIdAndPageType";
     public static final String GET_PAGES_FOR_USER = "JpaPageUser.getPagesForUser";
     public static final String GET_SINGLE_RECORD = "JpaPageUser.getSingleRecord";
 
@@ -25,6 +25,8 @@ import org.apache.rave.model.RegionWidget;
 import org.apache.rave.portal.model.conversion.ConvertingListProxyFactory;
 import org.apache.rave.portal.model.conversion.JpaConverter;
 import com.fasterxml.jackson.annotation.JsonBackReference;
+import org.apache.openjpa.persistence.jdbc.EagerFetchMode;
+import org.apache.openjpa.persistence.jdbc.FetchMode;
 
 import javax.persistence.*;
 import javax.xml.bind.annotation.XmlAccessType;
@@ -72,6 +74,7 @@ public class JpaRegion implements BasicEntity, Serializable, Region {
     private int renderOrder;
 
     @OneToMany(fetch = FetchType.EAGER, cascade = CascadeType.ALL, orphanRemoval = true)
+    @EagerFetchMode(FetchMode.PARALLEL)
     @OrderBy("renderOrder")
     @JoinColumn(name = "region_id")
     private List<JpaRegionWidget> regionWidgets;
@@ -24,6 +24,9 @@ import org.apache.rave.model.RegionWidgetPreference;
 import org.apache.rave.portal.model.conversion.ConvertingListProxyFactory;
 import org.apache.rave.portal.model.conversion.JpaConverter;
 import com.fasterxml.jackson.annotation.JsonBackReference;
+import org.apache.openjpa.persistence.jdbc.EagerFetchMode;
+import org.apache.openjpa.persistence.jdbc.FetchMode;
+import org.apache.openjpa.persistence.jdbc.Index;
 
 import javax.persistence.*;
 import java.io.Serializable;
@@ -41,6 +44,8 @@ import java.util.List;
                     query = "select rw.widgetId, count(distinct rw.region.page.ownerId) from JpaRegionWidget rw group by rw.widgetId"),
         @NamedQuery(name = JpaRegionWidget.REGION_WIDGET_GET_DISTINCT_USER_COUNT_SINGLE_WIDGET,
                     query = "select count(distinct rw.region.page.ownerId) from JpaRegionWidget rw where rw.widgetId = :widgetId"),
+        @NamedQuery(name = JpaRegionWidget.REGION_WIDGET_GET_DISTINCT_USERS_SINGLE_WIDGET,
+                    query = "select distinct rw.region.page.ownerId from JpaRegionWidget rw where rw.widgetId = :widgetId"),
         @NamedQuery(name = JpaRegionWidget.FIND_BY_ID,
                     query = "select rw from JpaRegionWidget rw where rw.entityId = :widgetId"),
         @NamedQuery(name = JpaRegionWidget.REGION_WIDGET_GET_ALL, query = JpaRegionWidget.SELECT_R_FROM_REGION_WIDGET_R),
@@ -52,6 +57,7 @@ public class JpaRegionWidget implements BasicEntity, Serializable, RegionWidget
     public static final String FIND_BY_ID = "RegionWidget.findById";
     public static final String REGION_WIDGET_GET_DISTINCT_USER_COUNT_ALL_WIDGETS = "JpaRegionWidget.getDistinctUserCountForAllWidgets";
     public static final String REGION_WIDGET_GET_DISTINCT_USER_COUNT_SINGLE_WIDGET = "JpaRegionWidget.getDistinctUserCount";
+    public static final String REGION_WIDGET_GET_DISTINCT_USERS_SINGLE_WIDGET = "JpaRegionWidget.getDistinctUsers";
     public static final String REGION_WIDGET_GET_ALL = "JpaRegionWidget.getAll";
     public static final String REGION_WIDGET_COUNT_ALL = "JpaRegionWidget.countAll";
 
@@ -70,6 +76,7 @@ public class JpaRegionWidget implements BasicEntity, Serializable, RegionWidget
 
     @Basic
     @Column(name = "widget_id")
+    @Index(name = "region_widget_widget_id_idx")
     private Long widgetId;
 
     @ManyToOne
@@ -89,6 +96,7 @@ public class JpaRegionWidget implements BasicEntity, Serializable, RegionWidget
     private boolean collapsed;
 
     @OneToMany(fetch = FetchType.EAGER, cascade = CascadeType.ALL, orphanRemoval = true)
+    @EagerFetchMode(FetchMode.PARALLEL)
     @JoinColumn(name = "region_widget_id", referencedColumnName = "entity_id")
     private List<JpaRegionWidgetPreference> preferences;
 
@@ -20,10 +20,13 @@
 package org.apache.rave.portal.model;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import org.apache.openjpa.persistence.FetchAttribute;
+import org.apache.openjpa.persistence.FetchGroup;
+import org.apache.openjpa.persistence.FetchGroups;
 import org.apache.rave.model.*;
 import org.apache.rave.persistence.jpa.JpaSerializable;
 import org.apache.rave.portal.model.conversion.ConvertingListProxyFactory;
-import org.apache.rave.util.JsonUtils;
+import org.apache.rave.util.LazyJsonMap;
 
 import javax.persistence.*;
 import javax.xml.bind.annotation.XmlAccessType;
@@ -41,8 +44,16 @@ import java.util.Map;
 @Entity
 @Access(AccessType.FIELD)
 @Table(name = "widget")
+@FetchGroups({
+        @FetchGroup(name = JpaWidget.FETCH_GROUP_FULL, attributes = {
+                @FetchAttribute(name = "comments"),
+                @FetchAttribute(name = "ratings")
+        })
+})
 @NamedQueries({
         @NamedQuery(name = JpaWidget.GET_ALL, query = JpaWidget.SELECT_W_FROM_WIDGET_W + JpaWidget.ORDER_BY_TITLE_ASC),
+        @NamedQuery(name = JpaWidget.WIDGET_GET_BY_ID, query = JpaWidget.SELECT_W_FROM_WIDGET_W + JpaWidget.WHERE_CLAUSE_ID),
+        @NamedQuery(name = JpaWidget.WIDGET_GET_BY_IDS, query = JpaWidget.SELECT_W_FROM_WIDGET_W + JpaWidget.WHERE_CLAUSE_IDS),
         @NamedQuery(name = JpaWidget.GET_COUNT, query = JpaWidget.SELECT_COUNT_W_FROM_WIDGET_W),
 
         @NamedQuery(name = JpaWidget.WIDGET_GET_BY_OWNER,
@@ -69,6 +80,13 @@ import java.util.Map;
 public class JpaWidget implements BasicEntity, Serializable, JpaSerializable, Widget {
     private static final long serialVersionUID = 2L;
 
+    /**
+     * Fetch group that adds the comments and ratings to the default (listing) fetch group
+     */
+    public static final String FETCH_GROUP_FULL = "Widget.full";
+
+    public static final String PARAM_ID = "id";
+    public static final String PARAM_IDS = "ids";
     public static final String PARAM_SEARCH_TERM = "searchTerm";
     public static final String PARAM_STATUS = "widgetStatus";
     public static final String PARAM_URL = "url";
@@ -77,6 +95,8 @@ public class JpaWidget implements BasicEntity, Serializable, JpaSerializable, Wi
 
     public static final String GET_ALL = "Widget.getAll";
     public static final String GET_COUNT = "Widget.countAll";
+    public static final String WIDGET_GET_BY_ID = "Widget.getById";
+    public static final String WIDGET_GET_BY_IDS = "Widget.getByIds";
     public static final String WIDGET_GET_BY_OWNER = "Widget.getByOwner";
     public static final String WIDGET_COUNT_BY_OWNER = "Widget.countByOwner";
     public static final String WIDGET_GET_BY_FREE_TEXT = "Widget.getByFreeText";
@@ -93,6 +113,8 @@ public class JpaWidget implements BasicEntity, Serializable, JpaSerializable, Wi
 
     static final String WHERE_CLAUSE_FREE_TEXT =
             " WHERE lower(w.title) LIKE :" + PARAM_SEARCH_TERM + " OR w.description LIKE :description";
+    static final String WHERE_CLAUSE_ID = " WHERE w.entityId = :" + PARAM_ID;
+    static final String WHERE_CLAUSE_IDS = " WHERE w.entityId IN :" + PARAM_IDS;
     static final String WHERE_CLAUSE_STATUS = " WHERE w.widgetStatus = :" + PARAM_STATUS;
     static final String WHERE_CLAUSE_URL = " WHERE w.url = :" + PARAM_URL;
     static final String WHERE_CLAUSE_OWNER = " WHERE w.ownerId = :" + PARAM_OWNER;
@@ -162,7 +184,7 @@ public class JpaWidget implements BasicEntity, Serializable, JpaSerializable, Wi
     @Enumerated(EnumType.STRING)
     private WidgetStatus widgetStatus;
 
-    @OneToMany(fetch = FetchType.EAGER, cascade = CascadeType.ALL, orphanRemoval = true)
+    @OneToMany(fetch = FetchType.LAZY, cascade = CascadeType.ALL, orphanRemoval = true)
     @JoinColumn(name = "widget_id", referencedColumnName = "entity_id")
     private List<JpaWidgetComment> comments;
 
@@ -180,7 +202,7 @@ public class JpaWidget implements BasicEntity, Serializable, JpaSerializable, Wi
     @Column(name = "disable_rendering_message")
     private String disableRenderingMessage;
 
-    @OneToMany(fetch = FetchType.EAGER, cascade = CascadeType.ALL, orphanRemoval = true)
+    @OneToMany(fetch = FetchType.LAZY, cascade = CascadeType.ALL, orphanRemoval = true)
     @JoinColumn(name = "widget_id", referencedColumnName = "entity_id")
     private List<JpaWidgetRating> ratings;
 
@@ -205,10 +227,9 @@ public class JpaWidget implements BasicEntity, Serializable, JpaSerializable, Wi
     @Column(name = "serialized_data")
     private String serializedData;
 
-    //It will be the responsibility of the repository to ensure that this
-    //property is set when the page is retrieved from the database
+    //Parsed from serializedData on first access and only re-serialized if it was accessed or replaced
     @Transient
-    private Map<String, Object> properties;
+    private LazyJsonMap properties = new LazyJsonMap();
 
     public JpaWidget() {
     }
@@ -458,12 +479,12 @@ public class JpaWidget implements BasicEntity, Serializable, JpaSerializable, Wi
 
     @Override
     public Map<String, Object> getProperties() {
-        return properties;
+        return properties.get(serializedData);
     }
 
     @Override
     public void setProperties(Map<String, Object> properties) {
-        this.properties = properties;
+        this.properties.set(properties);
     }
 
     public String getSerializedData() {
@@ -476,18 +497,12 @@ public class JpaWidget implements BasicEntity, Serializable, JpaSerializable, Wi
 
     @Override
     public void serializeData() {
-        Map<String, Object> properties = this.getProperties();
-        if(properties != null) {
-            serializedData = JsonUtils.stringify(properties);
-        }
+        serializedData = properties.serialize(serializedData);
     }
 
     @Override
-    @SuppressWarnings("unchecked")
     public void deserializeData() {
-        if(serializedData != null) {
-            this.setProperties(JsonUtils.parse(serializedData, Map.class));
-        }
+        //the properties are parsed from serializedData when they are first requested
     }
 
     @Override
@@ -15,6 +15,7 @@
  */
 package org.apache.rave.portal.model;
 
+import org.apache.openjpa.persistence.jdbc.Index;
 import org.apache.rave.model.WidgetComment;
 
 import javax.persistence.*;
@@ -30,11 +31,18 @@ import java.util.Date;
 @Table(name = "widget_comment")
 @NamedQueries({
         @NamedQuery(name = JpaWidgetComment.DELETE_ALL_BY_USER,
-                query="DELETE FROM JpaWidgetComment wc WHERE wc.userId = :userId")
+                query="DELETE FROM JpaWidgetComment wc WHERE wc.userId = :userId"),
+        @NamedQuery(name = JpaWidgetComment.GET_BY_WIDGET_ID,
+                query="SELECT wc FROM JpaWidgetComment wc WHERE wc.widgetId = :widgetId ORDER BY wc.createdDate ASC, wc.entityId ASC"),
+        @NamedQuery(name = JpaWidgetComment.COUNT_BY_WIDGET_ID,
+                query="SELECT count(wc) FROM JpaWidgetComment wc WHERE wc.widgetId = :widgetId")
 })
 @XmlRootElement
 public class JpaWidgetComment implements BasicEntity, Serializable, WidgetComment {
     public static final String DELETE_ALL_BY_USER = "WidgetComment.deleteAllByUserId";
+    public static final String GET_BY_WIDGET_ID = "WidgetComment.getByWidgetId";
+    public static final String COUNT_BY_WIDGET_ID = "WidgetComment.countByWidgetId";
+    public static final String PARAM_WIDGET_ID = "widgetId";
 
     @Id
     @Column(name = "entity_id")
@@ -45,6 +53,7 @@ public class JpaWidgetComment implements BasicEntity, Serializable, WidgetCommen
 
     @Basic
     @Column(name = "widget_id")
+    @Index(name = "widget_comment_widget_id_idx")
     private Long widgetId;
 
     @Basic
@@ -18,6 +18,7 @@
  */
 package org.apache.rave.portal.model;
 
+import org.apache.openjpa.persistence.jdbc.Index;
 import org.apache.rave.model.WidgetRating;
 
 import javax.persistence.*;
@@ -45,6 +46,8 @@ import java.io.Serializable;
                 query = "SELECT wr FROM JpaWidgetRating wr WHERE wr.widgetId = :widgetId AND wr.userId = :userId"),
         @NamedQuery(name = JpaWidgetRating.WIDGET_USER_RATING,
                 query = "SELECT wr.score FROM JpaWidgetRating wr WHERE wr.widgetId = :widgetId AND wr.userId = :userId"),
+        @NamedQuery(name = JpaWidgetRating.WIDGET_IDS_RATED_BY_USER,
+                query = "SELECT DISTINCT wr.widgetId FROM JpaWidgetRating wr WHERE wr.userId = :userId"),
         @NamedQuery(name = JpaWidgetRating.DELETE_ALL_BY_USER,
                 query="DELETE FROM JpaWidgetRating wr WHERE wr.userId = :userId")
 })
@@ -58,6 +61,7 @@ public class JpaWidgetRating implements BasicEntity, Serializable, WidgetRating
     public static final String WIDGET_ALL_USER_RATINGS = "widget_all_user_ratings";
     public static final String WIDGET_RATING_BY_WIDGET_AND_USER = "widget_rating_by_widget_and_user";
     public static final String WIDGET_USER_RATING = "widget_user_rating";
+    public static final String WIDGET_IDS_RATED_BY_USER = "widget_ids_rated_by_user";
     public static final String DELETE_ALL_BY_USER = "delete_all_for_user";
 
     public static final String PARAM_WIDGET_ID = "widgetId";
@@ -72,6 +76,7 @@ public class JpaWidgetRating implements BasicEntity, Serializable, WidgetRating
     
     @Basic
     @Column(name = "widget_id")
+    @Index(name = "widget_rating_widget_id_idx")
     private Long widgetId;
     
     @Basic
@@ -0,0 +1,98 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.rave.portal.model;
+
+import javax.persistence.*;
+import java.io.Serializable;
+
+/**
+ * Pre-aggregated rating and usage counts of a single widget, see
+ * {@link org.apache.rave.portal.repository.impl.JpaWidgetStatisticsAggregator}
+ */
+@Entity
+@Table(name = "widget_statistics")
+@Access(AccessType.FIELD)
+@NamedQueries({
+        @NamedQuery(name = JpaWidgetStatistics.GET_ALL,
+                query = "SELECT s FROM JpaWidgetStatistics s"),
+        @NamedQuery(name = JpaWidgetStatistics.DELETE_ALL,
+                query = "DELETE FROM JpaWidgetStatistics s")
+})
+public class JpaWidgetStatistics implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    public static final String GET_ALL = "WidgetStatistics.getAll";
+    public static final String DELETE_ALL = "WidgetStatistics.deleteAll";
+
+    @Id
+    @Column(name = "widget_id")
+    private Long widgetId;
+
+    @Basic(optional = false)
+    @Column(name = "total_like")
+    private int totalLike;
+
+    @Basic(optional = false)
+    @Column(name = "total_dislike")
+    private int totalDislike;
+
+    @Basic(optional = false)
+    @Column(name = "total_user_count")
+    private int totalUserCount;
+
+    public JpaWidgetStatistics() {
+    }
+
+    public JpaWidgetStatistics(Long widgetId) {
+        this.widgetId = widgetId;
+    }
+
+    public Long getWidgetId() {
+        return widgetId;
+    }
+
+    public void setWidgetId(Long widgetId) {
+        this.widgetId = widgetId;
+    }
+
+    public int getTotalLike() {
+        return totalLike;
+    }
+
+    public void setTotalLike(int totalLike) {
+        this.totalLike = totalLike;
+    }
+
+    public int getTotalDislike() {
+        return totalDislike;
+    }
+
+    public void setTotalDislike(int totalDislike) {
+        this.totalDislike = totalDislike;
+    }
+
+    public int getTotalUserCount() {
+        return totalUserCount;
+    }
+
+    public void setTotalUserCount(int totalUserCount) {
+        this.totalUserCount = totalUserCount;
+    }
+}
@@ -33,7 +33,11 @@ import org.springframework.transaction.annotation.Transactional;
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
 import javax.persistence.TypedQuery;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
 import java.util.List;
+import java.util.Set;
 
 
 @Repository
@@ -87,6 +91,68 @@ public class JpaActivityStreamsRepository implements ActivityStreamsRepository {
 		return CollectionUtils.<ActivityStreamsEntry>toBaseTypedList(query.getResultList());
 	}
 
+    @Override
+    public List<ActivityStreamsEntry> getByIds(Collection<String> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return new ArrayList<ActivityStreamsEntry>();
+        }
+        TypedQuery<JpaActivityStreamsEntry> query = manager.createNamedQuery(JpaActivityStreamsEntry.FIND_BY_IDS, JpaActivityStreamsEntry.class);
+        query.setParameter("ids", ids);
+        return CollectionUtils.<ActivityStreamsEntry>toBaseTypedList(query.getResultList());
+    }
+
+    @Override
+    public List<ActivityStreamsEntry> getByUserIds(Set<String> ids, Date before, String beforeId, int limit) {
+        List<ActivityStreamsEntry> entries = new ArrayList<ActivityStreamsEntry>();
+        if (ids == null || ids.isEmpty() || limit <= 0) {
+            return entries;
+        }
+        TypedQuery<JpaActivityStreamsEntry> query;
+        if (before == null) {
+            //The undated entries sort first, the dated ones follow from the newest on
+            if (beforeId == null) {
+                query = manager.createNamedQuery(JpaActivityStreamsEntry.FIND_UNDATED_BY_USERIDS, JpaActivityStreamsEntry.class);
+            } else {
+                query = manager.createNamedQuery(JpaActivityStreamsEntry.FIND_UNDATED_BY_USERIDS_BEFORE, JpaActivityStreamsEntry.class);
+                query.setParameter("beforeId", beforeId);
+            }
+            entries.addAll(getPage(query, ids, limit));
+            if (entries.size() < limit) {
+                query = manager.createNamedQuery(JpaActivityStreamsEntry.FIND_BY_USERIDS, JpaActivityStreamsEntry.class);
+                entries.addAll(getPage(query, ids, limit - entries.size()));
+            }
+        } else {
+            query = manager.createNamedQuery(JpaActivityStreamsEntry.FIND_BY_USERIDS_BEFORE, JpaActivityStreamsEntry.class);
+            query.setParameter("before", before);
+            //No id sorts before the empty string, so without an id only entries strictly before the date are returned
+            query.setParameter("beforeId", beforeId == null ? "" : beforeId);
+            entries.addAll(getPage(query, ids, limit));
+        }
+        return entries;
+    }
+
+    @Override
+    public List<ActivityStreamsEntry> getOldestByUserIds(Set<String> ids, int limit) {
+        List<ActivityStreamsEntry> entries = new ArrayList<ActivityStreamsEntry>();
+        if (ids == null || ids.isEmpty() || limit <= 0) {
+            return entries;
+        }
+        //The undated entries sort first, the dated ones follow from the oldest on
+        entries.addAll(getPage(manager.createNamedQuery(JpaActivityStreamsEntry.FIND_OLDEST_UNDATED_BY_USERIDS,
+                JpaActivityStreamsEntry.class), ids, limit));
+        if (entries.size() < limit) {
+            entries.addAll(getPage(manager.createNamedQuery(JpaActivityStreamsEntry.FIND_OLDEST_BY_USERIDS,
+                    JpaActivityStreamsEntry.class), ids, limit - entries.size()));
+        }
+        return entries;
+    }
+
+    private List<JpaActivityStreamsEntry> getPage(TypedQuery<JpaActivityStreamsEntry> query, Set<String> ids, int limit) {
+        query.setParameter("userIds", ids);
+        query.setMaxResults(limit);
+        return query.getResultList();
+    }
+
     @Transactional
 	public void delete(ActivityStreamsEntry e) {
 		deleteById(e.getId());
@@ -23,6 +23,7 @@ import org.apache.commons.lang3.StringUtils;
 import org.apache.rave.exception.DataSerializationException;
 import org.apache.rave.model.ApplicationData;
 import org.apache.rave.portal.model.JpaApplicationData;
+import org.apache.rave.portal.model.JpaApplicationDataValue;
 import org.apache.rave.portal.model.conversion.JpaApplicationDataConverter;
 import org.apache.rave.portal.repository.ApplicationDataRepository;
 import org.apache.rave.util.CollectionUtils;
@@ -37,18 +38,35 @@ import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.EntityManager;
 import javax.persistence.Lob;
+import javax.persistence.LockModeType;
 import javax.persistence.PersistenceContext;
 import javax.persistence.TypedQuery;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Iterator;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import static org.apache.rave.persistence.jpa.util.JpaUtil.getSingleResult;
 import static org.apache.rave.persistence.jpa.util.JpaUtil.saveOrUpdate;
 
+/**
+ * Stores application data in two formats that are always read together: the original single row per user and
+ * application holding all keys as one JSON document, and one {@link JpaApplicationDataValue} row per key that is
+ * written by {@link #updateApplicationDataValues} and {@link #replaceApplicationDataValues}.  Rows per key take
+ * precedence over the document; whichever format is written moves the complete data for the user and application
+ * into it, so the two only coexist while one format is being switched for the other.
+ * <p/>
+ * Moving a document into rows per key locks the document row first, so concurrent first updates of the same user
+ * and application migrate it once.  Two concurrent updates that both add the same new key still conflict on the
+ * unique key of the rows, the later transaction fails and is rolled back.
+ */
 @Repository
 public class JpaApplicationDataRepository implements ApplicationDataRepository {
 
@@ -68,6 +86,7 @@ public class JpaApplicationDataRepository implements ApplicationDataRepository {
         JpaSerializableApplicationData applicationData = (JpaSerializableApplicationData) manager.find(JpaApplicationData.class, Long.parseLong(id));
         if (applicationData != null) {
             applicationData.deserializeData();
+            mergeValues(applicationData, findValues(applicationData.getUserId(), applicationData.getAppUrl()));
         }
         return applicationData;
     }
@@ -78,12 +97,17 @@ public class JpaApplicationDataRepository implements ApplicationDataRepository {
         JpaApplicationData jpaAppData = converter.convert(item);
         JpaSerializableApplicationData jpaSerializableApplicationData = getJpaSerializableApplicationData(jpaAppData);
         jpaSerializableApplicationData.serializeData();
+        //the document now holds the complete data, so any rows per key are superseded
+        deleteValues(jpaSerializableApplicationData.getUserId(), jpaSerializableApplicationData.getAppUrl());
         return saveOrUpdate(jpaSerializableApplicationData.getEntityId(), manager, jpaSerializableApplicationData);
     }
 
     @Override
+    @Transactional
     public void delete(ApplicationData item) {
-        manager.remove(item instanceof JpaApplicationData ? item : get(item.getId()));
+        ApplicationData applicationData = item instanceof JpaApplicationData ? item : get(item.getId());
+        manager.remove(applicationData);
+        deleteValues(applicationData.getUserId(), applicationData.getAppUrl());
     }
 
     @Override
@@ -118,10 +142,12 @@ public class JpaApplicationDataRepository implements ApplicationDataRepository {
         query.setParameter(JpaApplicationData.USER_IDS_PARAM, userIds);
         query.setParameter(JpaApplicationData.APP_URL_PARAM, appId);
         List<JpaSerializableApplicationData> results = query.getResultList();
-        for (JpaSerializableApplicationData applicationData : results) {
-            applicationData.deserializeData();
-        }
-        return CollectionUtils.<ApplicationData>toBaseTypedList(results);
+
+        TypedQuery<JpaApplicationDataValue> valueQuery = manager.createNamedQuery(JpaApplicationDataValue.FIND_BY_USER_IDS_AND_APP_ID,
+                JpaApplicationDataValue.class);
+        valueQuery.setParameter(JpaApplicationDataValue.USER_IDS_PARAM, userIds);
+        valueQuery.setParameter(JpaApplicationDataValue.APP_URL_PARAM, appId);
+        return CollectionUtils.<ApplicationData>toBaseTypedList(mergeValues(results, valueQuery.getResultList(), appId));
     }
 
     @Override
@@ -131,10 +157,156 @@ public class JpaApplicationDataRepository implements ApplicationDataRepository {
         query.setParameter(JpaApplicationData.USER_ID_PARAM, personId);
         query.setParameter(JpaApplicationData.APP_URL_PARAM, appId);
         JpaSerializableApplicationData applicationData = getSingleResult(query.getResultList());
-        if (applicationData != null) {
-            applicationData.deserializeData();
+        List<JpaApplicationData> results = mergeValues(applicationData == null ?
+                Collections.<JpaSerializableApplicationData>emptyList() : Collections.singletonList(applicationData),
+                findValues(personId, appId), appId);
+        return results.isEmpty() ? null : results.get(0);
+    }
+
+    @Override
+    @Transactional
+    public void updateApplicationDataValues(String personId, String appId, Map<String, Object> values, Set<String> removedKeys) {
+        Map<String, Object> document = removeDocument(personId, appId);
+
+        Set<String> keys = new HashSet<String>(values.keySet());
+        keys.addAll(removedKeys);
+        Set<String> lookupKeys = new HashSet<String>(keys);
+        lookupKeys.addAll(document.keySet());
+        Map<String, JpaApplicationDataValue> existing = findValues(personId, appId, lookupKeys);
+
+        //carry over the keys of a document written before, unless they are changed by this update anyway
+        for (Map.Entry<String, Object> entry : document.entrySet()) {
+            if (!existing.containsKey(entry.getKey()) && !keys.contains(entry.getKey())) {
+                manager.persist(new JpaApplicationDataValue(personId, appId, entry.getKey(), JsonUtils.stringify(entry.getValue())));
+            }
+        }
+        for (String key : removedKeys) {
+            JpaApplicationDataValue value = existing.get(key);
+            if (value != null) {
+                manager.remove(value);
+            }
+        }
+        putValues(personId, appId, values, existing);
+    }
+
+    @Override
+    @Transactional
+    public void replaceApplicationDataValues(String personId, String appId, Map<String, Object> values) {
+        removeDocument(personId, appId);
+
+        Map<String, JpaApplicationDataValue> existing = new HashMap<String, JpaApplicationDataValue>();
+        for (JpaApplicationDataValue value : findValues(personId, appId)) {
+            if (values.containsKey(value.getKey())) {
+                existing.put(value.getKey(), value);
+            } else {
+                manager.remove(value);
+            }
+        }
+        putValues(personId, appId, values, existing);
+    }
+
+    /**
+     * Updates the existing rows in place and inserts the rest.  A key is never deleted and inserted again in the same
+     * transaction, so the order in which the changes are flushed cannot violate the unique key of the table.
+     */
+    private void putValues(String personId, String appId, Map<String, Object> values,
+                           Map<String, JpaApplicationDataValue> existing) {
+        for (Map.Entry<String, Object> entry : values.entrySet()) {
+            String serialized = JsonUtils.stringify(entry.getValue());
+            JpaApplicationDataValue value = existing.get(entry.getKey());
+            if (value == null) {
+                manager.persist(new JpaApplicationDataValue(personId, appId, entry.getKey(), serialized));
+            } else {
+                value.setValue(serialized);
+            }
+        }
+    }
+
+    /**
+     * Removes the document of the given user and application, if there is one.  The document row is locked until the
+     * transaction ends, a concurrent update waits and then finds the document gone and its keys in rows.
+     *
+     * @return the data the document held, empty if there was none
+     */
+    private Map<String, Object> removeDocument(String personId, String appId) {
+        TypedQuery<JpaSerializableApplicationData> query = manager.createNamedQuery(JpaApplicationData.FIND_BY_USER_ID_AND_APP_ID,
+                JpaSerializableApplicationData.class);
+        query.setParameter(JpaApplicationData.USER_ID_PARAM, personId);
+        query.setParameter(JpaApplicationData.APP_URL_PARAM, appId);
+        query.setLockMode(LockModeType.PESSIMISTIC_WRITE);
+        JpaSerializableApplicationData applicationData = getSingleResult(query.getResultList());
+        if (applicationData == null) {
+            return Collections.emptyMap();
+        }
+        applicationData.deserializeData();
+        Map<String, Object> data = applicationData.getData();
+        manager.remove(applicationData);
+        return data == null ? Collections.<String, Object>emptyMap() : data;
+    }
+
+    private List<JpaApplicationDataValue> findValues(String personId, String appId) {
+        TypedQuery<JpaApplicationDataValue> query = manager.createNamedQuery(JpaApplicationDataValue.FIND_BY_USER_ID_AND_APP_ID,
+                JpaApplicationDataValue.class);
+        query.setParameter(JpaApplicationDataValue.USER_ID_PARAM, personId);
+        query.setParameter(JpaApplicationDataValue.APP_URL_PARAM, appId);
+        return query.getResultList();
+    }
+
+    private Map<String, JpaApplicationDataValue> findValues(String personId, String appId, Collection<String> keys) {
+        Map<String, JpaApplicationDataValue> values = new HashMap<String, JpaApplicationDataValue>();
+        if (keys.isEmpty()) {
+            return values;
+        }
+        TypedQuery<JpaApplicationDataValue> query = manager.createNamedQuery(JpaApplicationDataValue.FIND_BY_USER_ID_AND_APP_ID_AND_KEYS,
+                JpaApplicationDataValue.class);
+        query.setParameter(JpaApplicationDataValue.USER_ID_PARAM, personId);
+        query.setParameter(JpaApplicationDataValue.APP_URL_PARAM, appId);
+        query.setParameter(JpaApplicationDataValue.KEYS_PARAM, keys);
+        for (JpaApplicationDataValue value : query.getResultList()) {
+            values.put(value.getKey(), value);
+        }
+        return values;
+    }
+
+    private void deleteValues(String personId, String appId) {
+        manager.createNamedQuery(JpaApplicationDataValue.DELETE_BY_USER_ID_AND_APP_ID)
+                .setParameter(JpaApplicationDataValue.USER_ID_PARAM, personId)
+                .setParameter(JpaApplicationDataValue.APP_URL_PARAM, appId)
+                .executeUpdate();
+    }
+
+    /**
+     * Combines the documents and the rows per key of the given application into one ApplicationData per user, the
+     * rows taking precedence.  Users that only have rows get a new, unsaved JpaApplicationData.
+     */
+    private List<JpaApplicationData> mergeValues(List<JpaSerializableApplicationData> documents,
+                                                 List<JpaApplicationDataValue> values, String appId) {
+        Map<String, JpaApplicationData> applicationData = new LinkedHashMap<String, JpaApplicationData>();
+        for (JpaSerializableApplicationData document : documents) {
+            document.deserializeData();
+            applicationData.put(document.getUserId(), document);
+        }
+        for (JpaApplicationDataValue value : values) {
+            JpaApplicationData userData = applicationData.get(value.getUserId());
+            if (userData == null) {
+                userData = new JpaApplicationData(null, value.getUserId(), appId, new HashMap<String, Object>());
+                applicationData.put(value.getUserId(), userData);
+            }
+            mergeValues(userData, Collections.singletonList(value));
+        }
+        return new ArrayList<JpaApplicationData>(applicationData.values());
+    }
+
+    private void mergeValues(JpaApplicationData applicationData, List<JpaApplicationDataValue> values) {
+        if (values.isEmpty()) {
+            return;
+        }
+        if (applicationData.getData() == null) {
+            applicationData.setData(new HashMap<String, Object>());
+        }
+        for (JpaApplicationDataValue value : values) {
+            applicationData.getData().put(value.getKey(), JsonUtils.parse(value.getValue(), Object.class));
         }
-        return applicationData;
     }
 
     private JpaSerializableApplicationData getJpaSerializableApplicationData(JpaApplicationData applicationData) {
@@ -0,0 +1,98 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.rave.portal.repository.impl;
+
+import org.apache.rave.exception.DuplicateItemException;
+import org.apache.rave.portal.model.JpaLockLease;
+import org.apache.rave.portal.repository.LockLeaseRepository;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityExistsException;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Query;
+import javax.persistence.TypedQuery;
+
+import static org.apache.rave.persistence.jpa.util.JpaUtil.getSingleResult;
+
+/**
+ * Stores lock leases as rows of the lock_lease table.  Every operation runs in its own transaction so that leases are
+ * visible to the other nodes immediately, regardless of the transaction the lock is taken in.
+ */
+@Repository
+public class JpaLockLeaseRepository implements LockLeaseRepository {
+
+    @PersistenceContext
+    private EntityManager manager;
+
+    @Override
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public Long tryAcquire(String key, String owner, long now, long leaseMillis) {
+        Query acquire = manager.createNamedQuery(JpaLockLease.ACQUIRE);
+        acquire.setParameter(JpaLockLease.LOCK_KEY_PARAM, key);
+        acquire.setParameter(JpaLockLease.OWNER_PARAM, owner);
+        acquire.setParameter(JpaLockLease.EXPIRES_AT_PARAM, now + leaseMillis);
+        acquire.setParameter(JpaLockLease.NOW_PARAM, now);
+        if (acquire.executeUpdate() > 0) {
+            return getFencingToken(key);
+        }
+        if (getFencingToken(key) != null) {
+            return null;
+        }
+        //first grant of this key - a concurrent insert by another node fails on the primary key
+        try {
+            manager.persist(new JpaLockLease(key, owner, 1L, now + leaseMillis));
+            manager.flush();
+        } catch (EntityExistsException e) {
+            throw new DuplicateItemException("Lease on [" + key + "] was granted concurrently", e);
+        }
+        return 1L;
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public boolean renew(String key, String owner, long fencingToken, long now, long leaseMillis) {
+        Query renew = manager.createNamedQuery(JpaLockLease.RENEW);
+        renew.setParameter(JpaLockLease.LOCK_KEY_PARAM, key);
+        renew.setParameter(JpaLockLease.OWNER_PARAM, owner);
+        renew.setParameter(JpaLockLease.FENCING_TOKEN_PARAM, fencingToken);
+        renew.setParameter(JpaLockLease.EXPIRES_AT_PARAM, now + leaseMillis);
+        renew.setParameter(JpaLockLease.NOW_PARAM, now);
+        return renew.executeUpdate() > 0;
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void release(String key, String owner, long fencingToken) {
+        Query release = manager.createNamedQuery(JpaLockLease.RELEASE);
+        release.setParameter(JpaLockLease.LOCK_KEY_PARAM, key);
+        release.setParameter(JpaLockLease.OWNER_PARAM, owner);
+        release.setParameter(JpaLockLease.FENCING_TOKEN_PARAM, fencingToken);
+        release.executeUpdate();
+    }
+
+    private Long getFencingToken(String key) {
+        TypedQuery<Long> query = manager.createNamedQuery(JpaLockLease.GET_FENCING_TOKEN, Long.class);
+        query.setParameter(JpaLockLease.LOCK_KEY_PARAM, key);
+        return getSingleResult(query.getResultList());
+    }
+}
@@ -24,6 +24,7 @@ import org.apache.rave.exception.DataSerializationException;
 import org.apache.rave.model.*;
 import org.apache.rave.portal.model.*;
 import org.apache.rave.portal.model.conversion.JpaPageConverter;
+import org.apache.rave.portal.model.util.PageNavigationItem;
 import org.apache.rave.portal.repository.PageRepository;
 import org.apache.rave.util.CollectionUtils;
 import org.apache.rave.util.JsonUtils;
@@ -85,6 +86,14 @@ public class JpaPageRepository implements PageRepository {
         return expandProperties(CollectionUtils.<Page>toBaseTypedList(query.getResultList()));
     }
 
+    @Override
+    public List<PageNavigationItem> getNavigationForUserType(String userId, String pageType) {
+        TypedQuery<PageNavigationItem> query = manager.createNamedQuery(JpaPageUser.GET_NAVIGATION_BY_USER_ID_AND_PAGE_TYPE, PageNavigationItem.class);
+        query.setParameter("userId", userId);
+        query.setParameter("pageType", pageType.toUpperCase());
+        return query.getResultList();
+    }
+
     @Override
     public List<Page> getPagesForContextType(String contextId, String pageType) {
         TypedQuery<JpaPage> query = manager.createNamedQuery(JpaPage.GET_BY_CONTEXT_AND_PAGE_TYPE, JpaPage.class);
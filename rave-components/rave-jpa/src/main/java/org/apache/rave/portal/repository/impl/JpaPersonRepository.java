@@ -37,6 +37,7 @@ import javax.persistence.PersistenceContext;
 import javax.persistence.Query;
 import javax.persistence.TypedQuery;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 
@@ -63,6 +64,16 @@ public class JpaPersonRepository implements PersonRepository {
         return getSingleResult(query.getResultList());
     }
 
+    @Override
+    public List<Person> findByUsernames(Collection<String> usernames) {
+        if (usernames == null || usernames.isEmpty()) {
+            return new ArrayList<Person>();
+        }
+        TypedQuery<JpaPerson> query = manager.createNamedQuery(JpaPerson.FIND_BY_USERNAMES, JpaPerson.class);
+        query.setParameter(JpaPerson.USERNAMES_PARAM, usernames);
+        return CollectionUtils.<Person>toBaseTypedList(query.getResultList());
+    }
+
     @Override
     public List<Person> findAllConnectedPeople(String username) {
         Person person = findByUsername(username);
@@ -21,6 +21,7 @@ package org.apache.rave.portal.repository.impl;
 
 
 import org.apache.commons.lang3.StringUtils;
+import org.apache.openjpa.persistence.OpenJPAQuery;
 import org.apache.rave.model.Tag;
 import org.apache.rave.model.User;
 import org.apache.rave.model.Widget;
@@ -28,7 +29,6 @@ import org.apache.rave.model.WidgetComment;
 import org.apache.rave.model.WidgetRating;
 import org.apache.rave.model.WidgetStatus;
 import org.apache.rave.model.WidgetTag;
-import org.apache.rave.portal.model.JpaRegionWidget;
 import org.apache.rave.portal.model.JpaWidget;
 import org.apache.rave.portal.model.JpaWidgetComment;
 import org.apache.rave.portal.model.JpaWidgetRating;
@@ -39,6 +39,7 @@ import org.apache.rave.portal.model.conversion.JpaWidgetRatingConverter;
 import org.apache.rave.portal.model.conversion.JpaWidgetTagConverter;
 import org.apache.rave.portal.model.util.WidgetStatistics;
 import org.apache.rave.portal.repository.TagRepository;
+import org.apache.rave.portal.repository.WidgetFetchPlan;
 import org.apache.rave.portal.repository.WidgetRepository;
 import org.apache.rave.util.CollectionUtils;
 import org.slf4j.Logger;
@@ -47,7 +48,6 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 
 import javax.persistence.EntityManager;
-import javax.persistence.NoResultException;
 import javax.persistence.PersistenceContext;
 import javax.persistence.Query;
 import javax.persistence.TypedQuery;
@@ -58,6 +58,7 @@ import javax.persistence.criteria.Path;
 import javax.persistence.criteria.Predicate;
 import javax.persistence.criteria.Root;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -86,6 +87,9 @@ public class JpaWidgetRepository implements WidgetRepository {
     @Autowired
     private TagRepository tagRepository;
 
+    @Autowired
+    private JpaWidgetStatisticsAggregator statisticsAggregator;
+
     @PersistenceContext
     private EntityManager manager;
 
@@ -93,7 +97,7 @@ public class JpaWidgetRepository implements WidgetRepository {
     public List<Widget> getAll() {
         log.warn("Requesting potentially large resultset of Widget. No pagesize set.");
         TypedQuery<JpaWidget> query = manager.createNamedQuery(JpaWidget.GET_ALL, JpaWidget.class);
-        return expandProperties(query.getResultList());
+        return expandProperties(applyFetchPlan(query, WidgetFetchPlan.FULL).getResultList());
     }
 
     @Override
@@ -195,30 +199,7 @@ public class JpaWidgetRepository implements WidgetRepository {
 
     @Override
     public WidgetStatistics getWidgetStatistics(String widget_id, String user_id) {
-        WidgetStatistics widgetStatistics = new WidgetStatistics();
-
-        Query query = manager.createNamedQuery(JpaWidgetRating.WIDGET_TOTAL_LIKES);
-        query.setParameter(JpaWidgetRating.PARAM_WIDGET_ID, Long.parseLong(widget_id));
-        widgetStatistics.setTotalLike(((Number) query.getSingleResult()).intValue());
-
-        query = manager.createNamedQuery(JpaWidgetRating.WIDGET_TOTAL_DISLIKES);
-        query.setParameter(JpaWidgetRating.PARAM_WIDGET_ID, Long.parseLong(widget_id));
-        widgetStatistics.setTotalDislike(((Number) query.getSingleResult()).intValue());
-
-        query = manager.createNamedQuery(JpaRegionWidget.REGION_WIDGET_GET_DISTINCT_USER_COUNT_SINGLE_WIDGET);
-        query.setParameter(JpaRegionWidget.PARAM_WIDGET_ID, Long.parseLong(widget_id));
-        widgetStatistics.setTotalUserCount(((Number) query.getSingleResult()).intValue());
-
-        try {
-            query = manager.createNamedQuery(JpaWidgetRating.WIDGET_USER_RATING);
-            query.setParameter(JpaWidgetRating.PARAM_WIDGET_ID, Long.parseLong(widget_id));
-            query.setParameter(JpaWidgetRating.PARAM_USER_ID, Long.parseLong(user_id));
-            widgetStatistics.setUserRating(((Number) query.getSingleResult()).intValue());
-        } catch (NoResultException e) {
-            widgetStatistics.setUserRating(JpaWidgetRating.UNSET);
-        }
-
-        return widgetStatistics;
+        return statisticsAggregator.getWidgetStatistics(widget_id, user_id);
     }
 
     @Override
@@ -235,61 +216,9 @@ public class JpaWidgetRepository implements WidgetRepository {
         return map;
     }
 
-    @SuppressWarnings("unchecked")
     @Override
     public Map<String, WidgetStatistics> getAllWidgetStatistics(String userId) {
-        HashMap<String, WidgetStatistics> map = new HashMap<String, WidgetStatistics>();
-
-        //Generate the mapping of all likes done for the widgets
-        Query query = manager.createNamedQuery(JpaWidgetRating.WIDGET_ALL_TOTAL_LIKES);
-        for (Object[] result : (List<Object[]>) query.getResultList()) {
-            Long totalLikes = (Long) result[0];
-            Long widgetId = (Long) result[1];
-            WidgetStatistics widgetStatistics = new WidgetStatistics();
-            widgetStatistics.setTotalLike(totalLikes.intValue());
-            map.put(widgetId.toString(), widgetStatistics);
-        }
-
-        //Add the mapping of all dislikes done for the widgets
-        query = manager.createNamedQuery(JpaWidgetRating.WIDGET_ALL_TOTAL_DISLIKES);
-        for (Object[] result : (List<Object[]>) query.getResultList()) {
-            Long totalDislikes = (Long) result[0];
-            Long widgetId = (Long) result[1];
-            WidgetStatistics widgetStatistics = map.get(widgetId.toString());
-            if (widgetStatistics == null) {
-                widgetStatistics = new WidgetStatistics();
-                map.put(widgetId.toString(), widgetStatistics);
-            }
-            widgetStatistics.setTotalDislike(totalDislikes.intValue());
-        }
-
-        //get the total user count for widgets
-        query = manager.createNamedQuery(JpaRegionWidget.REGION_WIDGET_GET_DISTINCT_USER_COUNT_ALL_WIDGETS);
-        for (Object[] result : (List<Object[]>) query.getResultList()) {
-            Long widgetId = (Long) result[0];
-            Long totalUserCount = (Long) result[1];
-            WidgetStatistics widgetStatistics = map.get(widgetId.toString());
-            if (widgetStatistics == null) {
-                widgetStatistics = new WidgetStatistics();
-                map.put(widgetId.toString(), widgetStatistics);
-            }
-            widgetStatistics.setTotalUserCount(totalUserCount.intValue());
-        }
-
-        //Add the current user's current rating of the widget
-        Map<String, WidgetRating> userRatings = getUsersWidgetRatings(userId);
-        for (Map.Entry<String, WidgetStatistics> entry : map.entrySet()) {
-            //If the user has a widget rating then record it
-            if (userRatings.containsKey(entry.getKey())) {
-                entry.getValue().setUserRating(userRatings.get(entry.getKey()).getScore());
-            }
-            //otherwise set the rating to UNSET
-            else {
-                entry.getValue().setUserRating(JpaWidgetRating.UNSET);
-            }
-        }
-
-        return map;
+        return statisticsAggregator.getAllWidgetStatistics(userId);
     }
 
     @Override
@@ -329,7 +258,28 @@ public class JpaWidgetRepository implements WidgetRepository {
 
     @Override
     public Widget get(String id) {
-        return expandProperties(manager.find(JpaWidget.class, Long.parseLong(id)));
+        return get(id, WidgetFetchPlan.FULL);
+    }
+
+    @Override
+    public Widget get(String id, WidgetFetchPlan fetchPlan) {
+        TypedQuery<JpaWidget> query = manager.createNamedQuery(JpaWidget.WIDGET_GET_BY_ID, JpaWidget.class);
+        query.setParameter(JpaWidget.PARAM_ID, Long.parseLong(id));
+        return expandProperties(getSingleResult(applyFetchPlan(query, fetchPlan).getResultList()));
+    }
+
+    @Override
+    public List<Widget> getByIds(Collection<String> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<Widget>();
+        }
+        List<Long> entityIds = new ArrayList<Long>(ids.size());
+        for (String id : ids) {
+            entityIds.add(Long.parseLong(id));
+        }
+        TypedQuery<JpaWidget> query = manager.createNamedQuery(JpaWidget.WIDGET_GET_BY_IDS, JpaWidget.class);
+        query.setParameter(JpaWidget.PARAM_IDS, entityIds);
+        return expandProperties(query.getResultList());
     }
 
     @Override
@@ -344,6 +294,17 @@ public class JpaWidgetRepository implements WidgetRepository {
         manager.remove(converter.convert(item));
     }
 
+    /**
+     * Comments and ratings are lazy and the default fetch group is the listing shape, so only the full
+     * plan needs to widen what the query loads before the entities are detached
+     */
+    private TypedQuery<JpaWidget> applyFetchPlan(TypedQuery<JpaWidget> query, WidgetFetchPlan fetchPlan) {
+        if (fetchPlan == WidgetFetchPlan.FULL) {
+            query.unwrap(OpenJPAQuery.class).getFetchPlan().addFetchGroup(JpaWidget.FETCH_GROUP_FULL);
+        }
+        return query;
+    }
+
     /**
      * Sets input as free text search term to a query
      *
@@ -447,6 +408,22 @@ public class JpaWidgetRepository implements WidgetRepository {
         return manager.find(JpaWidgetComment.class, Long.parseLong(widgetCommentId));
     }
 
+    @Override
+    public List<WidgetComment> getCommentsByWidgetId(String widgetId, int offset, int pageSize) {
+        TypedQuery<JpaWidgetComment> query =
+                manager.createNamedQuery(JpaWidgetComment.GET_BY_WIDGET_ID, JpaWidgetComment.class);
+        query.setParameter(JpaWidgetComment.PARAM_WIDGET_ID, Long.parseLong(widgetId));
+        return CollectionUtils.<WidgetComment>toBaseTypedList(getPagedResultList(query, offset, pageSize));
+    }
+
+    @Override
+    public int getCountCommentsByWidgetId(String widgetId) {
+        Query query = manager.createNamedQuery(JpaWidgetComment.COUNT_BY_WIDGET_ID);
+        query.setParameter(JpaWidgetComment.PARAM_WIDGET_ID, Long.parseLong(widgetId));
+        Number countResult = (Number) query.getSingleResult();
+        return countResult.intValue();
+    }
+
     @Override
     public WidgetComment createWidgetComment(String widgetId, WidgetComment comment) {
         JpaWidgetComment category = commentConverter.convert(comment, widgetId);
@@ -512,6 +489,11 @@ public class JpaWidgetRepository implements WidgetRepository {
 
     @Override
     public int deleteAllWidgetRatings(String userId) {
+        //the bulk delete bypasses the entity listeners, so report the affected widgets up front
+        TypedQuery<Long> ratedQuery = manager.createNamedQuery(JpaWidgetRating.WIDGET_IDS_RATED_BY_USER, Long.class);
+        ratedQuery.setParameter(JpaWidgetRating.PARAM_USER_ID, userId == null ? null : Long.parseLong(userId));
+        statisticsAggregator.markChanged(ratedQuery.getResultList());
+
         TypedQuery<JpaWidgetRating> query = manager.createNamedQuery(JpaWidgetRating.DELETE_ALL_BY_USER, JpaWidgetRating.class);
         query.setParameter("userId", userId == null ? null : Long.parseLong(userId));
         return query.executeUpdate();
@@ -0,0 +1,404 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.rave.portal.repository.impl;
+
+import org.apache.openjpa.persistence.OpenJPAEntityManagerFactorySPI;
+import org.apache.rave.portal.model.JpaRegionWidget;
+import org.apache.rave.portal.model.JpaWidgetRating;
+import org.apache.rave.portal.model.JpaWidgetStatistics;
+import org.apache.rave.portal.model.util.WidgetStatistics;
+import org.apache.rave.portal.repository.StatisticsAggregator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.orm.jpa.EntityManagerFactoryInfo;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionCallbackWithoutResult;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.NoResultException;
+import javax.persistence.PersistenceContext;
+import javax.persistence.PersistenceUnit;
+import javax.persistence.Query;
+import javax.persistence.TypedQuery;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * {@link StatisticsAggregator} backed by the widget_statistics summary table, so that reading the statistics of all
+ * widgets costs one row per widget instead of aggregating the complete widget_rating and region_widget tables.
+ * <p/>
+ * The table is kept up to date incrementally: {@link JpaWidgetStatisticsListener} reports every widget whose ratings
+ * or region widgets change and the counts of those widgets are recomputed after the transaction commits.  The
+ * refreshes of a widget are serialized and none runs during a rebuild, so a refresh that read older counts never
+ * overwrites the row written by a later one.  Changes that bypass the entity listeners (bulk JPQL statements, other
+ * applications or portal instances writing to the database) are corrected by a reconciliation job that rebuilds the
+ * whole table on a background thread once the application context has been refreshed, so after any data has been
+ * loaded at startup, and every portal.widget_statistics.reconcile_interval_minutes minutes after that.
+ */
+@Component
+public class JpaWidgetStatisticsAggregator implements StatisticsAggregator, ApplicationListener<ContextRefreshedEvent> {
+    private static final Logger log = LoggerFactory.getLogger(JpaWidgetStatisticsAggregator.class);
+    private static final int REFRESH_LOCK_STRIPES = 64;
+
+    @PersistenceContext
+    private EntityManager manager;
+
+    @PersistenceUnit
+    private EntityManagerFactory entityManagerFactory;
+
+    private TransactionTemplate transactionTemplate;
+    private long reconcileIntervalMinutes = 60;
+    private JpaWidgetStatisticsListener listener;
+    private final AtomicBoolean started = new AtomicBoolean();
+    private ScheduledExecutorService reconcileExecutor;
+    //refreshes hold the read lock and the locks of the stripes of their widgets, rebuilds hold the write lock
+    private final ReadWriteLock rebuildLock = new ReentrantReadWriteLock();
+    private final Lock[] refreshLocks = new Lock[REFRESH_LOCK_STRIPES];
+
+    public JpaWidgetStatisticsAggregator() {
+        for (int i = 0; i < refreshLocks.length; i++) {
+            refreshLocks[i] = new ReentrantLock();
+        }
+    }
+
+    @Autowired
+    public void setTransactionManager(PlatformTransactionManager transactionManager) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    @Value("${portal.widget_statistics.reconcile_interval_minutes:60}")
+    public void setReconcileIntervalMinutes(long reconcileIntervalMinutes) {
+        this.reconcileIntervalMinutes = reconcileIntervalMinutes;
+    }
+
+    /**
+     * Starts reporting changed ratings and region widgets of the entity manager factory to this aggregator
+     */
+    @PostConstruct
+    public void init() {
+        listener = new JpaWidgetStatisticsListener(this);
+        getNativeEntityManagerFactory().addLifecycleListener(listener, JpaWidgetRating.class, JpaRegionWidget.class);
+    }
+
+    /**
+     * Starts rebuilding the table in the background once all beans, including the ones loading initial data, have
+     * been initialized, followed by the periodic reconciliation.  Refreshes of child contexts are ignored.
+     */
+    @Override
+    public void onApplicationEvent(ContextRefreshedEvent event) {
+        if (!started.compareAndSet(false, true)) {
+            return;
+        }
+        reconcileExecutor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "rave-widget-statistics-reconciler");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        Runnable reconcile = new Runnable() {
+            @Override
+            public void run() {
+                reconcile();
+            }
+        };
+        if (reconcileIntervalMinutes > 0) {
+            reconcileExecutor.scheduleWithFixedDelay(reconcile, 0, reconcileIntervalMinutes, TimeUnit.MINUTES);
+        } else {
+            reconcileExecutor.execute(reconcile);
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        OpenJPAEntityManagerFactorySPI factory = getNativeEntityManagerFactory();
+        if (listener != null && factory.isOpen()) {
+            factory.removeLifecycleListener(listener);
+        }
+        if (reconcileExecutor != null) {
+            reconcileExecutor.shutdownNow();
+        }
+    }
+
+    @Override
+    public Map<String, WidgetStatistics> getAllWidgetStatistics(String userId) {
+        Map<String, WidgetStatistics> map = new HashMap<String, WidgetStatistics>();
+        TypedQuery<JpaWidgetStatistics> query = manager.createNamedQuery(JpaWidgetStatistics.GET_ALL, JpaWidgetStatistics.class);
+        for (JpaWidgetStatistics statistics : query.getResultList()) {
+            WidgetStatistics widgetStatistics = toWidgetStatistics(statistics);
+            widgetStatistics.setUserRating(JpaWidgetRating.UNSET);
+            map.put(statistics.getWidgetId().toString(), widgetStatistics);
+        }
+
+        //Add the current user's current rating of the widget
+        TypedQuery<JpaWidgetRating> ratingQuery =
+                manager.createNamedQuery(JpaWidgetRating.WIDGET_ALL_USER_RATINGS, JpaWidgetRating.class);
+        ratingQuery.setParameter(JpaWidgetRating.PARAM_USER_ID, userId == null ? null : Long.parseLong(userId));
+        for (JpaWidgetRating rating : ratingQuery.getResultList()) {
+            WidgetStatistics widgetStatistics = map.get(rating.getWidgetId());
+            if (widgetStatistics != null) {
+                widgetStatistics.setUserRating(rating.getScore());
+            }
+        }
+        return map;
+    }
+
+    @Override
+    public WidgetStatistics getWidgetStatistics(String widget_id, String user_id) {
+        WidgetStatistics widgetStatistics = toWidgetStatistics(manager.find(JpaWidgetStatistics.class, Long.parseLong(widget_id)));
+        try {
+            Query query = manager.createNamedQuery(JpaWidgetRating.WIDGET_USER_RATING);
+            query.setParameter(JpaWidgetRating.PARAM_WIDGET_ID, Long.parseLong(widget_id));
+            query.setParameter(JpaWidgetRating.PARAM_USER_ID, Long.parseLong(user_id));
+            widgetStatistics.setUserRating(((Number) query.getSingleResult()).intValue());
+        } catch (NoResultException e) {
+            widgetStatistics.setUserRating(JpaWidgetRating.UNSET);
+        }
+        return widgetStatistics;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Set<String> getUsersWithWidget(String widgetId) {
+        Query query = manager.createNamedQuery(JpaRegionWidget.REGION_WIDGET_GET_DISTINCT_USERS_SINGLE_WIDGET);
+        query.setParameter(JpaRegionWidget.PARAM_WIDGET_ID, Long.parseLong(widgetId));
+        return new HashSet<String>((List<String>) query.getResultList());
+    }
+
+    /**
+     * Records that the statistics of the given widget are out of date.  Within a transaction the widget is refreshed
+     * after a successful commit, outside of one the change is left to the reconciliation job.
+     *
+     * @param widgetId the id of the widget whose ratings or region widgets changed
+     */
+    public void markChanged(Long widgetId) {
+        if (widgetId == null || !TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        ChangedWidgets changed = (ChangedWidgets) TransactionSynchronizationManager.getResource(this);
+        if (changed == null) {
+            changed = new ChangedWidgets();
+            TransactionSynchronizationManager.bindResource(this, changed);
+            TransactionSynchronizationManager.registerSynchronization(changed);
+        }
+        changed.widgetIds.add(widgetId);
+    }
+
+    /**
+     * Records that the statistics of the given widgets are out of date, see {@link #markChanged(Long)}
+     *
+     * @param widgetIds the ids of the widgets whose ratings or region widgets changed
+     */
+    public void markChanged(Collection<Long> widgetIds) {
+        for (Long widgetId : widgetIds) {
+            markChanged(widgetId);
+        }
+    }
+
+    /**
+     * Recomputes the statistics rows of the given widgets in a new transaction.  Only the ratings and region widgets
+     * of these widgets are read.  Waits for running refreshes of the same widgets and for a running rebuild, so the
+     * counts read here are never older than the ones already written.
+     *
+     * @param widgetIds the ids of the widgets to refresh
+     */
+    public void refresh(final Collection<Long> widgetIds) {
+        if (widgetIds.isEmpty()) {
+            return;
+        }
+        //locked in ascending order, so that two refreshes can not wait for each other
+        SortedSet<Integer> stripes = new TreeSet<Integer>();
+        for (Long widgetId : widgetIds) {
+            stripes.add((widgetId.hashCode() & Integer.MAX_VALUE) % REFRESH_LOCK_STRIPES);
+        }
+        rebuildLock.readLock().lock();
+        for (Integer stripe : stripes) {
+            refreshLocks[stripe].lock();
+        }
+        try {
+            transactionTemplate.execute(new TransactionCallbackWithoutResult() {
+                @Override
+                protected void doInTransactionWithoutResult(TransactionStatus status) {
+                    for (Long widgetId : widgetIds) {
+                        refreshWidget(widgetId);
+                    }
+                }
+            });
+        } catch (RuntimeException e) {
+            log.warn("Unable to refresh the statistics of widgets " + widgetIds + ", they will be corrected by the next reconciliation", e);
+        } finally {
+            for (Integer stripe : stripes) {
+                refreshLocks[stripe].unlock();
+            }
+            rebuildLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Rebuilds the widget_statistics table from the widget_rating and region_widget tables.
+     */
+    public void reconcile() {
+        rebuildLock.writeLock().lock();
+        try {
+            long start = System.currentTimeMillis();
+            Integer rows = transactionTemplate.execute(new TransactionCallback<Integer>() {
+                @Override
+                public Integer doInTransaction(TransactionStatus status) {
+                    return rebuild();
+                }
+            });
+            log.info("Rebuilt widget statistics of {} widgets in {} ms", rows, System.currentTimeMillis() - start);
+        } catch (RuntimeException e) {
+            log.error("Unable to rebuild the widget statistics", e);
+        } finally {
+            rebuildLock.writeLock().unlock();
+        }
+    }
+
+    private void refreshWidget(Long widgetId) {
+        Query query = manager.createNamedQuery(JpaWidgetRating.WIDGET_TOTAL_LIKES);
+        query.setParameter(JpaWidgetRating.PARAM_WIDGET_ID, widgetId);
+        int totalLike = ((Number) query.getSingleResult()).intValue();
+
+        query = manager.createNamedQuery(JpaWidgetRating.WIDGET_TOTAL_DISLIKES);
+        query.setParameter(JpaWidgetRating.PARAM_WIDGET_ID, widgetId);
+        int totalDislike = ((Number) query.getSingleResult()).intValue();
+
+        query = manager.createNamedQuery(JpaRegionWidget.REGION_WIDGET_GET_DISTINCT_USER_COUNT_SINGLE_WIDGET);
+        query.setParameter(JpaRegionWidget.PARAM_WIDGET_ID, widgetId);
+        int totalUserCount = ((Number) query.getSingleResult()).intValue();
+
+        JpaWidgetStatistics statistics = manager.find(JpaWidgetStatistics.class, widgetId);
+        if (totalLike == 0 && totalDislike == 0 && totalUserCount == 0) {
+            if (statistics != null) {
+                manager.remove(statistics);
+            }
+            return;
+        }
+        if (statistics == null) {
+            statistics = new JpaWidgetStatistics(widgetId);
+            manager.persist(statistics);
+        }
+        statistics.setTotalLike(totalLike);
+        statistics.setTotalDislike(totalDislike);
+        statistics.setTotalUserCount(totalUserCount);
+    }
+
+    @SuppressWarnings("unchecked")
+    private int rebuild() {
+        Map<Long, JpaWidgetStatistics> rows = new HashMap<Long, JpaWidgetStatistics>();
+
+        Query query = manager.createNamedQuery(JpaWidgetRating.WIDGET_ALL_TOTAL_LIKES);
+        for (Object[] result : (List<Object[]>) query.getResultList()) {
+            getRow(rows, (Long) result[1]).setTotalLike(((Number) result[0]).intValue());
+        }
+
+        query = manager.createNamedQuery(JpaWidgetRating.WIDGET_ALL_TOTAL_DISLIKES);
+        for (Object[] result : (List<Object[]>) query.getResultList()) {
+            getRow(rows, (Long) result[1]).setTotalDislike(((Number) result[0]).intValue());
+        }
+
+        query = manager.createNamedQuery(JpaRegionWidget.REGION_WIDGET_GET_DISTINCT_USER_COUNT_ALL_WIDGETS);
+        for (Object[] result : (List<Object[]>) query.getResultList()) {
+            getRow(rows, (Long) result[0]).setTotalUserCount(((Number) result[1]).intValue());
+        }
+
+        manager.createNamedQuery(JpaWidgetStatistics.DELETE_ALL).executeUpdate();
+        for (JpaWidgetStatistics row : rows.values()) {
+            manager.persist(row);
+        }
+        return rows.size();
+    }
+
+    private OpenJPAEntityManagerFactorySPI getNativeEntityManagerFactory() {
+        EntityManagerFactory nativeFactory = entityManagerFactory;
+        if (nativeFactory instanceof EntityManagerFactoryInfo) {
+            nativeFactory = ((EntityManagerFactoryInfo) nativeFactory).getNativeEntityManagerFactory();
+        }
+        return (OpenJPAEntityManagerFactorySPI) nativeFactory;
+    }
+
+    private static JpaWidgetStatistics getRow(Map<Long, JpaWidgetStatistics> rows, Long widgetId) {
+        JpaWidgetStatistics row = rows.get(widgetId);
+        if (row == null) {
+            row = new JpaWidgetStatistics(widgetId);
+            rows.put(widgetId, row);
+        }
+        return row;
+    }
+
+    private static WidgetStatistics toWidgetStatistics(JpaWidgetStatistics statistics) {
+        WidgetStatistics widgetStatistics = new WidgetStatistics();
+        if (statistics != null) {
+            widgetStatistics.setTotalLike(statistics.getTotalLike());
+            widgetStatistics.setTotalDislike(statistics.getTotalDislike());
+            widgetStatistics.setTotalUserCount(statistics.getTotalUserCount());
+        }
+        return widgetStatistics;
+    }
+
+    /**
+     * The widgets changed by the current transaction, refreshed once it has been committed
+     */
+    private class ChangedWidgets extends TransactionSynchronizationAdapter {
+        private final Set<Long> widgetIds = new HashSet<Long>();
+
+        @Override
+        public void afterCommit() {
+            refresh(widgetIds);
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(JpaWidgetStatisticsAggregator.this);
+        }
+    }
+}
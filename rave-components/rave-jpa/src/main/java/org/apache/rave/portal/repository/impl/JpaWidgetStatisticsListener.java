@@ -0,0 +1,94 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.rave.portal.repository.impl;
+
+import org.apache.openjpa.event.DeleteListener;
+import org.apache.openjpa.event.LifecycleEvent;
+import org.apache.openjpa.event.PersistListener;
+import org.apache.openjpa.event.StoreListener;
+import org.apache.rave.portal.model.JpaRegionWidget;
+import org.apache.rave.portal.model.JpaWidgetRating;
+
+/**
+ * Lifecycle listener that reports the widgets whose ratings or placements changed to the
+ * {@link JpaWidgetStatisticsAggregator}, so the widget_statistics table can be refreshed once the
+ * surrounding transaction commits.
+ * <p/>
+ * The aggregator registers its own listener with the OpenJPA EntityManagerFactory it reads from, so the listener
+ * never outlives the application context and always has an aggregator to report to.
+ */
+class JpaWidgetStatisticsListener implements PersistListener, DeleteListener, StoreListener {
+
+    private final JpaWidgetStatisticsAggregator aggregator;
+
+    JpaWidgetStatisticsListener(JpaWidgetStatisticsAggregator aggregator) {
+        if (aggregator == null) {
+            throw new IllegalArgumentException("A widget statistics listener requires an aggregator");
+        }
+        this.aggregator = aggregator;
+    }
+
+    @Override
+    public void beforePersist(LifecycleEvent event) {
+    }
+
+    @Override
+    public void afterPersist(LifecycleEvent event) {
+        markChanged(event.getSource());
+    }
+
+    @Override
+    public void beforeDelete(LifecycleEvent event) {
+    }
+
+    @Override
+    public void afterDelete(LifecycleEvent event) {
+        markChanged(event.getSource());
+    }
+
+    @Override
+    public void beforeStore(LifecycleEvent event) {
+    }
+
+    /**
+     * Only a changed score matters for the statistics; updating a region widget (moving, collapsing, ...) keeps it on
+     * a page of the same owner
+     */
+    @Override
+    public void afterStore(LifecycleEvent event) {
+        if (event.getSource() instanceof JpaWidgetRating) {
+            markChanged(event.getSource());
+        }
+    }
+
+    private void markChanged(Object entity) {
+        if (entity instanceof JpaWidgetRating) {
+            aggregator.markChanged(parseWidgetId(((JpaWidgetRating) entity).getWidgetId()));
+        } else if (entity instanceof JpaRegionWidget) {
+            aggregator.markChanged(parseWidgetId(((JpaRegionWidget) entity).getWidgetId()));
+        } else {
+            throw new IllegalStateException("Widget statistics listener registered for unexpected entity " + entity);
+        }
+    }
+
+    private static Long parseWidgetId(String widgetId) {
+        return widgetId == null ? null : Long.valueOf(widgetId);
+    }
+}
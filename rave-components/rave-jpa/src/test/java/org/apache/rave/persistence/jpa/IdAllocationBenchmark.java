@@ -0,0 +1,113 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.rave.persistence.jpa;
+
+import org.apache.rave.model.Tag;
+import org.apache.rave.portal.model.JpaTag;
+import org.apache.rave.portal.model.impl.TagImpl;
+import org.apache.rave.portal.repository.TagRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.context.support.ClassPathXmlApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * JMH benchmark of concurrent inserts into the H2 test database with the table generator of the inserted entity
+ * reserving allocationSize ids per update of the sequence table.  Run it from the IDE or with
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=org.apache.rave.persistence.jpa.IdAllocationBenchmark
+ * </pre>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(4)
+@Fork(1)
+public class IdAllocationBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Database {
+        @Param({"1", "50"})
+        public int allocationSize;
+
+        ClassPathXmlApplicationContext context;
+        TagRepository repository;
+        TransactionTemplate transactionTemplate;
+        final AtomicLong keywords = new AtomicLong();
+
+        @Setup(Level.Trial)
+        public void setup() {
+            context = new ClassPathXmlApplicationContext("test-dataContext.xml", "test-applicationContext.xml");
+            repository = context.getBean(TagRepository.class);
+            transactionTemplate = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+            IdAllocationConfigurer configurer = new IdAllocationConfigurer(context.getBean(EntityManagerFactory.class));
+            configurer.setAllocationSizes(Collections.singletonMap(JpaTag.class.getSimpleName(), allocationSize));
+            configurer.afterPropertiesSet();
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            context.close();
+        }
+    }
+
+    @Benchmark
+    public Tag insert(final Database database) {
+        final String keyword = "benchmark-" + database.allocationSize + "-" + database.keywords.incrementAndGet();
+        return database.transactionTemplate.execute(new TransactionCallback<Tag>() {
+            @Override
+            public Tag doInTransaction(TransactionStatus status) {
+                return database.repository.save(new TagImpl(keyword));
+            }
+        });
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(IdAllocationBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.rave.persistence.jpa;
+
+import org.apache.rave.portal.model.JpaTag;
+import org.apache.rave.portal.model.impl.TagImpl;
+import org.apache.rave.portal.repository.TagRepository;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceContext;
+import java.util.Collections;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+@Transactional
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(locations = {"classpath:test-dataContext.xml", "classpath:test-applicationContext.xml"})
+public class IdAllocationConfigurerTest {
+
+    @PersistenceContext
+    private EntityManager manager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private TagRepository repository;
+
+    @After
+    public void resetAllocation() {
+        new IdAllocationConfigurer(entityManagerFactory).afterPropertiesSet();
+    }
+
+    @Test
+    public void pooledAllocation_continuesFromSequenceTable() {
+        long next = getSequenceCount();
+        configureTagAllocation(10);
+
+        long first = save("pooled-1");
+        long second = save("pooled-2");
+        long third = save("pooled-3");
+
+        // ids already handed out stay below the first pooled id
+        assertTrue(first >= next);
+        assertThat(second, is(first + 1));
+        assertThat(third, is(first + 2));
+        // a single update reserved the whole block
+        assertThat(getSequenceCount(), is(first + 10));
+
+        configureTagAllocation(1);
+        assertTrue(save("single-1") > third);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidAllocationSize() {
+        configureTagAllocation(0);
+    }
+
+    private void configureTagAllocation(int allocationSize) {
+        IdAllocationConfigurer configurer = new IdAllocationConfigurer(entityManagerFactory);
+        configurer.setAllocationSizes(Collections.singletonMap(JpaTag.class.getSimpleName(), allocationSize));
+        configurer.afterPropertiesSet();
+    }
+
+    private long save(String keyword) {
+        return ((JpaTag) repository.save(new TagImpl(keyword))).getEntityId();
+    }
+
+    private long getSequenceCount() {
+        return ((Number) manager.createNativeQuery("SELECT SEQ_COUNT FROM RAVE_PORTAL_SEQUENCES WHERE SEQ_NAME = 'tag'")
+                .getSingleResult()).longValue();
+    }
+}
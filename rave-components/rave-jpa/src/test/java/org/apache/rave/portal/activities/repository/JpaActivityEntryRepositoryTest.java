@@ -32,8 +32,12 @@ import org.springframework.transaction.annotation.Transactional;
 
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotEquals;
@@ -74,6 +78,124 @@ public class JpaActivityEntryRepositoryTest {
         assertEquals(3, collection.size());
     }
 
+    @Test
+    @Transactional
+    @Rollback(true)
+    public void getByUserIdsTest() {
+        test1.setUserId("1");
+        test1.setPublished(new Date(1000));
+        test2.setUserId("2");
+        test2.setPublished(new Date(3000));
+        test3.setUserId("1");
+        test3.setPublished(new Date(2000));
+        JpaActivityStreamsEntry other = new JpaActivityStreamsEntry();
+        other.setUserId("3");
+        other.setPublished(new Date(4000));
+        repository.save(test1);
+        repository.save(test2);
+        repository.save(test3);
+        repository.save(other);
+
+        Set<String> ids = new HashSet<String>(Arrays.asList("1", "2"));
+        List<ActivityStreamsEntry> page = repository.getByUserIds(ids, null, null, 2);
+        assertEquals(2, page.size());
+        assertEquals(new Date(3000), page.get(0).getPublished());
+        assertEquals(new Date(2000), page.get(1).getPublished());
+
+        page = repository.getByUserIds(ids, new Date(2000), null, 2);
+        assertEquals(1, page.size());
+        assertEquals(new Date(1000), page.get(0).getPublished());
+    }
+
+    @Test
+    @Transactional
+    @Rollback(true)
+    public void getByUserIds_continuesAfterEntryTest() {
+        test1.setId("a");
+        test1.setUserId("1");
+        test1.setPublished(new Date(2000));
+        test2.setId("b");
+        test2.setUserId("1");
+        test2.setPublished(new Date(2000));
+        test3.setId("c");
+        test3.setUserId("1");
+        JpaActivityStreamsEntry older = new JpaActivityStreamsEntry();
+        older.setId("d");
+        older.setUserId("1");
+        older.setPublished(new Date(1000));
+        repository.save(test1);
+        repository.save(test2);
+        repository.save(test3);
+        repository.save(older);
+
+        Set<String> ids = new HashSet<String>(Arrays.asList("1"));
+        List<ActivityStreamsEntry> page = repository.getByUserIds(ids, null, null, 2);
+        assertEquals(2, page.size());
+        assertEquals("c", page.get(0).getId());
+        assertEquals("b", page.get(1).getId());
+
+        page = repository.getByUserIds(ids, page.get(1).getPublished(), page.get(1).getId(), 2);
+        assertEquals(2, page.size());
+        assertEquals("a", page.get(0).getId());
+        assertEquals("d", page.get(1).getId());
+
+        page = repository.getByUserIds(ids, null, "c", 1);
+        assertEquals(1, page.size());
+        assertEquals("b", page.get(0).getId());
+    }
+
+    @Test
+    @Transactional
+    @Rollback(true)
+    public void getOldestByUserIdsTest() {
+        test1.setId("a");
+        test1.setUserId("1");
+        test1.setPublished(new Date(2000));
+        test2.setId("b");
+        test2.setUserId("2");
+        test2.setPublished(new Date(1000));
+        test3.setId("c");
+        test3.setUserId("1");
+        JpaActivityStreamsEntry other = new JpaActivityStreamsEntry();
+        other.setId("d");
+        other.setUserId("3");
+        other.setPublished(new Date(500));
+        repository.save(test1);
+        repository.save(test2);
+        repository.save(test3);
+        repository.save(other);
+
+        Set<String> ids = new HashSet<String>(Arrays.asList("1", "2"));
+        List<ActivityStreamsEntry> page = repository.getOldestByUserIds(ids, 2);
+        assertEquals(2, page.size());
+        assertEquals("c", page.get(0).getId());
+        assertEquals("b", page.get(1).getId());
+
+        page = repository.getOldestByUserIds(ids, 5);
+        assertEquals(3, page.size());
+        assertEquals("a", page.get(2).getId());
+    }
+
+    @Test
+    @Transactional
+    @Rollback(true)
+    public void getByIdsTest() {
+        test1.setId("activity-1");
+        test2.setId("activity-2");
+        test3.setId("activity-3");
+        repository.save(test1);
+        repository.save(test2);
+        repository.save(test3);
+
+        List<ActivityStreamsEntry> entries = repository.getByIds(Arrays.asList(test1.getId(), test3.getId(), "unknown"));
+        assertEquals(2, entries.size());
+        Set<String> ids = new HashSet<String>();
+        for (ActivityStreamsEntry entry : entries) {
+            ids.add(entry.getId());
+        }
+        assertEquals(new HashSet<String>(Arrays.asList(test1.getId(), test3.getId())), ids);
+    }
+
     @Test
     @Transactional
     @Rollback(true)
@@ -34,6 +34,7 @@ import org.springframework.transaction.annotation.Transactional;
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -55,7 +56,8 @@ public class JpaApplicationDataRepositoryTest {
     private static final String VALID_USER_ID = "12345";
     private static final String VALID_APPLICATION_ID = "http://example.com/gadget.xml";
     private static final String SECOND_VALID_APPLICATION_ID = "http://example.com/gadget2.xml";
-    private static final Long VALID_APPLICATION_DATA_ID = 1L;
+    private static final Long VALID_APPLICATION_DATA_ID = 1L;
+    private static final String NO_DATA_USER_ID = "NO-DATA-USER";
 
     private Map<String, Object> validApplicationDataMap;
 
@@ -168,6 +170,92 @@ public class JpaApplicationDataRepositoryTest {
         assertThat(applicationData, is(nullValue()));
     }
 
+    @Test
+    @Transactional
+    @Rollback(true)
+    public void updateApplicationDataValues_carriesOverDocument() {
+        repository.updateApplicationDataValues(VALID_USER_ID, VALID_APPLICATION_ID,
+                Collections.<String, Object>singletonMap("speed", "slow"), Collections.singleton("state"));
+        manager.flush();
+
+        assertThat(repository.get(VALID_APPLICATION_DATA_ID.toString()), is(nullValue()));
+        Map<String, Object> data = repository.getApplicationData(VALID_USER_ID, VALID_APPLICATION_ID).getData();
+        assertThat(data.size(), is(equalTo(2)));
+        assertThat(data.get("color"), is(equalTo((Object) "blue")));
+        assertThat(data.get("speed"), is(equalTo((Object) "slow")));
+    }
+
+    @Test
+    @Transactional
+    @Rollback(true)
+    public void updateApplicationDataValues_existingKey() {
+        repository.updateApplicationDataValues(NO_DATA_USER_ID, VALID_APPLICATION_ID,
+                Collections.<String, Object>singletonMap("counter", 1), Collections.<String>emptySet());
+        repository.updateApplicationDataValues(NO_DATA_USER_ID, VALID_APPLICATION_ID,
+                Collections.<String, Object>singletonMap("counter", 2), Collections.<String>emptySet());
+        manager.flush();
+
+        ApplicationData applicationData = repository.getApplicationData(NO_DATA_USER_ID, VALID_APPLICATION_ID);
+        assertThat(applicationData.getUserId(), is(equalTo(NO_DATA_USER_ID)));
+        assertThat(applicationData.getData(), is(equalTo(Collections.<String, Object>singletonMap("counter", 2))));
+    }
+
+    @Test
+    @Transactional
+    @Rollback(true)
+    public void updateApplicationDataValues_removeLastKey() {
+        repository.updateApplicationDataValues(NO_DATA_USER_ID, VALID_APPLICATION_ID,
+                Collections.<String, Object>singletonMap("counter", 1), Collections.<String>emptySet());
+        repository.updateApplicationDataValues(NO_DATA_USER_ID, VALID_APPLICATION_ID,
+                new HashMap<String, Object>(), Collections.singleton("counter"));
+        manager.flush();
+
+        assertThat(repository.getApplicationData(NO_DATA_USER_ID, VALID_APPLICATION_ID), is(nullValue()));
+    }
+
+    @Test
+    @Transactional
+    @Rollback(true)
+    public void replaceApplicationDataValues() {
+        repository.replaceApplicationDataValues(VALID_USER_ID, VALID_APPLICATION_ID,
+                Collections.<String, Object>singletonMap("color", "red"));
+        manager.flush();
+
+        ApplicationData applicationData = repository.getApplicationData(VALID_USER_ID, VALID_APPLICATION_ID);
+        assertThat(applicationData.getData(), is(equalTo(Collections.<String, Object>singletonMap("color", "red"))));
+    }
+
+    @Test
+    @Transactional
+    @Rollback(true)
+    public void getApplicationData_byUserIdsAndApplicationId_mergesValues() {
+        repository.updateApplicationDataValues(NO_DATA_USER_ID, VALID_APPLICATION_ID,
+                Collections.<String, Object>singletonMap("counter", 1), Collections.<String>emptySet());
+        manager.flush();
+
+        List<ApplicationData> applicationData = repository.getApplicationData(Arrays.asList(VALID_USER_ID, NO_DATA_USER_ID),
+                VALID_APPLICATION_ID);
+        assertThat(applicationData.size(), is(equalTo(2)));
+        validateApplicationData((JpaApplicationData) applicationData.get(0));
+        assertThat(applicationData.get(1).getUserId(), is(equalTo(NO_DATA_USER_ID)));
+        assertThat(applicationData.get(1).getData().get("counter"), is(equalTo((Object) 1)));
+    }
+
+    @Test
+    @Transactional
+    @Rollback(true)
+    public void save_supersedesValues() {
+        repository.updateApplicationDataValues(VALID_USER_ID, SECOND_VALID_APPLICATION_ID,
+                Collections.<String, Object>singletonMap("counter", 1), Collections.<String>emptySet());
+        manager.flush();
+
+        repository.save(new JpaApplicationData(null, VALID_USER_ID, SECOND_VALID_APPLICATION_ID, validApplicationDataMap));
+        manager.flush();
+
+        ApplicationData applicationData = repository.getApplicationData(VALID_USER_ID, SECOND_VALID_APPLICATION_ID);
+        assertThat(applicationData.getData(), is(equalTo(validApplicationDataMap)));
+    }
+
     private void validateApplicationData(JpaApplicationData applicationData) {
         assertThat(applicationData, is(not(nullValue())));
         assertThat(applicationData.getEntityId(), is(equalTo(VALID_APPLICATION_DATA_ID)));
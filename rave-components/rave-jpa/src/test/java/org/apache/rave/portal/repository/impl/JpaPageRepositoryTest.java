@@ -21,6 +21,7 @@ package org.apache.rave.portal.repository.impl;
 import org.apache.rave.model.*;
 import org.apache.rave.portal.model.*;
 import org.apache.rave.portal.model.impl.PageImpl;
+import org.apache.rave.portal.model.util.PageNavigationItem;
 import org.apache.rave.portal.repository.PageRepository;
 import org.apache.rave.portal.repository.PageTemplateRepository;
 import org.apache.rave.portal.repository.UserRepository;
@@ -84,6 +85,53 @@ public class JpaPageRepositoryTest {
         defaultPageTemplate = pageTemplateRepository.getDefaultPage(PageType.PERSON_PROFILE.toString().toUpperCase());
     }
 
+    @Test
+    public void getNavigation_validUser_validUserPageSet() {
+        List<PageNavigationItem> navigation = repository.getNavigationForUserType(USER_ID, PageType.USER.toString());
+        assertThat(navigation.size(), equalTo(2));
+        assertThat(navigation.get(0).getId(), equalTo(USER_PAGE_ID));
+        assertThat(navigation.get(0).getName(), is(notNullValue()));
+        assertThat(navigation.get(0).getOwnerId(), equalTo(USER_ID));
+        assertThat(navigation.get(0).getPageStatus(), equalTo(PageInvitationStatus.OWNER));
+        assertThat(navigation.get(0).isEditor(), is(true));
+        assertThat(navigation.get(0).getMemberCount(), equalTo(1));
+        assertThat(navigation.get(0).getRenderSequence() < navigation.get(1).getRenderSequence(), is(true));
+    }
+
+    @Test
+    @Transactional(readOnly=false)
+    @Rollback(true)
+    public void getNavigation_sharedPage() {
+        JpaPageUser member = new JpaPageUser(CREATED_USER_ID, repository.get(USER_PAGE_ID), 5L);
+        member.setPageStatus(PageInvitationStatus.PENDING);
+        member.setEditor(false);
+        manager.persist(member);
+        manager.flush();
+
+        List<PageNavigationItem> navigation = repository.getNavigationForUserType(USER_ID, PageType.USER.toString());
+        assertThat(navigation.get(0).getId(), equalTo(USER_PAGE_ID));
+        assertThat(navigation.get(0).getMemberCount(), equalTo(2));
+
+        List<PageNavigationItem> sharedNavigation = repository.getNavigationForUserType(CREATED_USER_ID, PageType.USER.toString());
+        PageNavigationItem shared = null;
+        for (PageNavigationItem item : sharedNavigation) {
+            if (USER_PAGE_ID.equals(item.getId())) {
+                shared = item;
+            }
+        }
+        assertThat(shared, is(notNullValue()));
+        assertThat(shared.getOwnerId(), equalTo(USER_ID));
+        assertThat(shared.getPageStatus(), equalTo(PageInvitationStatus.PENDING));
+        assertThat(shared.isEditor(), is(false));
+        assertThat(shared.getMemberCount(), equalTo(2));
+    }
+
+    @Test
+    public void getNavigation_invalidUser_emptySet() {
+        List<PageNavigationItem> navigation = repository.getNavigationForUserType(INVALID_USER, PageType.USER.toString());
+        assertThat(navigation.isEmpty(), is(true));
+    }
+
     @Test
     public void getAllPages_validUser_validUserPageSet() {
         List<Page> pages = repository.getAllPagesForUserType(USER_ID, PageType.USER.toString());
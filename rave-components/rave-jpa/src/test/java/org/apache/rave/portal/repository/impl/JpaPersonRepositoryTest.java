@@ -35,7 +35,11 @@ import org.springframework.transaction.annotation.Transactional;
 
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import static junit.framework.Assert.assertNotNull;
 import static org.hamcrest.CoreMatchers.equalTo;
@@ -109,6 +113,22 @@ public class JpaPersonRepositoryTest {
         assertThat(person, is(not(nullValue())));
         assertThat(person.getUsername(), is(equalTo(VALID_USER)));
     }
+    @Test
+    public void findByUsernames_valid() {
+        List<Person> people = repository.findByUsernames(Arrays.asList(VALID_USER, VALID_USER2, INVALID_USERNAME));
+        assertThat(people.size(), is(equalTo(2)));
+        Set<String> usernames = new HashSet<String>();
+        for (Person person : people) {
+            usernames.add(person.getUsername());
+        }
+        assertThat(usernames, is(equalTo((Set<String>) new HashSet<String>(Arrays.asList(VALID_USER, VALID_USER2)))));
+    }
+
+    @Test
+    public void findByUsernames_empty() {
+        assertThat(repository.findByUsernames(new ArrayList<String>()).isEmpty(), is(true));
+    }
+
     @Test
     public void findByUsername_null() {
         Person person = repository.findByUsername(INVALID_USERNAME);
@@ -37,6 +37,7 @@ import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
 
 import java.util.Date;
+import java.util.List;
 
 import static org.hamcrest.CoreMatchers.*;
 import static org.hamcrest.CoreMatchers.is;
@@ -66,6 +67,23 @@ public class JpaWidgetCommentRepositoryTest {
         assertThat(repository.deleteAllWidgetComments(VALID_USER_ID.toString()), is(2));
     }
 
+    @Test
+    public void getCommentsByWidgetId() {
+        List<WidgetComment> firstPage = repository.getCommentsByWidgetId("1", 0, 1);
+        List<WidgetComment> secondPage = repository.getCommentsByWidgetId("1", 1, 1);
+        assertThat(firstPage.size(), is(1));
+        assertThat(firstPage.get(0).getText(), is("test comment"));
+        assertThat(secondPage.size(), is(1));
+        assertThat(secondPage.get(0).getText(), is("another comment"));
+        assertThat(repository.getCountCommentsByWidgetId("1"), is(2));
+    }
+
+    @Test
+    public void getCommentsByWidgetId_noComments() {
+        assertThat(repository.getCommentsByWidgetId("3", 0, 10).isEmpty(), is(true));
+        assertThat(repository.getCountCommentsByWidgetId("3"), is(0));
+    }
+
     @Test
     @Transactional(readOnly=false)
     @Rollback(true)
@@ -25,6 +25,7 @@ import org.apache.rave.portal.model.*;
 import org.apache.rave.portal.model.impl.WidgetImpl;
 import org.apache.rave.portal.model.util.WidgetStatistics;
 import org.apache.rave.portal.repository.TagRepository;
+import org.apache.rave.portal.repository.WidgetFetchPlan;
 import org.apache.rave.portal.repository.WidgetRepository;
 import org.junit.Ignore;
 import org.junit.Test;
@@ -35,11 +36,13 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.test.annotation.Rollback;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
@@ -85,6 +88,35 @@ public class JpaWidgetRepositoryTest {
         assertThat(widget, is(nullValue()));
     }
 
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void getById_fetchPlans() {
+        // outside of a transaction the widgets come back detached, holding only what the plan loaded
+        Widget listing = repository.get("1", WidgetFetchPlan.LISTING);
+        Widget full = repository.get("1", WidgetFetchPlan.FULL);
+        assertThat(listing.getTitle(), is(equalTo(full.getTitle())));
+        assertThat(listing.getComments().isEmpty(), is(true));
+        assertThat(listing.getRatings().isEmpty(), is(true));
+        assertThat(full.getComments().size(), is(2));
+        assertThat(full.getRatings().isEmpty(), is(false));
+    }
+
+    @Test
+    public void getByIds() {
+        List<Widget> widgets = repository.getByIds(Arrays.asList("1", "2", "-1"));
+        assertThat(widgets.size(), is(2));
+        for (Widget widget : widgets) {
+            assertThat(widget.getId().equals("1") || widget.getId().equals("2"), is(true));
+            assertNotNull(widget.getUrl());
+            assertNotNull(widget.getType());
+        }
+    }
+
+    @Test
+    public void getByIds_empty() {
+        assertThat(repository.getByIds(new ArrayList<String>()).isEmpty(), is(true));
+    }
+
     @Test
     public void getByUrl_valid() {
         final String widgetUrl =
@@ -0,0 +1,134 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.rave.portal.repository.impl;
+
+import org.apache.rave.portal.model.JpaWidgetRating;
+import org.apache.rave.portal.model.JpaWidgetStatistics;
+import org.apache.rave.portal.model.util.WidgetStatistics;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionCallbackWithoutResult;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.Map;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.assertThat;
+
+/**
+ * The tests commit their changes so that the after commit refresh is exercised, and undo them again afterwards.
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(locations = {"classpath:test-dataContext.xml", "classpath:test-applicationContext.xml"})
+public class JpaWidgetStatisticsAggregatorTest {
+    private static final String USER_ID = "1";
+    private static final Long UNRATED_WIDGET_ID = 3L;
+
+    @PersistenceContext
+    private EntityManager manager;
+
+    @Autowired
+    private JpaWidgetStatisticsAggregator aggregator;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Before
+    public void setup() {
+        //the table is rebuilt in the background at startup, so do not depend on that having finished
+        aggregator.reconcile();
+    }
+
+    @Test
+    public void getAllWidgetStatistics() {
+        Map<String, WidgetStatistics> statistics = aggregator.getAllWidgetStatistics(USER_ID);
+
+        WidgetStatistics widgetTwo = statistics.get("2");
+        assertThat(widgetTwo.getTotalLike(), is(1));
+        assertThat(widgetTwo.getTotalDislike(), is(1));
+        assertThat(widgetTwo.getTotalUserCount(), is(10));
+        assertThat(widgetTwo.getUserRating(), is(JpaWidgetRating.LIKE));
+    }
+
+    @Test
+    public void getUsersWithWidget() {
+        assertThat(aggregator.getUsersWithWidget("1").size(), is(10));
+        assertThat(aggregator.getUsersWithWidget("12345").isEmpty(), is(true));
+    }
+
+    @Test
+    public void ratingChange_refreshedAfterCommit() {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        final int likes = aggregator.getWidgetStatistics(UNRATED_WIDGET_ID.toString(), USER_ID).getTotalLike();
+        final Long ratingId = transactionTemplate.execute(new TransactionCallback<Long>() {
+            @Override
+            public Long doInTransaction(TransactionStatus status) {
+                JpaWidgetRating rating = new JpaWidgetRating(null, UNRATED_WIDGET_ID, Long.parseLong(USER_ID), JpaWidgetRating.LIKE);
+                manager.persist(rating);
+                manager.flush();
+                return rating.getEntityId();
+            }
+        });
+        try {
+            WidgetStatistics statistics = aggregator.getWidgetStatistics(UNRATED_WIDGET_ID.toString(), USER_ID);
+            assertThat(statistics.getTotalLike(), is(likes + 1));
+            assertThat(statistics.getUserRating(), is(JpaWidgetRating.LIKE));
+        } finally {
+            transactionTemplate.execute(new TransactionCallbackWithoutResult() {
+                @Override
+                protected void doInTransactionWithoutResult(TransactionStatus status) {
+                    manager.remove(manager.find(JpaWidgetRating.class, ratingId));
+                }
+            });
+        }
+        WidgetStatistics statistics = aggregator.getWidgetStatistics(UNRATED_WIDGET_ID.toString(), USER_ID);
+        assertThat(statistics.getTotalLike(), is(likes));
+        assertThat(statistics.getUserRating(), is(JpaWidgetRating.UNSET));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void listener_requiresAggregator() {
+        new JpaWidgetStatisticsListener(null);
+    }
+
+    @Test
+    public void reconcile_correctsDrift() {
+        new TransactionTemplate(transactionManager).execute(new TransactionCallbackWithoutResult() {
+            @Override
+            protected void doInTransactionWithoutResult(TransactionStatus status) {
+                manager.find(JpaWidgetStatistics.class, 1L).setTotalLike(42);
+            }
+        });
+        assertThat(aggregator.getWidgetStatistics("1", USER_ID).getTotalLike(), is(42));
+
+        aggregator.reconcile();
+
+        assertThat(aggregator.getWidgetStatistics("1", USER_ID).getTotalLike(), is(0));
+    }
+}
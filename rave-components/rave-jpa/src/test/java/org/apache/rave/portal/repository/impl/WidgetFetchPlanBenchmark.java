@@ -0,0 +1,157 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.rave.portal.repository.impl;
+
+import org.apache.rave.model.Widget;
+import org.apache.rave.model.WidgetComment;
+import org.apache.rave.model.WidgetStatus;
+import org.apache.rave.portal.model.impl.WidgetImpl;
+import org.apache.rave.portal.repository.WidgetFetchPlan;
+import org.apache.rave.portal.repository.WidgetRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.context.support.ClassPathXmlApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmark comparing the widget fetch plans against the H2 test database, with every benchmark widget
+ * carrying commentsPerWidget comments.  The listing benchmarks load a store page of widgets, the detail
+ * benchmarks load a single widget the way the widget detail page does.  Run it from the IDE or with
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=org.apache.rave.portal.repository.impl.WidgetFetchPlanBenchmark
+ * </pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WidgetFetchPlanBenchmark {
+    private static final int WIDGETS = 20;
+    private static final int COMMENT_PAGE_SIZE = 10;
+    private static final long FIRST_COMMENT_ID = 1000000L;
+
+    @State(Scope.Benchmark)
+    public static class Database {
+        @Param({"1000"})
+        public int commentsPerWidget;
+
+        ClassPathXmlApplicationContext context;
+        WidgetRepository repository;
+        String widgetId;
+        int widgetCount;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            context = new ClassPathXmlApplicationContext("test-dataContext.xml", "test-applicationContext.xml");
+            repository = context.getBean(WidgetRepository.class);
+            final List<String> widgetIds = new TransactionTemplate(context.getBean(PlatformTransactionManager.class))
+                    .execute(new TransactionCallback<List<String>>() {
+                        @Override
+                        public List<String> doInTransaction(TransactionStatus status) {
+                            List<String> ids = new ArrayList<String>();
+                            for (int i = 0; i < WIDGETS; i++) {
+                                Widget widget = new WidgetImpl(null, "http://example.com/benchmark/widget-" + i + ".xml");
+                                widget.setTitle("Benchmark widget " + i);
+                                widget.setType("OpenSocial");
+                                widget.setWidgetStatus(WidgetStatus.PUBLISHED);
+                                ids.add(repository.save(widget).getId());
+                            }
+                            return ids;
+                        }
+                    });
+            insertComments(new JdbcTemplate(context.getBean("dataSource", DataSource.class)), widgetIds);
+            widgetId = widgetIds.get(0);
+            widgetCount = repository.getCountAll();
+        }
+
+        private void insertComments(JdbcTemplate jdbcTemplate, List<String> widgetIds) {
+            long commentId = FIRST_COMMENT_ID;
+            Timestamp created = new Timestamp(System.currentTimeMillis());
+            for (String id : widgetIds) {
+                List<Object[]> rows = new ArrayList<Object[]>(commentsPerWidget);
+                for (int i = 0; i < commentsPerWidget; i++) {
+                    rows.add(new Object[]{commentId++, Long.parseLong(id), "1", "Benchmark comment " + i, created});
+                }
+                jdbcTemplate.batchUpdate("INSERT INTO widget_comment(entity_id, widget_id, user_id, text, created_date) " +
+                        "values (?, ?, ?, ?, ?)", rows);
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            context.close();
+        }
+    }
+
+    @Benchmark
+    public List<Widget> listing_listingPlan(Database database) {
+        return database.repository.getLimitedList(0, database.widgetCount);
+    }
+
+    @Benchmark
+    public List<Widget> listing_fullPlan(Database database) {
+        // the same named query and rows as getLimitedList, loading comments and ratings as the eager mapping used to
+        return database.repository.getAll();
+    }
+
+    @Benchmark
+    public List<WidgetComment> detail_listingPlanWithCommentPage(Database database) {
+        database.repository.get(database.widgetId, WidgetFetchPlan.LISTING);
+        return database.repository.getCommentsByWidgetId(database.widgetId, 0, COMMENT_PAGE_SIZE);
+    }
+
+    @Benchmark
+    public List<WidgetComment> detail_fullPlan(Database database) {
+        return database.repository.get(database.widgetId, WidgetFetchPlan.FULL).getComments();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(WidgetFetchPlanBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.rave.portal.service.impl;
+
+import org.apache.rave.portal.repository.LockLeaseRepository;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.context.support.ClassPathXmlApplicationContext;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Runs several portal "nodes" (application contexts) against one embedded H2 database and verifies that
+ * DistributedLockService provides mutual exclusion between them.
+ */
+public class DistributedLockServiceClusterTest {
+    private static final int NODES = 3;
+    private static final String CONTEXT = "classpath:test-lockLeaseContext.xml";
+
+    private List<ClassPathXmlApplicationContext> contexts;
+    private List<DistributedLockService> nodes;
+
+    @Before
+    public void setup() {
+        contexts = new ArrayList<ClassPathXmlApplicationContext>();
+        nodes = new ArrayList<DistributedLockService>();
+        for (int i = 0; i < NODES; i++) {
+            ClassPathXmlApplicationContext context = new ClassPathXmlApplicationContext(CONTEXT);
+            contexts.add(context);
+            nodes.add(context.getBean(DistributedLockService.class));
+        }
+    }
+
+    @After
+    public void teardown() {
+        for (ClassPathXmlApplicationContext context : contexts) {
+            context.close();
+        }
+    }
+
+    @Test
+    public void nodesHaveDistinctIds() {
+        assertThat(nodes.get(0).getNodeId(), is(not(nodes.get(1).getNodeId())));
+    }
+
+    @Test
+    public void mutualExclusionAcrossNodes() throws Exception {
+        final int threadsPerNode = 4;
+        final int iterations = 25;
+        final int[] counter = new int[1];
+        final List<Long> tokens = Collections.synchronizedList(new ArrayList<Long>());
+
+        ExecutorService executor = Executors.newFixedThreadPool(NODES * threadsPerNode);
+        List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+        for (final DistributedLockService node : nodes) {
+            for (int i = 0; i < threadsPerNode; i++) {
+                tasks.add(new Callable<Void>() {
+                    @Override
+                    public Void call() throws Exception {
+                        for (int j = 0; j < iterations; j++) {
+                            DistributedLockService.DistributedLock lock =
+                                    (DistributedLockService.DistributedLock) node.borrowLock("Counter", "1");
+                            try {
+                                lock.lock();
+                                int value = counter[0];
+                                Thread.yield();
+                                counter[0] = value + 1;
+                                tokens.add(lock.getFencingToken());
+                            } finally {
+                                lock.unlock();
+                                node.returnLock(lock);
+                            }
+                        }
+                        return null;
+                    }
+                });
+            }
+        }
+        for (Future<Void> future : executor.invokeAll(tasks)) {
+            future.get();
+        }
+        executor.shutdown();
+
+        assertThat(counter[0], is(NODES * threadsPerNode * iterations));
+        //tokens are recorded inside the critical section, so they must never go backwards
+        for (int i = 1; i < tokens.size(); i++) {
+            assertThat(tokens.get(i), is(greaterThanOrEqualTo(tokens.get(i - 1))));
+        }
+    }
+
+    @Test
+    public void leaseIsRenewedWhileHeld() throws Exception {
+        DistributedLockService first = nodes.get(0);
+        DistributedLockService second = nodes.get(1);
+        DistributedLockService.DistributedLock held =
+                (DistributedLockService.DistributedLock) first.borrowLock("Renewed", "1");
+        held.lock();
+        try {
+            //hold the lock for more than two lease periods
+            Thread.sleep(first.getLeaseMillis() * 2 + 200);
+            assertThat(held.isLeaseValid(), is(true));
+
+            Lock contender = second.borrowLock("Renewed", "1");
+            assertThat(contender.tryLock(100, TimeUnit.MILLISECONDS), is(false));
+            second.returnLock(contender);
+        } finally {
+            held.unlock();
+            first.returnLock(held);
+        }
+    }
+
+    @Test
+    public void expiredLeaseOfCrashedNodeIsTakenOver() throws Exception {
+        LockLeaseRepository repository = contexts.get(0).getBean(LockLeaseRepository.class);
+        long leaseMillis = 300;
+        Long crashedToken = repository.tryAcquire("Crashed-1", "crashed-node", System.currentTimeMillis(), leaseMillis);
+        assertThat(crashedToken == null, is(false));
+
+        DistributedLockService survivor = nodes.get(1);
+        DistributedLockService.DistributedLock lock =
+                (DistributedLockService.DistributedLock) survivor.borrowLock("Crashed", "1");
+        long start = System.currentTimeMillis();
+        assertThat(lock.tryLock(5, TimeUnit.SECONDS), is(true));
+        try {
+            assertThat(System.currentTimeMillis() - start, is(greaterThanOrEqualTo(leaseMillis / 2)));
+            assertThat(lock.getFencingToken(), is(greaterThan(crashedToken)));
+        } finally {
+            lock.unlock();
+            survivor.returnLock(lock);
+        }
+
+        //the crashed node can no longer renew or release the lease it lost
+        assertThat(repository.renew("Crashed-1", "crashed-node", crashedToken, System.currentTimeMillis(), leaseMillis),
+                is(false));
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.rave.portal.model;
+
+/**
+ * A cluster wide lease on a lock key, see {@link org.apache.rave.portal.repository.LockLeaseRepository}
+ */
+public class MongoDbLockLease {
+
+    private String id;
+    private String owner;
+    private Long fencingToken;
+    private Long expiresAt;
+
+    public MongoDbLockLease() { }
+
+    public MongoDbLockLease(String id, String owner, Long fencingToken, Long expiresAt) {
+        this.id = id;
+        this.owner = owner;
+        this.fencingToken = fencingToken;
+        this.expiresAt = expiresAt;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getOwner() {
+        return owner;
+    }
+
+    public void setOwner(String owner) {
+        this.owner = owner;
+    }
+
+    public Long getFencingToken() {
+        return fencingToken;
+    }
+
+    public void setFencingToken(Long fencingToken) {
+        this.fencingToken = fencingToken;
+    }
+
+    public Long getExpiresAt() {
+        return expiresAt;
+    }
+
+    public void setExpiresAt(Long expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+}
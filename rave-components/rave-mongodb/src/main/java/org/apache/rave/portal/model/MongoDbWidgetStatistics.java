@@ -0,0 +1,95 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.rave.portal.model;
+
+import java.util.Map;
+
+/**
+ * Counters of a single widget maintained by
+ * {@link org.apache.rave.portal.repository.impl.MongoDbIncrementalStatisticsAggregator}
+ */
+public class MongoDbWidgetStatistics {
+    private String id;
+    private Integer like;
+    private Integer dislike;
+    private Integer userCount;
+    private Map<String, Integer> users;
+    private Long version;
+
+    public MongoDbWidgetStatistics() { }
+
+    public MongoDbWidgetStatistics(String id) {
+        this.id = id;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public Integer getLike() {
+        return like;
+    }
+
+    public void setLike(Integer like) {
+        this.like = like;
+    }
+
+    public Integer getDislike() {
+        return dislike;
+    }
+
+    public void setDislike(Integer dislike) {
+        this.dislike = dislike;
+    }
+
+    public Integer getUserCount() {
+        return userCount;
+    }
+
+    public void setUserCount(Integer userCount) {
+        this.userCount = userCount;
+    }
+
+    /**
+     * @return the number of times the widget was placed on pages of each owner, keyed by owner id
+     */
+    public Map<String, Integer> getUsers() {
+        return users;
+    }
+
+    public void setUsers(Map<String, Integer> users) {
+        this.users = users;
+    }
+
+    /**
+     * @return the number of incremental updates applied to the counters, or null if there have been none yet
+     */
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+}
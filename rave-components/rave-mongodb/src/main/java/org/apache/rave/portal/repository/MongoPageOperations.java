@@ -20,6 +20,17 @@
 package org.apache.rave.portal.repository;
 
 import org.apache.rave.model.Page;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.List;
 
 public interface MongoPageOperations extends MongoModelOperations<Page> {
+    /**
+     * Finds the pages matching the query without hydrating them.  Intended for queries that project a subset of
+     * the page's own fields; references such as the page layout are not resolved.
+     *
+     * @param query the query, including the fields to return
+     * @return the matching pages, populated with the projected fields only
+     */
+    List<Page> findProjected(Query query);
 }
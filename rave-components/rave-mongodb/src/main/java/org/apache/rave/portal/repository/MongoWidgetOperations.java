@@ -16,10 +16,82 @@
  *  specific language governing permissions and limitations
  *  under the License.
  */
-
 package org.apache.rave.portal.repository;
 
 import org.apache.rave.model.Widget;
+import org.apache.rave.model.WidgetComment;
+import org.apache.rave.model.WidgetRating;
+import org.apache.rave.model.WidgetTag;
+import org.springframework.data.mongodb.core.query.Criteria;
 
+/**
+ * Widget operations.  The methods that change ratings, comments and tags update the embedded lists of the stored
+ * widget in place with a single atomic update rather than saving the whole widget.
+ */
 public interface MongoWidgetOperations extends MongoModelOperations<Widget> {
+    /**
+     * Adds a rating to a widget.  If the user has already rated the widget, their existing rating is updated instead.
+     *
+     * @return the stored rating, or null if the widget does not exist
+     */
+    WidgetRating addRating(String widgetId, WidgetRating rating);
+
+    /**
+     * Updates the score and user of the rating with the id of the given rating
+     *
+     * @return the stored rating, or null if the widget has no rating with that id
+     */
+    WidgetRating updateRating(String widgetId, WidgetRating rating);
+
+    void removeRating(String widgetId, String ratingId);
+
+    /**
+     * Removes the ratings of a user from all widgets
+     *
+     * @return the number of ratings removed
+     */
+    int removeRatings(String userId);
+
+    /**
+     * @return the stored comment, or null if the widget does not exist
+     */
+    WidgetComment addComment(String widgetId, WidgetComment comment);
+
+    /**
+     * Updates the text and user of the comment with the id of the given comment
+     *
+     * @return the stored comment, or null if the widget has no comment with that id
+     */
+    WidgetComment updateComment(String widgetId, WidgetComment comment);
+
+    void removeComment(String widgetId, String commentId);
+
+    /**
+     * Counts the comments of a widget on the server, without loading them
+     *
+     * @return the number of comments, or 0 if the widget does not exist
+     */
+    int countComments(String widgetId);
+
+    /**
+     * Removes the comments of a user from all widgets
+     *
+     * @return the number of comments removed
+     */
+    int removeComments(String userId);
+
+    /**
+     * Adds a tag to a widget unless the widget already has a tag with the same tag id
+     *
+     * @return the stored tag with the tag id, or null if the widget does not exist
+     */
+    WidgetTag addTag(String widgetId, WidgetTag tag);
+
+    /**
+     * Removes the tags matching the criteria from all widgets
+     *
+     * @param tag criteria on the fields of the embedded tag
+     * @return the number of widgets updated
+     */
+    int removeTags(Criteria tag);
 }
@@ -26,10 +26,19 @@ import org.apache.rave.portal.model.impl.ActivityStreamsEntryImpl;
 import org.apache.rave.portal.repository.ActivityStreamsRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Order;
+import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.stereotype.Repository;
 import org.apache.rave.exception.NotSupportedException;
 
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
 import java.util.List;
+import java.util.Set;
 
 import static org.apache.rave.portal.repository.util.CollectionNames.ACTIVITIES;
 import static org.apache.rave.util.CollectionUtils.toBaseTypedList;
@@ -52,6 +61,16 @@ public class MongoDbActivityStreamsRepository implements ActivityStreamsReposito
         this.converter = converter;
     }
 
+    /**
+     * Creates the index backing {@link #getByUserIds(java.util.Set, java.util.Date, String, int)} and
+     * {@link #getOldestByUserIds(java.util.Set, int)} if it does not exist yet
+     */
+    @PostConstruct
+    public void ensureIndexes() {
+        template.ensureIndex(new Index().on("actor._id", Order.ASCENDING).on("published", Order.DESCENDING)
+                .on("_id", Order.DESCENDING), ACTIVITIES);
+    }
+
     @Override
     public List<ActivityStreamsEntry> getAll() {
         return toBaseTypedList(template.findAll(CLASS, ACTIVITIES));
@@ -72,6 +91,67 @@ public class MongoDbActivityStreamsRepository implements ActivityStreamsReposito
         return toBaseTypedList(template.find(query(where("actor._id").is(id)),CLASS, ACTIVITIES));
     }
 
+    @Override
+    public List<ActivityStreamsEntry> getByIds(Collection<String> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return new ArrayList<ActivityStreamsEntry>();
+        }
+        return toBaseTypedList(template.find(query(where("_id").in(ids)), CLASS, ACTIVITIES));
+    }
+
+    @Override
+    public List<ActivityStreamsEntry> getByUserIds(Set<String> ids, Date before, String beforeId, int limit) {
+        List<ActivityStreamsEntry> entries = new ArrayList<ActivityStreamsEntry>();
+        if (ids == null || ids.isEmpty() || limit <= 0) {
+            return entries;
+        }
+        //Null properties are not stored, so the undated entries are the ones without a published field
+        if (before == null) {
+            //The undated entries sort first, the dated ones follow from the newest on
+            Criteria undated = where("actor._id").in(ids).and("published").exists(false);
+            if (beforeId != null) {
+                undated.and("_id").lt(beforeId);
+            }
+            entries.addAll(find(undated, limit));
+            if (entries.size() < limit) {
+                entries.addAll(find(where("actor._id").in(ids).and("published").exists(true), limit - entries.size()));
+            }
+        } else {
+            Criteria dated = where("actor._id").in(ids);
+            if (beforeId == null) {
+                dated.and("published").lt(before);
+            } else {
+                dated.orOperator(where("published").lt(before), where("published").is(before).and("_id").lt(beforeId));
+            }
+            entries.addAll(find(dated, limit));
+        }
+        return entries;
+    }
+
+    @Override
+    public List<ActivityStreamsEntry> getOldestByUserIds(Set<String> ids, int limit) {
+        List<ActivityStreamsEntry> entries = new ArrayList<ActivityStreamsEntry>();
+        if (ids == null || ids.isEmpty() || limit <= 0) {
+            return entries;
+        }
+        //The undated entries sort first, the dated ones follow from the oldest on
+        entries.addAll(find(where("actor._id").in(ids).and("published").exists(false), limit, Order.ASCENDING));
+        if (entries.size() < limit) {
+            entries.addAll(find(where("actor._id").in(ids).and("published").exists(true), limit - entries.size(), Order.ASCENDING));
+        }
+        return entries;
+    }
+
+    private List<? extends ActivityStreamsEntry> find(Criteria criteria, int limit) {
+        return find(criteria, limit, Order.DESCENDING);
+    }
+
+    private List<? extends ActivityStreamsEntry> find(Criteria criteria, int limit, Order order) {
+        Query query = query(criteria).limit(limit);
+        query.sort().on("published", order).on("_id", order);
+        return template.find(query, CLASS, ACTIVITIES);
+    }
+
     @Override
     public void deleteById(String id) {
         template.remove(query(where("_id").is(id)), ACTIVITIES);
@@ -26,18 +26,30 @@ import org.apache.rave.portal.model.impl.ApplicationDataImpl;
 import org.apache.rave.portal.repository.ApplicationDataRepository;
 import org.apache.rave.util.CollectionUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import static org.apache.rave.portal.repository.util.CollectionNames.APP_DATA_COLLECTION;
 import static org.springframework.data.mongodb.core.query.Criteria.where;
 import static org.springframework.data.mongodb.core.query.Query.query;
 
+/**
+ * Stores the application data of a user and application as one document.  The key value writes upsert that document
+ * without a lock; the unique index on appUrl and userId declared by {@link MongoDbIndexBootstrapper} keeps concurrent
+ * first writes from creating two documents.  The write that loses the race fails on the index and is applied once
+ * more, now as an update of the document the other write created.
+ */
 @Repository
 public class MongoDbApplicationDataRepository implements ApplicationDataRepository {
     public static final Class<ApplicationDataImpl> CLASS = ApplicationDataImpl.class;
+    private static final String DATA_FIELD = "data";
 
     @Autowired
     private MongoOperations template;
@@ -52,6 +64,36 @@ public class MongoDbApplicationDataRepository implements ApplicationDataReposito
         return template.findOne(query(where("appUrl").is(appId).andOperator(where("userId").is(personId))), CLASS, APP_DATA_COLLECTION);
     }
 
+    /**
+     * Sets and unsets the keys as fields of the embedded data document with a single upsert, so the other keys of the
+     * document are neither read nor written
+     */
+    @Override
+    public void updateApplicationDataValues(String personId, String appId, Map<String, Object> values, Set<String> removedKeys) {
+        Update update = new Update();
+        for (Map.Entry<String, Object> entry : values.entrySet()) {
+            update.set(getDataPath(entry.getKey()), entry.getValue());
+        }
+        for (String key : removedKeys) {
+            update.unset(getDataPath(key));
+        }
+        if (values.isEmpty()) {
+            template.updateFirst(getApplicationDataQuery(personId, appId), update, APP_DATA_COLLECTION);
+        } else {
+            upsert(personId, appId, update);
+        }
+    }
+
+    @Override
+    public void replaceApplicationDataValues(String personId, String appId, Map<String, Object> values) {
+        Update update = new Update().set(DATA_FIELD, values);
+        if (values.isEmpty()) {
+            template.updateFirst(getApplicationDataQuery(personId, appId), update, APP_DATA_COLLECTION);
+        } else {
+            upsert(personId, appId, update);
+        }
+    }
+
     @Override
     public Class<? extends ApplicationData> getType() {
         return CLASS;
@@ -91,4 +133,27 @@ public class MongoDbApplicationDataRepository implements ApplicationDataReposito
     public void setTemplate(MongoOperations template) {
         this.template = template;
     }
+
+    private void upsert(String personId, String appId, Update update) {
+        try {
+            template.upsert(getApplicationDataQuery(personId, appId), update, APP_DATA_COLLECTION);
+        } catch (DuplicateKeyException e) {
+            //a concurrent first write inserted the document after this upsert found none, so it matches now
+            template.upsert(getApplicationDataQuery(personId, appId), update, APP_DATA_COLLECTION);
+        }
+    }
+
+    /**
+     * Equality only, so that an upsert copies the user and application into the document it creates
+     */
+    private static Query getApplicationDataQuery(String personId, String appId) {
+        return query(where("appUrl").is(appId).and("userId").is(personId));
+    }
+
+    private static String getDataPath(String key) {
+        if (key.startsWith("$") || key.contains(".")) {
+            throw new IllegalArgumentException("Application data key cannot be stored as a document field: " + key);
+        }
+        return DATA_FIELD + "." + key;
+    }
 }
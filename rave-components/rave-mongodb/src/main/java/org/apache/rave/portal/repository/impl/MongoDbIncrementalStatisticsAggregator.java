@@ -0,0 +1,624 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.rave.portal.repository.impl;
+
+import com.google.common.base.Objects;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.mongodb.AggregationOutput;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
+import com.mongodb.WriteResult;
+import org.apache.rave.model.Page;
+import org.apache.rave.model.Region;
+import org.apache.rave.model.RegionWidget;
+import org.apache.rave.model.Widget;
+import org.apache.rave.model.WidgetRating;
+import org.apache.rave.portal.model.MongoDbWidget;
+import org.apache.rave.portal.model.MongoDbWidgetStatistics;
+import org.apache.rave.portal.model.util.WidgetStatistics;
+import org.apache.rave.portal.repository.StatisticsAggregator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.BasicQuery;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.apache.rave.portal.repository.util.CollectionNames.*;
+import static org.springframework.data.mongodb.core.FindAndModifyOptions.options;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+/**
+ * Provides Statistics from one counter document per widget in the widget_statistics collection.
+ * <p/>
+ * The counters are updated with atomic $inc/$set operations as ratings and region widgets are written through
+ * {@link MongoWidgetTemplate} and {@link MongoPageTemplate}.  Writes that bypass the templates are corrected by a
+ * full rebuild with the aggregation framework (MongoDB 2.2+) that runs at startup and every
+ * portal.widget_statistics.reconcile_interval_minutes minutes.  Every incremental update also increments the version
+ * of the counter document, and the rebuild only replaces counters whose version did not change while it was reading
+ * the widgets and pages, so it never overwrites increments it has not seen.  Counters that were updated during a
+ * rebuild are left to the next one.  The score of the current user is read from the ratings of the widgets
+ * themselves.  The time spent on incremental updates and rebuilds is exposed through the getters of this class and
+ * the last rebuild is recorded in the ops collection.
+ */
+@Component
+public class MongoDbIncrementalStatisticsAggregator implements StatisticsAggregator {
+
+    private static final Logger log = LoggerFactory.getLogger(MongoDbIncrementalStatisticsAggregator.class);
+
+    public static final Class<MongoDbWidgetStatistics> CLASS = MongoDbWidgetStatistics.class;
+    public static final String ID = "widgetStatistics";
+    public static final long DEFAULT_REBUILD_INTERVAL_MINUTES = 60;
+
+    private static final String LIKE = "like";
+    private static final String DISLIKE = "dislike";
+    private static final String USER_COUNT = "userCount";
+    private static final String USERS = "users";
+    private static final String VERSION = "version";
+    private static final String RATINGS = "ratings";
+    //per user scores kept by earlier versions of the counter documents
+    private static final String LEGACY_USER_RATINGS = "userRatings";
+    private static final int LIKE_SCORE = 10;
+    private static final int DISLIKE_SCORE = 0;
+
+    private final MongoOperations mongoOperations;
+    private final AtomicLong updateCount = new AtomicLong();
+    private final AtomicLong updateTimeNanos = new AtomicLong();
+    private final AtomicLong rebuildCount = new AtomicLong();
+    private final AtomicLong rebuildTimeMillis = new AtomicLong();
+    private volatile long lastRebuildTimeMillis;
+
+    private long rebuildIntervalMinutes = DEFAULT_REBUILD_INTERVAL_MINUTES;
+    private ScheduledExecutorService rebuildExecutor;
+
+    @Autowired
+    public MongoDbIncrementalStatisticsAggregator(MongoOperations mongoOperations) {
+        this.mongoOperations = mongoOperations;
+    }
+
+    @Value("${portal.widget_statistics.reconcile_interval_minutes:60}")
+    public void setRebuildIntervalMinutes(long rebuildIntervalMinutes) {
+        this.rebuildIntervalMinutes = rebuildIntervalMinutes;
+    }
+
+    @PostConstruct
+    public void init() {
+        rebuildExecutor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "rave-widget-statistics-rebuild");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        Runnable rebuild = new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    rebuildIfStale();
+                } catch (Exception e) {
+                    log.error("Error rebuilding the widget statistics", e);
+                }
+            }
+        };
+        if (rebuildIntervalMinutes > 0) {
+            rebuildExecutor.scheduleWithFixedDelay(rebuild, 0, rebuildIntervalMinutes, TimeUnit.MINUTES);
+        } else {
+            rebuildExecutor.execute(rebuild);
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (rebuildExecutor != null) {
+            rebuildExecutor.shutdownNow();
+        }
+    }
+
+    @Override
+    public WidgetStatistics getWidgetStatistics(String widget_id, String user_id) {
+        Query query = query(where("_id").is(widget_id));
+        includeCounters(query);
+        WidgetStatistics statistics = toWidgetStatistics(mongoOperations.findOne(query, CLASS, WIDGET_STATISTICS));
+        Integer rating = getUserScores(new BasicDBObject("_id", widget_id), user_id).get(widget_id);
+        if (rating != null) {
+            statistics.setUserRating(rating);
+        }
+        return statistics;
+    }
+
+    @Override
+    public Map<String, WidgetStatistics> getAllWidgetStatistics(String userId) {
+        Query query = new Query();
+        includeCounters(query);
+        Map<String, WidgetStatistics> stats = Maps.newHashMap();
+        for (MongoDbWidgetStatistics statistics : mongoOperations.find(query, CLASS, WIDGET_STATISTICS)) {
+            WidgetStatistics widgetStatistics = toWidgetStatistics(statistics);
+            if (widgetStatistics.getTotalLike() > 0 || widgetStatistics.getTotalDislike() > 0
+                    || widgetStatistics.getTotalUserCount() > 0) {
+                stats.put(statistics.getId(), widgetStatistics);
+            }
+        }
+        for (Map.Entry<String, Integer> rating : getUserScores(new BasicDBObject(), userId).entrySet()) {
+            WidgetStatistics widgetStatistics = stats.get(rating.getKey());
+            if (widgetStatistics != null) {
+                widgetStatistics.setUserRating(rating.getValue());
+            }
+        }
+        return stats;
+    }
+
+    @Override
+    public Set<String> getUsersWithWidget(String widgetId) {
+        Query query = query(where("_id").is(widgetId));
+        query.fields().include(USERS);
+        MongoDbWidgetStatistics statistics = mongoOperations.findOne(query, CLASS, WIDGET_STATISTICS);
+        Set<String> users = new HashSet<String>();
+        if (statistics != null && statistics.getUsers() != null) {
+            for (Map.Entry<String, Integer> entry : statistics.getUsers().entrySet()) {
+                if (entry.getValue() != null && entry.getValue() > 0) {
+                    users.add(entry.getKey());
+                }
+            }
+        }
+        return users;
+    }
+
+    /**
+     * Applies the difference between the ratings of two versions of a widget to its counters
+     *
+     * @param previous the widget as it was stored before the save, or null for a new widget
+     * @param current the widget as it was saved
+     */
+    public void widgetChanged(Widget previous, Widget current) {
+        applyScores(current.getId(), getScores(previous), getScores(current));
+    }
+
+    /**
+     * Applies a single rating change made in place on a stored widget to its counters
+     *
+     * @param widgetId the id of the rated widget
+     * @param previous the rating as it was stored before the change, or null for a new rating
+     * @param current the rating as it was stored after the change, or null for a removed rating
+     */
+    public void ratingChanged(String widgetId, WidgetRating previous, WidgetRating current) {
+        applyScores(widgetId, getScores(previous), getScores(current));
+    }
+
+    private void applyScores(String widgetId, Map<String, Integer> before, Map<String, Integer> after) {
+        long start = System.nanoTime();
+        int likes = 0;
+        int dislikes = 0;
+        for (String userId : Sets.union(before.keySet(), after.keySet())) {
+            Integer oldScore = before.get(userId);
+            Integer newScore = after.get(userId);
+            if (!Objects.equal(oldScore, newScore)) {
+                likes += count(newScore, LIKE_SCORE) - count(oldScore, LIKE_SCORE);
+                dislikes += count(newScore, DISLIKE_SCORE) - count(oldScore, DISLIKE_SCORE);
+            }
+        }
+        if (likes == 0 && dislikes == 0) {
+            return;
+        }
+        try {
+            Update update = new Update().inc(LIKE, likes).inc(DISLIKE, dislikes).inc(VERSION, 1);
+            mongoOperations.upsert(query(where("_id").is(widgetId)), update, WIDGET_STATISTICS);
+        } catch (RuntimeException e) {
+            log.warn("Unable to update the rating statistics of widget " + widgetId, e);
+        }
+        recordUpdate(start);
+    }
+
+    /**
+     * Applies the difference between the region widgets of two versions of a page to the user counts of the widgets
+     *
+     * @param previous the page as it was stored before the save, or null for a new page
+     * @param current the page as it was saved, or null for a removed page
+     */
+    public void pageChanged(Page previous, Page current) {
+        long start = System.nanoTime();
+        Map<String, Map<String, Integer>> deltas = Maps.newHashMap();
+        addPlacements(deltas, previous, -1);
+        addPlacements(deltas, current, 1);
+        boolean changed = false;
+        for (Map.Entry<String, Map<String, Integer>> owner : deltas.entrySet()) {
+            for (Map.Entry<String, Integer> widget : owner.getValue().entrySet()) {
+                if (widget.getValue() != 0) {
+                    changed = true;
+                    updatePlacements(widget.getKey(), owner.getKey(), widget.getValue());
+                }
+            }
+        }
+        if (changed) {
+            recordUpdate(start);
+        }
+    }
+
+    /**
+     * Drops the counters of deleted widgets
+     *
+     * @param widgetIds the ids of the deleted widgets
+     */
+    public void widgetsRemoved(Collection<String> widgetIds) {
+        for (String widgetId : widgetIds) {
+            try {
+                mongoOperations.remove(query(where("_id").is(widgetId)), WIDGET_STATISTICS);
+            } catch (RuntimeException e) {
+                log.warn("Unable to remove the statistics of widget " + widgetId, e);
+            }
+        }
+    }
+
+    /**
+     * Rebuilds the counters unless another node did so within the rebuild interval
+     */
+    public void rebuildIfStale() {
+        RebuildStatistics last = mongoOperations.findById(ID, RebuildStatistics.class, OPERATIONS);
+        if (last == null || rebuildIntervalMinutes <= 0
+                || System.currentTimeMillis() - last.getRefreshedTimeStamp() >= TimeUnit.MINUTES.toMillis(rebuildIntervalMinutes)) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Recomputes the counters of all widgets from the widget and page collections
+     */
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        //read the versions first, any counter updated after this point may already be newer than the aggregation
+        Map<String, Long> versions = getVersions();
+        Map<String, MongoDbWidgetStatistics> rebuilt = Maps.newHashMap();
+        aggregateRatings(rebuilt);
+        aggregateUsers(rebuilt, "regions", "regions.regionWidgets");
+        aggregateUsers(rebuilt, "subPages", "subPages.regions", "subPages.regions.regionWidgets");
+        int skipped = replaceCounters(rebuilt, versions);
+        if (skipped > 0) {
+            log.debug("Skipped {} widgets whose statistics were updated during the rebuild", skipped);
+        }
+        long duration = System.currentTimeMillis() - start;
+        rebuildCount.incrementAndGet();
+        rebuildTimeMillis.addAndGet(duration);
+        lastRebuildTimeMillis = duration;
+        mongoOperations.save(new RebuildStatistics(ID, System.currentTimeMillis(), duration, rebuilt.size()), OPERATIONS);
+        log.info("Rebuilt the statistics of {} widgets in {} ms", rebuilt.size(), duration);
+    }
+
+    public long getUpdateCount() {
+        return updateCount.get();
+    }
+
+    public long getUpdateTimeNanos() {
+        return updateTimeNanos.get();
+    }
+
+    public long getRebuildCount() {
+        return rebuildCount.get();
+    }
+
+    public long getRebuildTimeMillis() {
+        return rebuildTimeMillis.get();
+    }
+
+    public long getLastRebuildTimeMillis() {
+        return lastRebuildTimeMillis;
+    }
+
+    /**
+     * Replaces the counters of the rebuilt widgets and removes the counters of widgets that are no longer rated or
+     * placed, unless an incremental update changed the version of their document since it was read
+     *
+     * @param rebuilt the recomputed counters keyed by widget id
+     * @param versions the versions of the existing counter documents, read before the counters were recomputed
+     * @return the number of widgets that were left unchanged because of concurrent updates
+     */
+    int replaceCounters(Map<String, MongoDbWidgetStatistics> rebuilt, Map<String, Long> versions) {
+        int skipped = 0;
+        for (MongoDbWidgetStatistics statistics : rebuilt.values()) {
+            statistics.setUserCount(statistics.getUsers().size());
+            if (!versions.containsKey(statistics.getId())) {
+                try {
+                    mongoOperations.insert(statistics, WIDGET_STATISTICS);
+                } catch (DuplicateKeyException e) {
+                    skipped++;
+                }
+                continue;
+            }
+            Update update = new Update().set(LIKE, statistics.getLike()).set(DISLIKE, statistics.getDislike())
+                    .set(USER_COUNT, statistics.getUserCount()).set(USERS, statistics.getUsers())
+                    .unset(LEGACY_USER_RATINGS);
+            WriteResult result = mongoOperations.updateFirst(atVersion(statistics.getId(), versions.get(statistics.getId())),
+                    update, WIDGET_STATISTICS);
+            if (result != null && result.getN() == 0) {
+                skipped++;
+            }
+        }
+        for (Map.Entry<String, Long> existing : versions.entrySet()) {
+            if (!rebuilt.containsKey(existing.getKey())) {
+                mongoOperations.remove(atVersion(existing.getKey(), existing.getValue()), WIDGET_STATISTICS);
+            }
+        }
+        return skipped;
+    }
+
+    private Map<String, Long> getVersions() {
+        Query existing = new Query();
+        existing.fields().include(VERSION);
+        Map<String, Long> versions = Maps.newHashMap();
+        for (MongoDbWidgetStatistics statistics : mongoOperations.find(existing, CLASS, WIDGET_STATISTICS)) {
+            versions.put(statistics.getId(), statistics.getVersion());
+        }
+        return versions;
+    }
+
+    private static Query atVersion(String widgetId, Long version) {
+        Criteria criteria = where("_id").is(widgetId);
+        return query(version == null ? criteria.and(VERSION).exists(false) : criteria.and(VERSION).is(version));
+    }
+
+    /**
+     * Returns the scores the given user gave to the widgets matching the filter, keyed by widget id
+     */
+    private Map<String, Integer> getUserScores(BasicDBObject widgets, String userId) {
+        Map<String, Integer> scores = Maps.newHashMap();
+        if (userId == null) {
+            return scores;
+        }
+        DBObject rating = new BasicDBObject("$elemMatch", new BasicDBObject("userId", userId));
+        DBObject rated = widgets.append(RATINGS, rating);
+        for (MongoDbWidget widget : mongoOperations.find(new BasicQuery(rated, new BasicDBObject(RATINGS, rating)),
+                MongoDbWidget.class, WIDGET_COLLECTION)) {
+            List<WidgetRating> ratings = widget.getRatings();
+            if (ratings != null && !ratings.isEmpty() && ratings.get(0).getScore() != null) {
+                scores.put(widget.getId(), ratings.get(0).getScore());
+            }
+        }
+        return scores;
+    }
+
+    private void updatePlacements(String widgetId, String ownerId, int delta) {
+        String key = USERS + "." + ownerId;
+        try {
+            Query counter = query(where("_id").is(widgetId));
+            counter.fields().include(key);
+            MongoDbWidgetStatistics statistics = mongoOperations.findAndModify(counter, new Update().inc(key, delta).inc(VERSION, 1),
+                    options().returnNew(true).upsert(true), CLASS, WIDGET_STATISTICS);
+            Integer placements = statistics == null || statistics.getUsers() == null ? null : statistics.getUsers().get(ownerId);
+            int after = placements == null ? 0 : placements;
+            int before = after - delta;
+            //exactly one writer observes the transition of an owner from zero to some placements and back
+            if (before <= 0 && after > 0) {
+                mongoOperations.updateFirst(query(where("_id").is(widgetId)), new Update().inc(USER_COUNT, 1).inc(VERSION, 1), WIDGET_STATISTICS);
+            } else if (before > 0 && after <= 0) {
+                mongoOperations.updateFirst(query(where("_id").is(widgetId)), new Update().inc(USER_COUNT, -1).inc(VERSION, 1), WIDGET_STATISTICS);
+            }
+            if (after <= 0) {
+                mongoOperations.updateFirst(query(where("_id").is(widgetId).and(key).lte(0)), new Update().unset(key).inc(VERSION, 1), WIDGET_STATISTICS);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Unable to update the user statistics of widget " + widgetId, e);
+        }
+    }
+
+    private void recordUpdate(long startNanos) {
+        updateCount.incrementAndGet();
+        updateTimeNanos.addAndGet(System.nanoTime() - startNanos);
+    }
+
+    private void aggregateRatings(Map<String, MongoDbWidgetStatistics> rebuilt) {
+        DBObject group = new BasicDBObject("_id", "$_id")
+                .append(LIKE, countScore(LIKE_SCORE))
+                .append(DISLIKE, countScore(DISLIKE_SCORE));
+        AggregationOutput output = mongoOperations.getCollection(WIDGET_COLLECTION).aggregate(
+                new BasicDBObject("$project", new BasicDBObject(RATINGS + ".score", 1)),
+                new BasicDBObject("$unwind", "$" + RATINGS),
+                new BasicDBObject("$group", group));
+        for (DBObject result : output.results()) {
+            MongoDbWidgetStatistics statistics = getStatistics(rebuilt, result.get("_id").toString());
+            statistics.setLike(((Number) result.get(LIKE)).intValue());
+            statistics.setDislike(((Number) result.get(DISLIKE)).intValue());
+        }
+    }
+
+    private void aggregateUsers(Map<String, MongoDbWidgetStatistics> rebuilt, String... arrayPaths) {
+        DBObject[] pipeline = new DBObject[arrayPaths.length + 2];
+        pipeline[0] = new BasicDBObject("$project", new BasicDBObject("ownerId", 1).append(arrayPaths[0], 1));
+        for (int i = 0; i < arrayPaths.length; i++) {
+            pipeline[i + 1] = new BasicDBObject("$unwind", "$" + arrayPaths[i]);
+        }
+        String widgetIdPath = "$" + arrayPaths[arrayPaths.length - 1] + ".widgetId";
+        pipeline[pipeline.length - 1] = new BasicDBObject("$group",
+                new BasicDBObject("_id", new BasicDBObject("widgetId", widgetIdPath).append("ownerId", "$ownerId"))
+                        .append("placements", new BasicDBObject("$sum", 1)));
+        AggregationOutput output = mongoOperations.getCollection(PAGE_COLLECTION)
+                .aggregate(pipeline[0], Arrays.copyOfRange(pipeline, 1, pipeline.length));
+        for (DBObject result : output.results()) {
+            DBObject id = (DBObject) result.get("_id");
+            Object widgetId = id.get("widgetId");
+            Object ownerId = id.get("ownerId");
+            if (widgetId == null || ownerId == null) {
+                continue;
+            }
+            Map<String, Integer> users = getStatistics(rebuilt, widgetId.toString()).getUsers();
+            Integer placements = users.get(ownerId.toString());
+            users.put(ownerId.toString(), (placements == null ? 0 : placements) + ((Number) result.get("placements")).intValue());
+        }
+    }
+
+    private static DBObject countScore(int score) {
+        DBObject matches = new BasicDBObject("$eq", Arrays.<Object>asList("$ratings.score", score));
+        return new BasicDBObject("$sum", new BasicDBObject("$cond", Arrays.<Object>asList(matches, 1, 0)));
+    }
+
+    private static MongoDbWidgetStatistics getStatistics(Map<String, MongoDbWidgetStatistics> rebuilt, String widgetId) {
+        MongoDbWidgetStatistics statistics = rebuilt.get(widgetId);
+        if (statistics == null) {
+            statistics = new MongoDbWidgetStatistics(widgetId);
+            statistics.setLike(0);
+            statistics.setDislike(0);
+            statistics.setUsers(Maps.<String, Integer>newHashMap());
+            rebuilt.put(widgetId, statistics);
+        }
+        return statistics;
+    }
+
+    private static void includeCounters(Query query) {
+        query.fields().include(LIKE).include(DISLIKE).include(USER_COUNT);
+    }
+
+    private static WidgetStatistics toWidgetStatistics(MongoDbWidgetStatistics statistics) {
+        WidgetStatistics widgetStatistics = new WidgetStatistics();
+        widgetStatistics.setUserRating(-1);
+        if (statistics != null) {
+            widgetStatistics.setTotalLike(intValue(statistics.getLike()));
+            widgetStatistics.setTotalDislike(intValue(statistics.getDislike()));
+            widgetStatistics.setTotalUserCount(intValue(statistics.getUserCount()));
+        }
+        return widgetStatistics;
+    }
+
+    private static int intValue(Integer value) {
+        return value == null ? 0 : value;
+    }
+
+    private static int count(Integer score, int expected) {
+        return score != null && score == expected ? 1 : 0;
+    }
+
+    private static Map<String, Integer> getScores(Widget widget) {
+        Map<String, Integer> scores = Maps.newHashMap();
+        if (widget != null && widget.getRatings() != null) {
+            for (WidgetRating rating : widget.getRatings()) {
+                scores.put(rating.getUserId(), rating.getScore());
+            }
+        }
+        return scores;
+    }
+
+    private static Map<String, Integer> getScores(WidgetRating rating) {
+        Map<String, Integer> scores = Maps.newHashMap();
+        if (rating != null) {
+            scores.put(rating.getUserId(), rating.getScore());
+        }
+        return scores;
+    }
+
+    private static void addPlacements(Map<String, Map<String, Integer>> deltas, Page page, int delta) {
+        if (page == null || page.getOwnerId() == null) {
+            return;
+        }
+        Map<String, Integer> ownerDeltas = deltas.get(page.getOwnerId());
+        if (ownerDeltas == null) {
+            ownerDeltas = Maps.newHashMap();
+            deltas.put(page.getOwnerId(), ownerDeltas);
+        }
+        addOwnerPlacements(ownerDeltas, page, delta);
+    }
+
+    private static void addOwnerPlacements(Map<String, Integer> ownerDeltas, Page page, int delta) {
+        if (page.getRegions() != null) {
+            for (Region region : page.getRegions()) {
+                if (region.getRegionWidgets() == null) {
+                    continue;
+                }
+                for (RegionWidget regionWidget : region.getRegionWidgets()) {
+                    if (regionWidget.getWidgetId() != null) {
+                        Integer current = ownerDeltas.get(regionWidget.getWidgetId());
+                        ownerDeltas.put(regionWidget.getWidgetId(), (current == null ? 0 : current) + delta);
+                    }
+                }
+            }
+        }
+        if (page.getSubPages() != null) {
+            for (Page subPage : page.getSubPages()) {
+                addOwnerPlacements(ownerDeltas, subPage, delta);
+            }
+        }
+    }
+
+    public static class RebuildStatistics {
+        private String id;
+        private Long refreshedTimeStamp;
+        private Long durationMillis;
+        private Integer widgetCount;
+
+        public RebuildStatistics() {
+        }
+
+        public RebuildStatistics(String id, long timestamp, long durationMillis, int widgetCount) {
+            this.id = id;
+            this.refreshedTimeStamp = timestamp;
+            this.durationMillis = durationMillis;
+            this.widgetCount = widgetCount;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public void setId(String id) {
+            this.id = id;
+        }
+
+        public Long getRefreshedTimeStamp() {
+            return refreshedTimeStamp;
+        }
+
+        public void setRefreshedTimeStamp(Long refreshedTimeStamp) {
+            this.refreshedTimeStamp = refreshedTimeStamp;
+        }
+
+        public Long getDurationMillis() {
+            return durationMillis;
+        }
+
+        public void setDurationMillis(Long durationMillis) {
+            this.durationMillis = durationMillis;
+        }
+
+        public Integer getWidgetCount() {
+            return widgetCount;
+        }
+
+        public void setWidgetCount(Integer widgetCount) {
+            this.widgetCount = widgetCount;
+        }
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.rave.portal.repository.impl;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import org.springframework.data.mongodb.core.query.Order;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.List;
+import java.util.Map;
+
+import static org.apache.rave.portal.repository.util.CollectionNames.*;
+
+/**
+ * Declares the indexes backing the queries of the MongoDB repositories and creates them at startup.  Ensuring an
+ * index that already exists is a no-op, so this runs every time the context starts.
+ * <p/>
+ * The activity stream index is owned by {@link MongoDbActivityStreamsRepository}.  Free text searches use
+ * unanchored regular expressions, which cannot use an index and are not covered here.
+ */
+@Component
+public class MongoDbIndexBootstrapper {
+    private static final Logger log = LoggerFactory.getLogger(MongoDbIndexBootstrapper.class);
+
+    private static final Map<String, List<IndexDefinition>> INDEXES = ImmutableMap.<String, List<IndexDefinition>>builder()
+            .put(PAGE_COLLECTION, ImmutableList.<IndexDefinition>of(
+                    // every page query is scoped by type, so it leads the compound indexes
+                    new Index().on("pageType", Order.ASCENDING).on("members.userId", Order.ASCENDING),
+                    new Index().on("pageType", Order.ASCENDING).on("ownerId", Order.ASCENDING),
+                    new Index().on("pageType", Order.ASCENDING).on("contextId", Order.ASCENDING),
+                    // sub pages are embedded up to three levels deep and looked up by id
+                    new Index().on("subPages._id", Order.ASCENDING),
+                    new Index().on("subPages.subPages._id", Order.ASCENDING),
+                    new Index().on("subPages.subPages.subPages._id", Order.ASCENDING)))
+            .put(WIDGET_COLLECTION, ImmutableList.<IndexDefinition>of(
+                    new Index().on("url", Order.ASCENDING),
+                    new Index().on("widgetStatus", Order.ASCENDING),
+                    new Index().on("ownerId", Order.ASCENDING),
+                    new Index().on("ratings.userId", Order.ASCENDING),
+                    new Index().on("comments.userId", Order.ASCENDING),
+                    new Index().on("tags.tagId", Order.ASCENDING)))
+            .put(TAG_COLLECTION, ImmutableList.<IndexDefinition>of(
+                    new Index().on("keyword", Order.ASCENDING)))
+            .put(USER_COLLECTION, ImmutableList.<IndexDefinition>of(
+                    new Index().on("username", Order.ASCENDING),
+                    new Index().on("email", Order.ASCENDING),
+                    new Index().on("openId", Order.ASCENDING),
+                    new Index().on("forgotPasswordHash", Order.ASCENDING)))
+            .put(APP_DATA_COLLECTION, ImmutableList.<IndexDefinition>of(
+                    // the key value writes upsert on the user and application, so only one document may match them
+                    new Index().on("appUrl", Order.ASCENDING).on("userId", Order.ASCENDING).unique()))
+            .build();
+
+    private final MongoOperations template;
+
+    @Autowired
+    public MongoDbIndexBootstrapper(MongoOperations template) {
+        this.template = template;
+    }
+
+    @PostConstruct
+    public void ensureIndexes() {
+        for (Map.Entry<String, List<IndexDefinition>> entry : INDEXES.entrySet()) {
+            for (IndexDefinition index : entry.getValue()) {
+                log.debug("Ensuring index {} on collection {}", index.getIndexKeys(), entry.getKey());
+                template.ensureIndex(index, entry.getKey());
+            }
+        }
+    }
+
+    /**
+     * @return the declared indexes keyed by collection name
+     */
+    public static Map<String, List<IndexDefinition>> getIndexes() {
+        return INDEXES;
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.rave.portal.repository.impl;
+
+import org.apache.rave.exception.DuplicateItemException;
+import org.apache.rave.portal.model.MongoDbLockLease;
+import org.apache.rave.portal.repository.LockLeaseRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Repository;
+
+import static org.apache.rave.portal.repository.util.CollectionNames.LOCK_LEASE_COLLECTION;
+import static org.springframework.data.mongodb.core.FindAndModifyOptions.options;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+/**
+ * Stores lock leases as one document per lock key.  Grants are a single atomic findAndModify on the key document;
+ * the first grant of a key relies on the unique _id to reject a concurrent insert from another node.
+ */
+@Repository
+public class MongoDbLockLeaseRepository implements LockLeaseRepository {
+
+    public static final Class<MongoDbLockLease> CLASS = MongoDbLockLease.class;
+
+    @Autowired
+    private MongoOperations template;
+
+    @Override
+    public Long tryAcquire(String key, String owner, long now, long leaseMillis) {
+        Criteria grantable = where("_id").is(key).orOperator(where("expiresAt").lt(now), where("owner").is(owner));
+        Update grant = new Update().set("owner", owner).set("expiresAt", now + leaseMillis).inc("fencingToken", 1);
+        MongoDbLockLease lease = template.findAndModify(query(grantable), grant, options().returnNew(true), CLASS,
+                LOCK_LEASE_COLLECTION);
+        if (lease != null) {
+            return lease.getFencingToken();
+        }
+        if (template.findById(key, CLASS, LOCK_LEASE_COLLECTION) != null) {
+            return null;
+        }
+        try {
+            template.insert(new MongoDbLockLease(key, owner, 1L, now + leaseMillis), LOCK_LEASE_COLLECTION);
+        } catch (DuplicateKeyException e) {
+            throw new DuplicateItemException("Lease on [" + key + "] was granted concurrently", e);
+        }
+        return 1L;
+    }
+
+    @Override
+    public boolean renew(String key, String owner, long fencingToken, long now, long leaseMillis) {
+        Criteria held = where("_id").is(key).and("owner").is(owner).and("fencingToken").is(fencingToken)
+                .and("expiresAt").gte(now);
+        return template.updateFirst(query(held), new Update().set("expiresAt", now + leaseMillis),
+                LOCK_LEASE_COLLECTION).getN() > 0;
+    }
+
+    @Override
+    public void release(String key, String owner, long fencingToken) {
+        Criteria held = where("_id").is(key).and("owner").is(owner).and("fencingToken").is(fencingToken);
+        template.updateFirst(query(held), new Update().set("expiresAt", 0L), LOCK_LEASE_COLLECTION);
+    }
+
+    public void setTemplate(MongoOperations template) {
+        this.template = template;
+    }
+}
@@ -30,7 +30,6 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.mongodb.core.MongoOperations;
 import org.springframework.data.mongodb.core.mapreduce.MapReduceOptions;
 import org.springframework.data.mongodb.core.mapreduce.MapReduceResults;
-import org.springframework.stereotype.Component;
 
 import javax.annotation.PostConstruct;
 import java.util.List;
@@ -43,8 +42,10 @@ import static org.apache.rave.portal.repository.util.CollectionNames.*;
 
 /**
  * Provides Statistics via MapReduce jobs
+ * <p/>
+ * No longer component scanned, the default is {@link MongoDbIncrementalStatisticsAggregator}.  To go back to the
+ * periodic MapReduce jobs declare this class as a bean with primary="true".
  */
-@Component
 public class MongoDbMapReduceStatisticsAggregator implements StatisticsAggregator {
 
     private static final Logger log = LoggerFactory.getLogger(MongoDbMapReduceStatisticsAggregator.class);
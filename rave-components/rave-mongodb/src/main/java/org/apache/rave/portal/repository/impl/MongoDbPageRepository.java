@@ -27,6 +27,7 @@ import org.apache.rave.portal.model.impl.PageUserImpl;
 import org.apache.rave.portal.model.impl.RegionImpl;
 import org.apache.rave.portal.model.impl.RegionWidgetImpl;
 import org.apache.rave.portal.model.util.MongoDbModelUtil;
+import org.apache.rave.portal.model.util.PageNavigationItem;
 import org.apache.rave.portal.repository.MongoPageOperations;
 import org.apache.rave.portal.repository.PageRepository;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -55,6 +56,17 @@ public class MongoDbPageRepository implements PageRepository {
         return sort(template.find(query(where("pageType").is(getString(pageType)).andOperator(where("members").elemMatch(where("userId").is(userId))))), userId);
     }
 
+    @Override
+    public List<PageNavigationItem> getNavigationForUserType(String userId, String pageType) {
+        Query query = query(where("pageType").is(getString(pageType)).andOperator(where("members").elemMatch(where("userId").is(userId))));
+        query.fields().include("name").include("ownerId").include("members");
+        List<PageNavigationItem> navigation = Lists.newArrayList();
+        for (Page page : template.findProjected(query)) {
+            navigation.add(new PageNavigationItem(page, findPageUser(userId, page)));
+        }
+        return sortNavigation(navigation);
+    }
+
     @Override
     public List<Page> getPagesForContextType(String contextId, String pageType) {
         return template.find(query(where("pageType").is(getString(pageType)).andOperator(where("contextId").is(contextId))));
@@ -170,6 +182,20 @@ public class MongoDbPageRepository implements PageRepository {
         return userList;
     }
 
+    private List<PageNavigationItem> sortNavigation(List<PageNavigationItem> navigation) {
+        Collections.sort(navigation, new Comparator<PageNavigationItem>() {
+            @Override
+            public int compare(PageNavigationItem item, PageNavigationItem item1) {
+                return getNavigationOrder(item) - getNavigationOrder(item1);
+            }
+        });
+        return navigation;
+    }
+
+    private int getNavigationOrder(PageNavigationItem item) {
+        return item.getRenderSequence() == null ? Integer.MAX_VALUE : item.getRenderSequence().intValue();
+    }
+
     private int getRenderOrder(PageUser pageUser) {
         return pageUser == null || pageUser.getRenderSequence() == null ? Integer.MAX_VALUE : pageUser.getRenderSequence().intValue();
     }
@@ -39,6 +39,7 @@ import org.springframework.stereotype.Component;
 
 import javax.annotation.Nullable;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -65,6 +66,18 @@ public class MongoDbPersonRepository implements PersonRepository {
         return template.findOne(getUsernameQuery(username)).toPerson();
     }
 
+    @Override
+    public List<Person> findByUsernames(Collection<String> usernames) {
+        List<Person> people = new ArrayList<Person>();
+        if (usernames == null || usernames.isEmpty()) {
+            return people;
+        }
+        for (User user : template.find(query(where("username").in(usernames)))) {
+            people.add(user.toPerson());
+        }
+        return people;
+    }
+
     @Override
     public List<Person> findAllConnectedPeople(String username) {
         return findFriends(username);  //TODO update when groups is implemented
@@ -27,6 +27,7 @@ import org.apache.rave.portal.model.util.WidgetStatistics;
 import org.apache.rave.portal.repository.MongoTagOperations;
 import org.apache.rave.portal.repository.MongoWidgetOperations;
 import org.apache.rave.portal.repository.StatisticsAggregator;
+import org.apache.rave.portal.repository.WidgetFetchPlan;
 import org.apache.rave.portal.repository.WidgetRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.mongodb.core.query.Criteria;
@@ -34,8 +35,9 @@ import org.springframework.data.mongodb.core.query.Order;
 import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.stereotype.Repository;
 
-import java.util.Date;
-import java.util.Iterator;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.regex.Pattern;
@@ -67,7 +69,7 @@ public class MongoDbWidgetRepository implements WidgetRepository {
 
     @Override
     public List<Widget> getLimitedList(int offset, int pageSize) {
-        return template.find(addSort(new Query().skip(offset).limit(pageSize)));
+        return template.find(addListingFields(addSort(new Query().skip(offset).limit(pageSize))));
     }
 
     @Override
@@ -78,7 +80,7 @@ public class MongoDbWidgetRepository implements WidgetRepository {
     @Override
     public List<Widget> getByFreeTextSearch(String searchTerm, int offset, int pageSize) {
         Query query = new Query(addFreeTextClause(searchTerm, new Criteria())).skip(offset).limit(pageSize);
-        return template.find(addSort(query));
+        return template.find(addListingFields(addSort(query)));
     }
 
     @Override
@@ -89,7 +91,7 @@ public class MongoDbWidgetRepository implements WidgetRepository {
     @Override
     public List<Widget> getByStatus(WidgetStatus widgetStatus, int offset, int pageSize) {
         Query query = new Query(where("widgetStatus").is(getWidgetStatusString(widgetStatus))).skip(offset).limit(pageSize);
-        return template.find(addSort(query));
+        return template.find(addListingFields(addSort(query)));
     }
 
     @Override
@@ -100,7 +102,7 @@ public class MongoDbWidgetRepository implements WidgetRepository {
     @Override
     public List<Widget> getByStatusAndTypeAndFreeTextSearch(WidgetStatus widgetStatus, String type, String searchTerm, int offset, int pageSize) {
         Query query = getWidgetStatusFreeTextQuery(widgetStatus, type, searchTerm).limit(pageSize).skip(offset);
-        return template.find(addSort(query));
+        return template.find(addListingFields(addSort(query)));
     }
 
     @Override
@@ -111,7 +113,7 @@ public class MongoDbWidgetRepository implements WidgetRepository {
     @Override
     public List<Widget> getByOwner(User owner, int offset, int pageSize) {
         Query query = getQueryByOwner(owner).skip(offset).limit(pageSize);
-        return template.find(addSort(query));
+        return template.find(addListingFields(addSort(query)));
     }
 
     @Override
@@ -152,7 +154,7 @@ public class MongoDbWidgetRepository implements WidgetRepository {
 
     @Override
     public List<Widget> getWidgetsByTag(String tagKeyWord, int offset, int pageSize) {
-        return template.find(addSort(getTagQuery(tagKeyWord).limit(pageSize).skip(offset)));
+        return template.find(addListingFields(addSort(getTagQuery(tagKeyWord).limit(pageSize).skip(offset))));
     }
 
     @Override
@@ -176,6 +178,22 @@ public class MongoDbWidgetRepository implements WidgetRepository {
         return template.get(id);
     }
 
+    @Override
+    public Widget get(String id, WidgetFetchPlan fetchPlan) {
+        if (fetchPlan == WidgetFetchPlan.FULL) {
+            return template.get(id);
+        }
+        return template.findOne(addListingFields(query(where("_id").is(id))));
+    }
+
+    @Override
+    public List<Widget> getByIds(Collection<String> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<Widget>();
+        }
+        return template.find(addListingFields(query(where("_id").in(ids))));
+    }
+
     @Override
     public Widget save(Widget item) {
         return template.save(item);
@@ -198,12 +216,7 @@ public class MongoDbWidgetRepository implements WidgetRepository {
 
     @Override
     public int deleteAllWidgetRatings(String userId) {
-        int count = 0;
-        List<Widget> widgets = template.find(query(where("ratings").elemMatch(where("userId").is(userId))));
-        for (Widget widget : widgets) {
-            count += removeUserRatings(userId, widget);
-        }
-        return count;
+        return template.removeRatings(userId);
     }
 
     @Override
@@ -214,47 +227,17 @@ public class MongoDbWidgetRepository implements WidgetRepository {
 
     @Override
     public WidgetRating createWidgetRating(String widgetId, WidgetRating rating) {
-        Widget widget = template.get(widgetId);
-        widget.getRatings().add(rating);
-        save(widget);
-        return rating;
+        return template.addRating(widgetId, rating);
     }
 
     @Override
     public WidgetRating updateWidgetRating(String widgetId, WidgetRating rating) {
-        Widget widget = template.get(widgetId);
-        WidgetRating updated = updateRating(widget, rating);
-        save(widget);
-        return updated;
+        return template.updateRating(widgetId, rating);
     }
 
     @Override
     public void deleteWidgetRating(String widgetId, WidgetRating item) {
-        Widget widget = template.get(widgetId);
-        removeRating(item.getId(), widget);
-        template.save(widget);
-    }
-
-    private WidgetRating updateRating(Widget widget, WidgetRating rating) {
-        for(WidgetRating currentRating : widget.getRatings()) {
-            if(currentRating.getId().equals(rating.getId())) {
-                currentRating.setScore(rating.getScore());
-                currentRating.setUserId(rating.getUserId());
-                return currentRating;
-            }
-        }
-        return null;
-    }
-
-    private void removeRating(String ratingId, Widget widget) {
-        Iterator<WidgetRating> iterator = widget.getRatings().iterator();
-        while (iterator.hasNext()) {
-            WidgetRating comment = iterator.next();
-            if (comment.getId().equals(ratingId)) {
-                iterator.remove();
-                return;
-            }
-        }
+        template.removeRating(widgetId, item.getId());
     }
 
     private WidgetRating getWidgetRatingById(Widget widget, String id) {
@@ -266,22 +249,6 @@ public class MongoDbWidgetRepository implements WidgetRepository {
         return null;
     }
 
-    private int removeUserRatings(String userId, Widget widget) {
-        int count = 0;
-        Iterator<WidgetRating> iterator = widget.getRatings().iterator();
-        while (iterator.hasNext()) {
-            WidgetRating rating = iterator.next();
-            if (rating.getUserId().equals(userId)) {
-                iterator.remove();
-                count++;
-            }
-        }
-        if (count > 0) {
-            template.save(widget);
-        }
-        return count;
-    }
-
     private WidgetRating getRatingByUserId(Widget widget, String userId) {
         for (WidgetRating rating : widget.getRatings()) {
             if (rating.getUserId().equals(userId)) {
@@ -311,41 +278,17 @@ public class MongoDbWidgetRepository implements WidgetRepository {
 
     @Override
     public WidgetTag saveWidgetTag(String widgetId, WidgetTag item) {
-        Widget widget = template.get(widgetId);
-        updateOrAddTag(widget, item);
-        Widget saved = template.save(widget);
-        return getWidgetTagByTagId(saved, item.getTagId());
+        //Tags can only be created once.  No reason to update the tag if it has already been made.
+        return template.addTag(widgetId, item);
     }
 
     @Override
     public void deleteWidgetTag(WidgetTag item) {
-        List<Widget> widgets = template.find(query(where("tags").elemMatch(where("tagId").is(item.getTagId()).and("userId").is(item.getUserId()).and("createdDate").is(item.getCreatedDate()))));
-        if(widgets.size() > 1 || widgets.size() == 0) {
+        Criteria tag = where("tagId").is(item.getTagId()).and("userId").is(item.getUserId()).and("createdDate").is(item.getCreatedDate());
+        if(template.count(query(where("tags").elemMatch(tag))) != 1) {
             throw new IllegalArgumentException("Unable to delete tag.  Indistinguishable from a tag on another widget or the tag doesn't exist");
-        } else {
-            Widget widget = widgets.get(0);
-            removeTag(item.getTagId(), widget);
-            save(widget);
-        }
-    }
-
-    private void updateOrAddTag(Widget widget, WidgetTag item) {
-        //Tags can only be created once.  No reason to update the tag if it has already been made.
-        WidgetTag tag = getWidgetTagByTagId(widget, item.getTagId());
-        if (tag == null) {
-            widget.getTags().add(item);
-        }
-    }
-
-    private void removeTag(String id, Widget widget) {
-        Iterator<WidgetTag> iterator = widget.getTags().iterator();
-        while (iterator.hasNext()) {
-            WidgetTag widgetTag = iterator.next();
-            if (widgetTag.getTagId().equals(id)) {
-                iterator.remove();
-                return;
-            }
         }
+        template.removeTags(tag);
     }
 
     private WidgetTag getTagByKeyword(String keyword, Widget widget) {
@@ -379,63 +322,36 @@ public class MongoDbWidgetRepository implements WidgetRepository {
     }
 
     @Override
-    public WidgetComment createWidgetComment(String widgetId, WidgetComment comment) {
-        Widget widget = template.get(widgetId);
-        widget.getComments().add(comment);
-        widget = save(widget);
-        return findCommentByProperties(widget, comment);
+    public List<WidgetComment> getCommentsByWidgetId(String widgetId, int offset, int pageSize) {
+        Query query = query(where("_id").is(widgetId));
+        query.fields().slice("comments", offset, pageSize).exclude("ratings");
+        Widget widget = template.findOne(query);
+        return widget == null || widget.getComments() == null ? Collections.<WidgetComment>emptyList() : widget.getComments();
     }
 
     @Override
-    public WidgetComment updateWidgetComment(String widgetId, WidgetComment comment) {
-        Widget widget = template.get(widgetId);
-        updateComment(widget, comment);
-        return getCommentById(save(widget), comment.getId());
+    public int getCountCommentsByWidgetId(String widgetId) {
+        return template.countComments(widgetId);
     }
 
     @Override
-    public void deleteWidgetComment(String widgetId, WidgetComment comment) {
-        Widget widget = template.get(widgetId);
-        removeComment(comment.getId(), widget);
-        template.save(widget);
+    public WidgetComment createWidgetComment(String widgetId, WidgetComment comment) {
+        return template.addComment(widgetId, comment);
     }
 
     @Override
-    public int deleteAllWidgetComments(String userId) {
-        int count = 0;
-        List<Widget> widgets = template.find(query(where("comments").elemMatch(where("userId").is(userId))));
-        for (Widget widget : widgets) {
-            count += updateWidget(userId, widget);
-        }
-        return count;
+    public WidgetComment updateWidgetComment(String widgetId, WidgetComment comment) {
+        return template.updateComment(widgetId, comment);
     }
 
-    private void removeComment(String commentId, Widget widget) {
-        Iterator<WidgetComment> iterator = widget.getComments().iterator();
-        while (iterator.hasNext()) {
-            WidgetComment comment = iterator.next();
-            if (comment.getId().equals(commentId)) {
-                iterator.remove();
-                return;
-            }
-        }
+    @Override
+    public void deleteWidgetComment(String widgetId, WidgetComment comment) {
+        template.removeComment(widgetId, comment.getId());
     }
 
-    private int updateWidget(String userId, Widget widget) {
-        int count = 0;
-
-        Iterator<WidgetComment> iterator = widget.getComments().iterator();
-        while (iterator.hasNext()) {
-            WidgetComment comment = iterator.next();
-            if (comment.getUserId().equals(userId)) {
-                iterator.remove();
-                count++;
-            }
-        }
-        if (count > 0) {
-            template.save(widget);
-        }
-        return count;
+    @Override
+    public int deleteAllWidgetComments(String userId) {
+        return template.removeComments(userId);
     }
 
     private WidgetComment getCommentById(Widget widget, String id) {
@@ -449,18 +365,6 @@ public class MongoDbWidgetRepository implements WidgetRepository {
         return null;
     }
 
-    private WidgetComment updateComment(Widget widget, WidgetComment item) {
-        for (WidgetComment comment : widget.getComments()) {
-            if (comment.getId().equals(item.getId())) {
-                comment.setLastModifiedDate(new Date());
-                comment.setText(item.getText());
-                comment.setUserId(item.getUserId());
-                return comment;
-            }
-        }
-        return null;
-    }
-
     /*
      * End WidgetComment Repository
      */
@@ -476,7 +380,8 @@ public class MongoDbWidgetRepository implements WidgetRepository {
     }
 
     private Criteria addFreeTextClause(String searchTerm, Criteria criteria) {
-        Pattern p = Pattern.compile(".*" + searchTerm + ".*", Pattern.CASE_INSENSITIVE | Pattern.MULTILINE | Pattern.DOTALL);
+        //the search term is user input, match it literally
+        Pattern p = Pattern.compile(".*" + Pattern.quote(searchTerm) + ".*", Pattern.CASE_INSENSITIVE | Pattern.MULTILINE | Pattern.DOTALL);
         criteria.orOperator(where("title").regex(p), (where("description").regex(p)));
         return criteria;
     }
@@ -499,15 +404,9 @@ public class MongoDbWidgetRepository implements WidgetRepository {
         return query;
     }
 
-    private WidgetComment findCommentByProperties(Widget widget, WidgetComment comment) {
-        for(WidgetComment c : widget.getComments()) {
-            if(c.getUserId().equals(comment.getUserId()) &&
-                    c.getText().equals(comment.getText()) &&
-                    c.getCreatedDate().equals(comment.getCreatedDate())) {
-                return c;
-            }
-        }
-        return null;
+    private Query addListingFields(Query query) {
+        query.fields().exclude("comments").exclude("ratings");
+        return query;
     }
 
     public void setTemplate(MongoWidgetOperations template) {
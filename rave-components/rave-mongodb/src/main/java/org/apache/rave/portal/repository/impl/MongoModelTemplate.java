@@ -19,6 +19,8 @@
 
 package org.apache.rave.portal.repository.impl;
 
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
 import com.mongodb.WriteResult;
 import org.apache.rave.portal.model.conversion.HydratingConverterFactory;
 import org.apache.rave.portal.repository.MongoModelOperations;
@@ -82,6 +84,27 @@ public class MongoModelTemplate<T, E extends T> implements MongoModelOperations<
         return converted;
     }
 
+    /**
+     * Stores an already converted item like {@link #save(Object)}, but replaces an existing document with a single
+     * findAndModify so that its previous state is read atomically with the write
+     *
+     * @param converted the item to store
+     * @param fields the fields of the replaced document to return
+     * @return the requested fields of the replaced document, or null if the item was inserted
+     */
+    protected E replace(E converted, DBObject fields) {
+        DBObject document = new BasicDBObject();
+        mongoTemplate.getConverter().write(converted, document);
+        Object id = document.get("_id");
+        if (id == null) {
+            mongoTemplate.save(converted, collection);
+            return null;
+        }
+        DBObject previous = mongoTemplate.getCollection(collection)
+                .findAndModify(new BasicDBObject("_id", id), fields, null, false, document, false, true);
+        return previous == null ? null : mongoTemplate.getConverter().read(dbType, previous);
+    }
+
     @Override
     public T findOne(Query query) {
         return hydrate(mongoTemplate.findOne(query, dbType, collection));
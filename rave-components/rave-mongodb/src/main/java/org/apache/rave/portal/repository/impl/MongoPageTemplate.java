@@ -19,19 +19,69 @@
 
 package org.apache.rave.portal.repository.impl;
 
+import com.google.common.collect.ImmutableMap;
+import com.mongodb.BasicDBObject;
 import org.apache.rave.portal.model.MongoDbPage;
 import org.apache.rave.model.Page;
 import org.apache.rave.portal.repository.MongoPageOperations;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.query.BasicQuery;
+import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
 import static org.apache.rave.portal.repository.util.CollectionNames.PAGE_COLLECTION;
 
 /**
+ * Page template that reports added and removed region widgets to the {@link MongoDbIncrementalStatisticsAggregator}
  */
 @Component
 public class MongoPageTemplate extends MongoModelTemplate<Page, MongoDbPage> implements MongoPageOperations {
 
+    private static final Map<String, Integer> PLACEMENT_FIELDS = ImmutableMap.of("ownerId", 1, "regions", 1, "subPages", 1);
+
+    @Autowired(required = false)
+    private MongoDbIncrementalStatisticsAggregator statisticsAggregator;
+
     public MongoPageTemplate() {
         super(Page.class, MongoDbPage.class, PAGE_COLLECTION);
     }
+
+    @Override
+    public List<Page> findProjected(Query query) {
+        return new ArrayList<Page>(mongoTemplate.find(query, dbType, collection));
+    }
+
+    @Override
+    public Page save(Page item) {
+        if (statisticsAggregator == null) {
+            return super.save(item);
+        }
+        MongoDbPage converted = converter.convert(item, type);
+        MongoDbPage previous = replace(converted, new BasicDBObject(PLACEMENT_FIELDS));
+        converter.hydrate(converted, type);
+        statisticsAggregator.pageChanged(previous, converted);
+        return converted;
+    }
+
+    @Override
+    public void remove(Query query) {
+        if (statisticsAggregator == null) {
+            super.remove(query);
+            return;
+        }
+        Query placements = new BasicQuery(query.getQueryObject(), new BasicDBObject(PLACEMENT_FIELDS));
+        List<MongoDbPage> removed = mongoTemplate.find(placements, dbType, collection);
+        super.remove(query);
+        for (MongoDbPage page : removed) {
+            statisticsAggregator.pageChanged(page, null);
+        }
+    }
+
+    public void setStatisticsAggregator(MongoDbIncrementalStatisticsAggregator statisticsAggregator) {
+        this.statisticsAggregator = statisticsAggregator;
+    }
 }
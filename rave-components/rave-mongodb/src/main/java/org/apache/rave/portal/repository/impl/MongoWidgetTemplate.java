@@ -19,19 +19,250 @@
 
 package org.apache.rave.portal.repository.impl;
 
+import com.google.common.collect.Lists;
+import com.mongodb.AggregationOutput;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
+import com.mongodb.WriteResult;
+import org.apache.rave.model.WidgetComment;
+import org.apache.rave.model.WidgetRating;
+import org.apache.rave.model.WidgetTag;
 import org.apache.rave.portal.model.MongoDbWidget;
 import org.apache.rave.model.Widget;
+import org.apache.rave.portal.model.impl.WidgetCommentImpl;
+import org.apache.rave.portal.model.impl.WidgetRatingImpl;
+import org.apache.rave.portal.model.impl.WidgetTagImpl;
 import org.apache.rave.portal.repository.MongoWidgetOperations;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.query.BasicQuery;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Component;
 
+import java.util.Date;
+import java.util.List;
+
+import static org.apache.rave.portal.model.util.MongoDbModelUtil.generateId;
 import static org.apache.rave.portal.repository.util.CollectionNames.WIDGET_COLLECTION;
+import static org.springframework.data.mongodb.core.FindAndModifyOptions.options;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
 
 /**
+ * Widget template that reports rating changes to the {@link MongoDbIncrementalStatisticsAggregator}.  Ratings,
+ * comments and tags are changed with array update operators on the stored widget so that concurrent writers do not
+ * overwrite each other's changes.
  */
 @Component
 public class MongoWidgetTemplate extends MongoModelTemplate<Widget, MongoDbWidget> implements MongoWidgetOperations {
+    private static final String ID = "_id";
+    private static final String USER_ID = "userId";
+    private static final String TAG_ID = "tagId";
+    private static final String RATINGS = "ratings";
+    private static final String COMMENTS = "comments";
+    private static final String TAGS = "tags";
+
+    @Autowired(required = false)
+    private MongoDbIncrementalStatisticsAggregator statisticsAggregator;
     
     public MongoWidgetTemplate() {
         super(Widget.class, MongoDbWidget.class, WIDGET_COLLECTION);
     }
+
+    @Override
+    public Widget save(Widget item) {
+        if (statisticsAggregator == null) {
+            return super.save(item);
+        }
+        MongoDbWidget converted = converter.convert(item, type);
+        MongoDbWidget previous = replace(converted, new BasicDBObject(RATINGS, 1));
+        converter.hydrate(converted, type);
+        statisticsAggregator.widgetChanged(previous, converted);
+        return converted;
+    }
+
+    @Override
+    public void remove(Query query) {
+        if (statisticsAggregator == null) {
+            super.remove(query);
+            return;
+        }
+        List<String> removed = Lists.newArrayList();
+        Query ids = new BasicQuery(query.getQueryObject(), new BasicDBObject("_id", 1));
+        for (MongoDbWidget widget : mongoTemplate.find(ids, dbType, collection)) {
+            removed.add(widget.getId());
+        }
+        super.remove(query);
+        statisticsAggregator.widgetsRemoved(removed);
+    }
+
+    @Override
+    public WidgetRating addRating(String widgetId, WidgetRating rating) {
+        WidgetRating added = new WidgetRatingImpl(rating.getId() == null ? generateId() : rating.getId(), rating.getUserId(), rating.getScore());
+        Query unrated = query(where(ID).is(widgetId).and(RATINGS + "." + USER_ID).ne(rating.getUserId()));
+        WriteResult result = mongoTemplate.updateFirst(unrated, new Update().push(RATINGS, toDbObject(added)), collection);
+        if (result.getN() == 0) {
+            //Either the widget does not exist or the user has rated it in the meantime, in which case the score is replaced
+            return setRating(widgetId, where(USER_ID).is(rating.getUserId()), rating);
+        }
+        ratingChanged(widgetId, null, added);
+        return added;
+    }
+
+    @Override
+    public WidgetRating updateRating(String widgetId, WidgetRating rating) {
+        return setRating(widgetId, where(ID).is(rating.getId()), rating);
+    }
+
+    @Override
+    public void removeRating(String widgetId, String ratingId) {
+        Criteria rating = where(ID).is(ratingId);
+        MongoDbWidget previous = mongoTemplate.findAndModify(getElementQuery(widgetId, RATINGS, rating),
+                new Update().pull(RATINGS, rating.getCriteriaObject()), dbType, collection);
+        WidgetRating removed = first(previous == null ? null : previous.getRatings());
+        if (removed != null) {
+            ratingChanged(widgetId, removed, null);
+        }
+    }
+
+    @Override
+    public int removeRatings(String userId) {
+        //One findAndModify per widget returns exactly the ratings its $pull removed, so the counters are adjusted
+        //for those and nothing else even when the ratings change concurrently
+        DBObject rated = new BasicDBObject(RATINGS + "." + USER_ID, userId);
+        DBObject fields = new BasicDBObject(RATINGS + "." + ID, 1).append(RATINGS + "." + USER_ID, 1).append(RATINGS + ".score", 1);
+        DBObject pull = new Update().pull(RATINGS, new BasicDBObject(USER_ID, userId)).getUpdateObject();
+        int count = 0;
+        DBObject previous;
+        while ((previous = mongoTemplate.getCollection(collection).findAndModify(rated, fields, null, false, pull, false, false)) != null) {
+            String widgetId = previous.get(ID).toString();
+            for (Object element : (List<?>) previous.get(RATINGS)) {
+                DBObject rating = (DBObject) element;
+                if (userId.equals(rating.get(USER_ID))) {
+                    Object score = rating.get("score");
+                    Object ratingId = rating.get(ID);
+                    ratingChanged(widgetId, new WidgetRatingImpl(ratingId == null ? null : ratingId.toString(), userId,
+                            score == null ? null : ((Number) score).intValue()), null);
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public WidgetComment addComment(String widgetId, WidgetComment comment) {
+        WidgetCommentImpl added = new WidgetCommentImpl(comment.getId() == null ? generateId() : comment.getId());
+        added.setUserId(comment.getUserId());
+        added.setText(comment.getText());
+        added.setCreatedDate(comment.getCreatedDate());
+        added.setLastModifiedDate(comment.getLastModifiedDate());
+        WriteResult result = mongoTemplate.updateFirst(query(where(ID).is(widgetId)), new Update().push(COMMENTS, toDbObject(added)), collection);
+        return result.getN() == 0 ? null : added;
+    }
+
+    @Override
+    public WidgetComment updateComment(String widgetId, WidgetComment comment) {
+        Update update = new Update().set(COMMENTS + ".$." + USER_ID, comment.getUserId())
+                .set(COMMENTS + ".$.text", comment.getText())
+                .set(COMMENTS + ".$.lastModifiedDate", new Date());
+        MongoDbWidget updated = mongoTemplate.findAndModify(getElementQuery(widgetId, COMMENTS, where(ID).is(comment.getId())),
+                update, options().returnNew(true), dbType, collection);
+        return first(updated == null ? null : updated.getComments());
+    }
+
+    @Override
+    public void removeComment(String widgetId, String commentId) {
+        mongoTemplate.updateFirst(query(where(ID).is(widgetId)), new Update().pull(COMMENTS, new BasicDBObject(ID, commentId)), collection);
+    }
+
+    @Override
+    public int countComments(String widgetId) {
+        AggregationOutput output = mongoTemplate.getCollection(collection).aggregate(
+                new BasicDBObject("$match", new BasicDBObject(ID, widgetId)),
+                new BasicDBObject("$project", new BasicDBObject(COMMENTS + "." + ID, 1)),
+                new BasicDBObject("$unwind", "$" + COMMENTS),
+                new BasicDBObject("$group", new BasicDBObject(ID, null).append("count", new BasicDBObject("$sum", 1))));
+        for (DBObject result : output.results()) {
+            return ((Number) result.get("count")).intValue();
+        }
+        return 0;
+    }
+
+    @Override
+    public int removeComments(String userId) {
+        //Count from the raw documents, the projected comments lack the type information needed to map them
+        DBObject commented = new BasicDBObject(COMMENTS + "." + USER_ID, userId);
+        int count = 0;
+        for (DBObject widget : mongoTemplate.getCollection(collection).find(commented, new BasicDBObject(COMMENTS + "." + USER_ID, 1))) {
+            for (Object comment : (List<?>) widget.get(COMMENTS)) {
+                if (userId.equals(((DBObject) comment).get(USER_ID))) {
+                    count++;
+                }
+            }
+        }
+        mongoTemplate.updateMulti(query(where(COMMENTS + "." + USER_ID).is(userId)),
+                new Update().pull(COMMENTS, new BasicDBObject(USER_ID, userId)), collection);
+        return count;
+    }
+
+    @Override
+    public WidgetTag addTag(String widgetId, WidgetTag tag) {
+        WidgetTag added = new WidgetTagImpl(tag.getUserId(), tag.getCreatedDate(), tag.getTagId());
+        Query untagged = query(where(ID).is(widgetId).and(TAGS + "." + TAG_ID).ne(tag.getTagId()));
+        mongoTemplate.updateFirst(untagged, new Update().push(TAGS, toDbObject(added)), collection);
+        MongoDbWidget stored = mongoTemplate.findOne(getElementQuery(widgetId, TAGS, where(TAG_ID).is(tag.getTagId())), dbType, collection);
+        return first(stored == null ? null : stored.getTags());
+    }
+
+    @Override
+    public int removeTags(Criteria tag) {
+        WriteResult result = mongoTemplate.updateMulti(query(where(TAGS).elemMatch(tag)), new Update().pull(TAGS, tag.getCriteriaObject()), collection);
+        return result.getN();
+    }
+
+    private WidgetRating setRating(String widgetId, Criteria match, WidgetRating rating) {
+        Update update = new Update().set(RATINGS + ".$." + USER_ID, rating.getUserId()).set(RATINGS + ".$.score", rating.getScore());
+        MongoDbWidget previous = mongoTemplate.findAndModify(getElementQuery(widgetId, RATINGS, match), update, dbType, collection);
+        WidgetRating stored = first(previous == null ? null : previous.getRatings());
+        if (stored == null) {
+            return null;
+        }
+        WidgetRating updated = new WidgetRatingImpl(stored.getId(), rating.getUserId(), rating.getScore());
+        ratingChanged(widgetId, stored, updated);
+        return updated;
+    }
+
+    private void ratingChanged(String widgetId, WidgetRating previous, WidgetRating current) {
+        if (statisticsAggregator != null) {
+            statisticsAggregator.ratingChanged(widgetId, previous, current);
+        }
+    }
+
+    private DBObject toDbObject(Object element) {
+        DBObject converted = new BasicDBObject();
+        mongoTemplate.getConverter().write(element, converted);
+        return converted;
+    }
+
+    /**
+     * Matches a widget by id and an element of one of its lists, and projects the list to that element only
+     */
+    private static Query getElementQuery(String widgetId, String field, Criteria element) {
+        return new BasicQuery(new BasicDBObject(ID, widgetId).append(field, elemMatch(element)),
+                new BasicDBObject(field, elemMatch(element)));
+    }
+
+    private static DBObject elemMatch(Criteria element) {
+        return new BasicDBObject("$elemMatch", element.getCriteriaObject());
+    }
+
+    private static <T> T first(List<T> elements) {
+        return elements == null || elements.isEmpty() ? null : elements.get(0);
+    }
+
+    public void setStatisticsAggregator(MongoDbIncrementalStatisticsAggregator statisticsAggregator) {
+        this.statisticsAggregator = statisticsAggregator;
+    }
 }
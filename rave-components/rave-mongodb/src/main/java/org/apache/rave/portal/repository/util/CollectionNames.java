@@ -39,6 +39,8 @@ public class CollectionNames {
     public static final String PAGE_LAYOUT_COLLECTION = "pageLayout";
     public static final String WIDGET_RATINGS = "rating_statistics";
     public static final String WIDGET_USERS = "user_statistics";
+    public static final String WIDGET_STATISTICS = "widget_statistics";
     public static final String OPERATIONS = "ops";
     public static final String ACTIVITIES = "activities";
+    public static final String LOCK_LEASE_COLLECTION = "lockLease";
 }
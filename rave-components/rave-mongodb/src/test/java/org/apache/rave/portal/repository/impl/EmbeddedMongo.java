@@ -0,0 +1,73 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.rave.portal.repository.impl;
+
+import com.mongodb.Mongo;
+import de.flapdoodle.embed.mongo.MongodExecutable;
+import de.flapdoodle.embed.mongo.MongodProcess;
+import de.flapdoodle.embed.mongo.MongodStarter;
+import de.flapdoodle.embed.mongo.config.MongodConfig;
+import de.flapdoodle.embed.mongo.distribution.Version;
+import de.flapdoodle.embed.process.runtime.Network;
+
+import static org.junit.Assume.assumeNoException;
+
+/**
+ * Embedded mongod for the tests that need a real server.  Tests using it are skipped when mongod cannot be started
+ * on the build machine.
+ */
+public class EmbeddedMongo {
+    private MongodExecutable executable;
+    private MongodProcess process;
+    private Mongo mongo;
+
+    /**
+     * Starts a mongod on a free port, or marks the calling test as skipped if that is not possible
+     */
+    public static EmbeddedMongo start() {
+        EmbeddedMongo embedded = new EmbeddedMongo();
+        try {
+            int port = Network.getFreeServerPort();
+            embedded.executable = MongodStarter.getDefaultInstance().prepare(new MongodConfig(Version.Main.PRODUCTION, port, Network.localhostIsIPv6()));
+            embedded.process = embedded.executable.start();
+            embedded.mongo = new Mongo("localhost", port);
+        } catch (Exception e) {
+            embedded.stop();
+            assumeNoException(e);
+        }
+        return embedded;
+    }
+
+    public Mongo getMongo() {
+        return mongo;
+    }
+
+    public void stop() {
+        if (mongo != null) {
+            mongo.close();
+        }
+        if (process != null) {
+            process.stop();
+        }
+        if (executable != null) {
+            executable.stop();
+        }
+    }
+}
@@ -26,13 +26,20 @@ import org.apache.rave.portal.model.MongoDbActivityStreamsEntry;
 import org.apache.rave.portal.model.conversion.HydratingConverterFactory;
 import org.apache.rave.portal.model.impl.ActivityStreamsEntryImpl;
 import org.apache.rave.portal.repository.ActivityStreamsRepository;
+import com.mongodb.BasicDBObject;
+import org.easymock.Capture;
 import org.junit.Before;
 import org.junit.Test;
 import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.index.Index;
 import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.data.mongodb.core.query.Query;
 
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import static org.apache.rave.portal.repository.util.CollectionNames.ACTIVITIES;
 import static org.easymock.EasyMock.*;
@@ -74,6 +81,108 @@ public class MongoDbActivityStreamsRepositoryTest {
         assertThat((Object)entries, is(sameInstance((Object)result)));
     }
 
+    @Test
+    public void getByIds() {
+        List<String> ids = Arrays.asList(ID, "2");
+        List<MongoDbActivityStreamsEntry> result = Lists.newArrayList();
+        expect(template.find(Query.query(Criteria.where("_id").in(ids)), ENTITY_CLASS, ACTIVITIES)).andReturn(result);
+        replay(template);
+
+        List<ActivityStreamsEntry> entries = repository.getByIds(ids);
+        assertThat((Object)entries, is(sameInstance((Object)result)));
+    }
+
+    @Test
+    public void getByUserIds() {
+        Set<String> ids = new HashSet<String>(Arrays.asList(ID, "2"));
+        Date before = new Date();
+        List<MongoDbActivityStreamsEntry> result = Lists.newArrayList();
+        Capture<Query> query = new Capture<Query>();
+        expect(template.find(capture(query), eq(ENTITY_CLASS), eq(ACTIVITIES))).andReturn(result);
+        replay(template);
+
+        List<ActivityStreamsEntry> entries = repository.getByUserIds(ids, before, null, 20);
+        assertThat((Object)entries, is((Object)result));
+        assertThat(query.getValue().getLimit(), is(20));
+        assertThat(query.getValue().getQueryObject().get("published"), is((Object) new BasicDBObject("$lt", before)));
+        assertThat(query.getValue().getSortObject(), is((Object) new BasicDBObject("published", -1).append("_id", -1)));
+    }
+
+    @Test
+    public void getByUserIds_afterEntry() {
+        Set<String> ids = new HashSet<String>(Arrays.asList(ID, "2"));
+        Date before = new Date();
+        Capture<Query> query = new Capture<Query>();
+        expect(template.find(capture(query), eq(ENTITY_CLASS), eq(ACTIVITIES))).andReturn(Lists.<MongoDbActivityStreamsEntry>newArrayList());
+        replay(template);
+
+        repository.getByUserIds(ids, before, "b", 20);
+        List<?> or = (List<?>) query.getValue().getQueryObject().get("$or");
+        assertThat(or.get(0), is((Object) new BasicDBObject("published", new BasicDBObject("$lt", before))));
+        assertThat(or.get(1), is((Object) new BasicDBObject("published", before).append("_id", new BasicDBObject("$lt", "b"))));
+    }
+
+    @Test
+    public void getByUserIds_undatedFirst() {
+        Set<String> ids = new HashSet<String>(Arrays.asList(ID, "2"));
+        MongoDbActivityStreamsEntry undated = new MongoDbActivityStreamsEntry();
+        MongoDbActivityStreamsEntry dated = new MongoDbActivityStreamsEntry();
+        Capture<Query> undatedQuery = new Capture<Query>();
+        Capture<Query> datedQuery = new Capture<Query>();
+        expect(template.find(capture(undatedQuery), eq(ENTITY_CLASS), eq(ACTIVITIES))).andReturn(Lists.newArrayList(undated));
+        expect(template.find(capture(datedQuery), eq(ENTITY_CLASS), eq(ACTIVITIES))).andReturn(Lists.newArrayList(dated));
+        replay(template);
+
+        List<ActivityStreamsEntry> entries = repository.getByUserIds(ids, null, "c", 20);
+        verify(template);
+        assertThat(entries.size(), is(2));
+        assertThat(entries.get(0), is(sameInstance((ActivityStreamsEntry) undated)));
+        assertThat(entries.get(1), is(sameInstance((ActivityStreamsEntry) dated)));
+        assertThat(undatedQuery.getValue().getQueryObject().get("published"), is((Object) new BasicDBObject("$exists", false)));
+        assertThat(undatedQuery.getValue().getQueryObject().get("_id"), is((Object) new BasicDBObject("$lt", "c")));
+        assertThat(datedQuery.getValue().getQueryObject().get("published"), is((Object) new BasicDBObject("$exists", true)));
+        assertThat(datedQuery.getValue().getLimit(), is(19));
+    }
+
+    @Test
+    public void getOldestByUserIds() {
+        Set<String> ids = new HashSet<String>(Arrays.asList(ID, "2"));
+        MongoDbActivityStreamsEntry undated = new MongoDbActivityStreamsEntry();
+        MongoDbActivityStreamsEntry dated = new MongoDbActivityStreamsEntry();
+        Capture<Query> undatedQuery = new Capture<Query>();
+        Capture<Query> datedQuery = new Capture<Query>();
+        expect(template.find(capture(undatedQuery), eq(ENTITY_CLASS), eq(ACTIVITIES))).andReturn(Lists.newArrayList(undated));
+        expect(template.find(capture(datedQuery), eq(ENTITY_CLASS), eq(ACTIVITIES))).andReturn(Lists.newArrayList(dated));
+        replay(template);
+
+        List<ActivityStreamsEntry> entries = repository.getOldestByUserIds(ids, 20);
+        verify(template);
+        assertThat(entries.size(), is(2));
+        assertThat(entries.get(0), is(sameInstance((ActivityStreamsEntry) undated)));
+        assertThat(entries.get(1), is(sameInstance((ActivityStreamsEntry) dated)));
+        assertThat(undatedQuery.getValue().getQueryObject().get("published"), is((Object) new BasicDBObject("$exists", false)));
+        assertThat(datedQuery.getValue().getLimit(), is(19));
+        assertThat(datedQuery.getValue().getSortObject(), is((Object) new BasicDBObject("published", 1).append("_id", 1)));
+    }
+
+    @Test
+    public void getByUserIds_empty() {
+        replay(template);
+
+        assertThat(repository.getByUserIds(new HashSet<String>(), null, null, 20).isEmpty(), is(true));
+        verify(template);
+    }
+
+    @Test
+    public void ensureIndexes() {
+        template.ensureIndex(isA(Index.class), eq(ACTIVITIES));
+        expectLastCall();
+        replay(template);
+
+        ((MongoDbActivityStreamsRepository) repository).ensureIndexes();
+        verify(template);
+    }
+
     @Test
     public void deleteByUserId() {
         template.remove(Query.query(Criteria.where("_id").is(ID)), ACTIVITIES);
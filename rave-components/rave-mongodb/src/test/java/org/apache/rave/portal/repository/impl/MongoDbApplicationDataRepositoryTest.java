@@ -21,14 +21,22 @@ package org.apache.rave.portal.repository.impl;
 
 import org.apache.rave.model.ApplicationData;
 import org.apache.rave.portal.model.impl.ApplicationDataImpl;
+import com.mongodb.DBObject;
 import org.apache.rave.portal.repository.util.CollectionNames;
+import org.easymock.Capture;
 import org.junit.Before;
 import org.junit.Test;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import static org.easymock.EasyMock.*;
 import static org.hamcrest.CoreMatchers.*;
@@ -116,6 +124,74 @@ public class MongoDbApplicationDataRepositoryTest {
         assertThat(saved, is(sameInstance(item)));
     }
 
+    @Test
+    public void updateApplicationDataValues_Valid(){
+        Map<String, Object> values = new HashMap<String, Object>();
+        values.put("counter", "42");
+        Capture<Query> query = new Capture<Query>();
+        Capture<Update> update = new Capture<Update>();
+        expect(template.upsert(capture(query), capture(update), eq(CollectionNames.APP_DATA_COLLECTION))).andReturn(null);
+        replay(template);
+
+        applicationDataRepository.updateApplicationDataValues("personid", "appId", values, Collections.singleton("color"));
+        verify(template);
+
+        assertThat(query.getValue().getQueryObject().get("appUrl"), is(equalTo((Object) "appId")));
+        assertThat(query.getValue().getQueryObject().get("userId"), is(equalTo((Object) "personid")));
+        DBObject updateObject = update.getValue().getUpdateObject();
+        assertThat(((DBObject) updateObject.get("$set")).get("data.counter"), is(equalTo((Object) "42")));
+        assertThat(((DBObject) updateObject.get("$unset")).containsField("data.color"), is(true));
+    }
+
+    @Test
+    public void updateApplicationDataValues_ConcurrentInsert(){
+        Map<String, Object> values = new HashMap<String, Object>();
+        values.put("counter", "42");
+        expect(template.upsert(isA(Query.class), isA(Update.class), eq(CollectionNames.APP_DATA_COLLECTION)))
+                .andThrow(new DuplicateKeyException("E11000 duplicate key"));
+        expect(template.upsert(isA(Query.class), isA(Update.class), eq(CollectionNames.APP_DATA_COLLECTION))).andReturn(null);
+        replay(template);
+
+        applicationDataRepository.updateApplicationDataValues("personid", "appId", values, Collections.<String>emptySet());
+        verify(template);
+    }
+
+    @Test
+    public void updateApplicationDataValues_RemoveOnly(){
+        Capture<Update> update = new Capture<Update>();
+        expect(template.updateFirst(isA(Query.class), capture(update), eq(CollectionNames.APP_DATA_COLLECTION))).andReturn(null);
+        replay(template);
+
+        applicationDataRepository.updateApplicationDataValues("personid", "appId", new HashMap<String, Object>(),
+                Collections.singleton("color"));
+        verify(template);
+
+        assertThat(update.getValue().getUpdateObject().containsField("$set"), is(false));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void updateApplicationDataValues_InvalidKey(){
+        Map<String, Object> values = new HashMap<String, Object>();
+        values.put("a.b", "42");
+        replay(template);
+
+        applicationDataRepository.updateApplicationDataValues("personid", "appId", values, Collections.<String>emptySet());
+    }
+
+    @Test
+    public void replaceApplicationDataValues_Valid(){
+        Map<String, Object> values = new HashMap<String, Object>();
+        values.put("counter", "42");
+        Capture<Update> update = new Capture<Update>();
+        expect(template.upsert(isA(Query.class), capture(update), eq(CollectionNames.APP_DATA_COLLECTION))).andReturn(null);
+        replay(template);
+
+        applicationDataRepository.replaceApplicationDataValues("personid", "appId", values);
+        verify(template);
+
+        assertThat(((DBObject) update.getValue().getUpdateObject().get("$set")).get("data"), is(equalTo((Object) values)));
+    }
+
     @Test
     public void delete_Valid(){
         ApplicationData item = new ApplicationDataImpl();
@@ -0,0 +1,351 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.rave.portal.repository.impl;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.mongodb.DBObject;
+import com.mongodb.WriteResult;
+import org.apache.rave.model.Page;
+import org.apache.rave.model.Region;
+import org.apache.rave.model.RegionWidget;
+import org.apache.rave.model.Widget;
+import org.apache.rave.model.WidgetRating;
+import org.apache.rave.portal.model.MongoDbWidget;
+import org.apache.rave.portal.model.MongoDbWidgetStatistics;
+import org.apache.rave.portal.model.impl.PageImpl;
+import org.apache.rave.portal.model.impl.RegionImpl;
+import org.apache.rave.portal.model.impl.RegionWidgetImpl;
+import org.apache.rave.portal.model.impl.WidgetImpl;
+import org.apache.rave.portal.model.impl.WidgetRatingImpl;
+import org.apache.rave.portal.model.util.WidgetStatistics;
+import org.easymock.Capture;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.Map;
+
+import static org.apache.rave.portal.repository.impl.MongoDbIncrementalStatisticsAggregator.*;
+import static org.apache.rave.portal.repository.util.CollectionNames.OPERATIONS;
+import static org.apache.rave.portal.repository.util.CollectionNames.WIDGET_COLLECTION;
+import static org.apache.rave.portal.repository.util.CollectionNames.WIDGET_STATISTICS;
+import static org.easymock.EasyMock.*;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class MongoDbIncrementalStatisticsAggregatorTest {
+    private static final String WIDGET_ID = "1234";
+    private static final String OWNER_ID = "owner";
+    private static final String USER_ID = "user";
+
+    private MongoOperations mongoOperations;
+    private MongoDbIncrementalStatisticsAggregator aggregator;
+
+    @Before
+    public void setup() {
+        mongoOperations = createMock(MongoOperations.class);
+        aggregator = new MongoDbIncrementalStatisticsAggregator(mongoOperations);
+    }
+
+    @Test
+    public void widgetChanged_newRating() {
+        Capture<Update> update = new Capture<Update>();
+        expect(mongoOperations.upsert(isA(Query.class), capture(update), eq(WIDGET_STATISTICS))).andReturn(null);
+        replay(mongoOperations);
+
+        aggregator.widgetChanged(getWidget(), getWidget(new WidgetRatingImpl("1", USER_ID, 10)));
+
+        DBObject updateObject = update.getValue().getUpdateObject();
+        assertThat(((DBObject) updateObject.get("$inc")).get("like"), is((Object) 1));
+        assertThat(((DBObject) updateObject.get("$inc")).get("dislike"), is((Object) 0));
+        assertThat(((DBObject) updateObject.get("$inc")).get("version"), is((Object) 1));
+        assertThat(aggregator.getUpdateCount(), is(1L));
+        verify(mongoOperations);
+    }
+
+    @Test
+    public void widgetChanged_changedRating() {
+        Capture<Update> update = new Capture<Update>();
+        expect(mongoOperations.upsert(isA(Query.class), capture(update), eq(WIDGET_STATISTICS))).andReturn(null);
+        replay(mongoOperations);
+
+        aggregator.widgetChanged(getWidget(new WidgetRatingImpl("1", USER_ID, 10)), getWidget(new WidgetRatingImpl("1", USER_ID, 0)));
+
+        DBObject increments = (DBObject) update.getValue().getUpdateObject().get("$inc");
+        assertThat(increments.get("like"), is((Object) (-1)));
+        assertThat(increments.get("dislike"), is((Object) 1));
+        verify(mongoOperations);
+    }
+
+    @Test
+    public void widgetChanged_unchangedRatings() {
+        replay(mongoOperations);
+
+        aggregator.widgetChanged(getWidget(new WidgetRatingImpl("1", USER_ID, 10)), getWidget(new WidgetRatingImpl("1", USER_ID, 10)));
+
+        assertThat(aggregator.getUpdateCount(), is(0L));
+        verify(mongoOperations);
+    }
+
+    @Test
+    public void ratingChanged_removedRating() {
+        Capture<Update> update = new Capture<Update>();
+        expect(mongoOperations.upsert(isA(Query.class), capture(update), eq(WIDGET_STATISTICS))).andReturn(null);
+        replay(mongoOperations);
+
+        aggregator.ratingChanged(WIDGET_ID, new WidgetRatingImpl("1", USER_ID, 0), null);
+
+        DBObject updateObject = update.getValue().getUpdateObject();
+        assertThat(((DBObject) updateObject.get("$inc")).get("like"), is((Object) 0));
+        assertThat(((DBObject) updateObject.get("$inc")).get("dislike"), is((Object) (-1)));
+        assertThat(((DBObject) updateObject.get("$inc")).get("version"), is((Object) 1));
+        verify(mongoOperations);
+    }
+
+    @Test
+    public void pageChanged_firstPlacementOfOwner() {
+        expect(mongoOperations.findAndModify(isA(Query.class), isA(Update.class), isA(FindAndModifyOptions.class),
+                eq(MongoDbWidgetStatistics.class), eq(WIDGET_STATISTICS))).andReturn(getPlacements(1));
+        Capture<Update> userCount = new Capture<Update>();
+        expect(mongoOperations.updateFirst(isA(Query.class), capture(userCount), eq(WIDGET_STATISTICS))).andReturn(null);
+        replay(mongoOperations);
+
+        aggregator.pageChanged(null, getPage(WIDGET_ID));
+
+        assertThat(((DBObject) userCount.getValue().getUpdateObject().get("$inc")).get("userCount"), is((Object) 1));
+        verify(mongoOperations);
+    }
+
+    @Test
+    public void pageChanged_additionalPlacementOfOwner() {
+        expect(mongoOperations.findAndModify(isA(Query.class), isA(Update.class), isA(FindAndModifyOptions.class),
+                eq(MongoDbWidgetStatistics.class), eq(WIDGET_STATISTICS))).andReturn(getPlacements(2));
+        replay(mongoOperations);
+
+        aggregator.pageChanged(getPage(WIDGET_ID), getPage(WIDGET_ID, WIDGET_ID));
+
+        verify(mongoOperations);
+    }
+
+    @Test
+    public void pageChanged_lastPlacementOfOwnerRemoved() {
+        expect(mongoOperations.findAndModify(isA(Query.class), isA(Update.class), isA(FindAndModifyOptions.class),
+                eq(MongoDbWidgetStatistics.class), eq(WIDGET_STATISTICS))).andReturn(getPlacements(0));
+        Capture<Update> userCount = new Capture<Update>();
+        expect(mongoOperations.updateFirst(isA(Query.class), capture(userCount), eq(WIDGET_STATISTICS))).andReturn(null);
+        Capture<Update> unset = new Capture<Update>();
+        expect(mongoOperations.updateFirst(isA(Query.class), capture(unset), eq(WIDGET_STATISTICS))).andReturn(null);
+        replay(mongoOperations);
+
+        aggregator.pageChanged(getPage(WIDGET_ID), null);
+
+        assertThat(((DBObject) userCount.getValue().getUpdateObject().get("$inc")).get("userCount"), is((Object) (-1)));
+        assertThat(((DBObject) unset.getValue().getUpdateObject().get("$unset")).containsField("users." + OWNER_ID), is(true));
+        verify(mongoOperations);
+    }
+
+    @Test
+    public void pageChanged_unchangedPlacements() {
+        replay(mongoOperations);
+
+        aggregator.pageChanged(getPage(WIDGET_ID), getPage(WIDGET_ID));
+
+        verify(mongoOperations);
+    }
+
+    @Test
+    public void getAllWidgetStatistics() {
+        MongoDbWidgetStatistics rated = new MongoDbWidgetStatistics(WIDGET_ID);
+        rated.setLike(2);
+        rated.setDislike(1);
+        rated.setUserCount(5);
+        MongoDbWidgetStatistics empty = new MongoDbWidgetStatistics("5678");
+        empty.setLike(0);
+        empty.setDislike(0);
+        empty.setUserCount(0);
+        expect(mongoOperations.find(isA(Query.class), eq(MongoDbWidgetStatistics.class), eq(WIDGET_STATISTICS)))
+                .andReturn(Lists.newArrayList(rated, empty));
+        expect(mongoOperations.find(isA(Query.class), eq(MongoDbWidget.class), eq(WIDGET_COLLECTION)))
+                .andReturn(Lists.newArrayList(getRatedWidget(WIDGET_ID, 10), getRatedWidget("5678", 0)));
+        replay(mongoOperations);
+
+        Map<String, WidgetStatistics> result = aggregator.getAllWidgetStatistics(USER_ID);
+
+        assertThat(result.size(), is(1));
+        assertThat(result.get(WIDGET_ID).getTotalLike(), is(2));
+        assertThat(result.get(WIDGET_ID).getTotalDislike(), is(1));
+        assertThat(result.get(WIDGET_ID).getTotalUserCount(), is(5));
+        assertThat(result.get(WIDGET_ID).getUserRating(), is(10));
+        verify(mongoOperations);
+    }
+
+    @Test
+    public void getWidgetStatistics_missing() {
+        expect(mongoOperations.findOne(isA(Query.class), eq(MongoDbWidgetStatistics.class), eq(WIDGET_STATISTICS))).andReturn(null);
+        expect(mongoOperations.find(isA(Query.class), eq(MongoDbWidget.class), eq(WIDGET_COLLECTION)))
+                .andReturn(Lists.<MongoDbWidget>newArrayList());
+        replay(mongoOperations);
+
+        WidgetStatistics result = aggregator.getWidgetStatistics(WIDGET_ID, USER_ID);
+
+        assertThat(result.getTotalLike(), is(0));
+        assertThat(result.getTotalUserCount(), is(0));
+        assertThat(result.getUserRating(), is(-1));
+        verify(mongoOperations);
+    }
+
+    @Test
+    public void getUsersWithWidget() {
+        MongoDbWidgetStatistics statistics = getPlacements(1);
+        statistics.getUsers().put("former", 0);
+        expect(mongoOperations.findOne(isA(Query.class), eq(MongoDbWidgetStatistics.class), eq(WIDGET_STATISTICS))).andReturn(statistics);
+        replay(mongoOperations);
+
+        assertThat(aggregator.getUsersWithWidget(WIDGET_ID).size(), is(1));
+        assertThat(aggregator.getUsersWithWidget(WIDGET_ID).contains(OWNER_ID), is(true));
+    }
+
+    @Test
+    public void rebuildIfStale_recentlyRebuilt() {
+        expect(mongoOperations.findById(ID, RebuildStatistics.class, OPERATIONS))
+                .andReturn(new RebuildStatistics(ID, System.currentTimeMillis(), 10L, 3));
+        replay(mongoOperations);
+
+        aggregator.rebuildIfStale();
+
+        assertThat(aggregator.getRebuildCount(), is(0L));
+        verify(mongoOperations);
+    }
+
+    @Test
+    public void replaceCounters_unchangedVersion() {
+        Capture<Query> query = new Capture<Query>();
+        Capture<Update> update = new Capture<Update>();
+        expect(mongoOperations.updateFirst(capture(query), capture(update), eq(WIDGET_STATISTICS))).andReturn(getWriteResult(1));
+        replay(mongoOperations);
+
+        Map<String, Long> versions = Maps.newHashMap();
+        versions.put(WIDGET_ID, 7L);
+        int skipped = aggregator.replaceCounters(getRebuilt(WIDGET_ID), versions);
+
+        assertThat(skipped, is(0));
+        assertThat(query.getValue().getQueryObject().get("version"), is((Object) 7L));
+        assertThat(((DBObject) update.getValue().getUpdateObject().get("$set")).get("like"), is((Object) 3));
+        assertThat(((DBObject) update.getValue().getUpdateObject().get("$set")).get("userCount"), is((Object) 1));
+        verify(mongoOperations);
+    }
+
+    @Test
+    public void replaceCounters_concurrentUpdateSkipped() {
+        expect(mongoOperations.updateFirst(isA(Query.class), isA(Update.class), eq(WIDGET_STATISTICS))).andReturn(getWriteResult(0));
+        mongoOperations.insert(isA(MongoDbWidgetStatistics.class), eq(WIDGET_STATISTICS));
+        expectLastCall().andThrow(new DuplicateKeyException("inserted concurrently"));
+        replay(mongoOperations);
+
+        Map<String, Long> versions = Maps.newHashMap();
+        versions.put(WIDGET_ID, 7L);
+        int skipped = aggregator.replaceCounters(getRebuilt(WIDGET_ID, "5678"), versions);
+
+        assertThat(skipped, is(2));
+        verify(mongoOperations);
+    }
+
+    @Test
+    public void replaceCounters_removesStaleCountersAtVersion() {
+        Capture<Query> query = new Capture<Query>();
+        mongoOperations.remove(capture(query), eq(WIDGET_STATISTICS));
+        expectLastCall();
+        replay(mongoOperations);
+
+        Map<String, Long> versions = Maps.newHashMap();
+        versions.put(WIDGET_ID, null);
+        aggregator.replaceCounters(Maps.<String, MongoDbWidgetStatistics>newHashMap(), versions);
+
+        assertThat(query.getValue().getQueryObject().get("_id"), is((Object) WIDGET_ID));
+        assertThat(((DBObject) query.getValue().getQueryObject().get("version")).get("$exists"), is((Object) false));
+        verify(mongoOperations);
+    }
+
+    @Test
+    public void widgetsRemoved() {
+        mongoOperations.remove(isA(Query.class), eq(WIDGET_STATISTICS));
+        expectLastCall();
+        replay(mongoOperations);
+
+        aggregator.widgetsRemoved(Lists.newArrayList(WIDGET_ID));
+
+        verify(mongoOperations);
+    }
+
+    private static Widget getWidget(WidgetRating... ratings) {
+        Widget widget = new WidgetImpl(WIDGET_ID);
+        widget.setRatings(Lists.newArrayList(ratings));
+        return widget;
+    }
+
+    private static Page getPage(String... widgetIds) {
+        Page page = new PageImpl("1", OWNER_ID);
+        Region region = new RegionImpl("1");
+        region.setRegionWidgets(Lists.<RegionWidget>newArrayList());
+        for (String widgetId : widgetIds) {
+            region.getRegionWidgets().add(new RegionWidgetImpl(null, widgetId, region));
+        }
+        page.setRegions(Lists.newArrayList(region));
+        return page;
+    }
+
+    private static MongoDbWidget getRatedWidget(String widgetId, int score) {
+        MongoDbWidget widget = new MongoDbWidget(widgetId);
+        widget.setRatings(Lists.<WidgetRating>newArrayList(new WidgetRatingImpl("1", USER_ID, score)));
+        return widget;
+    }
+
+    private static Map<String, MongoDbWidgetStatistics> getRebuilt(String... widgetIds) {
+        Map<String, MongoDbWidgetStatistics> rebuilt = Maps.newHashMap();
+        for (String widgetId : widgetIds) {
+            MongoDbWidgetStatistics statistics = getPlacements(1);
+            statistics.setId(widgetId);
+            statistics.setLike(3);
+            statistics.setDislike(0);
+            rebuilt.put(widgetId, statistics);
+        }
+        return rebuilt;
+    }
+
+    private static WriteResult getWriteResult(int n) {
+        WriteResult result = createMock(WriteResult.class);
+        expect(result.getN()).andReturn(n).anyTimes();
+        replay(result);
+        return result;
+    }
+
+    private static MongoDbWidgetStatistics getPlacements(int placements) {
+        MongoDbWidgetStatistics statistics = new MongoDbWidgetStatistics(WIDGET_ID);
+        Map<String, Integer> users = Maps.newHashMap();
+        users.put(OWNER_ID, placements);
+        statistics.setUsers(users);
+        return statistics;
+    }
+}
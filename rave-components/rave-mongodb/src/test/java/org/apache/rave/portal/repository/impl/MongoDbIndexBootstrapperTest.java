@@ -0,0 +1,76 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.rave.portal.repository.impl;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.apache.rave.portal.repository.util.CollectionNames.APP_DATA_COLLECTION;
+import static org.apache.rave.portal.repository.util.CollectionNames.PAGE_COLLECTION;
+import static org.apache.rave.portal.repository.util.CollectionNames.USER_COLLECTION;
+import static org.apache.rave.portal.repository.util.CollectionNames.WIDGET_COLLECTION;
+import static org.easymock.EasyMock.*;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class MongoDbIndexBootstrapperTest {
+    private MongoOperations template;
+    private MongoDbIndexBootstrapper bootstrapper;
+
+    @Before
+    public void setup() {
+        template = createMock(MongoOperations.class);
+        bootstrapper = new MongoDbIndexBootstrapper(template);
+    }
+
+    @Test
+    public void ensureIndexes() {
+        for (Map.Entry<String, List<IndexDefinition>> entry : MongoDbIndexBootstrapper.getIndexes().entrySet()) {
+            for (IndexDefinition index : entry.getValue()) {
+                template.ensureIndex(index, entry.getKey());
+                expectLastCall();
+            }
+        }
+        replay(template);
+
+        bootstrapper.ensureIndexes();
+        verify(template);
+    }
+
+    @Test
+    public void getIndexes_coversRepositoryCollections() {
+        Map<String, List<IndexDefinition>> indexes = MongoDbIndexBootstrapper.getIndexes();
+        assertThat(indexes.containsKey(PAGE_COLLECTION), is(true));
+        assertThat(indexes.containsKey(WIDGET_COLLECTION), is(true));
+        assertThat(indexes.containsKey(USER_COLLECTION), is(true));
+    }
+
+    @Test
+    public void getIndexes_applicationDataUniquePerUserAndApplication() {
+        IndexDefinition index = MongoDbIndexBootstrapper.getIndexes().get(APP_DATA_COLLECTION).get(0);
+        assertThat(index.getIndexKeys().keySet().toString(), is("[appUrl, userId]"));
+        assertThat(index.getIndexOptions().get("unique"), is((Object) true));
+    }
+}
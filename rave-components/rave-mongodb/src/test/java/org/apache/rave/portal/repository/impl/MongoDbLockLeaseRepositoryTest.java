@@ -0,0 +1,128 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.rave.portal.repository.impl;
+
+import com.mongodb.WriteResult;
+import org.apache.rave.exception.DuplicateItemException;
+import org.apache.rave.portal.model.MongoDbLockLease;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import static org.apache.rave.portal.repository.util.CollectionNames.LOCK_LEASE_COLLECTION;
+import static org.easymock.EasyMock.*;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+public class MongoDbLockLeaseRepositoryTest {
+    private static final String KEY = "RegionWidget-1";
+    private static final String OWNER = "node-1";
+    private static final long NOW = 1000L;
+    private static final long LEASE = 500L;
+
+    private MongoOperations template;
+    private MongoDbLockLeaseRepository repository;
+
+    @Before
+    public void setup() {
+        template = createMock(MongoOperations.class);
+        repository = new MongoDbLockLeaseRepository();
+        repository.setTemplate(template);
+    }
+
+    @Test
+    public void tryAcquire_grantable() {
+        expect(template.findAndModify(isA(Query.class), isA(Update.class), isA(FindAndModifyOptions.class),
+                eq(MongoDbLockLease.class), eq(LOCK_LEASE_COLLECTION)))
+                .andReturn(new MongoDbLockLease(KEY, OWNER, 7L, NOW + LEASE));
+        replay(template);
+
+        assertThat(repository.tryAcquire(KEY, OWNER, NOW, LEASE), is(7L));
+        verify(template);
+    }
+
+    @Test
+    public void tryAcquire_heldByOther() {
+        expect(template.findAndModify(isA(Query.class), isA(Update.class), isA(FindAndModifyOptions.class),
+                eq(MongoDbLockLease.class), eq(LOCK_LEASE_COLLECTION))).andReturn(null);
+        expect(template.findById(KEY, MongoDbLockLease.class, LOCK_LEASE_COLLECTION))
+                .andReturn(new MongoDbLockLease(KEY, "node-2", 3L, NOW + LEASE));
+        replay(template);
+
+        assertThat(repository.tryAcquire(KEY, OWNER, NOW, LEASE), is(nullValue()));
+        verify(template);
+    }
+
+    @Test
+    public void tryAcquire_firstGrant() {
+        expect(template.findAndModify(isA(Query.class), isA(Update.class), isA(FindAndModifyOptions.class),
+                eq(MongoDbLockLease.class), eq(LOCK_LEASE_COLLECTION))).andReturn(null);
+        expect(template.findById(KEY, MongoDbLockLease.class, LOCK_LEASE_COLLECTION)).andReturn(null);
+        template.insert(isA(MongoDbLockLease.class), eq(LOCK_LEASE_COLLECTION));
+        expectLastCall();
+        replay(template);
+
+        assertThat(repository.tryAcquire(KEY, OWNER, NOW, LEASE), is(1L));
+        verify(template);
+    }
+
+    @Test(expected = DuplicateItemException.class)
+    public void tryAcquire_concurrentFirstGrant() {
+        expect(template.findAndModify(isA(Query.class), isA(Update.class), isA(FindAndModifyOptions.class),
+                eq(MongoDbLockLease.class), eq(LOCK_LEASE_COLLECTION))).andReturn(null);
+        expect(template.findById(KEY, MongoDbLockLease.class, LOCK_LEASE_COLLECTION)).andReturn(null);
+        template.insert(isA(MongoDbLockLease.class), eq(LOCK_LEASE_COLLECTION));
+        expectLastCall().andThrow(new DuplicateKeyException("E11000 duplicate key"));
+        replay(template);
+
+        repository.tryAcquire(KEY, OWNER, NOW, LEASE);
+    }
+
+    @Test
+    public void renew() {
+        Query held = query(where("_id").is(KEY).and("owner").is(OWNER).and("fencingToken").is(7L)
+                .and("expiresAt").gte(NOW));
+        WriteResult result = createMock(WriteResult.class);
+        expect(result.getN()).andReturn(1);
+        replay(result);
+        expect(template.updateFirst(eq(held), isA(Update.class), eq(LOCK_LEASE_COLLECTION))).andReturn(result);
+        replay(template);
+
+        assertThat(repository.renew(KEY, OWNER, 7L, NOW, LEASE), is(true));
+        verify(template);
+    }
+
+    @Test
+    public void release() {
+        Query held = query(where("_id").is(KEY).and("owner").is(OWNER).and("fencingToken").is(7L));
+        expect(template.updateFirst(eq(held), isA(Update.class), eq(LOCK_LEASE_COLLECTION))).andReturn(null);
+        replay(template);
+
+        repository.release(KEY, OWNER, 7L);
+        verify(template);
+    }
+}
@@ -22,7 +22,9 @@ package org.apache.rave.portal.repository.impl;
 import com.google.common.collect.Lists;
 import org.apache.rave.model.*;
 import org.apache.rave.portal.model.impl.*;
+import org.apache.rave.portal.model.util.PageNavigationItem;
 import org.apache.rave.portal.repository.*;
+import org.easymock.Capture;
 import org.junit.Before;
 import org.junit.Test;
 import org.springframework.data.mongodb.core.query.Query;
@@ -80,6 +82,48 @@ public class MongoDbPageRepositoryTest {
         assertNotNull(result);
 
     }
+    @Test
+    public void getNavigation(){
+        String userId = "1234L";
+        PageUserImpl other = new PageUserImpl();
+        other.setUserId("9999L");
+        other.setRenderSequence(1L);
+        PageUserImpl first = new PageUserImpl();
+        first.setUserId(userId);
+        first.setRenderSequence(1L);
+        first.setEditor(true);
+        first.setPageStatus(PageInvitationStatus.OWNER);
+        PageUserImpl second = new PageUserImpl();
+        second.setUserId(userId);
+        second.setRenderSequence(2L);
+        second.setPageStatus(PageInvitationStatus.PENDING);
+        Page secondPage = new PageImpl("2", "9999L");
+        secondPage.setName("shared");
+        secondPage.setMembers(Lists.<PageUser>newArrayList(other, second));
+        Page firstPage = new PageImpl("1", userId);
+        firstPage.setName("main");
+        firstPage.setMembers(Lists.<PageUser>newArrayList(first));
+        Capture<Query> captured = new Capture<Query>();
+
+        expect(template.findProjected(capture(captured))).andReturn(Lists.newArrayList(secondPage, firstPage));
+        replay(template);
+
+        List<PageNavigationItem> result = repo.getNavigationForUserType(userId, PageType.USER.toString());
+        assertThat(result.size(), is(2));
+        assertThat(result.get(0).getId(), is("1"));
+        assertThat(result.get(0).getName(), is("main"));
+        assertThat(result.get(0).isEditor(), is(true));
+        assertThat(result.get(0).getMemberCount(), is(1));
+        assertThat(result.get(1).getId(), is("2"));
+        assertThat(result.get(1).getOwnerId(), is("9999L"));
+        assertThat(result.get(1).getPageStatus(), is(PageInvitationStatus.PENDING));
+        assertThat(result.get(1).isEditor(), is(false));
+        assertThat(result.get(1).getMemberCount(), is(2));
+        assertThat(captured.getValue().getFieldsObject().containsField("regions"), is(false));
+        assertThat(captured.getValue().getFieldsObject().containsField("members"), is(true));
+        verify(template);
+    }
+
     @Test
     public void getByContext(){
         String contextId = "1234L";
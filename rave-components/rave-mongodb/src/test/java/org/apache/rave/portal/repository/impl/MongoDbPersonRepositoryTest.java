@@ -63,6 +63,30 @@ public class MongoDbPersonRepositoryTest {
         repo.setWidgetOperations(widgetOperations);
     }
 
+    @Test
+    public void findByUsernames() {
+        MongoDbUser one = new MongoDbUser("1");
+        one.setUsername("one");
+        MongoDbUser two = new MongoDbUser("2");
+        two.setUsername("two");
+        List<String> usernames = Lists.newArrayList("one", "two", "unknown");
+        expect(template.find(query(where("username").in(usernames)))).andReturn(Lists.<User>newArrayList(one, two));
+        replay(template);
+
+        List<Person> results = repo.findByUsernames(usernames);
+        assertThat(results.size(), is(equalTo(2)));
+        assertThat(results.get(0).getUsername(), is(equalTo("one")));
+        assertThat(results.get(1).getUsername(), is(equalTo("two")));
+        verify(template);
+    }
+
+    @Test
+    public void findByUsernames_empty() {
+        replay(template);
+        assertTrue(repo.findByUsernames(new ArrayList<String>()).isEmpty());
+        verify(template);
+    }
+
     @Test
     public void findFriends_username() {
         String username = "username";
@@ -0,0 +1,183 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.rave.portal.repository.impl;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.mongodb.BasicDBObject;
+import org.apache.rave.model.PageType;
+import org.apache.rave.model.WidgetStatus;
+import org.apache.rave.portal.model.conversion.HydratingConverterFactory;
+import org.apache.rave.portal.model.impl.UserImpl;
+import org.apache.rave.portal.repository.StatisticsAggregator;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.Date;
+
+import static org.apache.rave.portal.repository.util.CollectionNames.TAG_COLLECTION;
+import static org.apache.rave.portal.repository.util.CollectionNames.USER_COLLECTION;
+import static org.easymock.EasyMock.createNiceMock;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+/**
+ * Runs the repository queries against an embedded mongod with the indexes from {@link MongoDbIndexBootstrapper} and
+ * fails if any of them has to scan a whole collection.  Skipped when mongod cannot be started on this machine.
+ */
+public class MongoDbQueryPlanTest {
+    private static final String DATABASE = "rave_query_plan";
+    private static final String USER_ID = "1234";
+    private static final String TAG_KEYWORD = "news";
+
+    private static EmbeddedMongo mongo;
+
+    private QueryPlanVerifyingMongoTemplate template;
+    private MongoDbPageRepository pageRepository;
+    private MongoDbWidgetRepository widgetRepository;
+    private MongoDbUserRepository userRepository;
+    private MongoDbActivityStreamsRepository activityRepository;
+
+    @BeforeClass
+    public static void startMongo() {
+        mongo = EmbeddedMongo.start();
+    }
+
+    @AfterClass
+    public static void stopMongo() {
+        if (mongo != null) {
+            mongo.stop();
+        }
+    }
+
+    @Before
+    public void setup() {
+        template = new QueryPlanVerifyingMongoTemplate(mongo.getMongo(), DATABASE);
+        HydratingConverterFactory converter = createNiceMock(HydratingConverterFactory.class);
+
+        new MongoDbIndexBootstrapper(template).ensureIndexes();
+        activityRepository = new MongoDbActivityStreamsRepository(template, converter);
+        activityRepository.ensureIndexes();
+
+        MongoPageTemplate pageTemplate = new MongoPageTemplate();
+        pageTemplate.setMongoTemplate(template);
+        pageTemplate.setConverter(converter);
+        pageRepository = new MongoDbPageRepository();
+        pageRepository.setTemplate(pageTemplate);
+
+        MongoWidgetTemplate widgetTemplate = new MongoWidgetTemplate();
+        widgetTemplate.setMongoTemplate(template);
+        widgetTemplate.setConverter(converter);
+        MongoTagTemplate tagTemplate = new MongoTagTemplate();
+        tagTemplate.setMongoTemplate(template);
+        tagTemplate.setConverter(converter);
+        widgetRepository = new MongoDbWidgetRepository();
+        widgetRepository.setTemplate(widgetTemplate);
+        widgetRepository.setTagTemplate(tagTemplate);
+        widgetRepository.setStatsAggregator(createNiceMock(StatisticsAggregator.class));
+
+        MongoUserTemplate userTemplate = new MongoUserTemplate();
+        userTemplate.setMongoTemplate(template);
+        userTemplate.setConverter(converter);
+        userRepository = new MongoDbUserRepository();
+        userRepository.setTemplate(userTemplate);
+
+        //tag queries resolve the keyword before looking up widgets
+        template.getCollection(TAG_COLLECTION).insert(new BasicDBObject("keyword", TAG_KEYWORD));
+        template.reset();
+    }
+
+    @After
+    public void tearDown() {
+        mongo.getMongo().dropDatabase(DATABASE);
+    }
+
+    @Test
+    public void pageQueries_useIndexes() {
+        String pageType = PageType.USER.toString();
+        pageRepository.getAllPagesForUserType(USER_ID, pageType);
+        pageRepository.getNavigationForUserType(USER_ID, pageType);
+        pageRepository.getPagesForContextType(USER_ID, pageType);
+        pageRepository.getPagesForUser(USER_ID, pageType);
+        pageRepository.hasPersonPage(USER_ID);
+        pageRepository.deletePages(USER_ID, pageType);
+        pageRepository.get("4321");
+
+        assertThat(template.getCollectionScans().toString(), template.getCollectionScans().isEmpty(), is(true));
+    }
+
+    @Test
+    public void widgetQueries_useIndexes() {
+        widgetRepository.getByStatus(WidgetStatus.PUBLISHED, 0, 10);
+        widgetRepository.getCountByStatus(WidgetStatus.PUBLISHED);
+        widgetRepository.getByOwner(new UserImpl(USER_ID), 0, 10);
+        widgetRepository.getCountByOwner(new UserImpl(USER_ID), 0, 10);
+        widgetRepository.getByUrl("http://example.com/widget.xml");
+        widgetRepository.getUsersWidgetRatings(USER_ID);
+        widgetRepository.getWidgetsByTag(TAG_KEYWORD, 0, 10);
+        widgetRepository.getCountByTag(TAG_KEYWORD);
+        widgetRepository.getByIds(Lists.newArrayList("1", "2"));
+        widgetRepository.getCommentsByWidgetId("1", 0, 10);
+        widgetRepository.deleteAllWidgetComments(USER_ID);
+
+        assertThat(template.getCollectionScans().toString(), template.getCollectionScans().isEmpty(), is(true));
+    }
+
+    @Test
+    public void userQueries_useIndexes() {
+        userRepository.getByUsername("canonical");
+        userRepository.getByUserEmail("canonical@example.com");
+        userRepository.getByOpenId("http://example.com/canonical");
+        userRepository.getByForgotPasswordHash("hash");
+
+        assertThat(template.getCollectionScans().toString(), template.getCollectionScans().isEmpty(), is(true));
+    }
+
+    @Test
+    public void activityQueries_useIndexes() {
+        activityRepository.getByUserId(USER_ID);
+        activityRepository.getByIds(Lists.newArrayList("1", "2"));
+        activityRepository.getByUserIds(Sets.newHashSet(USER_ID), new Date(), null, 20);
+        activityRepository.getByUserIds(Sets.newHashSet(USER_ID), new Date(), "1", 20);
+        activityRepository.getByUserIds(Sets.newHashSet(USER_ID), null, null, 20);
+        activityRepository.getOldestByUserIds(Sets.newHashSet(USER_ID), 20);
+
+        assertThat(template.getCollectionScans().toString(), template.getCollectionScans().isEmpty(), is(true));
+    }
+
+    @Test
+    public void unindexedQuery_isReported() {
+        template.count(query(where("displayName").is("Canonical")), USER_COLLECTION);
+
+        assertThat(template.getCollectionScans().isEmpty(), is(false));
+    }
+
+    @Test
+    public void unindexedWrite_isReported() {
+        template.remove(query(where("displayName").is("Canonical")), USER_COLLECTION);
+
+        assertThat(template.getCollectionScans().isEmpty(), is(false));
+    }
+}
@@ -33,10 +33,9 @@ import java.util.List;
 import static org.easymock.EasyMock.*;
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertThat;
-import static org.springframework.data.mongodb.core.query.Criteria.where;
-import static org.springframework.data.mongodb.core.query.Query.query;
 
 /**
  * Test for MongoDb Widget Comment Repository class
@@ -57,50 +56,57 @@ public class MongoDbWidgetCommentRepositoryTest {
     @Test
     public void deleteAll(){
         String userId = "1234L";
-        List<Widget> widgets = Lists.newArrayList();
-        Widget w = new WidgetImpl();
-        List<WidgetComment> comments = Lists.newArrayList();
-        WidgetComment wc1 = new WidgetCommentImpl();
-        WidgetComment wc2 = new WidgetCommentImpl();
-        wc1.setUserId(userId);
-        wc2.setUserId(userId);
-        comments.add(wc1);
-        comments.add(wc2);
-        w.setComments(comments);
-        widgets.add(w);
-
-        expect(template.find(query(where("comments").elemMatch(where("userId").is(userId))))).andReturn(widgets);
-        expect(template.save(isA(Widget.class))).andReturn(w);
-        expect(template.find(query(where("comments").elemMatch(where("userId").is(userId))))).andReturn(widgets);
-        expect(template.save(isA(Widget.class))).andReturn(w);
+        expect(template.removeComments(userId)).andReturn(2);
         replay(template);
 
         int count = repo.deleteAllWidgetComments(userId);
         assertThat(count, is(equalTo(2)));
+        verify(template);
     }
 
     @Test
     public void deleteAll_zero(){
         String userId = "1234L";
-        String userId_2 = "1111L";
-        List<Widget> widgets = Lists.newArrayList();
-        Widget w = new WidgetImpl();
-        List<WidgetComment> comments = Lists.newArrayList();
-        WidgetComment wc1 = new WidgetCommentImpl();
-        WidgetComment wc2 = new WidgetCommentImpl();
-        wc1.setUserId(userId_2);
-        wc2.setUserId(userId_2);
-        comments.add(wc1);
-        comments.add(wc2);
-        w.setComments(comments);
-        widgets.add(w);
-
-        expect(template.find(query(where("comments").elemMatch(where("userId").is(userId))))).andReturn(widgets);
+        expect(template.removeComments(userId)).andReturn(0);
         replay(template);
 
         int count = repo.deleteAllWidgetComments(userId);
         assertThat(count, is(equalTo(0)));
+    }
+
+    @Test
+    public void create(){
+        String widgetId = "321L";
+        WidgetComment comment = new WidgetCommentImpl();
+        WidgetComment stored = new WidgetCommentImpl("1234L");
+        expect(template.addComment(widgetId, comment)).andReturn(stored);
+        replay(template);
+
+        assertThat(repo.createWidgetComment(widgetId, comment), is(sameInstance(stored)));
+        verify(template);
+    }
+
+    @Test
+    public void update(){
+        String widgetId = "321L";
+        WidgetComment comment = new WidgetCommentImpl("1234L");
+        WidgetComment stored = new WidgetCommentImpl("1234L");
+        expect(template.updateComment(widgetId, comment)).andReturn(stored);
+        replay(template);
+
+        assertThat(repo.updateWidgetComment(widgetId, comment), is(sameInstance(stored)));
+        verify(template);
+    }
+
+    @Test
+    public void delete(){
+        String widgetId = "321L";
+        template.removeComment(widgetId, "1234L");
+        expectLastCall();
+        replay(template);
 
+        repo.deleteWidgetComment(widgetId, new WidgetCommentImpl("1234L"));
+        verify(template);
     }
 
     @Test
@@ -29,15 +29,11 @@ import org.junit.Test;
 
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.List;
 
 import static org.easymock.EasyMock.*;
-import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.sameInstance;
 import static org.junit.Assert.*;
-import static org.springframework.data.mongodb.core.query.Criteria.where;
-import static org.springframework.data.mongodb.core.query.Query.query;
 
 
 /**
@@ -96,32 +92,18 @@ public class MongoDbWidgetRatingRepositoryTest {
     @Test
     public void deleteAll_Valid(){
         String userId = "233";
-        List<Widget> widgets = new ArrayList<Widget>();
-        Widget delete = new WidgetImpl();
-        WidgetRating rating = new WidgetRatingImpl();
-        List<WidgetRating> ratings= new ArrayList<WidgetRating>();
-        ratings.add(rating);
-        delete.setRatings(ratings);
-        rating.setUserId(userId);
-        widgets.add(delete);
-        expect(template.find(query(where("ratings").elemMatch(where("userId").is(userId))))).andReturn(widgets);
-        expect(template.save(delete)).andReturn(null);
+        expect(template.removeRatings(userId)).andReturn(1);
         replay(template);
 
         int count = ratingRepository.deleteAllWidgetRatings(userId);
-        assertFalse(ratings.contains(rating));
         assertThat(count, is(1));
+        verify(template);
     }
 
     @Test
     public void deleteAll_Diff_Id(){
         String userId = "111";
-        Widget widget = new WidgetImpl();
-        List<Widget> widgets = Arrays.asList(widget);
-        WidgetRating rating = new WidgetRatingImpl();
-        rating.setUserId("222");
-        widget.setRatings(Arrays.asList(rating));
-        expect(template.find(query(where("ratings").elemMatch(where("userId").is(userId))))).andReturn(widgets);
+        expect(template.removeRatings(userId)).andReturn(0);
         replay(template);
 
         int count = ratingRepository.deleteAllWidgetRatings(userId);
@@ -170,76 +152,36 @@ public class MongoDbWidgetRatingRepositoryTest {
 
     @Test
     public void save_Id_Valid(){
-        WidgetRatingImpl item = new WidgetRatingImpl();
-        WidgetRatingImpl lookup = new WidgetRatingImpl();
+        WidgetRatingImpl item = new WidgetRatingImpl("3245", "3245", 838);
+        WidgetRating stored = new WidgetRatingImpl("3245", "3245", 838);
         String widgetId = "2134";
-        String userId = "3245";
-        String id = "3245";
-        int score = 838;
-        item.setUserId(userId);
-        item.setScore(score);
-        item.setId(id);
-        lookup.setId(id);
-        Widget widget = new WidgetImpl();
-        widget.setRatings(Arrays.asList((WidgetRating)lookup));
 
-        expect(template.get(widgetId)).andReturn(widget);
-        expect(template.save(widget)).andReturn(widget);
+        expect(template.updateRating(widgetId, item)).andReturn(stored);
         replay(template);
 
         WidgetRating widgetRating = ratingRepository.updateWidgetRating(widgetId, item);
-
-        assertThat(item.getScore(), is(equalTo(lookup.getScore())));
-        assertThat(item.getUserId(), is(equalTo(lookup.getUserId())));
-        assertThat(item.getScore(), is(equalTo(lookup.getScore())));
-        assertThat(widgetRating, is(sameInstance((WidgetRating)lookup)));
+        assertThat(widgetRating, is(sameInstance(stored)));
+        verify(template);
     }
 
     @Test
     public void save_Id_Null(){
         WidgetRating item = new WidgetRatingImpl();
+        WidgetRating stored = new WidgetRatingImpl("1");
         String widgetId = "5544";
-        Widget widget = new WidgetImpl();
-        widget.setRatings(new ArrayList<WidgetRating>());
-        expect(template.get(widgetId)).andReturn(widget);
-        expect(template.save(widget)).andReturn(widget);
+        expect(template.addRating(widgetId, item)).andReturn(stored);
         replay(template);
 
         WidgetRating widgetRating = ratingRepository.createWidgetRating(widgetId, item);
-        assertTrue(widget.getRatings().contains(item));
-        assertThat(widgetRating, is(sameInstance(item)));
+        assertThat(widgetRating, is(sameInstance(stored)));
+        verify(template);
     }
 
     @Test
     public void save_Null(){
-        WidgetRatingImpl item = new WidgetRatingImpl();
-        Widget widget = new WidgetImpl();
-        widget.setRatings(new ArrayList<WidgetRating>());
-        String id = "123";
+        WidgetRatingImpl item = new WidgetRatingImpl("123");
         String widgetId = "321";
-        Widget saved = new WidgetImpl();
-        saved.setRatings(new ArrayList<WidgetRating>());
-        item.setId(id);
-        expect(template.get(widgetId)).andReturn(widget);
-        expect(template.save(widget)).andReturn(saved);
-        replay(template);
-
-        assertNull(ratingRepository.updateWidgetRating(widgetId, item));
-    }
-
-    @Test
-    public void save_Diff_Id(){
-        WidgetRating item = new WidgetRatingImpl();
-        String widgetId = "3333";
-        String itemId = "123";
-        ((WidgetRatingImpl)item).setId(itemId);
-        Widget widget = new WidgetImpl();
-        WidgetRating exist = new WidgetRatingImpl();
-        ((WidgetRatingImpl)exist).setId("4444");
-        widget.setRatings(Arrays.asList(exist));
-
-        expect(template.get(widgetId)).andReturn(widget);
-        expect(template.save(widget)).andReturn(widget);
+        expect(template.updateRating(widgetId, item)).andReturn(null);
         replay(template);
 
         assertNull(ratingRepository.updateWidgetRating(widgetId, item));
@@ -247,34 +189,10 @@ public class MongoDbWidgetRatingRepositoryTest {
 
     @Test
     public void delete_Valid(){
-        WidgetRating item = new WidgetRatingImpl();
+        WidgetRating item = new WidgetRatingImpl("234");
         String widgetId = "387383";
-        String id = "234";
-        ((WidgetRatingImpl)item).setId(id);
-        Widget widget = new WidgetImpl();
-        ArrayList<WidgetRating> ratings = new ArrayList<WidgetRating>();
-        ratings.add(item);
-        widget.setRatings(ratings);
-        expect(template.get(widgetId)).andReturn(widget);
-        expect(template.save(widget)).andReturn(null);
-        replay(template);
-
-        ratingRepository.deleteWidgetRating(widgetId, item);
-        assertFalse(ratings.contains(item));
-        verify(template);
-    }
-
-    @Test
-    public void delete_Id_Not_Equals(){
-         WidgetRating item = new WidgetRatingImpl();
-        String widgetId = "32323";
-        ((WidgetRatingImpl)item).setId("333333");
-        Widget widget = new WidgetImpl();
-        WidgetRating exist = new WidgetRatingImpl();
-        ((WidgetRatingImpl)exist).setId("323");
-        widget.setRatings(Arrays.asList(exist));
-        expect(template.get(widgetId)).andReturn(widget);
-        expect(template.save(widget)).andReturn(null);
+        template.removeRating(widgetId, "234");
+        expectLastCall();
         replay(template);
 
         ratingRepository.deleteWidgetRating(widgetId, item);
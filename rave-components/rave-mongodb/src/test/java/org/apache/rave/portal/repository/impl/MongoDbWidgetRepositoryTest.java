@@ -21,25 +21,31 @@ package org.apache.rave.portal.repository.impl;
 
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.mongodb.DBObject;
 import org.apache.rave.model.*;
 import org.apache.rave.portal.model.*;
 import org.apache.rave.portal.model.impl.TagImpl;
 import org.apache.rave.portal.model.impl.UserImpl;
+import org.apache.rave.portal.model.impl.WidgetCommentImpl;
 import org.apache.rave.portal.model.impl.WidgetImpl;
 import org.apache.rave.portal.model.impl.WidgetRatingImpl;
 import org.apache.rave.portal.model.util.WidgetStatistics;
 import org.apache.rave.portal.repository.MongoWidgetOperations;
 import org.apache.rave.portal.repository.StatisticsAggregator;
+import org.apache.rave.portal.repository.WidgetFetchPlan;
+import org.easymock.Capture;
 import org.junit.Before;
 import org.junit.Test;
 import org.springframework.data.mongodb.core.query.Query;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
 import static org.easymock.EasyMock.*;
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertThat;
 import static org.springframework.data.mongodb.core.query.Criteria.where;
@@ -106,6 +112,79 @@ public class MongoDbWidgetRepositoryTest {
 
     }
 
+    @Test
+    public void get_listingPlan(){
+        Widget w = new WidgetImpl("1");
+        Capture<Query> captured = new Capture<Query>();
+        expect(template.findOne(capture(captured))).andReturn(w);
+        replay(template);
+
+        assertThat(repo.get("1", WidgetFetchPlan.LISTING), is(sameInstance(w)));
+        assertThat(captured.getValue().getQueryObject().get("_id"), is((Object) "1"));
+        assertThat(captured.getValue().getFieldsObject().get("comments"), is((Object) 0));
+        assertThat(captured.getValue().getFieldsObject().get("ratings"), is((Object) 0));
+    }
+
+    @Test
+    public void getByIds(){
+        List<Widget> widgets = Lists.<Widget>newArrayList(new WidgetImpl("1"), new WidgetImpl("2"));
+        Capture<Query> captured = new Capture<Query>();
+        expect(template.find(capture(captured))).andReturn(widgets);
+        replay(template);
+
+        assertThat(repo.getByIds(Lists.newArrayList("1", "2")), is(sameInstance(widgets)));
+        assertThat(captured.getValue().getQueryObject().containsField("_id"), is(true));
+        assertThat(captured.getValue().getFieldsObject().get("comments"), is((Object) 0));
+        verify(template);
+    }
+
+    @Test
+    public void getByIds_empty(){
+        replay(template);
+
+        assertThat(repo.getByIds(new ArrayList<String>()).isEmpty(), is(true));
+        verify(template);
+    }
+
+    @Test
+    public void get_fullPlan(){
+        Widget w = new WidgetImpl("1");
+        expect(template.get("1")).andReturn(w);
+        replay(template);
+
+        assertThat(repo.get("1", WidgetFetchPlan.FULL), is(sameInstance(w)));
+    }
+
+    @Test
+    public void getCommentsByWidgetId(){
+        Widget w = new WidgetImpl("1");
+        w.setComments(Lists.<WidgetComment>newArrayList(new WidgetCommentImpl("5")));
+        Capture<Query> captured = new Capture<Query>();
+        expect(template.findOne(capture(captured))).andReturn(w);
+        replay(template);
+
+        assertThat(repo.getCommentsByWidgetId("1", 20, 10), is(sameInstance(w.getComments())));
+        DBObject slice = (DBObject) captured.getValue().getFieldsObject().get("comments");
+        assertThat(slice.get("$slice"), is((Object) new Integer[]{20, 10}));
+    }
+
+    @Test
+    public void getCommentsByWidgetId_missingWidget(){
+        expect(template.findOne(isA(Query.class))).andReturn(null);
+        replay(template);
+
+        assertThat(repo.getCommentsByWidgetId("1", 0, 10).isEmpty(), is(true));
+    }
+
+    @Test
+    public void getCountCommentsByWidgetId(){
+        expect(template.countComments("1")).andReturn(12);
+        replay(template);
+
+        assertThat(repo.getCountCommentsByWidgetId("1"), is(12));
+        verify(template);
+    }
+
     @Test
     public void getCountAll(){
         long count = 0;
@@ -0,0 +1,287 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.rave.portal.repository.impl;
+
+import com.google.common.collect.Lists;
+import com.mongodb.BasicDBList;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
+import org.apache.rave.model.Widget;
+import org.apache.rave.model.WidgetRating;
+import org.apache.rave.portal.model.MongoDbWidget;
+import org.apache.rave.portal.model.conversion.HydratingConverterFactory;
+import org.apache.rave.portal.model.impl.WidgetCommentImpl;
+import org.apache.rave.portal.model.impl.WidgetRatingImpl;
+import org.apache.rave.portal.model.util.WidgetStatistics;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.apache.rave.portal.repository.util.CollectionNames.WIDGET_COLLECTION;
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.createNiceMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.expectLastCall;
+import static org.easymock.EasyMock.replay;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Runs concurrent rating and comment changes on one widget against an embedded mongod and checks that none of them
+ * is lost.  Skipped when mongod cannot be started on this machine.
+ */
+public class MongoWidgetTemplateConcurrencyTest {
+    private static final String DATABASE = "rave_widget_concurrency";
+    private static final String WIDGET_ID = "widget_1";
+    private static final int THREADS = 8;
+    private static final int WRITES_PER_THREAD = 25;
+    private static final int LIKE = 10;
+    private static final int DISLIKE = 0;
+
+    private static EmbeddedMongo mongo;
+
+    private MongoTemplate mongoTemplate;
+    private MongoWidgetTemplate template;
+    private MongoDbIncrementalStatisticsAggregator aggregator;
+    private ExecutorService executor;
+
+    @BeforeClass
+    public static void startMongo() {
+        mongo = EmbeddedMongo.start();
+    }
+
+    @AfterClass
+    public static void stopMongo() {
+        if (mongo != null) {
+            mongo.stop();
+        }
+    }
+
+    @Before
+    public void setup() {
+        mongoTemplate = new MongoTemplate(mongo.getMongo(), DATABASE);
+        aggregator = new MongoDbIncrementalStatisticsAggregator(mongoTemplate);
+        template = new MongoWidgetTemplate();
+        template.setMongoTemplate(mongoTemplate);
+        template.setConverter(createNiceMock(HydratingConverterFactory.class));
+        template.setStatisticsAggregator(aggregator);
+        executor = Executors.newFixedThreadPool(THREADS);
+
+        DBObject widget = new BasicDBObject("_id", WIDGET_ID).append("title", "Concurrent")
+                .append("ratings", new BasicDBList()).append("comments", new BasicDBList()).append("tags", new BasicDBList());
+        mongoTemplate.getCollection(WIDGET_COLLECTION).insert(widget);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+        mongo.getMongo().dropDatabase(DATABASE);
+    }
+
+    @Test
+    public void addComment_concurrentWriters() throws Exception {
+        runConcurrently(new Write() {
+            @Override
+            public void write(int thread, int index) {
+                WidgetCommentImpl comment = new WidgetCommentImpl();
+                comment.setUserId("user_" + thread);
+                comment.setText("comment " + index);
+                comment.setCreatedDate(new Date());
+                template.addComment(WIDGET_ID, comment);
+            }
+        });
+
+        assertThat(getStoredList("comments").size(), is(THREADS * WRITES_PER_THREAD));
+        assertThat(template.countComments(WIDGET_ID), is(THREADS * WRITES_PER_THREAD));
+        assertThat(template.countComments("missing"), is(0));
+    }
+
+    @Test
+    public void addRating_concurrentWriters() throws Exception {
+        runConcurrently(new Write() {
+            @Override
+            public void write(int thread, int index) {
+                int score = index % 2 == 0 ? LIKE : DISLIKE;
+                template.addRating(WIDGET_ID, new WidgetRatingImpl(null, "user_" + thread + "_" + index, score));
+            }
+        });
+
+        int ratings = THREADS * WRITES_PER_THREAD;
+        int likes = THREADS * ((WRITES_PER_THREAD + 1) / 2);
+        assertThat(getStoredList("ratings").size(), is(ratings));
+        WidgetStatistics statistics = aggregator.getWidgetStatistics(WIDGET_ID, "user_0_0");
+        assertThat(statistics.getTotalLike(), is(likes));
+        assertThat(statistics.getTotalDislike(), is(ratings - likes));
+    }
+
+    @Test
+    public void addRating_sameUserConcurrently_keepsOneRating() throws Exception {
+        runConcurrently(new Write() {
+            @Override
+            public void write(int thread, int index) {
+                template.addRating(WIDGET_ID, new WidgetRatingImpl(null, "user", LIKE));
+            }
+        });
+
+        assertThat(getStoredList("ratings").size(), is(1));
+        assertThat(aggregator.getWidgetStatistics(WIDGET_ID, "user").getTotalLike(), is(1));
+    }
+
+    @Test
+    public void removeComments_concurrentWithOtherWriters() throws Exception {
+        for (int i = 0; i < WRITES_PER_THREAD; i++) {
+            WidgetCommentImpl comment = new WidgetCommentImpl();
+            comment.setUserId("removed");
+            comment.setText("comment " + i);
+            template.addComment(WIDGET_ID, comment);
+        }
+
+        runConcurrently(new Write() {
+            @Override
+            public void write(int thread, int index) {
+                if (thread == 0) {
+                    template.removeComments("removed");
+                } else {
+                    WidgetCommentImpl comment = new WidgetCommentImpl();
+                    comment.setUserId("user_" + thread);
+                    comment.setText("comment " + index);
+                    template.addComment(WIDGET_ID, comment);
+                }
+            }
+        });
+
+        assertThat(getStoredList("comments").size(), is((THREADS - 1) * WRITES_PER_THREAD));
+    }
+
+    @Test
+    public void removeRatings_concurrentWithOtherWriters() throws Exception {
+        final List<String> widgetIds = Lists.newArrayList(WIDGET_ID, "widget_2", "widget_3");
+        for (String widgetId : widgetIds) {
+            if (!widgetId.equals(WIDGET_ID)) {
+                mongoTemplate.getCollection(WIDGET_COLLECTION).insert(new BasicDBObject("_id", widgetId)
+                        .append("ratings", new BasicDBList()));
+            }
+            template.addRating(widgetId, new WidgetRatingImpl(null, "removed", LIKE));
+        }
+        final AtomicInteger removed = new AtomicInteger();
+
+        runConcurrently(new Write() {
+            @Override
+            public void write(int thread, int index) {
+                if (thread == 0) {
+                    removed.addAndGet(template.removeRatings("removed"));
+                } else {
+                    String widgetId = widgetIds.get(index % widgetIds.size());
+                    template.addRating(widgetId, new WidgetRatingImpl(null, "user_" + thread + "_" + index, LIKE));
+                }
+            }
+        });
+
+        assertThat(removed.get(), is(widgetIds.size()));
+        int likes = 0;
+        for (String widgetId : widgetIds) {
+            likes += aggregator.getWidgetStatistics(widgetId, "removed").getTotalLike();
+            assertThat(aggregator.getWidgetStatistics(widgetId, "removed").getUserRating(), is(-1));
+        }
+        assertThat(likes, is((THREADS - 1) * WRITES_PER_THREAD));
+    }
+
+    @Test
+    public void updateRating_storedRating() {
+        WidgetRating added = template.addRating(WIDGET_ID, new WidgetRatingImpl(null, "user", LIKE));
+
+        WidgetRating updated = template.updateRating(WIDGET_ID, new WidgetRatingImpl(added.getId(), "user", DISLIKE));
+
+        assertThat(updated, is(notNullValue()));
+        Widget widget = template.get(WIDGET_ID);
+        assertThat(widget.getRatings().size(), is(1));
+        assertThat(widget.getRatings().get(0).getId(), is(added.getId()));
+        assertThat(widget.getRatings().get(0).getScore(), is(DISLIKE));
+        assertThat(aggregator.getWidgetStatistics(WIDGET_ID, "user").getTotalDislike(), is(1));
+        assertThat(aggregator.getWidgetStatistics(WIDGET_ID, "user").getTotalLike(), is(0));
+    }
+
+    @Test
+    public void save_reportsReplacedRatings() {
+        template.addRating(WIDGET_ID, new WidgetRatingImpl(null, "user", LIKE));
+        MongoDbWidget widget = new MongoDbWidget(WIDGET_ID);
+        widget.setTitle("Concurrent");
+        widget.setRatings(Lists.<WidgetRating>newArrayList(new WidgetRatingImpl("rating", "other", DISLIKE)));
+        HydratingConverterFactory converter = createMock(HydratingConverterFactory.class);
+        expect(converter.<Widget, MongoDbWidget>convert(widget, Widget.class)).andReturn(widget);
+        converter.hydrate(widget, Widget.class);
+        expectLastCall();
+        replay(converter);
+        template.setConverter(converter);
+
+        template.save(widget);
+
+        assertThat(getStoredList("ratings").size(), is(1));
+        WidgetStatistics statistics = aggregator.getWidgetStatistics(WIDGET_ID, "other");
+        assertThat(statistics.getTotalLike(), is(0));
+        assertThat(statistics.getTotalDislike(), is(1));
+        assertThat(statistics.getUserRating(), is(DISLIKE));
+    }
+
+    private interface Write {
+        void write(int thread, int index);
+    }
+
+    private void runConcurrently(final Write write) throws Exception {
+        final CountDownLatch start = new CountDownLatch(1);
+        List<Future<Void>> results = Lists.newArrayList();
+        for (int i = 0; i < THREADS; i++) {
+            final int thread = i;
+            results.add(executor.submit(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    start.await();
+                    for (int index = 0; index < WRITES_PER_THREAD; index++) {
+                        write.write(thread, index);
+                    }
+                    return null;
+                }
+            }));
+        }
+        start.countDown();
+        for (Future<Void> result : results) {
+            result.get(30, TimeUnit.SECONDS);
+        }
+    }
+
+    private BasicDBList getStoredList(String field) {
+        DBObject widget = mongoTemplate.getCollection(WIDGET_COLLECTION).findOne(new BasicDBObject("_id", WIDGET_ID));
+        return (BasicDBList) widget.get(field);
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.rave.portal.repository.impl;
+
+import com.google.common.collect.Lists;
+import com.mongodb.BasicDBList;
+import com.mongodb.DBCursor;
+import com.mongodb.DBObject;
+import com.mongodb.Mongo;
+import com.mongodb.WriteResult;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.List;
+
+/**
+ * Test stand-in for {@link MongoTemplate} that runs {@code explain} on every query before executing it and records
+ * the queries that would have scanned the whole collection.  Queries without criteria are intentional scans (getAll,
+ * getCountAll) and are not checked.
+ * <p/>
+ * The reads, updates, removals and find-and-modify calls that name their collection are checked, the variants that
+ * derive it from an entity class and raw {@link com.mongodb.DBCollection} access are not.
+ */
+public class QueryPlanVerifyingMongoTemplate extends MongoTemplate {
+
+    private final List<String> collectionScans = Lists.newArrayList();
+
+    public QueryPlanVerifyingMongoTemplate(Mongo mongo, String databaseName) {
+        super(mongo, databaseName);
+    }
+
+    @Override
+    public <T> List<T> find(Query query, Class<T> entityClass, String collectionName) {
+        verifyPlan(query, collectionName);
+        return super.find(query, entityClass, collectionName);
+    }
+
+    @Override
+    public <T> T findOne(Query query, Class<T> entityClass, String collectionName) {
+        verifyPlan(query, collectionName);
+        return super.findOne(query, entityClass, collectionName);
+    }
+
+    @Override
+    public long count(Query query, String collectionName) {
+        verifyPlan(query, collectionName);
+        return super.count(query, collectionName);
+    }
+
+    @Override
+    public WriteResult updateFirst(Query query, Update update, String collectionName) {
+        verifyPlan(query, collectionName);
+        return super.updateFirst(query, update, collectionName);
+    }
+
+    @Override
+    public WriteResult updateMulti(Query query, Update update, String collectionName) {
+        verifyPlan(query, collectionName);
+        return super.updateMulti(query, update, collectionName);
+    }
+
+    @Override
+    public WriteResult upsert(Query query, Update update, String collectionName) {
+        verifyPlan(query, collectionName);
+        return super.upsert(query, update, collectionName);
+    }
+
+    @Override
+    public void remove(Query query, String collectionName) {
+        verifyPlan(query, collectionName);
+        super.remove(query, collectionName);
+    }
+
+    @Override
+    public <T> T findAndModify(Query query, Update update, FindAndModifyOptions options, Class<T> entityClass,
+                              String collectionName) {
+        verifyPlan(query, collectionName);
+        return super.findAndModify(query, update, options, entityClass, collectionName);
+    }
+
+    @Override
+    public <T> T findAndRemove(Query query, Class<T> entityClass, String collectionName) {
+        verifyPlan(query, collectionName);
+        return super.findAndRemove(query, entityClass, collectionName);
+    }
+
+    /**
+     * @return a description of every query that did a collection scan since the last call to {@link #reset()}
+     */
+    public List<String> getCollectionScans() {
+        return collectionScans;
+    }
+
+    public void reset() {
+        collectionScans.clear();
+    }
+
+    private void verifyPlan(Query query, String collectionName) {
+        DBObject queryObject = query == null ? null : query.getQueryObject();
+        if (queryObject == null || queryObject.keySet().isEmpty()) {
+            return;
+        }
+        DBCursor cursor = getCollection(collectionName).find(queryObject);
+        if (query.getSortObject() != null) {
+            cursor.sort(query.getSortObject());
+        }
+        DBObject plan = cursor.explain();
+        if (isCollectionScan(plan)) {
+            collectionScans.add(collectionName + ": " + queryObject + " -> " + plan);
+        }
+    }
+
+    //Older servers report a BasicCursor, newer ones a COLLSCAN stage somewhere in the winning plan
+    private static boolean isCollectionScan(Object plan) {
+        if (plan instanceof BasicDBList) {
+            for (Object element : (BasicDBList) plan) {
+                if (isCollectionScan(element)) {
+                    return true;
+                }
+            }
+        } else if (plan instanceof DBObject) {
+            DBObject object = (DBObject) plan;
+            for (String key : object.keySet()) {
+                Object value = object.get(key);
+                if ("cursor".equals(key) && value instanceof String && ((String) value).startsWith("BasicCursor")) {
+                    return true;
+                }
+                if ("stage".equals(key) && "COLLSCAN".equals(value)) {
+                    return true;
+                }
+                if (!"rejectedPlans".equals(key) && !"allPlans".equals(key) && isCollectionScan(value)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
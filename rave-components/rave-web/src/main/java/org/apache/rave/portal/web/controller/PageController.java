@@ -19,6 +19,7 @@
 package org.apache.rave.portal.web.controller;
 
 import org.apache.rave.model.*;
+import org.apache.rave.portal.model.util.PageNavigationItem;
 import org.apache.rave.portal.service.PageLayoutService;
 import org.apache.rave.portal.service.PageService;
 import org.apache.rave.portal.service.UserService;
@@ -66,39 +67,21 @@ public class PageController {
 
     @RequestMapping(value = {"/page/view", "/index.html"}, method = RequestMethod.GET)
     public String viewDefault(Model model, HttpServletRequest request) {
-        List<Page> pages = getAllPagesForAuthenticatedUser();
-        Page page = pageService.getDefaultPageFromList(pages);
-        PageUser currentPageUser = null;
-        User thisUser = userService.getAuthenticatedUser();
-        for(PageUser pageUser : page.getMembers()){
-            if(pageUser.getUserId().equals(thisUser.getId())){
-                currentPageUser = pageUser;
-            }
-        }
-        List<PageLayout> pageLayouts = pageLayoutService.getAllUserSelectable();
-        addAttributesToModel(model, page, currentPageUser, pages, pageLayouts);
-        String view = ControllerUtils.getDeviceAppropriateView(request, ViewNames.getPageView(page.getPageLayout().getCode()), ViewNames.MOBILE_HOME);
-        ControllerUtils.addNavItemsToModel(view, model, page.getId(), userService.getAuthenticatedUser(), currentPageUser.isEditor());
-        return view;
+        List<PageNavigationItem> pages = getPageNavigationForAuthenticatedUser();
+        // the first page in the user's render sequence is the default page
+        Page page = pageService.getPage(pages.get(0).getId());
+        return renderPage(model, request, page, pages);
     }
 
     @RequestMapping(value = "/page/view/{pageId}", method = RequestMethod.GET)
     public String view(@PathVariable String pageId, Model model, HttpServletRequest request) {
         try {
-            List<Page> pages = getAllPagesForAuthenticatedUser();
-            Page page = pageService.getPageFromList(pageId, pages);
-            PageUser currentPageUser = null;
-            User thisUser = userService.getAuthenticatedUser();
-            for(PageUser pageUser : page.getMembers()){
-                if(pageUser.getUserId().equals(thisUser.getId())){
-                    currentPageUser = pageUser;
-                }
+            List<PageNavigationItem> pages = getPageNavigationForAuthenticatedUser();
+            // only pages the user is a member of can be viewed
+            if (getNavigationItemFromList(pageId, pages) != null) {
+                Page page = pageService.getPage(pageId);
+                return renderPage(model, request, page, pages);
             }
-            List<PageLayout> pageLayouts = pageLayoutService.getAllUserSelectable();
-            addAttributesToModel(model, page, currentPageUser, pages, pageLayouts);
-            String view = ControllerUtils.getDeviceAppropriateView(request, ViewNames.getPageView(page.getPageLayout().getCode()), ViewNames.MOBILE_HOME);
-            ControllerUtils.addNavItemsToModel(view, model, page.getId(), thisUser, currentPageUser.isEditor());
-            return view;
         } catch (Exception e) {
             logger.info("unable to get page - possibly because a shared page was revoked by its owner");
         }
@@ -106,17 +89,34 @@ public class PageController {
         return viewDefault(model, request);
     }
 
-    private List<Page> getAllPagesForAuthenticatedUser() {
+    private String renderPage(Model model, HttpServletRequest request, Page page, List<PageNavigationItem> pages) {
+        PageUser currentPageUser = null;
+        User thisUser = userService.getAuthenticatedUser();
+        for(PageUser pageUser : page.getMembers()){
+            if(pageUser.getUserId().equals(thisUser.getId())){
+                currentPageUser = pageUser;
+            }
+        }
+        List<PageLayout> pageLayouts = pageLayoutService.getAllUserSelectable();
+        addAttributesToModel(model, page, currentPageUser, pages, pageLayouts);
+        String view = ControllerUtils.getDeviceAppropriateView(request, ViewNames.getPageView(page.getPageLayout().getCode()), ViewNames.MOBILE_HOME);
+        ControllerUtils.addNavItemsToModel(view, model, page.getId(), thisUser, currentPageUser.isEditor());
+        return view;
+    }
+
+    /**
+     * Loads the navigation of the authenticated user's pages, which only carries what the tab strip needs.
+     * The page that is actually rendered is loaded separately.
+     */
+    private List<PageNavigationItem> getPageNavigationForAuthenticatedUser() {
         User user = userService.getAuthenticatedUser();
         String userId = user.getId();
-        List<Page> pages = pageService.getAllUserPages(userId);
+        List<PageNavigationItem> pages = pageService.getUserPageNavigation(userId);
         // we add pages to this list which the corresponding pageUser object is not set to "refused"
-        List<Page> viewablePages = new ArrayList<Page>();
-        for(Page page : pages){
-            for(PageUser pageUser : page.getMembers()){
-                if(pageUser != null && pageUser.getUserId().equals(user.getId()) && !pageUser.getPageStatus().equals(PageInvitationStatus.REFUSED)){
-                    viewablePages.add(page);
-                }
+        List<PageNavigationItem> viewablePages = new ArrayList<PageNavigationItem>();
+        for(PageNavigationItem page : pages){
+            if(!PageInvitationStatus.REFUSED.equals(page.getPageStatus())){
+                viewablePages.add(page);
             }
         }
         if (viewablePages.isEmpty()) {
@@ -124,12 +124,21 @@ public class PageController {
             logger.info("User {} does not have any pages - creating default page", user.getUsername());
             pageService.addNewDefaultUserPage(userId);
             // refresh the pages list which will now have the new page
-            viewablePages = pageService.getAllUserPages(userId);
+            viewablePages = pageService.getUserPageNavigation(userId);
         }
         return viewablePages;
     }
 
-    private void addAttributesToModel(Model model, Page page, PageUser pageUser, List<Page> pages, List<PageLayout> pageLayouts) {
+    private PageNavigationItem getNavigationItemFromList(String pageId, List<PageNavigationItem> pages) {
+        for (PageNavigationItem page : pages) {
+            if (page.getId().equals(pageId)) {
+                return page;
+            }
+        }
+        return null;
+    }
+
+    private void addAttributesToModel(Model model, Page page, PageUser pageUser, List<PageNavigationItem> pages, List<PageLayout> pageLayouts) {
         model.addAttribute(ModelKeys.PAGE, page);
         model.addAttribute(ModelKeys.PAGES, pages);
         model.addAttribute(ModelKeys.PAGE_LAYOUTS, pageLayouts);
@@ -24,6 +24,7 @@ import org.apache.rave.model.User;
 import org.apache.rave.model.Widget;
 import org.apache.rave.model.WidgetStatus;
 import org.apache.rave.portal.model.impl.WidgetImpl;
+import org.apache.rave.portal.repository.WidgetFetchPlan;
 import org.apache.rave.portal.service.*;
 import org.apache.rave.portal.web.controller.util.ControllerUtils;
 import org.apache.rave.portal.web.util.ModelKeys;
@@ -106,14 +107,18 @@ public class WidgetStoreController {
      *            ID of the {@link org.apache.rave.model.Widget } to view
      * @param referringPageId
      *            the source {@link org.apache.rave.model.Page } ID
+     * @param commentOffset
+     *            offset within the widget's comments (to enable paging)
      * @return the view name of the widget detail page
      */
     @RequestMapping(method = RequestMethod.GET, value = "widget/{widgetId}")
-    public String viewWidget(Model model, @PathVariable String widgetId, @RequestParam String referringPageId) {
+    public String viewWidget(Model model, @PathVariable String widgetId, @RequestParam String referringPageId,
+                             @RequestParam(required = false, defaultValue = "0") int commentOffset) {
         final String view = ViewNames.WIDGET;
         final User user = userService.getAuthenticatedUser();
         widgetStoreModelHelper(model, referringPageId, user, view);
-        model.addAttribute(ModelKeys.WIDGET, widgetService.getWidget(widgetId));
+        model.addAttribute(ModelKeys.WIDGET, widgetService.getWidget(widgetId, WidgetFetchPlan.LISTING));
+        model.addAttribute(ModelKeys.WIDGET_COMMENTS, widgetService.getWidgetComments(widgetId, commentOffset, getPageSize()));
         model.addAttribute(ModelKeys.WIDGET_STATISTICS, widgetService.getWidgetStatistics(widgetId, user.getId()));
         model.addAttribute(ModelKeys.USER_PROFILE, user);
         return view;
@@ -36,6 +36,7 @@ public class ModelKeys {
     public static final String REGION_WIDGET = "regionWidget"; 
     public static final String MARKETPLACE = "marketplace"; // whether there is an external widget marketplace configured
     public static final String WIDGET_STATISTICS = "widgetStatistics"; //statistics for a single widget
+    public static final String WIDGET_COMMENTS = "widgetComments"; //a page of the comments on a single widget
     public static final String WIDGETS_STATISTICS = "widgetsStatistics"; //list of statistics for a list of widgets
     public static final String CATEGORY = "category"; //category
     public static final String REFERRING_PAGE_ID = "referringPageId";
@@ -27,6 +27,7 @@ import org.apache.rave.portal.model.impl.PageImpl;
 import org.apache.rave.portal.model.impl.PageLayoutImpl;
 import org.apache.rave.portal.model.impl.PageUserImpl;
 import org.apache.rave.portal.model.impl.UserImpl;
+import org.apache.rave.portal.model.util.PageNavigationItem;
 import org.apache.rave.portal.service.PageLayoutService;
 import org.apache.rave.portal.service.PageService;
 import org.apache.rave.portal.service.UserService;
@@ -58,7 +59,7 @@ public class PageControllerTest {
     private Model model;
     private Page defaultPage, otherPage;
     private PageUser defaultPageUser, otherPageUser;
-    private List<Page> allPages;
+    private List<PageNavigationItem> allNavigation;
     private List<PageLayout> allPageLayouts;
 
     private final String DEFAULT_PAGE_ID = "99";
@@ -102,9 +103,9 @@ public class PageControllerTest {
         members2.add(otherPageUser);
         otherPage.setMembers(members2);
 
-        allPages = new ArrayList<Page>();
-        allPages.add(defaultPage);
-        allPages.add(otherPage);
+        allNavigation = new ArrayList<PageNavigationItem>();
+        allNavigation.add(new PageNavigationItem(defaultPage, defaultPageUser));
+        allNavigation.add(new PageNavigationItem(otherPage, otherPageUser));
 
         allPageLayouts = new ArrayList<PageLayout>();
         allPageLayouts.add(validPageLayout);
@@ -116,8 +117,8 @@ public class PageControllerTest {
         MockHttpUtil.setupRequestAsNonMobileUserAgent(request);
 
         expect(userService.getAuthenticatedUser()).andReturn(validUser).anyTimes();
-        expect(pageService.getAllUserPages(USER_ID)).andReturn(allPages);
-        expect(pageService.getPageFromList(OTHER_PAGE_ID, allPages)).andReturn(otherPage);
+        expect(pageService.getUserPageNavigation(USER_ID)).andReturn(allNavigation);
+        expect(pageService.getPage(OTHER_PAGE_ID)).andReturn(otherPage);
         expect(pageLayoutService.getAllUserSelectable()).andReturn(allPageLayouts);
         replay(userService, pageService, pageLayoutService);
 
@@ -125,7 +126,7 @@ public class PageControllerTest {
 
         assertThat(results, equalTo(ViewNames.getPageView(VALID_PAGE_LAYOUT_CODE)));
         assertThat((Page) model.asMap().get(ModelKeys.PAGE), sameInstance(otherPage));
-        assertThat((List<Page>) model.asMap().get(ModelKeys.PAGES), equalTo(allPages));
+        assertThat((List<PageNavigationItem>) model.asMap().get(ModelKeys.PAGES), equalTo(allNavigation));
         assertThat((List<PageLayout>) model.asMap().get(ModelKeys.PAGE_LAYOUTS), sameInstance(allPageLayouts));
 
         verify(userService, pageService, pageLayoutService);
@@ -137,8 +138,8 @@ public class PageControllerTest {
         MockHttpUtil.setupRequestAsMobileUserAgent(request);
 
         expect(userService.getAuthenticatedUser()).andReturn(validUser).anyTimes();
-        expect(pageService.getAllUserPages(USER_ID)).andReturn(allPages);
-        expect(pageService.getPageFromList(OTHER_PAGE_ID, allPages)).andReturn(otherPage);
+        expect(pageService.getUserPageNavigation(USER_ID)).andReturn(allNavigation);
+        expect(pageService.getPage(OTHER_PAGE_ID)).andReturn(otherPage);
         expect(pageLayoutService.getAllUserSelectable()).andReturn(allPageLayouts);
         replay(userService, pageService, pageLayoutService);
 
@@ -146,7 +147,7 @@ public class PageControllerTest {
 
         assertThat(results, equalTo(ViewNames.MOBILE_HOME));
         assertThat((Page) model.asMap().get(ModelKeys.PAGE), sameInstance(otherPage));
-        assertThat((List<Page>) model.asMap().get(ModelKeys.PAGES), equalTo(allPages));
+        assertThat((List<PageNavigationItem>) model.asMap().get(ModelKeys.PAGES), equalTo(allNavigation));
         assertThat((List<PageLayout>) model.asMap().get(ModelKeys.PAGE_LAYOUTS), sameInstance(allPageLayouts));
 
         verify(userService, pageService, pageLayoutService);
@@ -156,34 +157,77 @@ public class PageControllerTest {
     @Test
     public void view_pageId_zeroExistingPages() {
         MockHttpUtil.setupRequestAsNonMobileUserAgent(request);
-        List<Page> pages = new ArrayList<Page>();
+        List<PageNavigationItem> pages = new ArrayList<PageNavigationItem>();
+        List<PageNavigationItem> createdPages = new ArrayList<PageNavigationItem>();
+        createdPages.add(new PageNavigationItem(defaultPage, defaultPageUser));
 
         assertThat(pages.isEmpty(), is(true));
         expect(userService.getAuthenticatedUser()).andReturn(validUser).anyTimes();
-        expect(pageService.getAllUserPages(USER_ID)).andReturn(pages).times(2);
+        expect(pageService.getUserPageNavigation(USER_ID)).andReturn(pages).andReturn(createdPages);
         expect(pageService.addNewDefaultUserPage(validUser.getId())).andReturn(defaultPage);
-        expect(pageService.getPageFromList(OTHER_PAGE_ID, pages)).andReturn(defaultPage);
+        expect(pageService.getPage(DEFAULT_PAGE_ID)).andReturn(defaultPage);
         expect(pageLayoutService.getAllUserSelectable()).andReturn(allPageLayouts);
         replay(userService, pageService, pageLayoutService);
 
-        String results = pageController.view(OTHER_PAGE_ID, model, request);
+        String results = pageController.view(DEFAULT_PAGE_ID, model, request);
 
         assertThat(results, equalTo(ViewNames.getPageView(VALID_PAGE_LAYOUT_CODE)));
         assertThat((Page) model.asMap().get(ModelKeys.PAGE), sameInstance(defaultPage));
-        assertThat((List<Page>) model.asMap().get(ModelKeys.PAGES), sameInstance(pages));
+        assertThat((List<PageNavigationItem>) model.asMap().get(ModelKeys.PAGES), sameInstance(createdPages));
         assertThat((List<PageLayout>) model.asMap().get(ModelKeys.PAGE_LAYOUTS), sameInstance(allPageLayouts));
 
         verify(userService, pageService, pageLayoutService);
     }
 
+    @Test
+    public void view_pageId_notMember() {
+        MockHttpUtil.setupRequestAsNonMobileUserAgent(request);
+
+        expect(userService.getAuthenticatedUser()).andReturn(validUser).anyTimes();
+        expect(pageService.getUserPageNavigation(USER_ID)).andReturn(allNavigation).times(2);
+        expect(pageService.getPage(DEFAULT_PAGE_ID)).andReturn(defaultPage);
+        expect(pageLayoutService.getAllUserSelectable()).andReturn(allPageLayouts);
+        replay(userService, pageService, pageLayoutService);
+
+        String results = pageController.view("555", model, request);
+
+        assertThat(results, equalTo(ViewNames.getPageView(VALID_PAGE_LAYOUT_CODE)));
+        assertThat((Page) model.asMap().get(ModelKeys.PAGE), sameInstance(defaultPage));
+
+        verify(userService, pageService, pageLayoutService);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void view_pageId_refusedPage() {
+        MockHttpUtil.setupRequestAsNonMobileUserAgent(request);
+        allNavigation.get(1).setPageStatus(PageInvitationStatus.REFUSED);
+
+        expect(userService.getAuthenticatedUser()).andReturn(validUser).anyTimes();
+        expect(pageService.getUserPageNavigation(USER_ID)).andReturn(allNavigation).times(2);
+        expect(pageService.getPage(DEFAULT_PAGE_ID)).andReturn(defaultPage);
+        expect(pageLayoutService.getAllUserSelectable()).andReturn(allPageLayouts);
+        replay(userService, pageService, pageLayoutService);
+
+        String results = pageController.view(OTHER_PAGE_ID, model, request);
+
+        assertThat(results, equalTo(ViewNames.getPageView(VALID_PAGE_LAYOUT_CODE)));
+        assertThat((Page) model.asMap().get(ModelKeys.PAGE), sameInstance(defaultPage));
+        List<PageNavigationItem> pages = (List<PageNavigationItem>) model.asMap().get(ModelKeys.PAGES);
+        assertThat(pages.size(), is(1));
+        assertThat(pages.get(0).getId(), is(DEFAULT_PAGE_ID));
+
+        verify(userService, pageService, pageLayoutService);
+    }
+
     @SuppressWarnings("unchecked")
     @Test
     public void viewDefault_pageId() {
         MockHttpUtil.setupRequestAsNonMobileUserAgent(request);
 
         expect(userService.getAuthenticatedUser()).andReturn(validUser).anyTimes();
-        expect(pageService.getAllUserPages(USER_ID)).andReturn(allPages);
-        expect(pageService.getDefaultPageFromList(allPages)).andReturn(defaultPage);
+        expect(pageService.getUserPageNavigation(USER_ID)).andReturn(allNavigation);
+        expect(pageService.getPage(DEFAULT_PAGE_ID)).andReturn(defaultPage);
         expect(pageLayoutService.getAllUserSelectable()).andReturn(allPageLayouts);
         replay(userService, pageService, pageLayoutService);
 
@@ -191,7 +235,7 @@ public class PageControllerTest {
 
         assertThat(results, equalTo(ViewNames.getPageView(VALID_PAGE_LAYOUT_CODE)));
         assertThat((Page) model.asMap().get(ModelKeys.PAGE), sameInstance(defaultPage));
-        assertThat((List<Page>) model.asMap().get(ModelKeys.PAGES), equalTo(allPages));
+        assertThat((List<PageNavigationItem>) model.asMap().get(ModelKeys.PAGES), equalTo(allNavigation));
         assertThat((List<PageLayout>) model.asMap().get(ModelKeys.PAGE_LAYOUTS), sameInstance(allPageLayouts));
 
         verify(userService, pageService, pageLayoutService);
@@ -201,13 +245,15 @@ public class PageControllerTest {
     @Test
     public void viewDefault_pageId_zeroExistingPages() {
         MockHttpUtil.setupRequestAsNonMobileUserAgent(request);
-        List<Page> pages = new ArrayList<Page>();
+        List<PageNavigationItem> pages = new ArrayList<PageNavigationItem>();
+        List<PageNavigationItem> createdPages = new ArrayList<PageNavigationItem>();
+        createdPages.add(new PageNavigationItem(defaultPage, defaultPageUser));
 
         assertThat(pages.isEmpty(), is(true));
         expect(userService.getAuthenticatedUser()).andReturn(validUser).anyTimes();
-        expect(pageService.getAllUserPages(USER_ID)).andReturn(pages).times(2);
+        expect(pageService.getUserPageNavigation(USER_ID)).andReturn(pages).andReturn(createdPages);
         expect(pageService.addNewDefaultUserPage(validUser.getId())).andReturn(defaultPage);
-        expect(pageService.getDefaultPageFromList(pages)).andReturn(defaultPage);
+        expect(pageService.getPage(DEFAULT_PAGE_ID)).andReturn(defaultPage);
         expect(pageLayoutService.getAllUserSelectable()).andReturn(allPageLayouts);
         replay(userService, pageService, pageLayoutService);
 
@@ -215,7 +261,7 @@ public class PageControllerTest {
 
         assertThat(results, equalTo(ViewNames.getPageView(VALID_PAGE_LAYOUT_CODE)));
         assertThat((Page) model.asMap().get(ModelKeys.PAGE), sameInstance(defaultPage));
-        assertThat((List<Page>) model.asMap().get(ModelKeys.PAGES), sameInstance(pages));
+        assertThat((List<PageNavigationItem>) model.asMap().get(ModelKeys.PAGES), sameInstance(createdPages));
         assertThat((List<PageLayout>) model.asMap().get(ModelKeys.PAGE_LAYOUTS), sameInstance(allPageLayouts));
 
         verify(userService, pageService, pageLayoutService);
@@ -23,10 +23,12 @@ package org.apache.rave.portal.web.controller;
 import org.apache.rave.model.Category;
 import org.apache.rave.model.Tag;
 import org.apache.rave.model.Widget;
+import org.apache.rave.model.WidgetComment;
 import org.apache.rave.portal.model.impl.UserImpl;
 import org.apache.rave.portal.model.impl.WidgetImpl;
 import org.apache.rave.rest.model.SearchResult;
 import org.apache.rave.portal.model.util.WidgetStatistics;
+import org.apache.rave.portal.repository.WidgetFetchPlan;
 import org.apache.rave.portal.service.CategoryService;
 import org.apache.rave.portal.service.PortalPreferenceService;
 import org.apache.rave.portal.service.TagService;
@@ -157,15 +159,17 @@ public class WidgetStoreControllerTest {
     public void viewWidget() {
         Model model = new ExtendedModelMap();
         Widget w = new WidgetImpl("1", "http://example.com/widget.xml");
+        SearchResult<WidgetComment> comments = new SearchResult<WidgetComment>(new ArrayList<WidgetComment>(), 0);
 
         expect(widgetService.getAllWidgetStatistics(validUser.getId())).andReturn(allWidgetStatisticsMap);
         expect(tagService.getAllTagsList()).andReturn(new ArrayList<Tag>());
         expect(categoryService.getAllList()).andReturn(new ArrayList<Category>());
-        expect(widgetService.getWidget(WIDGET_ID)).andReturn(w);
+        expect(widgetService.getWidget(WIDGET_ID, WidgetFetchPlan.LISTING)).andReturn(w);
+        expect(widgetService.getWidgetComments(WIDGET_ID, 0, 10)).andReturn(comments);
         expect(widgetService.getWidgetStatistics(WIDGET_ID, validUser.getId())).andReturn(widgetStatistics);
         replay(widgetService);
 
-        String view = controller.viewWidget(model, WIDGET_ID, REFERRER_ID);
+        String view = controller.viewWidget(model, WIDGET_ID, REFERRER_ID, 0);
 
         verify(widgetService);
         assertThat(view, is(equalTo(ViewNames.WIDGET)));
@@ -175,6 +179,7 @@ public class WidgetStoreControllerTest {
         assertThat(model.containsAttribute(ModelKeys.CATEGORIES), is(true));
         assertThat(model.containsAttribute(ModelKeys.REFERRING_PAGE_ID), is(true));
         assertThat(((Widget) model.asMap().get(ModelKeys.WIDGET)), is(sameInstance(w)));
+        assertThat(model.asMap().get(ModelKeys.WIDGET_COMMENTS), is(sameInstance((Object) comments)));
         assertNull(model.asMap().get("widgetRating"));
 
     }
@@ -20,7 +20,7 @@
 <%@ page language="java" trimDirectiveWhitespaces="true" %>
 <%@ include file="/WEB-INF/jsp/includes/taglibs.jsp" %>
 <fmt:setBundle basename="messages"/>
-<jsp:useBean id="pages" type="java.util.List<org.apache.rave.model.Page>" scope="request"/>
+<jsp:useBean id="pages" type="java.util.List<org.apache.rave.portal.model.util.PageNavigationItem>" scope="request"/>
 <jsp:useBean id="pageUser" type="org.apache.rave.model.PageUser" scope="request"/>
 <jsp:useBean id="pageLayouts" type="java.util.List" scope="request"/>
 
@@ -67,14 +67,17 @@
                 </c:set>
                 <c:set var="isSharedByMe">
                     <c:choose>
-                        <c:when test="${fn:length(userPage.members) > 1 and isSharedToMe == false}">true</c:when>
+                        <c:when test="${userPage.memberCount > 1 and isSharedToMe == false}">true</c:when>
                         <c:otherwise>false</c:otherwise>
                     </c:choose>
                 </c:set>
-                <portal:person id="${userPage.ownerId}" var="userPageOwner"/>
-                <fmt:message key="sharing.page.tab.icon.tip.from" var="iconShareToolTipFrom">
-                    <fmt:param value="${userPageOwner.username}"/>
-                </fmt:message>
+                <%-- the owner is only looked up for pages shared with the user --%>
+                <c:if test="${isSharedToMe}">
+                    <portal:person id="${userPage.ownerId}" var="userPageOwner"/>
+                    <fmt:message key="sharing.page.tab.icon.tip.from" var="iconShareToolTipFrom">
+                        <fmt:param value="${userPageOwner.username}"/>
+                    </fmt:message>
+                </c:if>
                 <fmt:message key="sharing.page.tab.icon.tip.to" var="iconShareToolTipTo"/>
                 <c:choose>
                     <c:when test="${isCurrentPage}">
@@ -137,11 +140,9 @@
                         </li>
                     </c:otherwise>
                 </c:choose>
-                <c:forEach var="members" items="${userPage.members}">
-                    <c:if test="${members.userId == principalId and members.editor and userPage.id != page.id}">
-                        <c:set var="canMoveWidgetsToEditablePage" scope="request" value="true"/>
-                    </c:if>
-                </c:forEach>
+                <c:if test="${userPage.editor and userPage.id != page.id}">
+                    <c:set var="canMoveWidgetsToEditablePage" scope="request" value="true"/>
+                </c:if>
             </c:forEach>
             <li id="addPageButton"><a href="#"><i class="icon-plus"></i></a></li>
         </ul>
@@ -384,13 +385,11 @@
                     <div class="controls">
                         <select id="moveToPageId">
                             <c:forEach var="userPage" items="${pages}">
-                                <c:forEach var="members" items="${userPage.members}">
-                                    <c:if test="${members.userId == principalId and members.editor and userPage.id != page.id}">
-                                        <option value="${userPage.id}">
-                                            <c:out value="${userPage.name}"/>
-                                        </option>
-                                    </c:if>
-                                </c:forEach>
+                                <c:if test="${userPage.editor and userPage.id != page.id}">
+                                    <option value="${userPage.id}">
+                                        <c:out value="${userPage.name}"/>
+                                    </option>
+                                </c:if>
                             </c:forEach>
                         </select>
                     </div>
@@ -198,9 +198,28 @@
                     </div>
                 </div>
             </div>
-            <c:if test="${not empty widget.comments}">
+            <%--@elvariable id="widgetComments" type="org.apache.rave.rest.model.SearchResult"--%>
+            <c:if test="${widgetComments.totalResults gt 0}">
+                <c:if test="${widgetComments.numberOfPages gt 1}">
+                    <ul class="pagination">
+                        <c:forEach var="i" begin="1" end="${widgetComments.numberOfPages}">
+                            <c:url var="commentPageUrl" value="">
+                                <c:param name="referringPageId" value="${referringPageId}"/>
+                                <c:param name="commentOffset" value="${(i - 1) * widgetComments.pageSize}"/>
+                            </c:url>
+                            <c:choose>
+                                <c:when test="${i eq widgetComments.currentPage}">
+                                    <li class="active"><a href="#">${i}</a></li>
+                                </c:when>
+                                <c:otherwise>
+                                    <li><a href="<c:out value="${commentPageUrl}"/>">${i}</a></li>
+                                </c:otherwise>
+                            </c:choose>
+                        </c:forEach>
+                    </ul>
+                </c:if>
                 <ul class="comments">
-                    <c:forEach var="comment" items="${widget.comments}">
+                    <c:forEach var="comment" items="${widgetComments.resultSet}">
                         <portal:person id="${comment.userId}" var="commenter" />
                         <li class="comment">
                             <fmt:formatDate value="${comment.createdDate}" type="both" var="commentDate"/>
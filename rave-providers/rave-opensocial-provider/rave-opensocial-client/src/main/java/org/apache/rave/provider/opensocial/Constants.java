@@ -29,6 +29,7 @@ public class Constants {
     // opensocial string constants    
     public static final String USER_PREFS = "userPrefs";
     public static final String DATA_TYPE = "dataType";
+    public static final String EXPIRE_TIME_MS = "expireTimeMs";
     // rave / opensocial related constants
     public static final String HAS_PREFS_TO_EDIT = "hasPrefsToEdit";
     
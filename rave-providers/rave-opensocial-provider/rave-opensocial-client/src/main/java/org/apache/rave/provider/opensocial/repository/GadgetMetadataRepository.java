@@ -19,6 +19,9 @@
 
 package org.apache.rave.provider.opensocial.repository;
 
+import java.util.Collection;
+import java.util.Map;
+
 public interface GadgetMetadataRepository {
     /**
      * Fetches gadget metadata for the specified gadget URL.
@@ -27,4 +30,15 @@ public interface GadgetMetadataRepository {
      * @return The raw JSON response from the Shindig metadata RPC call.
      */
     public String getGadgetMetadata(String gadgetUrl);
+
+    /**
+     * Fetches gadget metadata for several gadget URLs, using as few metadata RPC calls as possible.
+     *
+     * A failure to fetch the metadata of one gadget does not affect the others; gadgets for which no metadata could be
+     * fetched are left out of the result.
+     *
+     * @param gadgetUrls The gadgets to fetch metadata for.
+     * @return The JSON metadata of each gadget, keyed by gadget URL, as returned by {@link #getGadgetMetadata(String)}.
+     */
+    public Map<String, String> getGadgetMetadata(Collection<String> gadgetUrls);
 }
\ No newline at end of file
@@ -31,7 +31,22 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Repository;
 import org.springframework.web.client.RestOperations;
 
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.apache.rave.provider.opensocial.Constants.DATA_TYPE;
 import static org.apache.rave.provider.opensocial.Constants.HAS_PREFS_TO_EDIT;
@@ -44,6 +59,9 @@ public class ShindigGadgetMetadataRepository implements GadgetMetadataRepository
 
     private RestOperations restOperations;
     private String shindigUrl;
+    private int batchSize = 20;
+    private int maxConcurrentRequests = 4;
+    private ExecutorService batchExecutor;
 
     @Autowired
     public ShindigGadgetMetadataRepository(@Qualifier(value = "jsonStringCompatibleRestTemplate") RestOperations restOperations,
@@ -54,28 +72,148 @@ public class ShindigGadgetMetadataRepository implements GadgetMetadataRepository
         logger.debug("Shindig render Url: " + shindigUrl);
     }
 
+    /**
+     * @param batchSize the maximum number of gadget URLs sent in a single metadata RPC call
+     */
+    @Value("${portal.opensocial_engine.metadata_batch.size:20}")
+    public void setBatchSize(int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize must be at least 1");
+        }
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * @param maxConcurrentRequests the maximum number of metadata RPC calls a batch fetch has in flight at once
+     */
+    @Value("${portal.opensocial_engine.metadata_batch.max_concurrent_requests:4}")
+    public synchronized void setMaxConcurrentRequests(int maxConcurrentRequests) {
+        if (maxConcurrentRequests < 1) {
+            throw new IllegalArgumentException("maxConcurrentRequests must be at least 1");
+        }
+        this.maxConcurrentRequests = maxConcurrentRequests;
+    }
+
+    @PreDestroy
+    public synchronized void destroy() {
+        if (batchExecutor != null) {
+            batchExecutor.shutdownNow();
+            batchExecutor = null;
+        }
+    }
+
     @Override
     public String getGadgetMetadata(String gadgetUrl) {
+        //fire off the request and get the raw JSON back as a string
+        String responseString = postMetadataRequest(createMetadataRequest(Collections.singleton(gadgetUrl)));
+
+        //now trim back the response to just the metadata for the single gadget
+        try {
+            JSONObject responseObject = getResult(responseString).getJSONObject(gadgetUrl);
+            responseString = trimMetadata(responseObject);
+        } catch (JSONException e) {
+            throw new IllegalArgumentException("Error occurred while processing response from shindig metadata call", e);
+        }
+
+        //return the raw JSON
+        return responseString;
+    }
+
+    @Override
+    public Map<String, String> getGadgetMetadata(Collection<String> gadgetUrls) {
+        List<List<String>> batches = partition(gadgetUrls);
+        if (batches.isEmpty()) {
+            return new HashMap<String, String>();
+        } else if (batches.size() == 1) {
+            return fetchBatch(batches.get(0));
+        }
+
+        Map<String, String> metadata = new HashMap<String, String>();
+
+        List<Callable<Map<String, String>>> tasks = new ArrayList<Callable<Map<String, String>>>();
+        for (final List<String> batch : batches) {
+            tasks.add(new Callable<Map<String, String>>() {
+                @Override
+                public Map<String, String> call() {
+                    return fetchBatch(batch);
+                }
+            });
+        }
+        try {
+            for (Future<Map<String, String>> result : getBatchExecutor().invokeAll(tasks)) {
+                metadata.putAll(result.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while fetching gadget metadata", e);
+        } catch (ExecutionException e) {
+            // fetchBatch handles the failures of its own batch, so this is unexpected
+            throw new IllegalStateException("Error occurred while fetching gadget metadata", e.getCause());
+        }
+        return metadata;
+    }
+
+    /**
+     * Fetches the metadata of a batch of gadgets in a single RPC call. If the call as a whole fails the gadgets are
+     * fetched one by one so that a single bad gadget does not fail the rest of its batch.
+     */
+    private Map<String, String> fetchBatch(List<String> gadgetUrls) {
+        JSONObject result;
+        try {
+            result = getResult(postMetadataRequest(createMetadataRequest(gadgetUrls)));
+        } catch (RuntimeException e) {
+            return fetchIndividually(gadgetUrls, e);
+        } catch (JSONException e) {
+            return fetchIndividually(gadgetUrls, e);
+        }
+
+        Map<String, String> metadata = new HashMap<String, String>();
+        for (String gadgetUrl : gadgetUrls) {
+            try {
+                metadata.put(gadgetUrl, trimMetadata(result.getJSONObject(gadgetUrl)));
+            } catch (JSONException e) {
+                logger.warn("Error occurred while processing shindig metadata of gadget {}: {}", gadgetUrl, e.getMessage());
+            }
+        }
+        return metadata;
+    }
+
+    private Map<String, String> fetchIndividually(List<String> gadgetUrls, Exception cause) {
+        Map<String, String> metadata = new HashMap<String, String>();
+        if (gadgetUrls.size() == 1) {
+            logger.warn("Unable to fetch metadata for gadget {}: {}", gadgetUrls.get(0), cause.getMessage());
+            return metadata;
+        }
+        logger.warn("Batched shindig metadata call failed, fetching {} gadgets individually: {}", gadgetUrls.size(), cause.getMessage());
+        for (String gadgetUrl : gadgetUrls) {
+            metadata.putAll(fetchBatch(Collections.singletonList(gadgetUrl)));
+        }
+        return metadata;
+    }
+
+    private String createMetadataRequest(Collection<String> gadgetUrls) {
         //generate the json request to be sent to the shindig RPC service
         JSONArray rpcArray = new JSONArray();
         try {
+            JSONObject params = new JSONObject().put("container", "default");
+            for (String gadgetUrl : gadgetUrls) {
+                params.append("ids", gadgetUrl);
+            }
+            params.append("fields", "iframeUrls")
+                    .append("fields", "modulePrefs.*")
+                    .append("fields", "needsTokenRefresh")
+                    .append("fields", "userPrefs.*")
+                    .append("fields", "views.preferredHeight")
+                    .append("fields", "views.preferredWidth")
+                    .append("fields", "expireTimeMs")
+                    .append("fields", "responseTimeMs")
+                    .put("userId", "@viewer")
+                    .put("groupId", "@self");
+
             JSONObject fetchMetadataRpcOperation = new JSONObject()
                     .put("method", "gadgets.metadata")
                     .put("id", "gadgets.metadata")
-                    .put("params", new JSONObject()
-                            .put("container", "default")
-                            .append("ids", gadgetUrl)
-                            .append("fields", "iframeUrls")
-                            .append("fields", "modulePrefs.*")
-                            .append("fields", "needsTokenRefresh")
-                            .append("fields", "userPrefs.*")
-                            .append("fields", "views.preferredHeight")
-                            .append("fields", "views.preferredWidth")
-                            .append("fields", "expireTimeMs")
-                            .append("fields", "responseTimeMs")
-                            .put("userId", "@viewer")
-                            .put("groupId", "@self")
-                    );
+                    .put("params", params);
 
             rpcArray.put(fetchMetadataRpcOperation);
         } catch (JSONException e) {
@@ -87,47 +225,78 @@ public class ShindigGadgetMetadataRepository implements GadgetMetadataRepository
         if (logger.isDebugEnabled()) {
             logger.debug("requestContent: {}", postData);
         }
+        return postData;
+    }
 
-        //fire off the request and get the raw JSON back as a string
+    private String postMetadataRequest(String postData) {
         String responseString = restOperations.postForObject(shindigUrl, postData, String.class);
         if (logger.isDebugEnabled()) {
             logger.debug("shindig metadata raw response: {}", responseString);
         }
+        return responseString;
+    }
 
-        //now trim back the response to just the metadata for the single gadget
-        try {
-            JSONObject responseObject = new JSONArray(responseString).
-                    getJSONObject(0).
-                    getJSONObject("result").
-                    getJSONObject(gadgetUrl);
-
-            // check to see if this gadget has at least one non-hidden user pref
-            // to determine if we should display the edit prefs button
-            boolean hasPrefsToEdit = false;
-            if (responseObject.has(USER_PREFS)) {
-                JSONObject userPrefs = responseObject.getJSONObject(USER_PREFS);
-                Iterator keys = userPrefs.keys();
-                while(keys.hasNext()) {
-                    String userPrefName = (String) keys.next();
-                    JSONObject userPref = userPrefs.getJSONObject(userPrefName);
-                    if (!PrefDataTypes.HIDDEN.toString().equals(userPref.getString(DATA_TYPE))) {
-                        hasPrefsToEdit = true;
-                        break;
-                    }
+    private static JSONObject getResult(String responseString) throws JSONException {
+        return new JSONArray(responseString).
+                getJSONObject(0).
+                getJSONObject("result");
+    }
+
+    private static String trimMetadata(JSONObject responseObject) throws JSONException {
+        // check to see if this gadget has at least one non-hidden user pref
+        // to determine if we should display the edit prefs button
+        boolean hasPrefsToEdit = false;
+        if (responseObject.has(USER_PREFS)) {
+            JSONObject userPrefs = responseObject.getJSONObject(USER_PREFS);
+            Iterator keys = userPrefs.keys();
+            while(keys.hasNext()) {
+                String userPrefName = (String) keys.next();
+                JSONObject userPref = userPrefs.getJSONObject(userPrefName);
+                if (!PrefDataTypes.HIDDEN.toString().equals(userPref.getString(DATA_TYPE))) {
+                    hasPrefsToEdit = true;
+                    break;
                 }
             }
+        }
 
-            responseObject.put(HAS_PREFS_TO_EDIT, hasPrefsToEdit);
-            responseString = responseObject.toString();
+        responseObject.put(HAS_PREFS_TO_EDIT, hasPrefsToEdit);
+        String responseString = responseObject.toString();
 
-            if (logger.isDebugEnabled()) {
-                logger.debug("shindig metadata trimmed response: {}", responseString);
+        if (logger.isDebugEnabled()) {
+            logger.debug("shindig metadata trimmed response: {}", responseString);
+        }
+        return responseString;
+    }
+
+    private List<List<String>> partition(Collection<String> gadgetUrls) {
+        List<List<String>> batches = new ArrayList<List<String>>();
+        List<String> batch = new ArrayList<String>(batchSize);
+        for (String gadgetUrl : new LinkedHashSet<String>(gadgetUrls)) {
+            if (batch.size() == batchSize) {
+                batches.add(batch);
+                batch = new ArrayList<String>(batchSize);
             }
-        } catch (JSONException e) {
-            throw new IllegalArgumentException("Error occurred while processing response from shindig metadata call", e);
+            batch.add(gadgetUrl);
+        }
+        if (!batch.isEmpty()) {
+            batches.add(batch);
         }
+        return batches;
+    }
 
-        //return the raw JSON
-        return responseString;
+    private synchronized ExecutorService getBatchExecutor() {
+        if (batchExecutor == null) {
+            batchExecutor = Executors.newFixedThreadPool(maxConcurrentRequests, new ThreadFactory() {
+                private final AtomicInteger threadNumber = new AtomicInteger();
+
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "rave-gadget-metadata-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return batchExecutor;
     }
 }
\ No newline at end of file
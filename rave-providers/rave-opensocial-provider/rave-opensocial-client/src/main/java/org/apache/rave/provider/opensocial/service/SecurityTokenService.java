@@ -21,6 +21,7 @@ package org.apache.rave.provider.opensocial.service;
 
 import org.apache.rave.model.RegionWidget;
 import org.apache.rave.model.Widget;
+import org.apache.rave.portal.web.renderer.model.RenderContext;
 import org.apache.rave.provider.opensocial.exception.SecurityTokenException;
 import org.apache.shindig.auth.SecurityToken;
 
@@ -29,6 +30,17 @@ public interface SecurityTokenService {
 
     String getEncryptedSecurityToken(RegionWidget regionWidget, Widget widget) throws SecurityTokenException;
 
+    /**
+     * Creates an encrypted security token for a widget rendered as part of a page.  The owner and viewer resolved
+     * for the token are remembered in the given context, so a page with many widgets looks them up only once.
+     *
+     * @param regionWidget the region widget to create the token for
+     * @param widget the widget being rendered
+     * @param context the context of the current render, or null to resolve the owner and viewer for this call only
+     * @return the encrypted security token
+     */
+    String getEncryptedSecurityToken(RegionWidget regionWidget, Widget widget, RenderContext context) throws SecurityTokenException;
+
     SecurityToken decryptSecurityToken(String encryptedSecurityToken) throws SecurityTokenException;
 
     String refreshEncryptedSecurityToken(String encryptedSecurityToken) throws SecurityTokenException;
@@ -31,19 +31,33 @@ import org.apache.rave.portal.service.WidgetService;
 import org.apache.rave.provider.opensocial.repository.GadgetMetadataRepository;
 import org.apache.rave.provider.opensocial.service.OpenSocialService;
 import org.apache.rave.provider.opensocial.service.SecurityTokenService;
+import org.apache.rave.service.MetadataCache;
+import org.apache.rave.service.MetadataLoader;
+import org.apache.rave.service.impl.DefaultMetadataCache;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 
 @Service
 public class DefaultOpenSocialService implements OpenSocialService {
     protected final GadgetMetadataRepository gadgetMetadataRepository;
+    protected final MetadataCache<String> gadgetMetadataCache;
+    protected final MetadataLoader<String> gadgetMetadataLoader;
     protected final WidgetService widgetService;
     protected final PageService pageService;
     protected final SecurityTokenService tokenService;
 
-    @Autowired
     public DefaultOpenSocialService(GadgetMetadataRepository gadgetMetadataRepository, WidgetService widgetService, PageService pageService, SecurityTokenService tokenService) {
+        this(gadgetMetadataRepository, new DefaultMetadataCache<String>("gadgetMetadata"), widgetService, pageService, tokenService);
+    }
+
+    @Autowired
+    public DefaultOpenSocialService(GadgetMetadataRepository gadgetMetadataRepository,
+                                    @Qualifier("gadgetMetadataCache") MetadataCache<String> gadgetMetadataCache,
+                                    WidgetService widgetService, PageService pageService, SecurityTokenService tokenService) {
         this.gadgetMetadataRepository = gadgetMetadataRepository;
+        this.gadgetMetadataCache = gadgetMetadataCache;
+        this.gadgetMetadataLoader = new GadgetMetadataLoader(gadgetMetadataRepository);
         this.widgetService = widgetService;
         this.pageService = pageService;
         this.tokenService = tokenService;
@@ -51,8 +65,7 @@ public class DefaultOpenSocialService implements OpenSocialService {
 
     @Override
     public String getGadgetMetadata(String gadgetUrl) {
-        //TODO RAVE-243 -- Add caching of gadget metadata in this service layer
-        return gadgetMetadataRepository.getGadgetMetadata(gadgetUrl);
+        return gadgetMetadataCache.get(gadgetUrl, gadgetMetadataLoader);
     }
 
     @Override
@@ -25,8 +25,12 @@ import org.apache.rave.model.User;
 import org.apache.rave.model.Widget;
 import org.apache.rave.portal.model.impl.*;
 import org.apache.rave.portal.service.UserService;
+import org.apache.rave.portal.web.renderer.model.RenderContext;
 import org.apache.rave.provider.opensocial.exception.SecurityTokenException;
 import org.apache.rave.provider.opensocial.service.SecurityTokenService;
+import org.apache.rave.service.MetadataCache;
+import org.apache.rave.service.MetadataLoader;
+import org.apache.rave.service.impl.DefaultMetadataCache;
 import org.apache.shindig.auth.AbstractSecurityToken;
 import org.apache.shindig.auth.BlobCrypterSecurityToken;
 import org.apache.shindig.auth.SecurityToken;
@@ -39,6 +43,8 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import java.io.File;
 import java.io.IOException;
 import java.util.HashMap;
@@ -51,12 +57,26 @@ public class EncryptedBlobSecurityTokenService implements SecurityTokenService {
     public static final String EMBEDDED_KEY_PREFIX = "embedded:";
     public static final String CLASSPATH_KEY_PREFIX = "classpath:";
 
+    /**
+     * Keys under which the owner usernames and the viewer resolved during a render are kept in the RenderContext
+     */
+    public static final String OWNER_USERNAMES_KEY = EncryptedBlobSecurityTokenService.class.getName() + ".ownerUsernames";
+    public static final String VIEWER_USERNAME_KEY = EncryptedBlobSecurityTokenService.class.getName() + ".viewerUsername";
+
+    private static final long TOKEN_LIFETIME = 24 * 60 * 60 * 1000L;
+    private static final char TOKEN_KEY_SEPARATOR = '|';
+
     private UserService userService;
     private String container;
     private String domain;
 
     private BlobCrypter blobCrypter;
 
+    private boolean tokenCacheEnabled;
+    private double tokenCacheReuseFraction = 0.5;
+    private int tokenCacheMaxEntries = 10000;
+    private DefaultMetadataCache<String> tokenCache;
+
     @Autowired
     public EncryptedBlobSecurityTokenService(UserService userService,
                                              @Value("${portal.opensocial_security.container}") String container,
@@ -85,6 +105,50 @@ public class EncryptedBlobSecurityTokenService implements SecurityTokenService {
         }
     }
 
+    /**
+     * @param tokenCacheEnabled whether encrypted tokens are reused for the same viewer, owner, module and gadget
+     */
+    @Value("${portal.opensocial_security.token_cache.enabled:false}")
+    public void setTokenCacheEnabled(boolean tokenCacheEnabled) {
+        this.tokenCacheEnabled = tokenCacheEnabled;
+    }
+
+    /**
+     * @param tokenCacheReuseFraction the fraction of a token's lifetime during which a cached token is handed out again
+     */
+    @Value("${portal.opensocial_security.token_cache.reuse_fraction:0.5}")
+    public void setTokenCacheReuseFraction(double tokenCacheReuseFraction) {
+        if (tokenCacheReuseFraction <= 0 || tokenCacheReuseFraction > 1) {
+            throw new IllegalArgumentException("Token cache reuse fraction must be greater than 0 and at most 1");
+        }
+        this.tokenCacheReuseFraction = tokenCacheReuseFraction;
+    }
+
+    /**
+     * @param tokenCacheMaxEntries the number of cached tokens above which tokens are evicted
+     */
+    @Value("${portal.opensocial_security.token_cache.max_entries:10000}")
+    public void setTokenCacheMaxEntries(int tokenCacheMaxEntries) {
+        this.tokenCacheMaxEntries = tokenCacheMaxEntries;
+    }
+
+    @PostConstruct
+    public void init() {
+        if (tokenCacheEnabled) {
+            long reuseTime = (long) (TOKEN_LIFETIME * tokenCacheReuseFraction);
+            tokenCache = new DefaultMetadataCache<String>("securityToken", tokenCacheMaxEntries, reuseTime, reuseTime);
+            //A token past its reuse time is never handed out again, a fresh one is minted instead
+            tokenCache.setStaleTimeToLive(0);
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (tokenCache != null) {
+            tokenCache.destroy();
+        }
+    }
+
     @Override
     public SecurityToken getSecurityToken(RegionWidget regionWidget, Widget widget) throws SecurityTokenException {
         return this.getBlobCrypterSecurityToken(regionWidget, widget);
@@ -104,6 +168,37 @@ public class EncryptedBlobSecurityTokenService implements SecurityTokenService {
         return encryptedToken;
     }
 
+    @Override
+    public String getEncryptedSecurityToken(RegionWidget regionWidget, Widget widget, RenderContext context)
+            throws SecurityTokenException {
+        final String moduleUrl = widget != null ? widget.getUrl() : "";
+        final String moduleId = String.valueOf(regionWidget.getId());
+        final String ownerUsername = getOwnerUsername(regionWidget.getRegion().getPage().getOwnerId(), context);
+        final String viewerUsername = getViewerUsername(context);
+
+        try {
+            MetadataLoader<String> loader = new MetadataLoader<String>() {
+                @Override
+                public String load(String key) {
+                    return encryptSecurityToken(createBlobCrypterSecurityToken(moduleUrl, moduleId, ownerUsername, viewerUsername));
+                }
+
+                @Override
+                public long getExpiration(String key, String value) {
+                    return 0;
+                }
+            };
+            if (tokenCache == null) {
+                return loader.load(null);
+            }
+            String key = new StringBuilder(viewerUsername).append(TOKEN_KEY_SEPARATOR).append(ownerUsername)
+                    .append(TOKEN_KEY_SEPARATOR).append(moduleId).append(TOKEN_KEY_SEPARATOR).append(moduleUrl).toString();
+            return tokenCache.get(key, loader);
+        } catch (Exception e) {
+            throw new SecurityTokenException("Error creating security token from regionWidget", e);
+        }
+    }
+
     @Override
     public SecurityToken decryptSecurityToken(String encryptedSecurityToken) throws SecurityTokenException {
         SecurityToken securityToken;
@@ -179,16 +274,55 @@ public class EncryptedBlobSecurityTokenService implements SecurityTokenService {
     }
 
     private BlobCrypterSecurityToken getBlobCrypterSecurityToken(String moduleUrl, String moduleId, String ownerId, User user) {
-       Map<String, String> values = new HashMap<String, String>();
+        return createBlobCrypterSecurityToken(moduleUrl, moduleId, String.valueOf(userService.getUserById(ownerId).getUsername()),
+                String.valueOf(user.getUsername()));
+    }
+
+    private BlobCrypterSecurityToken createBlobCrypterSecurityToken(String moduleUrl, String moduleId, String ownerUsername,
+                                                                    String viewerUsername) {
+        Map<String, String> values = new HashMap<String, String>();
         values.put(AbstractSecurityToken.Keys.APP_URL.getKey(), moduleUrl);
         values.put(AbstractSecurityToken.Keys.MODULE_ID.getKey(), moduleId);
-        values.put(AbstractSecurityToken.Keys.OWNER.getKey(), String.valueOf(userService.getUserById(ownerId).getUsername()));
-        values.put(AbstractSecurityToken.Keys.VIEWER.getKey(), String.valueOf(user.getUsername()));
+        values.put(AbstractSecurityToken.Keys.OWNER.getKey(), ownerUsername);
+        values.put(AbstractSecurityToken.Keys.VIEWER.getKey(), viewerUsername);
         values.put(AbstractSecurityToken.Keys.TRUSTED_JSON.getKey(), "");
-        values.put(AbstractSecurityToken.Keys.EXPIRES.getKey(), String.valueOf(System.currentTimeMillis() + (24 * 60 * 60 * 1000)));
+        values.put(AbstractSecurityToken.Keys.EXPIRES.getKey(), String.valueOf(System.currentTimeMillis() + TOKEN_LIFETIME));
         return new BlobCrypterSecurityToken(container, domain, null, values);
     }
 
+    @SuppressWarnings("unchecked")
+    private String getOwnerUsername(String ownerId, RenderContext context) {
+        Map properties = context != null ? context.getProperties() : null;
+        if (properties == null) {
+            return String.valueOf(userService.getUserById(ownerId).getUsername());
+        }
+        Map<String, String> ownerUsernames = (Map<String, String>) properties.get(OWNER_USERNAMES_KEY);
+        if (ownerUsernames == null) {
+            ownerUsernames = new HashMap<String, String>();
+            properties.put(OWNER_USERNAMES_KEY, ownerUsernames);
+        }
+        String ownerUsername = ownerUsernames.get(ownerId);
+        if (ownerUsername == null) {
+            ownerUsername = String.valueOf(userService.getUserById(ownerId).getUsername());
+            ownerUsernames.put(ownerId, ownerUsername);
+        }
+        return ownerUsername;
+    }
+
+    @SuppressWarnings("unchecked")
+    private String getViewerUsername(RenderContext context) {
+        Map properties = context != null ? context.getProperties() : null;
+        if (properties == null) {
+            return String.valueOf(userService.getAuthenticatedUser().getUsername());
+        }
+        String viewerUsername = (String) properties.get(VIEWER_USERNAME_KEY);
+        if (viewerUsername == null) {
+            viewerUsername = String.valueOf(userService.getAuthenticatedUser().getUsername());
+            properties.put(VIEWER_USERNAME_KEY, viewerUsername);
+        }
+        return viewerUsername;
+    }
+
     private String encryptSecurityToken(BlobCrypterSecurityToken securityToken) throws SecurityTokenException {
         String encryptedToken = null;
 
@@ -0,0 +1,59 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.apache.rave.provider.opensocial.service.impl;
+
+import org.apache.rave.provider.opensocial.repository.GadgetMetadataRepository;
+import org.apache.rave.service.MetadataLoader;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static org.apache.rave.provider.opensocial.Constants.EXPIRE_TIME_MS;
+
+/**
+ * Loads gadget metadata from the {@link GadgetMetadataRepository} into a {@link org.apache.rave.service.MetadataCache},
+ * expiring it at the expireTimeMs returned by Shindig
+ */
+public class GadgetMetadataLoader implements MetadataLoader<String> {
+    private static Logger logger = LoggerFactory.getLogger(GadgetMetadataLoader.class);
+
+    private final GadgetMetadataRepository gadgetMetadataRepository;
+
+    public GadgetMetadataLoader(GadgetMetadataRepository gadgetMetadataRepository) {
+        this.gadgetMetadataRepository = gadgetMetadataRepository;
+    }
+
+    @Override
+    public String load(String gadgetUrl) {
+        return gadgetMetadataRepository.getGadgetMetadata(gadgetUrl);
+    }
+
+    @Override
+    public long getExpiration(String gadgetUrl, String metadata) {
+        try {
+            return new JSONObject(metadata).optLong(EXPIRE_TIME_MS, 0L);
+        } catch (JSONException e) {
+            logger.debug("Unable to read {} from the metadata of {}", EXPIRE_TIME_MS, gadgetUrl);
+            return 0L;
+        }
+    }
+}
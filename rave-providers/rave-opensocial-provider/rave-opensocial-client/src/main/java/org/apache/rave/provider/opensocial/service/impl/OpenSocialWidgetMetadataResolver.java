@@ -24,22 +24,41 @@ import org.apache.rave.portal.model.impl.WidgetImpl;
 import org.apache.rave.portal.service.WidgetMetadataResolver;
 import org.apache.rave.provider.opensocial.Constants;
 import org.apache.rave.provider.opensocial.repository.GadgetMetadataRepository;
+import org.apache.rave.service.MetadataCache;
+import org.apache.rave.service.MetadataLoader;
+import org.apache.rave.service.impl.DefaultMetadataCache;
 import org.json.JSONException;
 import org.json.JSONObject;
 import org.json.JSONTokener;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 @Component
 public class OpenSocialWidgetMetadataResolver implements WidgetMetadataResolver {
     private static Logger logger = LoggerFactory.getLogger(OpenSocialWidgetMetadataResolver.class);
     private GadgetMetadataRepository gadgetMetadataRepository;
+    private MetadataCache<String> gadgetMetadataCache;
+    private MetadataLoader<String> gadgetMetadataLoader;
 
-    @Autowired
     public OpenSocialWidgetMetadataResolver(GadgetMetadataRepository gadgetMetadataRepository) {
+        this(gadgetMetadataRepository, new DefaultMetadataCache<String>("gadgetMetadata"));
+    }
+
+    @Autowired
+    public OpenSocialWidgetMetadataResolver(GadgetMetadataRepository gadgetMetadataRepository,
+                                            @Qualifier("gadgetMetadataCache") MetadataCache<String> gadgetMetadataCache) {
         this.gadgetMetadataRepository = gadgetMetadataRepository;
+        this.gadgetMetadataCache = gadgetMetadataCache;
+        this.gadgetMetadataLoader = new GadgetMetadataLoader(gadgetMetadataRepository);
     }
 
     public String getSupportedContext() {
@@ -53,10 +72,54 @@ public class OpenSocialWidgetMetadataResolver implements WidgetMetadataResolver
      * @return
      */
     public Widget getMetadata(String url) {
+        return parseMetadata(url, gadgetMetadataCache.get(url, gadgetMetadataLoader));
+    }
+
+    /**
+     * Get the opensocial widget metadata of several gadgets, fetching the metadata that is not cached yet with a
+     * single batched metadata call
+     *
+     * @param urls urls of the widgets
+     * @return the widgets keyed by url; gadgets that could not be resolved are left out
+     */
+    @Override
+    public Map<String, Widget> getMetadata(Collection<String> urls) {
+        Map<String, Widget> widgets = new HashMap<String, Widget>();
+        List<String> misses = new ArrayList<String>();
+        for (String url : urls) {
+            String metadata = gadgetMetadataCache.getIfPresent(url, gadgetMetadataLoader);
+            if (metadata == null) {
+                misses.add(url);
+            } else {
+                addMetadata(widgets, url, metadata);
+            }
+        }
+        if (!misses.isEmpty()) {
+            for (Map.Entry<String, String> metadata : gadgetMetadataRepository.getGadgetMetadata(misses).entrySet()) {
+                if (addMetadata(widgets, metadata.getKey(), metadata.getValue())) {
+                    gadgetMetadataCache.put(metadata.getKey(), metadata.getValue(),
+                            gadgetMetadataLoader.getExpiration(metadata.getKey(), metadata.getValue()));
+                }
+            }
+        }
+        return widgets;
+    }
+
+    private boolean addMetadata(Map<String, Widget> widgets, String url, String metadata) {
+        try {
+            widgets.put(url, parseMetadata(url, metadata));
+            return true;
+        } catch (IllegalArgumentException e) {
+            logger.warn("Unable to resolve metadata of gadget " + url + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    private Widget parseMetadata(String url, String metadata) {
         Widget widget = new WidgetImpl();
         JSONObject jsonGadget = null;
         try {
-            jsonGadget = (JSONObject) new JSONTokener(gadgetMetadataRepository.getGadgetMetadata(url)).nextValue();
+            jsonGadget = (JSONObject) new JSONTokener(metadata).nextValue();
             if (jsonGadget != null) {
                 String query = jsonGadget.getString("modulePrefs");
                 if (query != null) {
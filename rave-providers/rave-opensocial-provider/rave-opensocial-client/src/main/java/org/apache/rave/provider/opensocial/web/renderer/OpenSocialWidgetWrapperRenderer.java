@@ -102,7 +102,7 @@ public class OpenSocialWidgetWrapperRenderer implements RegionWidgetWrapperRende
         }
 
         RegionWidget regionWidget = item.getRegionWidget();
-        String widgetScript = getWidgetScript(regionWidget, widget);
+        String widgetScript = getWidgetScript(regionWidget, widget, context);
         // the key is based off the RegionWidget.id to ensure uniqueness
         String key = REGISTER_WIDGET_KEY  + (regionWidget.getId() == null ? "" :  "-" + regionWidget.getId());
         scriptManager.registerScriptBlock(key, widgetScript, ScriptLocation.AFTER_RAVE, RenderScope.CURRENT_REQUEST, context);
@@ -116,7 +116,7 @@ public class OpenSocialWidgetWrapperRenderer implements RegionWidgetWrapperRende
         throw new UnsupportedOperationException();
     }
 
-    private String getWidgetScript(RegionWidget item, Widget widget) {
+    private String getWidgetScript(RegionWidget item, Widget widget, RenderContext context) {
         JSONObject userPrefs = new JSONObject();
         if (item.getPreferences() != null) {
             for (RegionWidgetPreference regionWidgetPreference : item.getPreferences()) {
@@ -147,7 +147,7 @@ public class OpenSocialWidgetWrapperRenderer implements RegionWidgetWrapperRende
                 Constants.WIDGET_TYPE,
                 item.getId(),
                 widget.getUrl(),
-                securityTokenService.getEncryptedSecurityToken(item, widget),
+                securityTokenService.getEncryptedSecurityToken(item, widget, context),
                 openSocialService.getGadgetMetadata(widget.getUrl()),
                 userPrefs.toString(),
                 item.isCollapsed(),
@@ -0,0 +1,164 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.apache.rave.provider.opensocial.repository;
+
+import org.apache.rave.provider.opensocial.repository.impl.ShindigGadgetMetadataRepository;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.StringHttpMessageConverter;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Runs the batched metadata calls of {@link ShindigGadgetMetadataRepository} against a local stub of the Shindig
+ * RPC endpoint.
+ */
+public class ShindigGadgetMetadataRepositoryBatchTest {
+    private StubShindigRpcServer server;
+    private ShindigGadgetMetadataRepository repository;
+
+    @Before
+    public void setup() throws Exception {
+        server = new StubShindigRpcServer();
+        server.start();
+
+        StringHttpMessageConverter converter = new StringHttpMessageConverter();
+        converter.setSupportedMediaTypes(Collections.singletonList(MediaType.APPLICATION_JSON));
+        RestTemplate restTemplate = new RestTemplate();
+        restTemplate.setMessageConverters(Collections.<HttpMessageConverter<?>>singletonList(converter));
+
+        repository = new ShindigGadgetMetadataRepository(restTemplate, "http", server.getRoot());
+    }
+
+    @After
+    public void tearDown() {
+        repository.destroy();
+        server.stop();
+    }
+
+    @Test
+    public void singleGadget() throws Exception {
+        String metadata = repository.getGadgetMetadata(gadgetUrl(1));
+
+        JSONObject json = new JSONObject(metadata);
+        assertThat(json.getJSONObject("modulePrefs").getString("title"), is("Title of " + gadgetUrl(1)));
+        assertThat(json.getLong("expireTimeMs"), is(StubShindigRpcServer.EXPIRE_TIME_MS));
+        assertThat(json.getBoolean("hasPrefsToEdit"), is(false));
+        assertThat(server.getRequestCount(), is(1));
+    }
+
+    @Test
+    public void chunksGadgetsIntoBatches() throws Exception {
+        repository.setBatchSize(20);
+        List<String> gadgetUrls = gadgetUrls(45);
+
+        Map<String, String> metadata = repository.getGadgetMetadata(gadgetUrls);
+
+        assertThat(metadata.size(), is(45));
+        for (String gadgetUrl : gadgetUrls) {
+            assertThat(new JSONObject(metadata.get(gadgetUrl)).getJSONObject("modulePrefs").getString("title"),
+                    is("Title of " + gadgetUrl));
+        }
+        assertThat(server.getRequestCount(), is(3));
+    }
+
+    @Test
+    public void duplicateGadgetsAreFetchedOnce() {
+        repository.setBatchSize(2);
+
+        Map<String, String> metadata = repository.getGadgetMetadata(Arrays.asList(gadgetUrl(1), gadgetUrl(1), gadgetUrl(2)));
+
+        assertThat(metadata.size(), is(2));
+        assertThat(server.getRequestCount(), is(1));
+    }
+
+    @Test
+    public void emptyCollectionMakesNoCall() {
+        assertThat(repository.getGadgetMetadata(Collections.<String>emptyList()).isEmpty(), is(true));
+        assertThat(server.getRequestCount(), is(0));
+    }
+
+    @Test
+    public void limitsConcurrentRequests() {
+        repository.setBatchSize(1);
+        repository.setMaxConcurrentRequests(3);
+        server.setResponseDelayMillis(50);
+
+        Map<String, String> metadata = repository.getGadgetMetadata(gadgetUrls(12));
+
+        assertThat(metadata.size(), is(12));
+        assertThat(server.getRequestCount(), is(12));
+        assertTrue("at most 3 concurrent requests expected, saw " + server.getMaxConcurrentRequests(),
+                server.getMaxConcurrentRequests() <= 3);
+        assertTrue("batches should run in parallel", server.getMaxConcurrentRequests() > 1);
+    }
+
+    @Test
+    public void failingBatchFallsBackToSingleGadgetCalls() {
+        repository.setBatchSize(5);
+        List<String> gadgetUrls = gadgetUrls(10);
+        server.failRequestsFor(gadgetUrl(3));
+
+        Map<String, String> metadata = repository.getGadgetMetadata(gadgetUrls);
+
+        assertThat(metadata.size(), is(9));
+        assertThat(metadata.containsKey(gadgetUrl(3)), is(false));
+        // two batches, then the five gadgets of the failing batch one by one
+        assertThat(server.getRequestCount(), is(7));
+    }
+
+    @Test
+    public void gadgetErrorsDoNotAffectTheBatch() throws Exception {
+        server.returnErrorFor(gadgetUrl(2));
+
+        Map<String, String> metadata = repository.getGadgetMetadata(gadgetUrls(3));
+
+        assertThat(metadata.size(), is(3));
+        assertThat(new JSONObject(metadata.get(gadgetUrl(2))).has("error"), is(true));
+        assertThat(new JSONObject(metadata.get(gadgetUrl(1))).has("modulePrefs"), is(true));
+        assertThat(server.getRequestCount(), is(1));
+    }
+
+    private static String gadgetUrl(int i) {
+        return "http://www.example.com/gadget" + i + ".xml";
+    }
+
+    private static List<String> gadgetUrls(int count) {
+        List<String> gadgetUrls = new ArrayList<String>();
+        for (int i = 0; i < count; i++) {
+            gadgetUrls.add(gadgetUrl(i));
+        }
+        return gadgetUrls;
+    }
+}
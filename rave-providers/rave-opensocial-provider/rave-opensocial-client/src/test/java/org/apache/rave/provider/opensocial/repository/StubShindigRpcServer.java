@@ -0,0 +1,182 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.apache.rave.provider.opensocial.repository;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Minimal local stand-in for the Shindig /rpc endpoint that answers gadgets.metadata calls for any number of ids
+ * and records how it was called.
+ */
+public class StubShindigRpcServer {
+    public static final long EXPIRE_TIME_MS = 1370000000000L;
+
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final AtomicInteger requestCount = new AtomicInteger();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+    private final Set<String> failingUrls = new CopyOnWriteArraySet<String>();
+    private final Set<String> unknownUrls = new CopyOnWriteArraySet<String>();
+    private volatile long responseDelayMillis;
+
+    public StubShindigRpcServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/rpc", new RpcHandler());
+        server.setExecutor(executor);
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    /**
+     * @return the host and port to use as portal.opensocial_engine.root
+     */
+    public String getRoot() {
+        return "localhost:" + server.getAddress().getPort();
+    }
+
+    /**
+     * Makes every call that includes the given gadget fail with an HTTP 500
+     */
+    public void failRequestsFor(String gadgetUrl) {
+        failingUrls.add(gadgetUrl);
+    }
+
+    /**
+     * Makes the metadata of the given gadget an error object, as Shindig does for gadgets it cannot fetch
+     */
+    public void returnErrorFor(String gadgetUrl) {
+        unknownUrls.add(gadgetUrl);
+    }
+
+    public void setResponseDelayMillis(long responseDelayMillis) {
+        this.responseDelayMillis = responseDelayMillis;
+    }
+
+    public int getRequestCount() {
+        return requestCount.get();
+    }
+
+    public int getMaxConcurrentRequests() {
+        return maxInFlight.get();
+    }
+
+    private class RpcHandler implements HttpHandler {
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            requestCount.incrementAndGet();
+            int current = inFlight.incrementAndGet();
+            int max;
+            while ((max = maxInFlight.get()) < current && !maxInFlight.compareAndSet(max, current)) {
+                // retry
+            }
+            try {
+                if (responseDelayMillis > 0) {
+                    Thread.sleep(responseDelayMillis);
+                }
+                respond(exchange);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                send(exchange, 500, "interrupted");
+            } catch (JSONException e) {
+                send(exchange, 400, e.getMessage());
+            } finally {
+                inFlight.decrementAndGet();
+            }
+        }
+
+        private void respond(HttpExchange exchange) throws IOException, JSONException {
+            JSONArray request = new JSONArray(read(exchange.getRequestBody()));
+            JSONArray ids = request.getJSONObject(0).getJSONObject("params").getJSONArray("ids");
+            Set<String> gadgetUrls = new HashSet<String>();
+            for (int i = 0; i < ids.length(); i++) {
+                gadgetUrls.add(ids.getString(i));
+            }
+            for (String gadgetUrl : gadgetUrls) {
+                if (failingUrls.contains(gadgetUrl)) {
+                    send(exchange, 500, "Internal Server Error");
+                    return;
+                }
+            }
+
+            JSONObject result = new JSONObject();
+            for (String gadgetUrl : gadgetUrls) {
+                if (unknownUrls.contains(gadgetUrl)) {
+                    result.put(gadgetUrl, new JSONObject().put("error",
+                            new JSONObject().put("code", 404).put("message", "Unable to retrieve spec for " + gadgetUrl)));
+                } else {
+                    result.put(gadgetUrl, new JSONObject()
+                            .put("modulePrefs", new JSONObject().put("title", "Title of " + gadgetUrl))
+                            .put("userPrefs", new JSONObject())
+                            .put("expireTimeMs", EXPIRE_TIME_MS));
+                }
+            }
+            JSONArray response = new JSONArray().put(new JSONObject().put("id", "gadgets.metadata").put("result", result));
+            send(exchange, 200, response.toString());
+        }
+
+        private String read(InputStream in) throws IOException {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return out.toString("UTF-8");
+        }
+
+        private void send(HttpExchange exchange, int status, String body) throws IOException {
+            byte[] bytes = body.getBytes("UTF-8");
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(status, bytes.length);
+            OutputStream out = exchange.getResponseBody();
+            try {
+                out.write(bytes);
+            } finally {
+                out.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.apache.rave.provider.opensocial.service;
+
+import org.apache.rave.provider.opensocial.repository.GadgetMetadataRepository;
+import org.apache.rave.provider.opensocial.service.impl.GadgetMetadataLoader;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.easymock.EasyMock.*;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class GadgetMetadataLoaderTest {
+    private static final String VALID_GADGET_URL = "http://www.example.com/gadget.xml";
+
+    private GadgetMetadataRepository gadgetMetadataRepository;
+    private GadgetMetadataLoader loader;
+
+    @Before
+    public void setup() {
+        gadgetMetadataRepository = createNiceMock(GadgetMetadataRepository.class);
+        loader = new GadgetMetadataLoader(gadgetMetadataRepository);
+    }
+
+    @Test
+    public void load() {
+        String metadata = "{\"url\":\"" + VALID_GADGET_URL + "\"}";
+        expect(gadgetMetadataRepository.getGadgetMetadata(VALID_GADGET_URL)).andReturn(metadata);
+        replay(gadgetMetadataRepository);
+
+        assertThat(loader.load(VALID_GADGET_URL), is(equalTo(metadata)));
+        verify(gadgetMetadataRepository);
+    }
+
+    @Test
+    public void getExpiration() {
+        String metadata = "{\"expireTimeMs\":1370000000000,\"responseTimeMs\":1369990000000}";
+        assertThat(loader.getExpiration(VALID_GADGET_URL, metadata), is(equalTo(1370000000000L)));
+    }
+
+    @Test
+    public void getExpiration_missing() {
+        assertThat(loader.getExpiration(VALID_GADGET_URL, "{\"modulePrefs\":{}}"), is(equalTo(0L)));
+    }
+
+    @Test
+    public void getExpiration_invalidJson() {
+        assertThat(loader.getExpiration(VALID_GADGET_URL, "not json"), is(equalTo(0L)));
+    }
+}
@@ -71,6 +71,17 @@ public class OpenSocialServiceTest {
         assertThat(result, is(sameInstance(VALID_METADATA)));
     }
 
+    @Test
+    public void getGadgetMetadata_cached() {
+        expect(gadgetMetadataRepository.getGadgetMetadata(VALID_GADGET_URL)).andReturn(VALID_METADATA).once();
+        replay(gadgetMetadataRepository);
+
+        openSocialService.getGadgetMetadata(VALID_GADGET_URL);
+        String result = openSocialService.getGadgetMetadata(VALID_GADGET_URL);
+        assertThat(result, is(sameInstance(VALID_METADATA)));
+        verify(gadgetMetadataRepository);
+    }
+
     @Test
     public void getEncryptedSecurityToken_valid() {
         Widget widget = new WidgetImpl("25", VALID_GADGET_URL);
@@ -26,7 +26,14 @@ import org.apache.rave.provider.opensocial.service.impl.OpenSocialWidgetMetadata
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 import static org.easymock.EasyMock.*;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 
 public class OpenSocialWidgetMetadataResolverTest {
@@ -64,4 +71,42 @@ public class OpenSocialWidgetMetadataResolverTest {
         Widget w = widgetMetadataResolver.getMetadata(VALID_GADGET_URL);
         assertNotNull(w);
     }
+
+    @Test
+    public void getMetadata_batch() {
+        String invalidGadgetUrl = "http://www.example.com/invalid.xml";
+        List<String> urls = Arrays.asList(VALID_GADGET_URL, invalidGadgetUrl);
+        Map<String, String> metadata = new HashMap<String, String>();
+        metadata.put(VALID_GADGET_URL, VALID_METADATA);
+        metadata.put(invalidGadgetUrl, INVALID_METADATA);
+        expect(gadgetMetadataRepository.getGadgetMetadata(urls)).andReturn(metadata);
+        replay(gadgetMetadataRepository);
+
+        Map<String, Widget> widgets = widgetMetadataResolver.getMetadata(urls);
+        verify(gadgetMetadataRepository);
+
+        assertEquals(1, widgets.size());
+        assertEquals("Google Translate", widgets.get(VALID_GADGET_URL).getTitle());
+        assertEquals(VALID_GADGET_URL, widgets.get(VALID_GADGET_URL).getUrl());
+        assertFalse(widgets.containsKey(invalidGadgetUrl));
+    }
+
+    @Test
+    public void getMetadata_batch_fetchesOnlyUncachedGadgets() {
+        String otherGadgetUrl = "http://www.example.com/other.xml";
+        expect(gadgetMetadataRepository.getGadgetMetadata(VALID_GADGET_URL)).andReturn(VALID_METADATA);
+        Map<String, String> metadata = new HashMap<String, String>();
+        metadata.put(otherGadgetUrl, VALID_METADATA);
+        expect(gadgetMetadataRepository.getGadgetMetadata(Arrays.asList(otherGadgetUrl))).andReturn(metadata);
+        replay(gadgetMetadataRepository);
+
+        widgetMetadataResolver.getMetadata(VALID_GADGET_URL);
+        Map<String, Widget> widgets = widgetMetadataResolver.getMetadata(Arrays.asList(VALID_GADGET_URL, otherGadgetUrl));
+        Map<String, Widget> cached = widgetMetadataResolver.getMetadata(Arrays.asList(VALID_GADGET_URL, otherGadgetUrl));
+        verify(gadgetMetadataRepository);
+
+        assertEquals(2, widgets.size());
+        assertEquals(otherGadgetUrl, widgets.get(otherGadgetUrl).getUrl());
+        assertEquals(2, cached.size());
+    }
 }
@@ -24,6 +24,7 @@ import org.apache.rave.portal.model.impl.*;
 import org.apache.rave.portal.repository.WidgetRepository;
 import org.apache.rave.portal.service.UserService;
 import org.apache.rave.portal.service.WidgetService;
+import org.apache.rave.portal.web.renderer.model.RenderContext;
 import org.apache.rave.provider.opensocial.service.impl.EncryptedBlobSecurityTokenService;
 import org.apache.shindig.auth.SecurityToken;
 import org.apache.shindig.auth.SecurityTokenException;
@@ -37,6 +38,7 @@ import java.io.IOException;
 import java.net.MalformedURLException;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashMap;
 
 import static org.easymock.EasyMock.*;
 import static org.junit.Assert.assertEquals;
@@ -135,6 +137,63 @@ public class SecurityTokenServiceTest {
         assertNotNull(token);
     }
 
+    @Test
+    public void getEncryptedSecurityToken_renderContext_resolvesOwnerAndViewerOnce() throws SecurityTokenException {
+        RegionWidget secondRegionWidget = new RegionWidgetImpl("2", validWidget.getId(), validRegion);
+        RenderContext context = new RenderContext();
+        context.setProperties(new HashMap());
+
+        expect(userService.getAuthenticatedUser()).andReturn(validPerson);
+        expect(userService.getUserById(VALID_USER_ID)).andReturn(validPerson);
+        replay(userService);
+
+        String first = securityTokenService.getEncryptedSecurityToken(validRegionWidget, validWidget, context);
+        String second = securityTokenService.getEncryptedSecurityToken(secondRegionWidget, validWidget, context);
+
+        verify(userService);
+        validateSecurityToken(securityTokenService.decryptSecurityToken(first));
+        assertEquals(2L, securityTokenService.decryptSecurityToken(second).getModuleId());
+    }
+
+    @Test
+    public void getEncryptedSecurityToken_nullRenderContext() throws SecurityTokenException {
+        expect(userService.getAuthenticatedUser()).andReturn(validPerson);
+        expect(userService.getUserById(VALID_USER_ID)).andReturn(validPerson);
+        replay(userService);
+
+        String token = securityTokenService.getEncryptedSecurityToken(validRegionWidget, validWidget, null);
+
+        verify(userService);
+        validateSecurityToken(securityTokenService.decryptSecurityToken(token));
+    }
+
+    @Test
+    public void getEncryptedSecurityToken_tokenCache_reusesToken() throws SecurityTokenException {
+        EncryptedBlobSecurityTokenService cachingService = new EncryptedBlobSecurityTokenService(userService, "default",
+                "default", encryptionKey);
+        cachingService.setTokenCacheEnabled(true);
+        cachingService.init();
+
+        expect(userService.getAuthenticatedUser()).andReturn(validPerson).anyTimes();
+        expect(userService.getUserById(VALID_USER_ID)).andReturn(validPerson).anyTimes();
+        replay(userService);
+
+        try {
+            String first = cachingService.getEncryptedSecurityToken(validRegionWidget, validWidget, null);
+            String second = cachingService.getEncryptedSecurityToken(validRegionWidget, validWidget, null);
+
+            assertEquals(first, second);
+            validateSecurityToken(cachingService.decryptSecurityToken(second));
+        } finally {
+            cachingService.destroy();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void setTokenCacheReuseFraction_invalid() {
+        ((EncryptedBlobSecurityTokenService) securityTokenService).setTokenCacheReuseFraction(1.5);
+    }
+
     @Test
     public void decryptSecurityToken_validTokenString() throws SecurityTokenException {
         expect(userService.getAuthenticatedUser()).andReturn(validPerson).anyTimes();
@@ -131,7 +131,7 @@ public class OpenSocialWidgetRendererTest {
                         "})" +
                         "});</script>";
 
-        expect(securityTokenService.getEncryptedSecurityToken(rw, w)).andReturn(VALID_SECURITY_TOKEN);
+        expect(securityTokenService.getEncryptedSecurityToken(rw, w, renderContext)).andReturn(VALID_SECURITY_TOKEN);
         replay(securityTokenService);
 
         String key = OpenSocialWidgetWrapperRenderer.REGISTER_WIDGET_KEY + "-" + rw.getId();
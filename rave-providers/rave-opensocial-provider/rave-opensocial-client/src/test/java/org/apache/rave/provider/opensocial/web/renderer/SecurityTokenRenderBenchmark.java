@@ -0,0 +1,211 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.rave.provider.opensocial.web.renderer;
+
+import org.apache.rave.model.Page;
+import org.apache.rave.model.Region;
+import org.apache.rave.model.RegionWidget;
+import org.apache.rave.model.User;
+import org.apache.rave.model.Widget;
+import org.apache.rave.portal.model.impl.PageImpl;
+import org.apache.rave.portal.model.impl.RegionImpl;
+import org.apache.rave.portal.model.impl.RegionWidgetImpl;
+import org.apache.rave.portal.model.impl.UserImpl;
+import org.apache.rave.portal.model.impl.WidgetImpl;
+import org.apache.rave.portal.service.UserService;
+import org.apache.rave.portal.web.renderer.ScriptManager;
+import org.apache.rave.portal.web.renderer.model.RegionWidgetWrapper;
+import org.apache.rave.portal.web.renderer.model.RenderContext;
+import org.apache.rave.provider.opensocial.Constants;
+import org.apache.rave.provider.opensocial.service.OpenSocialService;
+import org.apache.rave.provider.opensocial.service.SecurityTokenService;
+import org.apache.rave.provider.opensocial.service.impl.EncryptedBlobSecurityTokenService;
+import org.apache.shindig.auth.SecurityToken;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * JMH benchmark of rendering every OpenSocial widget on a page, which mints one security token per widget.
+ * <p/>
+ * The mode parameter selects how owner, viewer and token are resolved: perCall looks the owner and viewer up for
+ * every widget (the behaviour without a RenderContext), renderScoped resolves them once per page render and
+ * tokenCache additionally reuses previously minted tokens.  The user lookup is simulated with userLookupMicros of
+ * latency.  Run it from the IDE or with
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=org.apache.rave.provider.opensocial.web.renderer.SecurityTokenRenderBenchmark
+ * </pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SecurityTokenRenderBenchmark {
+    private static final String OWNER_ID = "1";
+    private static final User OWNER = new UserImpl(OWNER_ID, "canonical");
+
+    @Param({"5", "20", "50"})
+    public int gadgets;
+
+    @Param({"perCall", "renderScoped", "tokenCache"})
+    public String mode;
+
+    @Param({"0", "250"})
+    public int userLookupMicros;
+
+    private EncryptedBlobSecurityTokenService securityTokenService;
+    private OpenSocialWidgetWrapperRenderer renderer;
+    private List<RegionWidgetWrapper> wrappers;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        securityTokenService = new EncryptedBlobSecurityTokenService(stub(UserService.class), "default", "default",
+                EncryptedBlobSecurityTokenService.EMBEDDED_KEY_PREFIX + "insecure-security-token-benchmark-key");
+        securityTokenService.setTokenCacheEnabled("tokenCache".equals(mode));
+        securityTokenService.init();
+
+        SecurityTokenService tokenService = securityTokenService;
+        if ("perCall".equals(mode)) {
+            tokenService = new PerCallSecurityTokenService(securityTokenService);
+        }
+        renderer = new OpenSocialWidgetWrapperRenderer(stub(OpenSocialService.class), tokenService, stub(ScriptManager.class));
+
+        Page page = new PageImpl("1", OWNER_ID);
+        Region region = new RegionImpl("1", page, 1);
+        wrappers = new ArrayList<RegionWidgetWrapper>(gadgets);
+        for (int i = 0; i < gadgets; i++) {
+            WidgetImpl widget = new WidgetImpl(String.valueOf(i), "http://example.com/gadget-" + i + ".xml");
+            widget.setType(Constants.WIDGET_TYPE);
+            wrappers.add(new RegionWidgetWrapper(widget, new RegionWidgetImpl(String.valueOf(i), widget.getId(), region)));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        securityTokenService.destroy();
+    }
+
+    @Benchmark
+    public RenderContext renderPage() {
+        RenderContext context = new RenderContext();
+        context.setProperties(new HashMap());
+        context.setUser(OWNER);
+        for (RegionWidgetWrapper wrapper : wrappers) {
+            renderer.render(wrapper, context);
+        }
+        return context;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T stub(Class<T> type) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Exception {
+                if (method.getDeclaringClass() == Object.class) {
+                    return method.invoke(this, args);
+                }
+                String name = method.getName();
+                if ("getUserById".equals(name) || "getAuthenticatedUser".equals(name)) {
+                    if (userLookupMicros > 0) {
+                        LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(userLookupMicros));
+                    }
+                    return OWNER;
+                }
+                if ("getGadgetMetadata".equals(name)) {
+                    return "{\"title\":\"Benchmark gadget\"}";
+                }
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Ignores the RenderContext so that every widget resolves its owner and viewer again
+     */
+    private static class PerCallSecurityTokenService implements SecurityTokenService {
+        private final SecurityTokenService delegate;
+
+        PerCallSecurityTokenService(SecurityTokenService delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public SecurityToken getSecurityToken(RegionWidget regionWidget, Widget widget) {
+            return delegate.getSecurityToken(regionWidget, widget);
+        }
+
+        @Override
+        public String getEncryptedSecurityToken(RegionWidget regionWidget, Widget widget) {
+            return delegate.getEncryptedSecurityToken(regionWidget, widget);
+        }
+
+        @Override
+        public String getEncryptedSecurityToken(RegionWidget regionWidget, Widget widget, RenderContext context) {
+            return delegate.getEncryptedSecurityToken(regionWidget, widget);
+        }
+
+        @Override
+        public SecurityToken decryptSecurityToken(String encryptedSecurityToken) {
+            return delegate.decryptSecurityToken(encryptedSecurityToken);
+        }
+
+        @Override
+        public String refreshEncryptedSecurityToken(String encryptedSecurityToken) {
+            return delegate.refreshEncryptedSecurityToken(encryptedSecurityToken);
+        }
+
+        @Override
+        public String getEncryptedSecurityToken(String moduleId, String url, String ownerId) {
+            return delegate.getEncryptedSecurityToken(moduleId, url, ownerId);
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(SecurityTokenRenderBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -27,6 +27,7 @@ import org.apache.shindig.protocol.model.FilterOperation;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 
@@ -58,6 +59,11 @@ public class DecoratingOpenSocialPersonRepository implements OpenSocialPersonRep
         return underlying.findByUsername(username);
     }
 
+    @Override
+    public List<Person> findByUsernames(Collection<String> usernames) {
+        return underlying.findByUsernames(usernames);
+    }
+
     @Override
     public List<Person> findAllConnectedPeople(String username) {
         return underlying.findAllConnectedPeople(username);
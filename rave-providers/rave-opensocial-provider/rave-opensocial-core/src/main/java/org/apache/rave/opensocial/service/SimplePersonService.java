@@ -24,6 +24,7 @@ import org.apache.shindig.social.opensocial.spi.CollectionOptions;
 import org.apache.shindig.social.opensocial.spi.GroupId;
 import org.apache.shindig.social.opensocial.spi.UserId;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Set;
 
@@ -38,4 +39,12 @@ public interface SimplePersonService {
      * @return a list of people
      */
     List<Person> getPeople(Set<UserId> userIds, GroupId groupId, CollectionOptions collectionOptions, SecurityToken token);
+
+    /**
+     * Returns the people with the given usernames, looked up in a single repository call.
+     *
+     * @param usernames the usernames to look up
+     * @return the people found; unknown usernames are left out
+     */
+    List<Person> getPeopleByUsernames(Collection<String> usernames);
 }
@@ -20,13 +20,17 @@
 package org.apache.rave.opensocial.service.impl;
 
 import com.google.common.collect.ImmutableSortedSet;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Iterators;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.collect.PeekingIterator;
 import com.google.common.collect.Sets;
 import com.google.common.util.concurrent.Futures;
 
 import org.apache.rave.model.ActivityStreamsEntry;
 import org.apache.rave.model.ActivityStreamsObject;
+import org.apache.rave.opensocial.service.SimplePersonService;
 import org.apache.rave.portal.model.impl.ActivityStreamsEntryImpl;
 import org.apache.rave.portal.model.impl.ActivityStreamsMediaLinkImpl;
 import org.apache.rave.portal.repository.ActivityStreamsRepository;
@@ -43,6 +47,7 @@ import org.apache.shindig.social.opensocial.spi.*;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import javax.servlet.http.HttpServletResponse;
 import java.util.*;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
@@ -53,17 +58,86 @@ import java.util.logging.Logger;
 public class DefaultActivityStreamsService implements ActivityStreamService {
 
     public static final String OBJECT_TYPE_PERSON = "person";
+
+    /**
+     * The maximum number of user ids passed to a single paged repository query.  Larger groups are split up and the
+     * resulting streams are merged.
+     */
+    static final int MAX_USER_IDS_PER_QUERY = 100;
+
+    /**
+     * The optional collection parameter holding the id of the last activity of the previous page.  If present, the
+     * page continues right after that activity instead of at the first index.
+     */
+    public static final String BEFORE_PARAMETER = "before";
+
+    /**
+     * The order of the paged repository queries: undated entries first, then newest first, ties broken by id
+     */
+    private static final Comparator<ActivityStreamsEntry> NEWEST_FIRST = new Comparator<ActivityStreamsEntry>() {
+        @Override
+        public int compare(ActivityStreamsEntry one, ActivityStreamsEntry two) {
+            Date publishedOne = one.getPublished();
+            Date publishedTwo = two.getPublished();
+            int result;
+            if (publishedOne == null) {
+                result = publishedTwo == null ? 0 : -1;
+            } else if (publishedTwo == null) {
+                result = 1;
+            } else {
+                result = publishedTwo.compareTo(publishedOne);
+            }
+            if (result == 0 && one.getId() != null && two.getId() != null) {
+                result = two.getId().compareTo(one.getId());
+            }
+            return result;
+        }
+    };
+
+    /**
+     * The order of the oldest first repository queries: undated entries first, then oldest first, ties broken by id
+     */
+    private static final Comparator<ActivityStreamsEntry> OLDEST_FIRST = new Comparator<ActivityStreamsEntry>() {
+        @Override
+        public int compare(ActivityStreamsEntry one, ActivityStreamsEntry two) {
+            Date publishedOne = one.getPublished();
+            Date publishedTwo = two.getPublished();
+            int result;
+            if (publishedOne == null) {
+                result = publishedTwo == null ? 0 : -1;
+            } else if (publishedTwo == null) {
+                result = 1;
+            } else {
+                result = publishedOne.compareTo(publishedTwo);
+            }
+            if (result == 0 && one.getId() != null && two.getId() != null) {
+                result = one.getId().compareTo(two.getId());
+            }
+            return result;
+        }
+    };
+
     @Autowired
     private ActivityStreamsRepository repository;
 
-    @Autowired
     public DefaultActivityStreamsService(ActivityStreamsRepository repository, PersonService personService) {
+        this(repository, personService, null);
+    }
+
+    /**
+     * @param simplePersonService if not null, used to resolve all people referenced by a set of activities at once
+     */
+    @Autowired
+    public DefaultActivityStreamsService(ActivityStreamsRepository repository, PersonService personService,
+                                         SimplePersonService simplePersonService) {
         this.repository = repository;
         this.personService = personService;
+        this.simplePersonService = simplePersonService;
     }
 
 
     private PersonService personService;
+    private SimplePersonService simplePersonService;
 
     private static Logger log = Logger.getLogger(DefaultActivityStreamsService.class.getName());
     private static ActivityConversionUtil converter = new ActivityConversionUtil();
@@ -90,8 +164,7 @@ public class DefaultActivityStreamsService implements ActivityStreamService {
      */
     @Override
     public Future<RestfulCollection<ActivityEntry>> getActivityEntries(Set<UserId> userIds, GroupId groupId, String appId, Set<String> fields, CollectionOptions options, SecurityToken token) {
-        List<ActivityEntry> result = getFromRepository(userIds, groupId, appId, fields, options, token);
-        return Futures.immediateFuture(new RestfulCollection<ActivityEntry>(result));
+        return Futures.immediateFuture(getFromRepository(userIds, groupId, appId, fields, options, token));
 
     }
 
@@ -115,11 +188,19 @@ public class DefaultActivityStreamsService implements ActivityStreamService {
      */
     @Override
     public Future<RestfulCollection<ActivityEntry>> getActivityEntries(UserId userId, GroupId groupId, String appId, Set<String> fields, CollectionOptions options, Set<String> activityIds, SecurityToken token) throws ProtocolException {
-        List<ActivityEntry> entries = Lists.newLinkedList();
-        Map<String, Person> peopleById = Maps.newHashMap();
+        String uid = userId.getUserId(token);
+        Map<String, ActivityStreamsEntry> entriesById = Maps.newHashMap();
+        for (ActivityStreamsEntry entry : repository.getByIds(activityIds)) {
+            if (entry.getUserId().equalsIgnoreCase(uid)) {
+                entriesById.put(entry.getId(), entry);
+            }
+        }
+        populatePersonObjects(entriesById.values(), Maps.<String, Person>newHashMap());
 
+        List<ActivityEntry> entries = Lists.newLinkedList();
         for (String id : activityIds) {
-            entries.add(getActivity(fields, userId.getUserId(token), peopleById, id));
+            ActivityStreamsEntry entry = entriesById.get(id);
+            entries.add(entry == null ? null : filterFields(entry, fields));
         }
 
         return Futures.immediateFuture(new RestfulCollection<ActivityEntry>(entries));
@@ -309,7 +390,7 @@ public class DefaultActivityStreamsService implements ActivityStreamService {
 
         if (entry!=null){
             if (entry.getUserId().equalsIgnoreCase(uid)) {
-                populatePersonObjects(entry, peopleById);
+                populatePersonObjects(Collections.singletonList(entry), peopleById);
                 return filterFields(entry, fields);
             }
         }
@@ -363,43 +444,94 @@ public class DefaultActivityStreamsService implements ActivityStreamService {
         return converter.convert(entry);
     }
 
-    private List<ActivityEntry> getFromRepository(Set<UserId> userIds, GroupId groupId, String appId, Set<String> fields, CollectionOptions options, SecurityToken token) {
-        List<ActivityStreamsEntry> result = Lists.newArrayList();
-        Map<String, Person> peopleById = Maps.newHashMap();
+    /**
+     * Retrieves the page of activities described by the options.  Both orders are served by paged repository queries
+     * which are merged, so no query loads more than first + max + 1 entries, or max + 1 entries when a newest first
+     * page continues after the activity given in the {@link #BEFORE_PARAMETER}.  The total result
+     * count is not computed; it reports one more than the returned entries while there are further pages.
+     */
+    private RestfulCollection<ActivityEntry> getFromRepository(Set<UserId> userIds, GroupId groupId, String appId, Set<String> fields, CollectionOptions options, SecurityToken token) {
         Set<String> idSet = getIdSet(userIds, groupId, token);
-        for (String id : idSet) {
-            List<ActivityStreamsEntry> entries = repository.getByUserId(id);
-
-            if (entries!=null){
-                result.addAll(populateActivityEntries(entries, peopleById));
+        boolean oldestFirst = options != null && options.getSortOrder() == SortOrder.descending;
+        ActivityStreamsEntry before = oldestFirst ? null : getBefore(options);
+        int first = options == null || before != null ? 0 : Math.max(options.getFirst(), 0);
+        int max = options == null || options.getMax() <= 0 ? Integer.MAX_VALUE : options.getMax();
+        //Fetch one entry beyond the requested page to tell whether there is a next page
+        int limit = (int) Math.min((long) first + max + 1, Integer.MAX_VALUE);
+
+        List<List<ActivityStreamsEntry>> streams = Lists.newArrayList();
+        for (List<String> ids : Iterables.partition(idSet, MAX_USER_IDS_PER_QUERY)) {
+            List<ActivityStreamsEntry> stream = oldestFirst ?
+                    repository.getOldestByUserIds(Sets.newLinkedHashSet(ids), limit) :
+                    repository.getByUserIds(Sets.newLinkedHashSet(ids),
+                            before == null ? null : before.getPublished(), before == null ? null : before.getId(), limit);
+            if (stream != null) {
+                streams.add(stream);
             }
         }
-        sortByPublished(result, options == null ? null : options.getSortOrder());
-        return convert(result);
+        List<ActivityStreamsEntry> entries = merge(streams, limit, oldestFirst ? OLDEST_FIRST : NEWEST_FIRST);
+
+        boolean hasMore = entries.size() > first + (long) max;
+        List<ActivityStreamsEntry> page = entries.size() <= first ? Lists.<ActivityStreamsEntry>newArrayList() :
+                entries.subList(first, (int) Math.min(entries.size(), first + (long) max));
+        populatePersonObjects(page, Maps.<String, Person>newHashMap());
+        List<ActivityEntry> result = convert(page);
+        int totalResults = first + result.size() + (hasMore ? 1 : 0);
+        return new RestfulCollection<ActivityEntry>(result, first, totalResults, options == null ? result.size() : max);
     }
 
-    private List<ActivityStreamsEntry> populateActivityEntries(List<ActivityStreamsEntry> entries, Map<String, Person> peopleById) {
-        for(ActivityStreamsEntry entry : entries) {
-            populatePersonObjects(entry, peopleById);
+    /**
+     * Looks up the activity named by the {@link #BEFORE_PARAMETER}, if any
+     */
+    private ActivityStreamsEntry getBefore(CollectionOptions options) {
+        Map<String, String> parameters = options == null ? null : options.getOptionalParameter();
+        String id = parameters == null ? null : parameters.get(BEFORE_PARAMETER);
+        if (id == null) {
+            return null;
+        }
+        ActivityStreamsEntry before = repository.get(id);
+        if (before == null) {
+            throw new ProtocolException(HttpServletResponse.SC_BAD_REQUEST, "Unknown activity " + id + " in the " +
+                    BEFORE_PARAMETER + " parameter");
         }
-        return entries;
+        return before;
     }
 
-    private void sortByPublished(List<ActivityStreamsEntry> result, final SortOrder order) {
-        Collections.sort(result, new Comparator<ActivityStreamsEntry>() {
+    /**
+     * Merges streams that are each sorted newest first into a single stream of at most limit entries, without
+     * sorting the combined list.
+     */
+    static List<ActivityStreamsEntry> mergeNewestFirst(List<List<ActivityStreamsEntry>> streams, int limit) {
+        return merge(streams, limit, NEWEST_FIRST);
+    }
+
+    private static List<ActivityStreamsEntry> merge(List<List<ActivityStreamsEntry>> streams, int limit,
+                                                    final Comparator<ActivityStreamsEntry> order) {
+        if (streams.size() == 1) {
+            List<ActivityStreamsEntry> stream = streams.get(0);
+            return stream.size() > limit ? stream.subList(0, limit) : stream;
+        }
+        PriorityQueue<PeekingIterator<ActivityStreamsEntry>> heads = new PriorityQueue<PeekingIterator<ActivityStreamsEntry>>(
+                Math.max(streams.size(), 1), new Comparator<PeekingIterator<ActivityStreamsEntry>>() {
             @Override
-            public int compare(ActivityStreamsEntry one, ActivityStreamsEntry two) {
-                Date publishedOne = one.getPublished();
-                Date publishedTwo = two.getPublished();
-                if (publishedOne == null) {
-                    return publishedTwo == null ? 0 : -1;
-                } else if (publishedTwo == null) {
-                    return 1;
-                } else {
-                    return order != null && order == SortOrder.descending ? publishedOne.compareTo(publishedTwo) : publishedTwo.compareTo(publishedOne);
-                }
+            public int compare(PeekingIterator<ActivityStreamsEntry> one, PeekingIterator<ActivityStreamsEntry> two) {
+                return order.compare(one.peek(), two.peek());
             }
         });
+        for (List<ActivityStreamsEntry> stream : streams) {
+            if (!stream.isEmpty()) {
+                heads.add(Iterators.peekingIterator(stream.iterator()));
+            }
+        }
+        List<ActivityStreamsEntry> merged = Lists.newArrayList();
+        while (!heads.isEmpty() && merged.size() < limit) {
+            PeekingIterator<ActivityStreamsEntry> head = heads.poll();
+            merged.add(head.next());
+            if (head.hasNext()) {
+                heads.add(head);
+            }
+        }
+        return merged;
     }
 
     private List<ActivityEntry> convert(List<ActivityStreamsEntry> result) {
@@ -410,24 +542,54 @@ public class DefaultActivityStreamsService implements ActivityStreamService {
         return converted;
     }
 
-    private void populatePersonObjects(ActivityStreamsEntry entry, Map<String, Person> peopleById) {
-        ActivityStreamsObject actor = entry.getActor();
-        if(entry.getActor() != null && OBJECT_TYPE_PERSON.equals(actor.getObjectType())) {
-            populatePerson(peopleById, actor);
+    /**
+     * Fills in the person details of the actors, objects and targets of the entries.  All people not yet in
+     * peopleById are resolved up front with a single lookup.
+     */
+    private void populatePersonObjects(Collection<ActivityStreamsEntry> entries, Map<String, Person> peopleById) {
+        List<ActivityStreamsObject> personObjects = Lists.newArrayList();
+        for (ActivityStreamsEntry entry : entries) {
+            addPersonObject(entry.getActor(), personObjects);
+            addPersonObject(entry.getObject(), personObjects);
+            addPersonObject(entry.getTarget(), personObjects);
         }
-        if(entry.getObject() != null && OBJECT_TYPE_PERSON.equals(entry.getObject().getObjectType())) {
-            populatePerson(peopleById, entry.getObject());
+        Set<String> missing = Sets.newLinkedHashSet();
+        for (ActivityStreamsObject personObject : personObjects) {
+            if (!peopleById.containsKey(personObject.getId())) {
+                missing.add(personObject.getId());
+            }
+        }
+        peopleById.putAll(getPeople(missing));
+        for (ActivityStreamsObject personObject : personObjects) {
+            populatePerson(peopleById.get(personObject.getId()), personObject);
         }
-        if(entry.getTarget() != null && OBJECT_TYPE_PERSON.equals(entry.getTarget().getObjectType())) {
-            populatePerson(peopleById, entry.getTarget());
+    }
+
+    private static void addPersonObject(ActivityStreamsObject object, List<ActivityStreamsObject> personObjects) {
+        if (object != null && OBJECT_TYPE_PERSON.equals(object.getObjectType())) {
+            personObjects.add(object);
+        }
+    }
+
+    private Map<String, Person> getPeople(Set<String> ids) {
+        Map<String, Person> people = Maps.newHashMap();
+        if (ids.isEmpty()) {
+            return people;
+        }
+        if (simplePersonService == null) {
+            for (String id : ids) {
+                people.put(id, getPerson(id));
+            }
+        } else {
+            for (org.apache.rave.model.Person person : simplePersonService.getPeopleByUsernames(ids)) {
+                people.put(person.getUsername(), new FieldRestrictingPerson(person, null));
+            }
         }
+        return people;
     }
 
-    private void populatePerson(Map<String, Person> peopleById, ActivityStreamsObject actor) {
-        String id = actor.getId();
-        Person person = peopleById.containsKey(id) ? peopleById.get(id) : getPerson(id);
+    private void populatePerson(Person person, ActivityStreamsObject actor) {
         if(person != null) {
-            peopleById.put(id, person);
             actor.setUrl(person.getProfileUrl());
             actor.setDisplayName(person.getDisplayName());
             ActivityStreamsMediaLinkImpl image = new ActivityStreamsMediaLinkImpl();
@@ -33,6 +33,7 @@ import org.apache.shindig.social.opensocial.spi.AppDataService;
 import org.apache.shindig.social.opensocial.spi.GroupId;
 import org.apache.shindig.social.opensocial.spi.UserId;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import com.google.common.util.concurrent.Futures;
@@ -54,9 +55,25 @@ import java.util.concurrent.locks.Lock;
  */
 @Service
 public class DefaultAppDataService implements AppDataService {
+    /**
+     * How updates are written to the {@link ApplicationDataRepository}
+     */
+    public enum StorageMode {
+        /**
+         * Lock the user and application, then load, change and save all of its data
+         */
+        BLOB,
+        /**
+         * Hand only the changed keys to the repository, which applies them atomically without a lock.  Concurrent
+         * updates that both add the same new key conflict, the later one fails and has to be retried
+         */
+        KEY_VALUE
+    }
+
     private final SimplePersonService personService;
     private final LockService lockService;
     private final ApplicationDataRepository applicationDataRepository;
+    private StorageMode storageMode = StorageMode.BLOB;
 
     /**
      * These are the only visibility rules I can find in the OpenSocial specification regarding visibility of appdata:
@@ -74,6 +91,11 @@ public class DefaultAppDataService implements AppDataService {
         this.applicationDataRepository = applicationDataRepository;
     }
 
+    @Value("${rave.appdata.storage_mode:BLOB}")
+    public void setStorageMode(StorageMode storageMode) {
+        this.storageMode = storageMode;
+    }
+
     /**
      * Retrieves app data for the specified user list and group.
      *
@@ -112,6 +134,20 @@ public class DefaultAppDataService implements AppDataService {
         //make sure the request conforms to the OpenSocial visibility rules
         String personId = validateWriteRequest(userId, groupId, appId, token);
 
+        if (storageMode == StorageMode.KEY_VALUE) {
+            try {
+                if (fields == null || fields.size() == 0) {
+                    applicationDataRepository.replaceApplicationDataValues(personId, appId, new HashMap<String, Object>());
+                } else {
+                    applicationDataRepository.updateApplicationDataValues(personId, appId, new HashMap<String, Object>(), fields);
+                }
+            } catch (IllegalArgumentException e) {
+                //the repository cannot store the key, e.g. a MongoDB field name containing a '.'
+                throw new ProtocolException(HttpServletResponse.SC_BAD_REQUEST, e.getMessage(), e);
+            }
+            return Futures.immediateFuture(null);
+        }
+
         //lock on this user and this application to avoid any potential concurrency issues
         Lock lock = getApplicationDataLock(personId, appId);
         try {
@@ -162,6 +198,11 @@ public class DefaultAppDataService implements AppDataService {
         //make sure the request conforms to the OpenSocial visibility rules
         String personId = validateWriteRequest(userId, groupId, appId, token);
 
+        if (storageMode == StorageMode.KEY_VALUE) {
+            updatePersonDataValues(personId, appId, fields, values);
+            return Futures.immediateFuture(null);
+        }
+
         //lock on this user and this application to avoid any potential concurrency issues
         Lock lock = getApplicationDataLock(personId, appId);
         try {
@@ -208,6 +249,28 @@ public class DefaultAppDataService implements AppDataService {
         return Futures.immediateFuture(null);
     }
 
+    /**
+     * Applies the same update rules as the locked path above, but hands the repository only the keys that change
+     */
+    private void updatePersonDataValues(String personId, String appId, Set<String> fields, Map<String, Object> values) {
+        if (fields != null && fields.size() > 0 && !fields.containsAll(values.keySet())) {
+            throw new ProtocolException(HttpServletResponse.SC_BAD_REQUEST, "Fields parameter must either be empty or contain keys " +
+                    "for all name value pairs sent in request.");
+        }
+        try {
+            if (fields == null || fields.size() == 0) {
+                applicationDataRepository.replaceApplicationDataValues(personId, appId, values);
+            } else {
+                Set<String> removedKeys = new HashSet<String>(fields);
+                removedKeys.removeAll(values.keySet());
+                applicationDataRepository.updateApplicationDataValues(personId, appId, values, removedKeys);
+            }
+        } catch (IllegalArgumentException e) {
+            //the repository cannot store the key, e.g. a MongoDB field name containing a '.'
+            throw new ProtocolException(HttpServletResponse.SC_BAD_REQUEST, e.getMessage(), e);
+        }
+    }
+
     private List<String> validateReadRequest(Set<UserId> userIds, GroupId groupId, String appId, SecurityToken token) {
         //if the appId in the token matches the appId parameter, then we know the user "can see the gadget"
         validateAppIdMatches(appId, token);
@@ -40,6 +40,7 @@ import org.springframework.stereotype.Service;
 import javax.servlet.http.HttpServletResponse;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.Future;
@@ -103,6 +104,11 @@ public class DefaultPersonService implements PersonService, SimplePersonService
         }
     }
 
+    @Override
+    public List<org.apache.rave.model.Person> getPeopleByUsernames(Collection<String> usernames) {
+        return repository.findByUsernames(usernames);
+    }
+
     private List<org.apache.rave.model.Person> getUniqueListOfFriends(Set<UserId> userIds,
                                                                                  CollectionOptions collectionOptions,
                                                                                  SecurityToken token) {
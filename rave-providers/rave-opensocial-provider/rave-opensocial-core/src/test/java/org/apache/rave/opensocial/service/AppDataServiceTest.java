@@ -36,6 +36,7 @@ import org.easymock.Capture;
 import org.junit.Before;
 import org.junit.Test;
 
+import javax.servlet.http.HttpServletResponse;
 import java.util.*;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
@@ -46,6 +47,7 @@ import static org.hamcrest.CoreMatchers.*;
 import static org.hamcrest.CoreMatchers.not;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
 
 public class AppDataServiceTest {
     private SimplePersonService personService;
@@ -251,6 +253,111 @@ public class AppDataServiceTest {
         testUpdatePersonData(fields, values, values, validApplicationData);
     }
 
+    @Test
+    public void updatePersonData_keyValue_partialUpdate() throws Exception {
+        Set<String> fields = new HashSet<String>(Arrays.asList("color", "speed"));
+        HashMap<String, Object> values = new HashMap<String, Object>();
+        values.put("color", "ZZZZZZZZZZ");
+
+        appDataRepository.updateApplicationDataValues(VALID_USER_ID, VALID_APPLICATION_ID, values,
+                new HashSet<String>(Arrays.asList("speed")));
+        expectLastCall();
+        replay(appDataRepository);
+
+        updatePersonDataWithoutLock(fields, values);
+        verify(appDataRepository);
+    }
+
+    @Test
+    public void updatePersonData_keyValue_replaceAllValues() throws Exception {
+        HashMap<String, Object> values = new HashMap<String, Object>();
+        values.put("newKey1", "newValue1");
+
+        appDataRepository.replaceApplicationDataValues(VALID_USER_ID, VALID_APPLICATION_ID, values);
+        expectLastCall();
+        replay(appDataRepository);
+
+        updatePersonDataWithoutLock(new HashSet<String>(), values);
+        verify(appDataRepository);
+    }
+
+    @Test(expected = ProtocolException.class)
+    public void updatePersonData_keyValue_invalidArguments() throws Exception {
+        HashMap<String, Object> values = new HashMap<String, Object>();
+        values.put("a key", "that is not present in the fields set");
+        replay(appDataRepository);
+
+        updatePersonDataWithoutLock(new HashSet<String>(Arrays.asList("foo")), values);
+    }
+
+    @Test
+    public void updatePersonData_keyValue_unstorableKey() throws Exception {
+        Set<String> fields = new HashSet<String>(Arrays.asList("a.b"));
+        HashMap<String, Object> values = new HashMap<String, Object>();
+        values.put("a.b", "value");
+
+        appDataRepository.updateApplicationDataValues(VALID_USER_ID, VALID_APPLICATION_ID, values, new HashSet<String>());
+        expectLastCall().andThrow(new IllegalArgumentException("Application data key cannot be stored as a document field: a.b"));
+        replay(appDataRepository);
+
+        try {
+            updatePersonDataWithoutLock(fields, values);
+            fail("expected a ProtocolException");
+        } catch (ProtocolException e) {
+            assertEquals(HttpServletResponse.SC_BAD_REQUEST, e.getCode());
+        }
+    }
+
+    @Test
+    public void deletePersonData_keyValue_someFields() throws Exception {
+        Set<String> fields = new HashSet<String>(Arrays.asList("color"));
+        appDataRepository.updateApplicationDataValues(VALID_USER_ID, VALID_APPLICATION_ID, new HashMap<String, Object>(), fields);
+        expectLastCall();
+        replay(appDataRepository);
+
+        deletePersonDataWithoutLock(fields);
+        verify(appDataRepository);
+    }
+
+    @Test
+    public void deletePersonData_keyValue_allFields() throws Exception {
+        appDataRepository.replaceApplicationDataValues(VALID_USER_ID, VALID_APPLICATION_ID, new HashMap<String, Object>());
+        expectLastCall();
+        replay(appDataRepository);
+
+        deletePersonDataWithoutLock(null);
+        verify(appDataRepository);
+    }
+
+    private void updatePersonDataWithoutLock(Set<String> fields, Map<String, Object> values) {
+        UserId userId = new UserId(UserId.Type.userId, VALID_USER_ID);
+        GroupId groupId = new GroupId(GroupId.Type.self, "@self");
+        SecurityToken securityToken = getMockSecurityToken(VALID_OWNER_ID, VALID_VIEWER_ID, VALID_APPLICATION_ID, VALID_MODULE_ID);
+        expectKeyValueWrite(userId, groupId, securityToken);
+
+        appDataService.updatePersonData(userId, groupId, VALID_APPLICATION_ID, fields, values, securityToken);
+        verify(lockService);
+    }
+
+    private void deletePersonDataWithoutLock(Set<String> fields) {
+        UserId userId = new UserId(UserId.Type.userId, VALID_USER_ID);
+        GroupId groupId = new GroupId(GroupId.Type.self, "@self");
+        SecurityToken securityToken = getMockSecurityToken(VALID_OWNER_ID, VALID_VIEWER_ID, VALID_APPLICATION_ID, VALID_MODULE_ID);
+        expectKeyValueWrite(userId, groupId, securityToken);
+
+        appDataService.deletePersonData(userId, groupId, VALID_APPLICATION_ID, fields, securityToken);
+        verify(lockService);
+    }
+
+    private void expectKeyValueWrite(UserId userId, GroupId groupId, SecurityToken securityToken) {
+        ((DefaultAppDataService) appDataService).setStorageMode(DefaultAppDataService.StorageMode.KEY_VALUE);
+        Set<UserId> userIds = new HashSet<UserId>(Arrays.asList(userId));
+        expect(personService.getPeople(userIds, groupId, null, securityToken)).andReturn(Arrays.asList(validPerson));
+        replay(personService);
+        //no lock is borrowed
+        replay(lockService);
+    }
+
     private void testGetPersonData(Set<String> fields, String ownerId, String viewerId, String applicationId,
                                    ApplicationData applicationData, Map<String, Object> expectedData) throws Exception {
 
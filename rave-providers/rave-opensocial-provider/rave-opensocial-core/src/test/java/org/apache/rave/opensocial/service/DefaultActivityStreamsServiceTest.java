@@ -30,11 +30,14 @@ import org.apache.rave.portal.model.impl.ActivityStreamsObjectImpl;
 import org.apache.rave.portal.repository.ActivityStreamsRepository;
 import org.apache.rave.util.ActivityConversionUtil;
 import org.apache.shindig.auth.SecurityToken;
+import org.apache.shindig.protocol.ProtocolException;
 import org.apache.shindig.protocol.RestfulCollection;
+import org.apache.shindig.protocol.model.SortOrder;
 import org.apache.shindig.social.core.model.ActivityObjectImpl;
 import org.apache.shindig.social.core.model.PersonImpl;
 import org.apache.shindig.social.opensocial.model.ActivityEntry;
 import org.apache.shindig.social.opensocial.model.Person;
+import org.apache.shindig.social.opensocial.spi.CollectionOptions;
 import org.apache.shindig.social.opensocial.spi.GroupId;
 import org.apache.shindig.social.opensocial.spi.PersonService;
 import org.apache.shindig.social.opensocial.spi.UserId;
@@ -143,7 +146,7 @@ public class DefaultActivityStreamsServiceTest {
         Set<String> fields = new HashSet<String>();
 
         expect(repository.save(activityStreamsEntry)).andReturn(activityStreamsEntry);
-        expect(repository.getByUserId(ID_1)).andReturn((List) getActivityList());
+        expect(repository.getByUserIds(EasyMock.<Set<String>>anyObject(), EasyMock.<Date>isNull(), EasyMock.<String>isNull(), anyInt())).andReturn((List) getActivityList());
         expect(personService.getPeople(users,groupId,null,fields,token)).andReturn(Futures.immediateFuture(new RestfulCollection<Person>(getDbPersonList())));
         replay(repository);
         replay(personService);
@@ -159,6 +162,154 @@ public class DefaultActivityStreamsServiceTest {
 
     }
 
+    @Test
+    public void getActivityEntries_paged() throws ExecutionException, InterruptedException {
+        Set<UserId> users = new HashSet<UserId>();
+        users.add(new UserId(UserId.Type.userId, ID_1));
+        CollectionOptions options = new CollectionOptions();
+        options.setFirst(1);
+        options.setMax(2);
+
+        expect(repository.getByUserIds(Collections.singleton(ID_1), null, null, 4)).andReturn((List) Arrays.asList(
+                getEntry("4", 4000), getEntry("3", 3000), getEntry("2", 2000), getEntry("1", 1000)));
+        replay(repository);
+
+        RestfulCollection<ActivityEntry> result = service.getActivityEntries(users, null, APP_ID, new HashSet<String>(), options, token).get();
+
+        verify(repository);
+        assertThat(result.getList().size(), is(equalTo(2)));
+        assertThat(result.getList().get(0).getId(), is(equalTo("3")));
+        assertThat(result.getList().get(1).getId(), is(equalTo("2")));
+        assertThat(result.getStartIndex(), is(equalTo(1)));
+        assertThat(result.getTotalResults(), is(equalTo(4)));
+    }
+
+    @Test
+    public void getActivityEntries_oldestFirstPaged() throws ExecutionException, InterruptedException {
+        Set<UserId> users = new HashSet<UserId>();
+        users.add(new UserId(UserId.Type.userId, ID_1));
+        CollectionOptions options = new CollectionOptions();
+        options.setSortOrder(SortOrder.descending);
+        options.setFirst(1);
+        options.setMax(2);
+
+        expect(repository.getOldestByUserIds(Collections.singleton(ID_1), 4)).andReturn((List) Arrays.asList(
+                getEntry("1", 1000), getEntry("2", 2000), getEntry("3", 3000)));
+        replay(repository);
+
+        RestfulCollection<ActivityEntry> result = service.getActivityEntries(users, null, APP_ID, new HashSet<String>(), options, token).get();
+
+        verify(repository);
+        assertThat(result.getList().size(), is(equalTo(2)));
+        assertThat(result.getList().get(0).getId(), is(equalTo("2")));
+        assertThat(result.getList().get(1).getId(), is(equalTo("3")));
+        assertThat(result.getTotalResults(), is(equalTo(3)));
+    }
+
+    @Test
+    public void getActivityEntries_continuesAfterBeforeParameter() throws ExecutionException, InterruptedException {
+        Set<UserId> users = new HashSet<UserId>();
+        users.add(new UserId(UserId.Type.userId, ID_1));
+        CollectionOptions options = new CollectionOptions();
+        options.setFirst(5);
+        options.setMax(2);
+        Map<String, String> parameters = new HashMap<String, String>();
+        parameters.put(DefaultActivityStreamsService.BEFORE_PARAMETER, "3");
+        options.setOptionalParameter(parameters);
+        ActivityStreamsEntryImpl before = getEntry("3", 3000);
+
+        expect(repository.get("3")).andReturn(before);
+        expect(repository.getByUserIds(Collections.singleton(ID_1), new Date(3000), "3", 3)).andReturn((List) Arrays.asList(
+                getEntry("2", 2000), getEntry("1", 1000)));
+        replay(repository);
+
+        RestfulCollection<ActivityEntry> result = service.getActivityEntries(users, null, APP_ID, new HashSet<String>(), options, token).get();
+
+        verify(repository);
+        assertThat(result.getList().size(), is(equalTo(2)));
+        assertThat(result.getList().get(0).getId(), is(equalTo("2")));
+        assertThat(result.getList().get(1).getId(), is(equalTo("1")));
+        assertThat(result.getStartIndex(), is(equalTo(0)));
+        assertThat(result.getTotalResults(), is(equalTo(2)));
+    }
+
+    @Test(expected = ProtocolException.class)
+    public void getActivityEntries_unknownBeforeParameter() throws ExecutionException, InterruptedException {
+        Set<UserId> users = new HashSet<UserId>();
+        users.add(new UserId(UserId.Type.userId, ID_1));
+        CollectionOptions options = new CollectionOptions();
+        options.setOptionalParameter(Collections.singletonMap(DefaultActivityStreamsService.BEFORE_PARAMETER, "unknown"));
+
+        expect(repository.get("unknown")).andReturn(null);
+        replay(repository);
+
+        service.getActivityEntries(users, null, APP_ID, new HashSet<String>(), options, token);
+    }
+
+    @Test
+    public void getActivityEntries_resolvesPeopleInBulk() throws ExecutionException, InterruptedException {
+        SimplePersonService simplePersonService = createMock(SimplePersonService.class);
+        service = new DefaultActivityStreamsService(repository, personService, simplePersonService);
+        Set<UserId> users = new HashSet<UserId>();
+        users.add(new UserId(UserId.Type.userId, ID_1));
+
+        List<ActivityStreamsEntryImpl> entries = Lists.newArrayList();
+        for (int i = 0; i < 50; i++) {
+            ActivityStreamsEntryImpl entry = getEntry(String.valueOf(i), 50000 - i);
+            entry.setActor(getPersonObject(i % 2 == 0 ? ID_1 : ID_2));
+            entry.setTarget(getPersonObject(ID_2));
+            entries.add(entry);
+        }
+        org.apache.rave.model.Person one = new org.apache.rave.portal.model.impl.PersonImpl();
+        one.setUsername(ID_1);
+        one.setDisplayName("One");
+        org.apache.rave.model.Person two = new org.apache.rave.portal.model.impl.PersonImpl();
+        two.setUsername(ID_2);
+        two.setDisplayName("Two");
+
+        expect(repository.getByUserIds(EasyMock.<Set<String>>anyObject(), EasyMock.<Date>isNull(), EasyMock.<String>isNull(), anyInt())).andReturn((List) entries);
+        expect(simplePersonService.getPeopleByUsernames(new LinkedHashSet<String>(Arrays.asList(ID_1, ID_2)))).andReturn(Arrays.asList(one, two));
+        replay(repository, personService, simplePersonService);
+
+        List<ActivityEntry> result = service.getActivityEntries(users, null, APP_ID, new HashSet<String>(), null, token).get().getList();
+
+        verify(simplePersonService);
+        assertThat(result.size(), is(equalTo(50)));
+        assertThat(result.get(0).getActor().getDisplayName(), is(equalTo("One")));
+        assertThat(result.get(1).getActor().getDisplayName(), is(equalTo("Two")));
+        assertThat(result.get(1).getTarget().getDisplayName(), is(equalTo("Two")));
+    }
+
+    @Test
+    public void mergeNewestFirst() {
+        List<ActivityStreamsEntry> one = Arrays.<ActivityStreamsEntry>asList(getEntry("a5", 5000), getEntry("a2", 2000));
+        List<ActivityStreamsEntry> two = Arrays.<ActivityStreamsEntry>asList(getEntry("b4", 4000), getEntry("b3", 3000), getEntry("b1", 1000));
+        List<ActivityStreamsEntry> empty = Collections.emptyList();
+
+        List<ActivityStreamsEntry> merged = DefaultActivityStreamsService.mergeNewestFirst(Arrays.asList(one, empty, two), 4);
+
+        assertThat(merged.size(), is(equalTo(4)));
+        assertThat(merged.get(0).getId(), is(equalTo("a5")));
+        assertThat(merged.get(1).getId(), is(equalTo("b4")));
+        assertThat(merged.get(2).getId(), is(equalTo("b3")));
+        assertThat(merged.get(3).getId(), is(equalTo("a2")));
+    }
+
+    @Test
+    public void mergeNewestFirst_undatedFirstAndTiesById() {
+        ActivityStreamsEntryImpl undated = getEntry("a9", 0);
+        undated.setPublished(null);
+        List<ActivityStreamsEntry> one = Arrays.<ActivityStreamsEntry>asList(undated, getEntry("a3", 3000));
+        List<ActivityStreamsEntry> two = Arrays.<ActivityStreamsEntry>asList(getEntry("b3", 3000), getEntry("b1", 1000));
+
+        List<ActivityStreamsEntry> merged = DefaultActivityStreamsService.mergeNewestFirst(Arrays.asList(two, one), 4);
+
+        assertThat(merged.get(0).getId(), is(equalTo("a9")));
+        assertThat(merged.get(1).getId(), is(equalTo("b3")));
+        assertThat(merged.get(2).getId(), is(equalTo("a3")));
+        assertThat(merged.get(3).getId(), is(equalTo("b1")));
+    }
+
     @Test
     public void getActivityEntriesWithIdsTest() throws ExecutionException, InterruptedException {
         UserId id = new UserId(UserId.Type.userId, ID_1);
@@ -170,15 +321,15 @@ public class DefaultActivityStreamsServiceTest {
         Set<String> fields = new HashSet<String>();
 
         expect(repository.save(EasyMock.isA(ActivityStreamsEntryImpl.class))).andReturn(activityStreamsEntry);
-        expect(repository.get(ACTIVITY_ID)).andReturn(activityStreamsEntry);
+        HashSet<String> activityIds = new HashSet<String>();
+        activityIds.add(ACTIVITY_ID);
+        expect(repository.getByIds(activityIds)).andReturn((List) getActivityList());
         expect(personService.getPeople(users,groupId,null,fields,token)).andReturn(Futures.immediateFuture(new RestfulCollection<Person>(getDbPersonList())));
         replay(repository);
         replay(personService);
 
         Future<ActivityEntry> entry =  service.createActivityEntry(id,groupId,APP_ID,fields,conversionUtilTest.convert(activityStreamsEntry),token);
 
-        HashSet<String> activityIds = new HashSet<String>();
-        activityIds.add(entry.get().getId());
         log.info("getting id: " + entry.get().getId());
         Future<RestfulCollection<ActivityEntry>> activities = service.getActivityEntries(id,groupId,APP_ID,fields,null,activityIds,token);
 
@@ -265,6 +416,21 @@ public class DefaultActivityStreamsServiceTest {
         return Lists.asList(getDbPerson(), new org.apache.shindig.social.opensocial.model.Person[]{});
     }
 
+    private ActivityStreamsObjectImpl getPersonObject(String id) {
+        ActivityStreamsObjectImpl object = new ActivityStreamsObjectImpl();
+        object.setId(id);
+        object.setObjectType(DefaultActivityStreamsService.OBJECT_TYPE_PERSON);
+        return object;
+    }
+
+    private ActivityStreamsEntryImpl getEntry(String id, long published) {
+        ActivityStreamsEntryImpl entry = new ActivityStreamsEntryImpl();
+        entry.setId(id);
+        entry.setUserId(ID_1);
+        entry.setPublished(new Date(published));
+        return entry;
+    }
+
     private List<ActivityStreamsEntryImpl> getActivityList() {
 
         return Lists.asList(activityStreamsEntry, new ActivityStreamsEntryImpl[]{});
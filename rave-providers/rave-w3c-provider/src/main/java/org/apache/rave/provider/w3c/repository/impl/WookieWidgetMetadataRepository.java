@@ -22,7 +22,10 @@ package org.apache.rave.provider.w3c.repository.impl;
 import org.apache.rave.model.Widget;
 import org.apache.rave.portal.service.WidgetProviderService;
 import org.apache.rave.provider.w3c.repository.W3CWidgetMetadataRepository;
+import org.apache.rave.provider.w3c.service.impl.W3CWidget;
 import org.apache.rave.provider.w3c.service.impl.WookieWidgetService;
+import org.apache.rave.service.MetadataCache;
+import org.apache.rave.service.MetadataLoader;
 import org.apache.wookie.connector.framework.WookieConnectorException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -33,15 +36,37 @@ import org.springframework.stereotype.Repository;
 /**
  * Handles the call to wookies metadata service
  * (wookie currently uses an xml format response)
+ *
+ * When created with a {@link MetadataCache} the metadata of single widgets is cached by guid and each caller receives
+ * its own copy of the cached widget.
  */
 @Repository
 public class WookieWidgetMetadataRepository implements W3CWidgetMetadataRepository {
     private static Logger logger = LoggerFactory.getLogger(WookieWidgetMetadataRepository.class);
     private WookieWidgetService widgetService;
+    private MetadataCache<Widget> widgetMetadataCache;
+    private final MetadataLoader<Widget> widgetMetadataLoader = new MetadataLoader<Widget>() {
+        @Override
+        public Widget load(String widgetGuid) {
+            return fetchWidgetMetadata(widgetGuid);
+        }
+
+        @Override
+        public long getExpiration(String widgetGuid, Widget widget) {
+            // wookie does not advertise an expiry time, use the cache default
+            return 0L;
+        }
+    };
+
+    public WookieWidgetMetadataRepository(WidgetProviderService widgetService) {
+        this(widgetService, null);
+    }
 
     @Autowired
-    public WookieWidgetMetadataRepository(@Qualifier("wookieWidgetService") WidgetProviderService widgetService) {
+    public WookieWidgetMetadataRepository(@Qualifier("wookieWidgetService") WidgetProviderService widgetService,
+                                          @Qualifier("wookieWidgetMetadataCache") MetadataCache<Widget> widgetMetadataCache) {
     	this.widgetService = (WookieWidgetService) widgetService;
+        this.widgetMetadataCache = widgetMetadataCache;
     }
 
     /*
@@ -50,6 +75,13 @@ public class WookieWidgetMetadataRepository implements W3CWidgetMetadataReposito
      */
     @Override
     public Widget getWidgetMetadata(String widgetGuid) {
+        if (widgetMetadataCache == null) {
+            return fetchWidgetMetadata(widgetGuid);
+        }
+        return copyOf(widgetMetadataCache.get(widgetGuid, widgetMetadataLoader));
+    }
+
+    private Widget fetchWidgetMetadata(String widgetGuid) {
         try {
         	return this.widgetService.getWidget(widgetGuid);
         } catch (WookieConnectorException e) {
@@ -57,6 +89,23 @@ public class WookieWidgetMetadataRepository implements W3CWidgetMetadataReposito
         }
     }
 
+    private static Widget copyOf(Widget cached) {
+        if (cached == null) {
+            return null;
+        }
+        Widget widget = new W3CWidget();
+        widget.setUrl(cached.getUrl());
+        widget.setTitle(cached.getTitle());
+        widget.setTitleUrl(cached.getTitleUrl());
+        widget.setDescription(cached.getDescription());
+        widget.setAuthor(cached.getAuthor());
+        widget.setAuthorEmail(cached.getAuthorEmail());
+        widget.setThumbnailUrl(cached.getThumbnailUrl());
+        widget.setScreenshotUrl(cached.getScreenshotUrl());
+        widget.setType(cached.getType());
+        return widget;
+    }
+
 	/* (non-Javadoc)
 	 * @see org.apache.rave.provider.w3c.repository.W3CWidgetMetadataRepository#getWidgetMetadata()
 	 */
@@ -0,0 +1,110 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.rave.provider.w3c.service.impl;
+
+import org.apache.wookie.connector.framework.WookieConnectorException;
+import org.apache.wookie.connector.framework.WookieConnectorService;
+
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.Map;
+
+/**
+ * Hands out {@link WookieConnectorService}s for the exclusive use of one thread at a time.
+ *
+ * A connector is bound to the shared data key it was created with and carries the current user, so connectors are
+ * pooled per shared data key. The idle connectors of the most recently used keys are kept, up to maxIdlePerKey per key.
+ */
+public class WookieConnectorPool {
+    public static final int DEFAULT_MAX_KEYS = 1000;
+    public static final int DEFAULT_MAX_IDLE_PER_KEY = 2;
+
+    private final String serverUrl;
+    private final String apiKey;
+    private final int maxIdlePerKey;
+    private final Map<String, LinkedList<WookieConnectorService>> idle;
+
+    public WookieConnectorPool(String serverUrl, String apiKey) {
+        this(serverUrl, apiKey, DEFAULT_MAX_KEYS, DEFAULT_MAX_IDLE_PER_KEY);
+    }
+
+    public WookieConnectorPool(String serverUrl, String apiKey, final int maxKeys, int maxIdlePerKey) {
+        this.serverUrl = serverUrl;
+        this.apiKey = apiKey;
+        this.maxIdlePerKey = maxIdlePerKey;
+        this.idle = new LinkedHashMap<String, LinkedList<WookieConnectorService>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, LinkedList<WookieConnectorService>> eldest) {
+                return size() > maxKeys;
+            }
+        };
+    }
+
+    /**
+     * Takes an idle connector for the shared data key or creates a new one. The caller must hand it back with
+     * {@link #release(String, WookieConnectorService)} and must not use it afterwards.
+     */
+    public WookieConnectorService borrow(String sharedDataKey) throws WookieConnectorException {
+        synchronized (idle) {
+            LinkedList<WookieConnectorService> connectors = idle.get(getKey(sharedDataKey));
+            if (connectors != null && !connectors.isEmpty()) {
+                return connectors.removeFirst();
+            }
+        }
+        return createConnector(sharedDataKey);
+    }
+
+    public void release(String sharedDataKey, WookieConnectorService connector) {
+        if (connector == null) {
+            return;
+        }
+        // do not keep the last user around on an idle connector
+        connector.setCurrentUser(null);
+        synchronized (idle) {
+            String key = getKey(sharedDataKey);
+            LinkedList<WookieConnectorService> connectors = idle.get(key);
+            if (connectors == null) {
+                connectors = new LinkedList<WookieConnectorService>();
+                idle.put(key, connectors);
+            }
+            if (connectors.size() < maxIdlePerKey) {
+                connectors.addFirst(connector);
+            }
+        }
+    }
+
+    public int getIdleCount() {
+        synchronized (idle) {
+            int count = 0;
+            for (LinkedList<WookieConnectorService> connectors : idle.values()) {
+                count += connectors.size();
+            }
+            return count;
+        }
+    }
+
+    protected WookieConnectorService createConnector(String sharedDataKey) throws WookieConnectorException {
+        return new WookieConnectorService(serverUrl, apiKey, sharedDataKey);
+    }
+
+    private static String getKey(String sharedDataKey) {
+        return sharedDataKey == null ? "" : "#" + sharedDataKey;
+    }
+}
@@ -0,0 +1,292 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.rave.provider.w3c.service.impl;
+
+import org.apache.rave.model.Widget;
+import org.apache.wookie.connector.framework.WookieConnectorException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Snapshot of the widgets available on the Wookie server, indexed by widget url.
+ *
+ * Lookups read the current snapshot and never call Wookie, except for the very first one when no snapshot has been
+ * loaded yet. The snapshot is replaced in the background every refresh interval and after {@link #invalidate()}.
+ * When a refresh fails the previous snapshot is kept. No lock is held while calling Wookie, concurrent first lookups
+ * wait for the same load.
+ */
+public class WookieWidgetCatalog {
+    private static final Logger logger = LoggerFactory.getLogger(WookieWidgetCatalog.class);
+
+    /**
+     * Lists the widgets of the Wookie server
+     */
+    public interface Source {
+        Collection<Widget> fetch() throws WookieConnectorException;
+    }
+
+    private final Source source;
+    private final long refreshIntervalMillis;
+    private final AtomicBoolean refreshQueued = new AtomicBoolean();
+    private final AtomicLong refreshCount = new AtomicLong();
+    private final AtomicLong refreshFailureCount = new AtomicLong();
+    private final AtomicLong refreshSequence = new AtomicLong();
+    private final AtomicReference<FutureTask<Snapshot>> firstLoad = new AtomicReference<FutureTask<Snapshot>>();
+    private final Object executorLock = new Object();
+    private volatile Snapshot snapshot;
+    private volatile long lastRefreshDurationMillis;
+    private long publishedSequence;
+    private ScheduledThreadPoolExecutor refreshExecutor;
+    private boolean destroyed;
+
+    /**
+     * @param source                the list of widgets to take snapshots of
+     * @param refreshIntervalMillis the time between two background refreshes, a value less than or equal to zero only
+     *                              refreshes after {@link #invalidate()}
+     */
+    public WookieWidgetCatalog(Source source, long refreshIntervalMillis) {
+        this.source = source;
+        this.refreshIntervalMillis = refreshIntervalMillis;
+    }
+
+    /**
+     * @param url the url of the widget, compared ignoring case
+     * @return the widget, or null if the snapshot does not contain it
+     */
+    public Widget getWidget(String url) throws WookieConnectorException {
+        return url == null ? null : getSnapshot().widgetsByUrl.get(url.toLowerCase(Locale.ENGLISH));
+    }
+
+    public Collection<Widget> getWidgets() throws WookieConnectorException {
+        return getSnapshot().widgetsByUrl.values();
+    }
+
+    /**
+     * Schedules a refresh of the snapshot, lookups keep reading the current snapshot until it completes
+     */
+    public void invalidate() {
+        if (!refreshQueued.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            getRefreshExecutor().execute(new Runnable() {
+                @Override
+                public void run() {
+                    refreshQuietly();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            refreshQueued.set(false);
+            logger.debug("Widget catalog is shut down, not refreshing");
+        }
+    }
+
+    /**
+     * Replaces the snapshot with the widgets currently listed by the source
+     */
+    public void refresh() throws WookieConnectorException {
+        refreshQueued.set(false);
+        loadSnapshot();
+    }
+
+    private Snapshot loadSnapshot() throws WookieConnectorException {
+        long sequence = refreshSequence.incrementAndGet();
+        long start = System.currentTimeMillis();
+        try {
+            Map<String, Widget> widgetsByUrl = new HashMap<String, Widget>();
+            for (Widget widget : source.fetch()) {
+                if (widget.getUrl() != null) {
+                    widgetsByUrl.put(widget.getUrl().toLowerCase(Locale.ENGLISH), widget);
+                }
+            }
+            refreshCount.incrementAndGet();
+            return publish(new Snapshot(Collections.unmodifiableMap(widgetsByUrl), System.currentTimeMillis()), sequence);
+        } catch (WookieConnectorException e) {
+            refreshFailureCount.incrementAndGet();
+            throw e;
+        } catch (RuntimeException e) {
+            refreshFailureCount.incrementAndGet();
+            throw e;
+        } finally {
+            lastRefreshDurationMillis = System.currentTimeMillis() - start;
+        }
+    }
+
+    /**
+     * @return the time in milliseconds since the current snapshot was taken, or -1 if there is none yet
+     */
+    public long getSnapshotAgeMillis() {
+        Snapshot current = snapshot;
+        return current == null ? -1 : System.currentTimeMillis() - current.createdAt;
+    }
+
+    public long getLastRefreshDurationMillis() {
+        return lastRefreshDurationMillis;
+    }
+
+    public long getRefreshCount() {
+        return refreshCount.get();
+    }
+
+    public long getRefreshFailureCount() {
+        return refreshFailureCount.get();
+    }
+
+    public int size() {
+        Snapshot current = snapshot;
+        return current == null ? 0 : current.widgetsByUrl.size();
+    }
+
+    /**
+     * Stops the background refreshes
+     */
+    public void destroy() {
+        synchronized (executorLock) {
+            destroyed = true;
+            if (refreshExecutor != null) {
+                refreshExecutor.shutdownNow();
+                refreshExecutor = null;
+            }
+        }
+    }
+
+    private Snapshot getSnapshot() throws WookieConnectorException {
+        while (true) {
+            Snapshot current = snapshot;
+            if (current != null) {
+                return current;
+            }
+            FutureTask<Snapshot> task = firstLoad.get();
+            if (task == null) {
+                task = new FutureTask<Snapshot>(new Callable<Snapshot>() {
+                    @Override
+                    public Snapshot call() throws WookieConnectorException {
+                        Snapshot loaded = loadSnapshot();
+                        startRefreshes();
+                        return loaded;
+                    }
+                });
+                if (!firstLoad.compareAndSet(null, task)) {
+                    continue;
+                }
+                task.run();
+            }
+            try {
+                return task.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new WookieConnectorException("Interrupted while loading the Wookie widget catalog", e);
+            } catch (ExecutionException e) {
+                // lets the next lookup try again
+                firstLoad.compareAndSet(task, null);
+                Throwable cause = e.getCause();
+                if (cause instanceof WookieConnectorException) {
+                    throw (WookieConnectorException) cause;
+                } else if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                } else if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw new IllegalStateException(cause);
+            }
+        }
+    }
+
+    /**
+     * Makes the snapshot current unless a refresh started later has already replaced it
+     */
+    private synchronized Snapshot publish(Snapshot loaded, long sequence) {
+        if (sequence > publishedSequence) {
+            publishedSequence = sequence;
+            snapshot = loaded;
+        }
+        return snapshot;
+    }
+
+    private void startRefreshes() {
+        synchronized (executorLock) {
+            if (!destroyed) {
+                // creating the executor schedules the background refreshes
+                getRefreshExecutor();
+            }
+        }
+    }
+
+    private void refreshQuietly() {
+        try {
+            refresh();
+        } catch (Exception e) {
+            logger.warn("Unable to refresh the Wookie widget catalog, keeping the previous snapshot: {}", e.getMessage());
+        }
+    }
+
+    private ScheduledThreadPoolExecutor getRefreshExecutor() {
+        synchronized (executorLock) {
+            if (destroyed) {
+                throw new RejectedExecutionException("Widget catalog is shut down");
+            }
+            if (refreshExecutor == null) {
+                refreshExecutor = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+                    @Override
+                    public Thread newThread(Runnable runnable) {
+                        Thread thread = new Thread(runnable, "rave-wookie-catalog-refresh");
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+                if (refreshIntervalMillis > 0) {
+                    refreshExecutor.scheduleWithFixedDelay(new Runnable() {
+                        @Override
+                        public void run() {
+                            refreshQuietly();
+                        }
+                    }, refreshIntervalMillis, refreshIntervalMillis, TimeUnit.MILLISECONDS);
+                }
+            }
+            return refreshExecutor;
+        }
+    }
+
+    private static class Snapshot {
+        private final Map<String, Widget> widgetsByUrl;
+        private final long createdAt;
+
+        private Snapshot(Map<String, Widget> widgetsByUrl, long createdAt) {
+            this.widgetsByUrl = widgetsByUrl;
+            this.createdAt = createdAt;
+        }
+    }
+}
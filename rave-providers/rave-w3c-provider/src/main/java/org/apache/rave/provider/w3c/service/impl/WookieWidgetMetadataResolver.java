@@ -25,22 +25,32 @@ import org.apache.rave.portal.service.WidgetProviderService;
 import org.apache.rave.provider.w3c.Constants;
 import org.apache.rave.provider.w3c.repository.W3CWidgetMetadataRepository;
 import org.apache.rave.provider.w3c.repository.impl.WookieWidgetMetadataRepository;
+import org.apache.rave.service.MetadataCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Component;
 
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
 @Component
 public class WookieWidgetMetadataResolver implements WidgetMetadataResolver {
     private static Logger logger = LoggerFactory.getLogger(WookieWidgetMetadataResolver.class);
     private W3CWidgetMetadataRepository widgetMetadataRepository;
 
-    @Autowired
-    public WookieWidgetMetadataResolver(@Qualifier("wookieWidgetService") WidgetProviderService widgetService){
+    public WookieWidgetMetadataResolver(WidgetProviderService widgetService){
         this.widgetMetadataRepository = new WookieWidgetMetadataRepository(widgetService);
     }
 
+    @Autowired
+    public WookieWidgetMetadataResolver(@Qualifier("wookieWidgetService") WidgetProviderService widgetService,
+                                        @Qualifier("wookieWidgetMetadataCache") MetadataCache<Widget> widgetMetadataCache){
+        this.widgetMetadataRepository = new WookieWidgetMetadataRepository(widgetService, widgetMetadataCache);
+    }
+
     /*
      * (non-Javadoc)
      * @see org.apache.rave.portal.service.WidgetMetadataResolver#getSupportedContext()
@@ -61,6 +71,26 @@ public class WookieWidgetMetadataResolver implements WidgetMetadataResolver {
         }
     }
 
+    /*
+     * (non-Javadoc)
+     * @see org.apache.rave.portal.service.WidgetMetadataResolver#getMetadata(java.util.Collection)
+     */
+    @Override
+    public Map<String, Widget> getMetadata(Collection<String> urls) {
+        Map<String, Widget> widgets = new HashMap<String, Widget>();
+        for (String url : urls) {
+            try {
+                Widget widget = widgetMetadataRepository.getWidgetMetadata(url);
+                if (widget != null) {
+                    widgets.put(url, widget);
+                }
+            } catch (RuntimeException e) {
+                logger.warn("Unable to resolve metadata of widget " + url + ": " + e.getMessage());
+            }
+        }
+        return widgets;
+    }
+
     /*
      * (non-Javadoc)
      * @see org.apache.rave.portal.service.WidgetMetadataResolver#getMetadataGroup(java.lang.String)
@@ -27,33 +27,119 @@ import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 
+import javax.annotation.PreDestroy;
+
 import org.apache.commons.io.FileUtils;
 import org.apache.rave.model.User;
 import org.apache.rave.model.Widget;
 import org.apache.rave.portal.service.WidgetProviderService;
+import org.apache.rave.service.MetadataCache;
+import org.apache.rave.service.MetadataLoader;
+import org.apache.rave.service.impl.DefaultMetadataCache;
 import org.apache.wookie.connector.framework.WidgetInstance;
 import org.apache.wookie.connector.framework.WookieConnectorException;
 import org.apache.wookie.connector.framework.WookieConnectorService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * Connects Rave to a Wookie server.
+ *
+ * Widget instances are cached per viewer, shared data key and widget url, so that rendering a page only calls Wookie
+ * for instances it has not seen recently. Widget lookups by url are answered from a {@link WookieWidgetCatalog}. Connectors come from a {@link WookieConnectorPool} and are never shared
+ * between threads.
+ */
 public class WookieWidgetService implements WidgetProviderService {
     private static Logger logger = LoggerFactory.getLogger(WookieWidgetService.class);
 
+    public static final String PLACEHOLDER_URL = "about:blank";
+    private static final long DEFAULT_INSTANCE_TIME_TO_LIVE = TimeUnit.MINUTES.toMillis(10);
+    private static final long DEFAULT_CATALOG_REFRESH_INTERVAL = TimeUnit.MINUTES.toMillis(5);
+
     private final String wookieServerUrl; // = "http://localhost:8080/wookie";
     private final String wookieApiKey; // = "TEST";
     private final String adminUsername;
     private final String adminPassword;
-    private static WookieConnectorService connectorService;
+    private WookieConnectorPool connectorPool;
+    private MetadataCache<W3CWidget> instanceCache;
+    private int instanceThreads = 8;
+    private ThreadPoolExecutor instanceExecutor;
+    private WookieWidgetCatalog catalog;
+    private final WookieWidgetCatalog.Source catalogSource = new WookieWidgetCatalog.Source() {
+        @Override
+        public Collection<Widget> fetch() throws WookieConnectorException {
+            return fetchWidgets();
+        }
+    };
 
     public WookieWidgetService(String wookieServerUrl, String wookieApiKey, String adminUsername, String adminPassword){
         this.wookieServerUrl = wookieServerUrl;
         this.wookieApiKey = wookieApiKey;
         this.adminUsername = adminUsername;
         this.adminPassword = adminPassword;
+        this.connectorPool = new WookieConnectorPool(wookieServerUrl, wookieApiKey);
+        this.instanceCache = new DefaultMetadataCache<W3CWidget>("wookieWidgetInstances",
+                DefaultMetadataCache.DEFAULT_MAX_ENTRIES, DEFAULT_INSTANCE_TIME_TO_LIVE, DEFAULT_INSTANCE_TIME_TO_LIVE);
+        this.catalog = new WookieWidgetCatalog(catalogSource, DEFAULT_CATALOG_REFRESH_INTERVAL);
+    }
+
+    public void setConnectorPool(WookieConnectorPool connectorPool) {
+        this.connectorPool = connectorPool;
+    }
+
+    /**
+     * @param instanceCache the cache of widget instances, keyed by viewer, shared data key and widget url
+     */
+    public void setInstanceCache(MetadataCache<W3CWidget> instanceCache) {
+        this.instanceCache = instanceCache;
+    }
+
+    /**
+     * @param instanceThreads the maximum number of widget instances requested from Wookie at the same time by
+     *                        {@link #getWidgets(User, Map, long)}
+     */
+    public void setInstanceThreads(int instanceThreads) {
+        this.instanceThreads = instanceThreads;
+    }
+
+    /**
+     * @param catalogRefreshIntervalSeconds the time between two background refreshes of the widget catalog, a value
+     *                                      less than or equal to zero only refreshes it after a widget is published
+     */
+    public void setCatalogRefreshIntervalSeconds(long catalogRefreshIntervalSeconds) {
+        catalog.destroy();
+        catalog = new WookieWidgetCatalog(catalogSource, TimeUnit.SECONDS.toMillis(catalogRefreshIntervalSeconds));
+    }
+
+    /**
+     * @return the snapshot of the Wookie widgets, exposing its age and refresh duration
+     */
+    public WookieWidgetCatalog getCatalog() {
+        return catalog;
+    }
+
+    @PreDestroy
+    public synchronized void destroy() {
+        catalog.destroy();
+        if (instanceExecutor != null) {
+            instanceExecutor.shutdownNow();
+            instanceExecutor = null;
+        }
     }
 
     /* (non-Javadoc)
@@ -67,16 +153,95 @@ public class WookieWidgetService implements WidgetProviderService {
           return null;
         }
     }
+
+    /**
+     * Resolves the widget instances concurrently. Instances that are not resolved before the timeout are replaced by
+     * a placeholder widget; their lookup carries on in the background and fills the instance cache for the next
+     * request.
+     */
+    @Override
+    public Map<String, Widget> getWidgets(final User viewer, Map<String, Widget> widgets, long timeoutMillis) {
+        Map<String, Widget> resolved = new LinkedHashMap<String, Widget>();
+        Map<String, Future<W3CWidget>> pending = new LinkedHashMap<String, Future<W3CWidget>>();
+        for (Map.Entry<String, Widget> entry : widgets.entrySet()) {
+            final String sharedDataKey = entry.getKey();
+            final Widget widget = entry.getValue();
+            if (!"W3C".equals(widget.getType())) {
+                resolved.put(sharedDataKey, null);
+                continue;
+            }
+            try {
+                pending.put(sharedDataKey, getInstanceExecutor().submit(new Callable<W3CWidget>() {
+                    @Override
+                    public W3CWidget call() {
+                        return getWidgetForViewer(widget, sharedDataKey, viewer);
+                    }
+                }));
+            } catch (RejectedExecutionException e) {
+                logger.warn("Too many pending widget instance requests, rendering a placeholder for " + widget.getUrl());
+                resolved.put(sharedDataKey, createPlaceholder(widget));
+            }
+        }
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        boolean interrupted = false;
+        for (Map.Entry<String, Future<W3CWidget>> entry : pending.entrySet()) {
+            Widget widget = widgets.get(entry.getKey());
+            try {
+                if (interrupted) {
+                    throw new TimeoutException();
+                }
+                long remaining = Math.max(0, deadline - System.currentTimeMillis());
+                resolved.put(entry.getKey(), entry.getValue().get(remaining, TimeUnit.MILLISECONDS));
+            } catch (TimeoutException e) {
+                logger.warn("Wookie did not return an instance of " + widget.getUrl() + " in time, rendering a placeholder");
+                resolved.put(entry.getKey(), createPlaceholder(widget));
+            } catch (InterruptedException e) {
+                interrupted = true;
+                resolved.put(entry.getKey(), createPlaceholder(widget));
+            } catch (ExecutionException e) {
+                logger.error("Unable to get an instance of " + widget.getUrl(), e.getCause());
+                resolved.put(entry.getKey(), createPlaceholder(widget));
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        return resolved;
+    }
     
     /**
-     * Get all widgets available from the configured Wookie server
+     * Get all widgets available from the configured Wookie server, as of the last catalog refresh
      * @return an array of available widgets
      * @throws WookieConnectorException
      */
-    @SuppressWarnings("deprecation")
     public Widget[] getWidgets() throws WookieConnectorException{
-        connectorService = getWookieConnectorService(wookieServerUrl, wookieApiKey, null);    
-        Collection<org.apache.wookie.connector.framework.Widget> widgets = connectorService.getAvailableWidgets().values();
+        ArrayList<Widget> widgets = new ArrayList<Widget>();
+        for (Widget widget : catalog.getWidgets()) {
+            widgets.add(copyCatalogWidget(widget));
+        }
+        return widgets.toArray(new Widget[widgets.size()]);
+    }
+
+    /**
+     * Get the widget with the given url from the widget catalog
+     * @param url the url of the widget, compared ignoring case
+     * @return the widget, or null if Wookie did not list it at the last catalog refresh
+     * @throws WookieConnectorException
+     */
+    public Widget getWidget(String url) throws WookieConnectorException{
+        Widget widget = catalog.getWidget(url);
+        return widget == null ? null : copyCatalogWidget(widget);
+    }
+
+    @SuppressWarnings("deprecation")
+    private Collection<Widget> fetchWidgets() throws WookieConnectorException{
+        Collection<org.apache.wookie.connector.framework.Widget> widgets;
+        WookieConnectorService connectorService = connectorPool.borrow(null);
+        try {
+            widgets = connectorService.getAvailableWidgets().values();
+        } finally {
+            connectorPool.release(null, connectorService);
+        }
         ArrayList<Widget> raveWidgets = new ArrayList<Widget>();
         for (org.apache.wookie.connector.framework.Widget wookieWidget: widgets){
             Widget widget = new W3CWidget();
@@ -87,27 +252,31 @@ public class WookieWidgetService implements WidgetProviderService {
             //widget.setAuthor(wookieWidget.getAuthor());
             raveWidgets.add(widget);
         }
-        return raveWidgets.toArray(new Widget[raveWidgets.size()]);
+        return raveWidgets;
     }
-    
-    public Widget getWidget(String url) throws WookieConnectorException{
-        for (Widget widget: getWidgets()){
-            if (widget.getUrl().equalsIgnoreCase(url)){
-                return widget;
-            }
-        }
-        return null;
+
+    /**
+     * Catalog widgets are shared, every caller gets its own copy
+     */
+    private static Widget copyCatalogWidget(Widget cached) {
+        Widget widget = new W3CWidget();
+        widget.setUrl(cached.getUrl());
+        widget.setDescription(cached.getDescription());
+        widget.setTitle(cached.getTitle());
+        widget.setThumbnailUrl(cached.getThumbnailUrl());
+        return widget;
     }
     
     @SuppressWarnings("deprecation")
     public Widget publishWidgetUrlToWookie(String widgetStrUrl){
         Widget widget = null;
         File tempWgtFile = null;
+        WookieConnectorService connectorService = null;
         try {
             if(adminUsername.equals(null) || adminUsername.equals("") || adminPassword.equals(null) || adminPassword.equals("")){
                 throw new WookieConnectorException("Either the wookie username or password is not defined in portal.properties", null);
             }
-            connectorService = getWookieConnectorService(wookieServerUrl, wookieApiKey, "");
+            connectorService = connectorPool.borrow("");
             // TODO - replace code with line below when bundled with wookie 0.13.0
             // wookie-0.13.0 can accept postWidget with a url parameter as well as file parameter
             //org.apache.wookie.connector.framework.Widget wookieWidget = connectorService.postWidget(widgetUrl, adminUsername, adminPassword);
@@ -124,6 +293,8 @@ public class WookieWidgetService implements WidgetProviderService {
             widget.setTitle(wookieWidget.getTitle());
             widget.setType("W3C");
             widget.setThumbnailUrl(wookieWidget.getIcon().toString());
+            // pick up the new widget in the catalog
+            catalog.invalidate();
         } catch (WookieConnectorException e){
             logger.warn(e.getMessage());
             return returnURLFromConfig(tempWgtFile);
@@ -133,6 +304,7 @@ public class WookieWidgetService implements WidgetProviderService {
             logger.error("I/O error. Problem downloading widget from given URL" + e.getMessage());
         }
         finally{
+            connectorPool.release("", connectorService);
             if(tempWgtFile.exists()){
                 tempWgtFile.delete();
             }
@@ -202,26 +374,71 @@ public class WookieWidgetService implements WidgetProviderService {
      * @param viewer the current viewer
      * @return a Widget
      */
+    private W3CWidget getWidgetForViewer(final Widget widget, final String sharedDataKey, final User viewer){
+        String key = viewer.getUsername() + "\n" + sharedDataKey + "\n" + widget.getUrl();
+        try {
+            return copy(instanceCache.get(key, new MetadataLoader<W3CWidget>() {
+                @Override
+                public W3CWidget load(String key) {
+                    return createWidget(getOrCreateInstance(widget, sharedDataKey, viewer));
+                }
+
+                @Override
+                public long getExpiration(String key, W3CWidget value) {
+                    return 0;
+                }
+            }));
+        } catch (InstanceLookupException e) {
+            // failed lookups are not cached, the next request asks Wookie again
+            Throwable cause = e.getCause();
+            if (cause instanceof WookieConnectorException) {
+                logger.error("Unable to connect to Wookie server", cause);
+            } else {
+                logger.error("Problem communicating with Wookie server", cause);
+            }
+            // FIXME: provide a real error widget
+            return createWidget(new WidgetInstance("error", "error", cause.getMessage(), "100", "100"));
+        }
+    }
+
     @SuppressWarnings("deprecation")
-    private W3CWidget getWidgetForViewer(Widget widget, String sharedDataKey, User viewer){
-       try {
-            connectorService = getWookieConnectorService(wookieServerUrl, wookieApiKey, sharedDataKey);
+    private WidgetInstance getOrCreateInstance(Widget widget, String sharedDataKey, User viewer) {
+        WookieConnectorService connectorService = null;
+        try {
+            connectorService = connectorPool.borrow(sharedDataKey);
             org.apache.wookie.connector.framework.User user = new org.apache.wookie.connector.framework.User(String.valueOf(viewer.getUsername()), viewer.getUsername());
             connectorService.setCurrentUser(user);
             logger.debug("Getting widget:"+widget.getUrl()+" from:" +connectorService.getConnection().getURL());
-            WidgetInstance instance = connectorService.getOrCreateInstance(widget.getUrl());
-            return createWidget(instance);
+            return connectorService.getOrCreateInstance(widget.getUrl());
         } catch (WookieConnectorException e) {
-            logger.error("Unable to connect to Wookie server", e);
-            // FIXME: provide a real error widget
-            return createWidget(new WidgetInstance("error", "error", e.getMessage(), "100", "100"));
+            throw new InstanceLookupException(e);
         } catch (IOException e) {
-            logger.error("Problem communicating with Wookie server", e);
-            // FIXME: provide a real error widget
-            return createWidget(new WidgetInstance("error", "error", e.getMessage(), "100", "100"));
+            throw new InstanceLookupException(e);
+        } finally {
+            connectorPool.release(sharedDataKey, connectorService);
         }
     }
 
+    /**
+     * Creates the widget rendered in place of an instance Wookie did not return in time
+     */
+    private W3CWidget createPlaceholder(Widget widget) {
+        return createWidget(new WidgetInstance(PLACEHOLDER_URL, widget.getUrl(), widget.getTitle(), "0", "0"));
+    }
+
+    /**
+     * Cached widgets are shared, every caller gets its own copy
+     */
+    private static W3CWidget copy(W3CWidget cached) {
+        W3CWidget widget = new W3CWidget();
+        widget.setUrl(cached.getUrl());
+        widget.setTitle(cached.getTitle());
+        widget.setType(cached.getType());
+        widget.setHeight(cached.getHeight());
+        widget.setWidth(cached.getWidth());
+        return widget;
+    }
+
     /**
      * Create a Rave Widget object for the widget instance.
      * This is a transient object and is not persisted
@@ -237,10 +454,31 @@ public class WookieWidgetService implements WidgetProviderService {
         return widget;
     }
 
-    // Get the wookie service connector
-    private WookieConnectorService getWookieConnectorService(String serverURL, String apiKey, String sharedDataKey ) throws WookieConnectorException {
-      connectorService = new WookieConnectorService(serverURL, apiKey, sharedDataKey);
-      return connectorService;
+    private synchronized ThreadPoolExecutor getInstanceExecutor() {
+        if (instanceExecutor == null) {
+            instanceExecutor = new ThreadPoolExecutor(instanceThreads, instanceThreads, 60, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<Runnable>(1000), new ThreadFactory() {
+                        private final AtomicInteger threadNumber = new AtomicInteger();
+
+                        @Override
+                        public Thread newThread(Runnable runnable) {
+                            Thread thread = new Thread(runnable, "rave-wookie-instance-" + threadNumber.incrementAndGet());
+                            thread.setDaemon(true);
+                            return thread;
+                        }
+                    });
+            instanceExecutor.allowCoreThreadTimeOut(true);
+        }
+        return instanceExecutor;
+    }
+
+    /**
+     * Carries the checked exceptions of the Wookie connector out of the instance cache loader
+     */
+    private static class InstanceLookupException extends RuntimeException {
+        private InstanceLookupException(Exception cause) {
+            super(cause);
+        }
     }
 
 }
@@ -20,25 +20,35 @@ package org.apache.rave.provider.w3c.web.renderer;
 
 
 import org.apache.rave.model.User;
+import org.apache.rave.model.Widget;
 import org.apache.rave.portal.service.UserService;
 import org.apache.rave.portal.service.WidgetProviderService;
 import org.apache.rave.portal.service.WidgetService;
-import org.apache.rave.portal.web.renderer.RegionWidgetRenderer;
+import org.apache.rave.portal.web.renderer.RegionWidgetBatchRenderer;
 import org.apache.rave.portal.web.renderer.model.RenderContext;
 import org.apache.rave.provider.w3c.service.impl.W3CWidget;
 import org.apache.rave.rest.model.RegionWidget;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
 import static org.apache.rave.provider.w3c.Constants.WIDGET_TYPE;
 
 @Component
-public class W3cRegionWidgetRenderer implements RegionWidgetRenderer {
+public class W3cRegionWidgetRenderer implements RegionWidgetBatchRenderer {
 
     private final WidgetProviderService widgetService;
     private final UserService userService;
     private final WidgetService coreWidgetService;
+    private long renderTimeoutMillis = 2000;
 
     @Autowired
     public W3cRegionWidgetRenderer(@Qualifier("wookieWidgetService") WidgetProviderService widgetService,
@@ -48,6 +58,15 @@ public class W3cRegionWidgetRenderer implements RegionWidgetRenderer {
         this.coreWidgetService = coreWidgetService;
     }
 
+    /**
+     * @param renderTimeoutMillis the time in milliseconds allowed to resolve all the W3C widget instances of a page,
+     *                            instances not resolved in time are rendered as placeholders
+     */
+    @Value("${provider.wookie.render_timeout_ms:2000}")
+    public void setRenderTimeoutMillis(long renderTimeoutMillis) {
+        this.renderTimeoutMillis = renderTimeoutMillis;
+    }
+
     @Override
     public String getSupportedContext() {
         return WIDGET_TYPE;
@@ -66,4 +85,31 @@ public class W3cRegionWidgetRenderer implements RegionWidgetRenderer {
         item.setWidgetUrl(contextualizedWidget.getUrl());
         return item;
     }
+
+    @Override
+    public void prepareAllForRender(List<RegionWidget> items) {
+        User user = userService.getAuthenticatedUser();
+        Set<String> widgetIds = new LinkedHashSet<String>();
+        for (RegionWidget item : items) {
+            widgetIds.add(item.getWidgetId());
+        }
+        Map<String, Widget> widgetsById = new HashMap<String, Widget>();
+        for (Widget widget : coreWidgetService.getWidgets(widgetIds)) {
+            widgetsById.put(widget.getId(), widget);
+        }
+        Map<String, Widget> widgets = new LinkedHashMap<String, Widget>();
+        for (RegionWidget item : items) {
+            Widget widget = widgetsById.get(item.getWidgetId());
+            if (widget != null) {
+                widgets.put(String.valueOf(item.getId()), widget);
+            }
+        }
+        Map<String, Widget> contextualizedWidgets = widgetService.getWidgets(user, widgets, renderTimeoutMillis);
+        for (RegionWidget item : items) {
+            Widget contextualizedWidget = contextualizedWidgets.get(String.valueOf(item.getId()));
+            if (contextualizedWidget != null) {
+                item.setWidgetUrl(contextualizedWidget.getUrl());
+            }
+        }
+    }
 }
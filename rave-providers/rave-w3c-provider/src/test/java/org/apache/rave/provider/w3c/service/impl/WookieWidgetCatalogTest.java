@@ -0,0 +1,202 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.rave.provider.w3c.service.impl;
+
+import org.apache.rave.model.Widget;
+import org.apache.wookie.connector.framework.WookieConnectorException;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class WookieWidgetCatalogTest {
+    private static final String FREEDER = "http://wookie.apache.org/widgets/freeder";
+    private static final String WEATHER = "http://wookie.apache.org/widgets/weather";
+
+    private final StubSource source = new StubSource();
+    private WookieWidgetCatalog catalog;
+
+    @After
+    public void tearDown() {
+        if (catalog != null) {
+            catalog.destroy();
+        }
+    }
+
+    @Test
+    public void getWidget_indexedByUrlIgnoringCase() throws WookieConnectorException {
+        source.urls = Arrays.asList(FREEDER, WEATHER);
+        catalog = new WookieWidgetCatalog(source, 0);
+
+        assertThat(catalog.getWidget(FREEDER.toUpperCase()).getUrl(), is(FREEDER));
+        assertThat(catalog.getWidget(WEATHER).getUrl(), is(WEATHER));
+        assertThat(catalog.getWidget("http://example.com/unknown"), is(nullValue()));
+        assertThat(catalog.getWidgets().size(), is(2));
+        assertThat(source.fetchCount.get(), is(1));
+    }
+
+    @Test
+    public void invalidate_refreshesInBackground() throws Exception {
+        source.urls = Arrays.asList(FREEDER);
+        catalog = new WookieWidgetCatalog(source, 0);
+        assertThat(catalog.getWidget(WEATHER), is(nullValue()));
+
+        source.urls = Arrays.asList(FREEDER, WEATHER);
+        catalog.invalidate();
+
+        waitForRefreshCount(2);
+        assertThat(catalog.getWidget(WEATHER), is(notNullValue()));
+        assertThat(catalog.size(), is(2));
+    }
+
+    @Test
+    public void refresh_failure_keepsSnapshot() throws Exception {
+        source.urls = Arrays.asList(FREEDER);
+        catalog = new WookieWidgetCatalog(source, 0);
+        catalog.getWidgets();
+
+        source.fail = true;
+        catalog.invalidate();
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (catalog.getRefreshFailureCount() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(catalog.getRefreshFailureCount(), is(1L));
+        assertThat(catalog.getWidget(FREEDER), is(notNullValue()));
+    }
+
+    @Test
+    public void getWidget_concurrentFirstLookupsShareOneFetch() throws Exception {
+        source.urls = Arrays.asList(FREEDER);
+        source.release = new CountDownLatch(1);
+        catalog = new WookieWidgetCatalog(source, 0);
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Widget>> lookups = new ArrayList<Future<Widget>>();
+            for (int i = 0; i < 4; i++) {
+                lookups.add(executor.submit(new Callable<Widget>() {
+                    @Override
+                    public Widget call() throws Exception {
+                        return catalog.getWidget(FREEDER);
+                    }
+                }));
+            }
+            Thread.sleep(100);
+            source.release.countDown();
+            for (Future<Widget> lookup : lookups) {
+                assertThat(lookup.get(5, TimeUnit.SECONDS).getUrl(), is(FREEDER));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertThat(source.fetchCount.get(), is(1));
+    }
+
+    @Test
+    public void getWidget_doesNotWaitForRefresh() throws Exception {
+        source.urls = Arrays.asList(FREEDER);
+        catalog = new WookieWidgetCatalog(source, 0);
+        catalog.getWidgets();
+
+        source.release = new CountDownLatch(1);
+        catalog.invalidate();
+        try {
+            long deadline = System.currentTimeMillis() + 5000;
+            while (source.fetchCount.get() < 2 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertThat(source.fetchCount.get(), is(2));
+            // the refresh is blocked in the source, lookups and another invalidation still return straight away
+            assertThat(catalog.getWidget(FREEDER), is(notNullValue()));
+            catalog.invalidate();
+            assertThat(catalog.getRefreshCount(), is(1L));
+        } finally {
+            source.release.countDown();
+        }
+        waitForRefreshCount(2);
+    }
+
+    @Test
+    public void scheduledRefresh() throws Exception {
+        source.urls = Arrays.asList(FREEDER);
+        catalog = new WookieWidgetCatalog(source, 50);
+        assertThat(catalog.getSnapshotAgeMillis(), is(-1L));
+        catalog.getWidgets();
+
+        waitForRefreshCount(3);
+        assertTrue(catalog.getSnapshotAgeMillis() >= 0);
+        assertTrue(catalog.getLastRefreshDurationMillis() >= 0);
+    }
+
+    private void waitForRefreshCount(long count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (catalog.getRefreshCount() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(catalog.getRefreshCount() >= count);
+    }
+
+    private static class StubSource implements WookieWidgetCatalog.Source {
+        private final AtomicInteger fetchCount = new AtomicInteger();
+        private volatile List<String> urls;
+        private volatile boolean fail;
+        private volatile CountDownLatch release;
+
+        @Override
+        public Collection<Widget> fetch() throws WookieConnectorException {
+            fetchCount.incrementAndGet();
+            if (release != null) {
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            if (fail) {
+                throw new WookieConnectorException("Wookie is down", null);
+            }
+            List<Widget> widgets = new ArrayList<Widget>();
+            for (String url : urls) {
+                Widget widget = new W3CWidget();
+                widget.setUrl(url);
+                widgets.add(widget);
+            }
+            return widgets;
+        }
+    }
+}
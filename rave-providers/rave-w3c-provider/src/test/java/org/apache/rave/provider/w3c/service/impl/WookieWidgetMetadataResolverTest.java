@@ -23,6 +23,7 @@ import org.apache.rave.model.Widget;
 import org.apache.rave.portal.model.impl.WidgetImpl;
 import org.apache.rave.portal.service.WidgetMetadataResolver;
 import org.apache.rave.provider.w3c.repository.W3CWidgetMetadataRepository;
+import org.apache.rave.service.impl.DefaultMetadataCache;
 import org.apache.wookie.connector.framework.WookieConnectorException;
 import org.junit.Before;
 import org.junit.Test;
@@ -90,6 +91,22 @@ public class WookieWidgetMetadataResolverTest {
         assertNull(w);
     }
 
+    @Test
+    public void getMetadata_cached() throws WookieConnectorException {
+        widgetMetadataResolver = new WookieWidgetMetadataResolver(widgetService, new DefaultMetadataCache<Widget>("test"));
+        expect(widgetService.getWidget(VALID_IDENTIFIER)).andReturn(TEST_WIDGET).once();
+        replay(widgetService);
+
+        Widget first = widgetMetadataResolver.getMetadata(VALID_IDENTIFIER);
+        Widget second = widgetMetadataResolver.getMetadata(VALID_IDENTIFIER);
+        verify(widgetService);
+
+        assertNotSame(first, second);
+        assertEquals("freeder", second.getTitle());
+        assertEquals("http://wookie.apache.org/widgets/freeder", second.getUrl());
+        assertEquals(TYPE, second.getType());
+    }
+
     @Test
     public void getAllWidgets() throws IOException, WookieConnectorException {
         Widget[] results = new Widget[]{TEST_WIDGET};
@@ -19,6 +19,194 @@
 
 package org.apache.rave.provider.w3c.service.impl;
 
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.rave.model.User;
+import org.apache.rave.model.Widget;
+import org.apache.rave.portal.model.impl.UserImpl;
+import org.apache.rave.portal.model.impl.WidgetImpl;
+import org.apache.rave.service.impl.DefaultMetadataCache;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Runs the widget service against a local Wookie stub
+ */
 public class WookieWidgetServiceTest {
+    private static final String WIDGET_URL = "http://wookie.apache.org/widgets/freeder";
+
+    private HttpServer server;
+    private WookieStub stub;
+    private WookieWidgetService service;
+    private User viewer;
+
+    @Before
+    public void setUp() throws IOException {
+        stub = new WookieStub();
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/wookie", stub);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+        service = new WookieWidgetService("http://127.0.0.1:" + server.getAddress().getPort() + "/wookie", "TEST", "", "");
+        service.setInstanceCache(new DefaultMetadataCache<W3CWidget>("test"));
+        viewer = new UserImpl("1", "canonical");
+    }
+
+    @After
+    public void tearDown() {
+        service.destroy();
+        server.stop(0);
+    }
+
+    @Test
+    public void getWidget_cachesInstance() {
+        W3CWidget first = (W3CWidget) service.getWidget(viewer, "10", widget(WIDGET_URL));
+        W3CWidget second = (W3CWidget) service.getWidget(viewer, "10", widget(WIDGET_URL));
+
+        assertThat(first.getUrl(), is(second.getUrl()));
+        assertThat(first.getHeight(), is(200));
+        assertThat(stub.instanceRequests.get(), is(1));
+    }
+
+    @Test
+    public void getWidget_returnsCopies() {
+        W3CWidget first = (W3CWidget) service.getWidget(viewer, "10", widget(WIDGET_URL));
+        first.setUrl("changed");
+
+        W3CWidget second = (W3CWidget) service.getWidget(viewer, "10", widget(WIDGET_URL));
+        assertThat(second.getUrl(), is(not("changed")));
+    }
+
+    @Test
+    public void getWidget_keyedByViewerAndSharedDataKey() {
+        W3CWidget widget = (W3CWidget) service.getWidget(viewer, "10", widget(WIDGET_URL));
+        W3CWidget otherRegion = (W3CWidget) service.getWidget(viewer, "11", widget(WIDGET_URL));
+        W3CWidget otherViewer = (W3CWidget) service.getWidget(new UserImpl("2", "john.doe"), "10", widget(WIDGET_URL));
+
+        assertThat(widget.getUrl(), is(not(otherRegion.getUrl())));
+        assertThat(widget.getUrl(), is(not(otherViewer.getUrl())));
+        assertThat(stub.instanceRequests.get(), is(3));
+    }
+
+    @Test
+    public void getWidget_errorNotCached() {
+        stub.fail = true;
+        W3CWidget error = (W3CWidget) service.getWidget(viewer, "10", widget(WIDGET_URL));
+        assertThat(error.getUrl(), is("error"));
+
+        stub.fail = false;
+        W3CWidget widget = (W3CWidget) service.getWidget(viewer, "10", widget(WIDGET_URL));
+        assertThat(widget.getUrl(), is(not("error")));
+        assertThat(stub.instanceRequests.get(), is(2));
+    }
+
+    @Test
+    public void getWidgets_resolvedConcurrently() {
+        stub.delayMillis = 500;
+        Map<String, Widget> widgets = new LinkedHashMap<String, Widget>();
+        for (int i = 0; i < 4; i++) {
+            widgets.put(String.valueOf(i), widget(WIDGET_URL + i));
+        }
+
+        long start = System.currentTimeMillis();
+        Map<String, Widget> resolved = service.getWidgets(viewer, widgets, 5000);
+
+        assertTrue(System.currentTimeMillis() - start < 1500);
+        assertThat(resolved.size(), is(4));
+        for (Widget widget : resolved.values()) {
+            assertThat(widget.getUrl(), is(not(WookieWidgetService.PLACEHOLDER_URL)));
+        }
+    }
+
+    @Test
+    public void getWidgets_deadlineMissed_placeholder() throws Exception {
+        stub.delayMillis = 1000;
+        Map<String, Widget> widgets = new LinkedHashMap<String, Widget>();
+        widgets.put("10", widget(WIDGET_URL));
+
+        long start = System.currentTimeMillis();
+        Map<String, Widget> resolved = service.getWidgets(viewer, widgets, 200);
+
+        assertTrue(System.currentTimeMillis() - start < 900);
+        assertThat(resolved.get("10").getUrl(), is(WookieWidgetService.PLACEHOLDER_URL));
+        assertThat(resolved.get("10").getTitle(), is("freeder"));
+
+        // the lookup carries on and fills the cache for the next render
+        Thread.sleep(1500);
+        stub.delayMillis = 0;
+        resolved = service.getWidgets(viewer, widgets, 200);
+        assertThat(resolved.get("10").getUrl(), is(not(WookieWidgetService.PLACEHOLDER_URL)));
+        assertThat(stub.instanceRequests.get(), is(1));
+    }
+
+    private static Widget widget(String url) {
+        Widget widget = new WidgetImpl();
+        widget.setUrl(url);
+        widget.setTitle("freeder");
+        widget.setType("W3C");
+        return widget;
+    }
+
+    private static class WookieStub implements HttpHandler {
+        private final AtomicInteger instanceRequests = new AtomicInteger();
+        private volatile long delayMillis;
+        private volatile boolean fail;
+
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            drain(exchange.getRequestBody());
+            String path = exchange.getRequestURI().getPath();
+            if (path.endsWith("/widgetinstances") && "POST".equals(exchange.getRequestMethod())) {
+                int instance = instanceRequests.incrementAndGet();
+                try {
+                    Thread.sleep(delayMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                if (fail) {
+                    exchange.sendResponseHeaders(500, -1);
+                } else {
+                    respond(exchange, 201, "<?xml version=\"1.0\" encoding=\"UTF-8\"?><widgetdata>"
+                            + "<url>http://127.0.0.1/wookie/deploy/freeder/index.html?idkey=" + instance + "</url>"
+                            + "<title>freeder</title><height>200</height><width>300</width></widgetdata>");
+                }
+            } else {
+                // participants and anything else the connector asks for
+                respond(exchange, 201, "<?xml version=\"1.0\" encoding=\"UTF-8\"?><participants/>");
+            }
+            exchange.close();
+        }
+
+        private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+            byte[] bytes = body.getBytes("UTF-8");
+            exchange.getResponseHeaders().set("Content-Type", "text/xml");
+            exchange.sendResponseHeaders(status, bytes.length);
+            OutputStream out = exchange.getResponseBody();
+            out.write(bytes);
+            out.close();
+        }
+
+        private static void drain(InputStream in) throws IOException {
+            byte[] buffer = new byte[1024];
+            while (in.read(buffer) != -1) {
+                // discard the form parameters
+            }
+        }
+    }
 }